@@ -0,0 +1,329 @@
+package com.nagar_sewak.backend.anomaly;
+
+import com.nagar_sewak.backend.audit.AuditEvent;
+import com.nagar_sewak.backend.audit.AuditEventWriter;
+import com.nagar_sewak.backend.entities.SecurityEventType;
+import com.nagar_sewak.backend.util.StripedLruCache;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * In-process streaming detector for credential stuffing and brute force.
+ * <p>
+ * Login outcomes and security events are fed in as they happen. Per IP we keep
+ * a sliding failure window, a HyperLogLog of distinct accounts tried and an
+ * exponentially decaying score; per email the same with distinct source IPs.
+ * When a key crosses a threshold a {@code SUSPICIOUS_ACTIVITY_DETECTED} event is
+ * emitted (at most once per cooldown) and, if enabled, the IP is blocked for a
+ * while. State lives in bounded LRU maps, so memory stays flat no matter how
+ * many distinct IPs show up; cold keys are simply forgotten.
+ */
+@Service
+@Slf4j
+public class LoginAnomalyDetector {
+
+    private static final int WINDOW_BUCKETS = 10;
+    private static final int IP_SKETCH_PRECISION = 8;
+    private static final int EMAIL_SKETCH_PRECISION = 6;
+
+    private static final double FAILURE_WEIGHT = 1.0;
+    private static final double NEW_DISTINCT_WEIGHT = 2.0;
+    private static final double SUCCESS_AFTER_FAILURES_WEIGHT = 10.0;
+    private static final Map<SecurityEventType, Double> EVENT_WEIGHTS = Map.of(
+            SecurityEventType.ACCOUNT_LOCKED, 5.0,
+            SecurityEventType.MFA_VERIFICATION_FAILED, 3.0,
+            SecurityEventType.NEW_DEVICE_LOGIN, 1.0
+    );
+
+    private final AuditEventWriter auditEventWriter;
+    private final boolean enabled;
+    private final long windowMillis;
+    private final int ipFailureThreshold;
+    private final int ipDistinctAccountThreshold;
+    private final int emailFailureThreshold;
+    private final int emailDistinctIpThreshold;
+    private final double scoreThreshold;
+    private final double halfLifeMillis;
+    private final long cooldownMillis;
+    private final boolean blockEnabled;
+    private final long blockMillis;
+
+    private final StripedLruCache<String, KeyState> ipStates;
+    private final StripedLruCache<String, KeyState> emailStates;
+    private final StripedLruCache<String, Long> blockedIps;
+
+    private final AtomicLong eventsProcessed = new AtomicLong();
+    private final AtomicLong alertsRaised = new AtomicLong();
+    private final AtomicLong ipsBlocked = new AtomicLong();
+
+    private LongSupplier clock = System::currentTimeMillis;
+
+    public LoginAnomalyDetector(AuditEventWriter auditEventWriter,
+                                @Value("${app.security.anomaly.enabled:true}") boolean enabled,
+                                @Value("${app.security.anomaly.window-seconds:300}") long windowSeconds,
+                                @Value("${app.security.anomaly.ip-failure-threshold:30}") int ipFailureThreshold,
+                                @Value("${app.security.anomaly.ip-distinct-account-threshold:10}") int ipDistinctAccountThreshold,
+                                @Value("${app.security.anomaly.email-failure-threshold:20}") int emailFailureThreshold,
+                                @Value("${app.security.anomaly.email-distinct-ip-threshold:8}") int emailDistinctIpThreshold,
+                                @Value("${app.security.anomaly.score-threshold:50}") double scoreThreshold,
+                                @Value("${app.security.anomaly.score-half-life-seconds:600}") long halfLifeSeconds,
+                                @Value("${app.security.anomaly.alert-cooldown-seconds:600}") long cooldownSeconds,
+                                @Value("${app.security.anomaly.block-enabled:false}") boolean blockEnabled,
+                                @Value("${app.security.anomaly.block-minutes:30}") long blockMinutes,
+                                @Value("${app.security.anomaly.max-tracked-ips:100000}") int maxTrackedIps,
+                                @Value("${app.security.anomaly.max-tracked-emails:100000}") int maxTrackedEmails) {
+        this.auditEventWriter = auditEventWriter;
+        this.enabled = enabled;
+        this.windowMillis = TimeUnit.SECONDS.toMillis(windowSeconds);
+        this.ipFailureThreshold = ipFailureThreshold;
+        this.ipDistinctAccountThreshold = ipDistinctAccountThreshold;
+        this.emailFailureThreshold = emailFailureThreshold;
+        this.emailDistinctIpThreshold = emailDistinctIpThreshold;
+        this.scoreThreshold = scoreThreshold;
+        this.halfLifeMillis = TimeUnit.SECONDS.toMillis(halfLifeSeconds);
+        this.cooldownMillis = TimeUnit.SECONDS.toMillis(cooldownSeconds);
+        this.blockEnabled = blockEnabled;
+        this.blockMillis = TimeUnit.MINUTES.toMillis(blockMinutes);
+        this.ipStates = new StripedLruCache<>(maxTrackedIps, 64);
+        this.emailStates = new StripedLruCache<>(maxTrackedEmails, 64);
+        this.blockedIps = new StripedLruCache<>(Math.max(1024, maxTrackedIps / 10), 16);
+    }
+
+    /**
+     * Feed a failed login attempt
+     */
+    public void onLoginFailure(String email, String ipAddress) {
+        if (!enabled) {
+            return;
+        }
+        eventsProcessed.incrementAndGet();
+        long now = clock.getAsLong();
+
+        if (ipAddress != null) {
+            KeyState state = ipStates.computeIfAbsent(ipAddress, key -> newState(IP_SKETCH_PRECISION));
+            Alert alert = state.recordFailure(email, now, ipFailureThreshold, ipDistinctAccountThreshold);
+            if (alert != null) {
+                raise(alert, null, ipAddress, "ip");
+            }
+        }
+        if (email != null) {
+            KeyState state = emailStates.computeIfAbsent(email, key -> newState(EMAIL_SKETCH_PRECISION));
+            Alert alert = state.recordFailure(ipAddress, now, emailFailureThreshold, emailDistinctIpThreshold);
+            if (alert != null) {
+                raise(alert, email, ipAddress, "email");
+            }
+        }
+    }
+
+    /**
+     * Feed a successful login; a success from an IP that is mid-way through a
+     * failure burst is a likely account takeover
+     */
+    public void onLoginSuccess(String email, String ipAddress) {
+        if (!enabled || ipAddress == null) {
+            return;
+        }
+        eventsProcessed.incrementAndGet();
+        KeyState state = ipStates.get(ipAddress);
+        if (state != null) {
+            Alert alert = state.recordSuccess(clock.getAsLong(), ipFailureThreshold / 2);
+            if (alert != null) {
+                raise(alert, email, ipAddress, "ip");
+            }
+        }
+    }
+
+    /**
+     * Feed a security audit event. Login outcomes arrive through the dedicated
+     * methods and the detector's own alerts are ignored to avoid feedback loops.
+     */
+    public void onAuditEvent(AuditEvent event) {
+        Double weight = EVENT_WEIGHTS.get(event.eventType());
+        if (!enabled || weight == null) {
+            return;
+        }
+        eventsProcessed.incrementAndGet();
+        long now = clock.getAsLong();
+
+        if (event.ipAddress() != null) {
+            KeyState state = ipStates.computeIfAbsent(event.ipAddress(), key -> newState(IP_SKETCH_PRECISION));
+            Alert alert = state.addScore(weight, now, event.eventType().name());
+            if (alert != null) {
+                raise(alert, event.userId(), event.ipAddress(), "ip");
+            }
+        }
+        if (event.userId() != null) {
+            KeyState state = emailStates.computeIfAbsent(event.userId(), key -> newState(EMAIL_SKETCH_PRECISION));
+            Alert alert = state.addScore(weight, now, event.eventType().name());
+            if (alert != null) {
+                raise(alert, event.userId(), event.ipAddress(), "email");
+            }
+        }
+    }
+
+    /**
+     * Whether an IP is currently under a temporary block
+     */
+    public boolean isBlocked(String ipAddress) {
+        if (!blockEnabled || ipAddress == null) {
+            return false;
+        }
+        Long until = blockedIps.get(ipAddress);
+        if (until == null) {
+            return false;
+        }
+        if (until <= clock.getAsLong()) {
+            blockedIps.remove(ipAddress);
+            return false;
+        }
+        return true;
+    }
+
+    public void unblock(String ipAddress) {
+        blockedIps.remove(ipAddress);
+        log.info("Temporary block lifted for IP: {}", ipAddress);
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("blockEnabled", blockEnabled);
+        stats.put("trackedIps", ipStates.size());
+        stats.put("trackedEmails", emailStates.size());
+        stats.put("blockedIps", blockedIps.size());
+        stats.put("eventsProcessed", eventsProcessed.get());
+        stats.put("alertsRaised", alertsRaised.get());
+        stats.put("ipsBlocked", ipsBlocked.get());
+        return stats;
+    }
+
+    void setClock(LongSupplier clock) {
+        this.clock = clock;
+    }
+
+    private KeyState newState(int sketchPrecision) {
+        return new KeyState(new SlidingWindowCounter(windowMillis, WINDOW_BUCKETS), new HyperLogLog(sketchPrecision));
+    }
+
+    private void raise(Alert alert, String userId, String ipAddress, String keyType) {
+        alertsRaised.incrementAndGet();
+
+        Map<String, Object> details = new LinkedHashMap<>();
+        details.put("detector", "login-anomaly");
+        details.put("key", keyType);
+        details.put("reasons", String.join(",", alert.reasons()));
+        details.put("failuresInWindow", alert.failures());
+        details.put("distinctCount", alert.distinct());
+        details.put("score", Math.round(alert.score()));
+
+        boolean block = blockEnabled && "ip".equals(keyType) && ipAddress != null;
+        if (block) {
+            blockedIps.put(ipAddress, clock.getAsLong() + blockMillis);
+            ipsBlocked.incrementAndGet();
+            details.put("blockedMinutes", TimeUnit.MILLISECONDS.toMinutes(blockMillis));
+        }
+
+        auditEventWriter.submit(new AuditEvent(SecurityEventType.SUSPICIOUS_ACTIVITY_DETECTED,
+                userId, ipAddress, null, null, details, null));
+        log.warn("Suspicious login activity on {} {} (user: {}): {}{}", keyType,
+                "ip".equals(keyType) ? ipAddress : userId, userId, alert.reasons(), block ? " - IP blocked" : "");
+    }
+
+    private record Alert(List<String> reasons, int failures, long distinct, double score) {}
+
+    /**
+     * Detector state for one IP or email; all access is synchronized on the instance
+     */
+    private final class KeyState {
+
+        private final SlidingWindowCounter failures;
+        private final HyperLogLog distinct;
+        private long distinctEpoch = -1;
+        private long distinctEstimate;
+        private double score;
+        private long scoreUpdatedAt;
+        private long lastAlertAt = Long.MIN_VALUE;
+
+        private KeyState(SlidingWindowCounter failures, HyperLogLog distinct) {
+            this.failures = failures;
+            this.distinct = distinct;
+        }
+
+        synchronized Alert recordFailure(String counterpart, long now, int failureThreshold, int distinctThreshold) {
+            int failureCount = failures.increment(now);
+            decay(now);
+            score += FAILURE_WEIGHT;
+
+            // HyperLogLog cannot forget, so distinct counts use tumbling windows
+            long epoch = now / windowMillis;
+            if (epoch != distinctEpoch) {
+                distinct.clear();
+                distinctEpoch = epoch;
+                distinctEstimate = 0;
+            }
+            if (counterpart != null) {
+                distinct.add(counterpart);
+                long estimate = distinct.estimate();
+                if (estimate > distinctEstimate) {
+                    score += NEW_DISTINCT_WEIGHT;
+                    distinctEstimate = estimate;
+                }
+            }
+
+            List<String> reasons = new ArrayList<>(3);
+            if (failureCount >= failureThreshold) {
+                reasons.add("HIGH_FAILURE_RATE");
+            }
+            if (distinctEstimate >= distinctThreshold) {
+                reasons.add("MANY_DISTINCT_COUNTERPARTS");
+            }
+            if (score >= scoreThreshold) {
+                reasons.add("ANOMALY_SCORE");
+            }
+            return maybeAlert(reasons, failureCount, now);
+        }
+
+        synchronized Alert recordSuccess(long now, int failureThreshold) {
+            int failureCount = failures.count(now);
+            if (failureCount < failureThreshold) {
+                return null;
+            }
+            decay(now);
+            score += SUCCESS_AFTER_FAILURES_WEIGHT;
+            return maybeAlert(List.of("SUCCESS_AFTER_FAILURE_BURST"), failureCount, now);
+        }
+
+        synchronized Alert addScore(double weight, long now, String reason) {
+            decay(now);
+            score += weight;
+            if (score < scoreThreshold) {
+                return null;
+            }
+            return maybeAlert(List.of("ANOMALY_SCORE", reason), failures.count(now), now);
+        }
+
+        private void decay(long now) {
+            if (scoreUpdatedAt != 0 && now > scoreUpdatedAt) {
+                score *= Math.pow(0.5, (now - scoreUpdatedAt) / halfLifeMillis);
+            }
+            scoreUpdatedAt = now;
+        }
+
+        private Alert maybeAlert(List<String> reasons, int failureCount, long now) {
+            if (reasons.isEmpty() || (lastAlertAt != Long.MIN_VALUE && now - lastAlertAt < cooldownMillis)) {
+                return null;
+            }
+            lastAlertAt = now;
+            return new Alert(reasons, failureCount, distinctEstimate, score);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.nagar_sewak.backend.anomaly;
+
+/**
+ * Event count over a sliding time window, approximated with a ring of
+ * fixed-width buckets. Not thread-safe.
+ */
+public class SlidingWindowCounter {
+
+    private final long bucketMillis;
+    private final int[] counts;
+    private final long[] bucketIds;
+
+    public SlidingWindowCounter(long windowMillis, int buckets) {
+        this.bucketMillis = Math.max(1, windowMillis / buckets);
+        this.counts = new int[buckets];
+        this.bucketIds = new long[buckets];
+        java.util.Arrays.fill(bucketIds, -1);
+    }
+
+    public int increment(long nowMillis) {
+        long bucketId = nowMillis / bucketMillis;
+        int index = (int) (bucketId % counts.length);
+        if (bucketIds[index] != bucketId) {
+            bucketIds[index] = bucketId;
+            counts[index] = 0;
+        }
+        counts[index]++;
+        return count(nowMillis);
+    }
+
+    public int count(long nowMillis) {
+        long currentBucket = nowMillis / bucketMillis;
+        int total = 0;
+        for (int i = 0; i < counts.length; i++) {
+            if (currentBucket - bucketIds[i] < counts.length) {
+                total += counts[i];
+            }
+        }
+        return total;
+    }
+}
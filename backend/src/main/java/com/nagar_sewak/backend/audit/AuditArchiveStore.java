@@ -0,0 +1,154 @@
+package com.nagar_sewak.backend.audit;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Cold storage for expired audit partitions: one gzip-compressed JSON-lines
+ * file per table and month under {@code app.audit.archive.dir}.
+ * <p>
+ * Files are append-only. Each export adds a new gzip member to the end of the
+ * month's file and existing bytes are never rewritten; readers decode all
+ * members in sequence and skip duplicate ids left by an interrupted export.
+ */
+@Component
+@Slf4j
+public class AuditArchiveStore {
+
+    private static final TypeReference<Map<String, Object>> ROW_TYPE = new TypeReference<>() {};
+
+    private final ObjectMapper objectMapper;
+    private final Path archiveDir;
+
+    public AuditArchiveStore(ObjectMapper objectMapper,
+                             @Value("${app.audit.archive.dir:./archive}") String archiveDir) {
+        this.objectMapper = objectMapper;
+        this.archiveDir = Paths.get(archiveDir);
+    }
+
+    /**
+     * Open an appender that writes a new compressed member to the month's archive file
+     */
+    public Appender openAppender(PartitionedTable table, YearMonth month) throws IOException {
+        Path file = fileFor(table, month);
+        Files.createDirectories(file.getParent());
+        return new Appender(file);
+    }
+
+    /**
+     * Months that have an archive file for the table, oldest first
+     */
+    public List<YearMonth> listArchivedMonths(PartitionedTable table) throws IOException {
+        Path dir = archiveDir.resolve(table.tableName());
+        if (!Files.isDirectory(dir)) {
+            return List.of();
+        }
+        try (var files = Files.list(dir)) {
+            return files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.endsWith(".jsonl.gz"))
+                    .map(name -> YearMonth.parse(name.substring(0, name.length() - ".jsonl.gz".length())))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    /**
+     * Compliance lookup: archived rows whose {@code column} equals {@code value},
+     * scanning only the months in [from, to]
+     */
+    public List<Map<String, Object>> find(PartitionedTable table, String column, String value,
+                                          YearMonth from, YearMonth to) throws IOException {
+        if (!table.lookupColumns().contains(column)) {
+            throw new IllegalArgumentException("Column " + column + " is not searchable for " + table.tableName());
+        }
+
+        // Cheap pre-filter on the raw line: the value as it appears inside a JSON string, escaped by the same mapper
+        String encoded = objectMapper.writeValueAsString(value);
+        String needle = encoded.substring(1, encoded.length() - 1);
+
+        List<Map<String, Object>> matches = new ArrayList<>();
+        Set<Object> seenIds = new HashSet<>();
+        for (YearMonth month : listArchivedMonths(table)) {
+            if ((from != null && month.isBefore(from)) || (to != null && month.isAfter(to))) {
+                continue;
+            }
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                    new GZIPInputStream(Files.newInputStream(fileFor(table, month))), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.isEmpty() || !line.contains(needle)) {
+                        continue;
+                    }
+                    Map<String, Object> row = objectMapper.readValue(line, ROW_TYPE);
+                    if (Objects.equals(String.valueOf(row.get(column)), value) && seenIds.add(row.get("id"))) {
+                        matches.add(row);
+                    }
+                }
+            }
+        }
+        return matches;
+    }
+
+    private Path fileFor(PartitionedTable table, YearMonth month) {
+        return archiveDir.resolve(table.tableName()).resolve(month + ".jsonl.gz");
+    }
+
+    /**
+     * Writes one gzip member; the member is finished and synced to disk on close
+     */
+    public class Appender implements Closeable {
+
+        private final FileOutputStream fileStream;
+        private final GZIPOutputStream gzipStream;
+        private final BufferedWriter writer;
+        private long rows;
+
+        private Appender(Path file) throws IOException {
+            this.fileStream = new FileOutputStream(file.toFile(), true);
+            this.gzipStream = new GZIPOutputStream(fileStream, 64 * 1024);
+            this.writer = new BufferedWriter(new OutputStreamWriter(gzipStream, StandardCharsets.UTF_8));
+        }
+
+        public void write(Map<String, Object> row) throws IOException {
+            writer.write(objectMapper.writeValueAsString(row));
+            writer.newLine();
+            rows++;
+        }
+
+        public long rows() {
+            return rows;
+        }
+
+        @Override
+        public void close() throws IOException {
+            writer.flush();
+            gzipStream.finish();
+            fileStream.getFD().sync();
+            writer.close();
+        }
+    }
+}
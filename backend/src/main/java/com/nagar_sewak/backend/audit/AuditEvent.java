@@ -0,0 +1,76 @@
+package com.nagar_sewak.backend.audit;
+
+import com.nagar_sewak.backend.entities.SecurityEventType;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Immutable snapshot of a security event, captured on the calling thread so
+ * that no request state is touched after the request has completed.
+ */
+public record AuditEvent(
+        SecurityEventType eventType,
+        String userId,
+        String ipAddress,
+        String userAgent,
+        String location,
+        Map<String, Object> details,
+        LocalDateTime timestamp) {
+
+    public AuditEvent {
+        details = details == null || details.isEmpty()
+                ? Map.of()
+                : Collections.unmodifiableMap(new LinkedHashMap<>(details));
+        if (timestamp == null) {
+            timestamp = LocalDateTime.now();
+        }
+    }
+
+    /**
+     * Render the details map as a flat JSON object of string values
+     */
+    public String detailsJson() {
+        if (details.isEmpty()) {
+            return "{}";
+        }
+
+        StringBuilder json = new StringBuilder("{");
+        boolean first = true;
+        for (Map.Entry<String, Object> entry : details.entrySet()) {
+            if (!first) {
+                json.append(",");
+            }
+            json.append("\"");
+            appendEscaped(json, entry.getKey());
+            json.append("\":\"");
+            appendEscaped(json, String.valueOf(entry.getValue()));
+            json.append("\"");
+            first = false;
+        }
+        json.append("}");
+        return json.toString();
+    }
+
+    private static void appendEscaped(StringBuilder json, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> json.append("\\\"");
+                case '\\' -> json.append("\\\\");
+                case '\n' -> json.append("\\n");
+                case '\r' -> json.append("\\r");
+                case '\t' -> json.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+                }
+            }
+        }
+    }
+}
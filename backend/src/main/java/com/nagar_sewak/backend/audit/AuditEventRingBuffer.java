@@ -0,0 +1,139 @@
+package com.nagar_sewak.backend.audit;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Bounded multi-producer / single-consumer ring buffer.
+ * <p>
+ * Producers claim a slot with a single CAS on the tail sequence and publish
+ * through a per-slot sequence number, so {@link #offer} never blocks and never
+ * allocates. Only the writer thread may call {@link #poll}; while it waits in
+ * {@link #poll(long, TimeUnit)} producers unpark it after publishing.
+ */
+public class AuditEventRingBuffer {
+
+    private final int capacity;
+    private final int mask;
+    private final AtomicReferenceArray<AuditEvent> slots;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head;
+    private volatile Thread waitingConsumer;
+    private volatile boolean wakeUpRequested;
+
+    public AuditEventRingBuffer(int requestedCapacity) {
+        if (requestedCapacity < 2) {
+            throw new IllegalArgumentException("Ring buffer capacity must be at least 2");
+        }
+        this.capacity = Integer.highestOneBit(requestedCapacity - 1) << 1;
+        this.mask = capacity - 1;
+        this.slots = new AtomicReferenceArray<>(capacity);
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Try to enqueue an event; returns false when the buffer is full
+     */
+    public boolean offer(AuditEvent event) {
+        while (true) {
+            long position = tail.get();
+            int index = (int) (position & mask);
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    slots.lazySet(index, event);
+                    sequences.set(index, position + 1);
+                    Thread waiter = waitingConsumer;
+                    if (waiter != null) {
+                        LockSupport.unpark(waiter);
+                    }
+                    return true;
+                }
+            } else if (difference < 0) {
+                return false;
+            }
+            // Another producer claimed this slot first, retry with the new tail
+        }
+    }
+
+    /**
+     * Dequeue the next published event, or null if none is ready (consumer thread only)
+     */
+    public AuditEvent poll() {
+        long position = head;
+        int index = (int) (position & mask);
+        if (sequences.get(index) != position + 1) {
+            return null;
+        }
+        AuditEvent event = slots.get(index);
+        slots.lazySet(index, null);
+        sequences.set(index, position + capacity);
+        head = position + 1;
+        return event;
+    }
+
+    /**
+     * Dequeue the next published event, waiting up to the timeout for one to
+     * arrive; returns null on timeout or after {@link #wakeUp} (consumer thread only)
+     */
+    public AuditEvent poll(long timeout, TimeUnit unit) throws InterruptedException {
+        AuditEvent event = poll();
+        if (event != null || timeout <= 0) {
+            return event;
+        }
+
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        waitingConsumer = Thread.currentThread();
+        try {
+            while (true) {
+                // Re-check after publishing the waiter so an offer racing with it is not missed
+                event = poll();
+                if (event != null) {
+                    return event;
+                }
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0 || wakeUpRequested) {
+                    wakeUpRequested = false;
+                    return null;
+                }
+                LockSupport.parkNanos(this, remaining);
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+            }
+        } finally {
+            waitingConsumer = null;
+        }
+    }
+
+    /**
+     * Make a consumer blocked in {@link #poll(long, TimeUnit)} return early
+     */
+    public void wakeUp() {
+        wakeUpRequested = true;
+        Thread waiter = waitingConsumer;
+        if (waiter != null) {
+            LockSupport.unpark(waiter);
+        }
+    }
+
+    public int size() {
+        long size = tail.get() - head;
+        return (int) Math.max(0, Math.min(size, capacity));
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+}
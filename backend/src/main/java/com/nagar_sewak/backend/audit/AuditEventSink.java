@@ -0,0 +1,13 @@
+package com.nagar_sewak.backend.audit;
+
+import java.util.List;
+
+/**
+ * Receives each batch of audit events after it has been written to
+ * {@code security_audit_logs}. Called on the writer thread, so implementations
+ * should stay cheap and must not block for long.
+ */
+public interface AuditEventSink {
+
+    void onBatchWritten(List<AuditEvent> events);
+}
@@ -0,0 +1,198 @@
+package com.nagar_sewak.backend.audit;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drains the audit ring buffer on a dedicated thread and writes events to
+ * {@code security_audit_logs} as JDBC batch inserts, flushing whenever the
+ * batch is full or the oldest buffered event exceeds the flush interval.
+ */
+@Component
+@Slf4j
+public class AuditEventWriter {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO security_audit_logs " +
+            "(user_id, event_type, ip_address, timestamp, details, user_agent, location) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    private static final long IDLE_WAIT_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final List<AuditEventSink> sinks;
+    private final AuditEventRingBuffer buffer;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final AuditOverflowPolicy overflowPolicy;
+
+    private final AtomicLong enqueued = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong callerRuns = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private volatile long lastFlushMicros;
+
+    private volatile boolean running;
+    private Thread writerThread;
+
+    public AuditEventWriter(JdbcTemplate jdbcTemplate,
+                            List<AuditEventSink> sinks,
+                            @Value("${app.audit.buffer-size:8192}") int bufferSize,
+                            @Value("${app.audit.batch-size:256}") int batchSize,
+                            @Value("${app.audit.flush-interval-ms:200}") long flushIntervalMs,
+                            @Value("${app.audit.overflow-policy:DROP}") AuditOverflowPolicy overflowPolicy) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.sinks = sinks;
+        this.buffer = new AuditEventRingBuffer(bufferSize);
+        this.batchSize = Math.max(1, batchSize);
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, flushIntervalMs));
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        writerThread = new Thread(this::drainLoop, "audit-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+        log.info("Audit writer started (buffer={}, batchSize={}, overflowPolicy={})",
+                buffer.capacity(), batchSize, overflowPolicy);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (writerThread != null) {
+            buffer.wakeUp();
+            writerThread.join(TimeUnit.SECONDS.toMillis(10));
+        }
+        log.info("Audit writer stopped (written={}, dropped={}, failed={})",
+                written.get(), dropped.get(), failed.get());
+    }
+
+    /**
+     * Enqueue an event for writing. Never blocks; on a full buffer the
+     * configured overflow policy decides whether the event is dropped or
+     * written on the calling thread.
+     */
+    public void submit(AuditEvent event) {
+        if (buffer.offer(event)) {
+            enqueued.incrementAndGet();
+            return;
+        }
+
+        if (overflowPolicy == AuditOverflowPolicy.CALLER_RUNS) {
+            callerRuns.incrementAndGet();
+            writeBatch(List.of(event));
+            return;
+        }
+
+        long total = dropped.incrementAndGet();
+        if ((total & 1023) == 1) {
+            log.warn("Audit buffer full, dropped {} security events so far", total);
+        }
+    }
+
+    private void drainLoop() {
+        List<AuditEvent> batch = new ArrayList<>(batchSize);
+        long batchStartedAt = 0;
+
+        while (running || !buffer.isEmpty()) {
+            // Block until an event arrives, the open batch is due for flushing, or stop() wakes us
+            long waitNanos = batch.isEmpty()
+                    ? IDLE_WAIT_NANOS
+                    : flushIntervalNanos - (System.nanoTime() - batchStartedAt);
+            AuditEvent event;
+            try {
+                event = buffer.poll(waitNanos, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+
+            if (event != null) {
+                if (batch.isEmpty()) {
+                    batchStartedAt = System.nanoTime();
+                }
+                batch.add(event);
+                if (batch.size() >= batchSize) {
+                    flush(batch);
+                }
+            } else if (!batch.isEmpty() && System.nanoTime() - batchStartedAt >= flushIntervalNanos) {
+                flush(batch);
+            }
+        }
+
+        if (!batch.isEmpty()) {
+            flush(batch);
+        }
+    }
+
+    private void flush(List<AuditEvent> batch) {
+        long started = System.nanoTime();
+        writeBatch(batch);
+        lastFlushMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - started);
+        batches.incrementAndGet();
+        batch.clear();
+    }
+
+    private void writeBatch(List<AuditEvent> events) {
+        try {
+            jdbcTemplate.batchUpdate(INSERT_SQL, events, events.size(), (ps, event) -> {
+                ps.setString(1, event.userId());
+                ps.setString(2, event.eventType().name());
+                ps.setString(3, event.ipAddress());
+                ps.setTimestamp(4, Timestamp.valueOf(event.timestamp()));
+                ps.setString(5, event.detailsJson());
+                ps.setString(6, event.userAgent());
+                ps.setString(7, event.location());
+            });
+            written.addAndGet(events.size());
+            log.debug("Flushed {} security audit events", events.size());
+        } catch (Exception e) {
+            failed.addAndGet(events.size());
+            log.error("Failed to write batch of {} security audit events", events.size(), e);
+            return;
+        }
+
+        for (AuditEventSink sink : sinks) {
+            try {
+                sink.onBatchWritten(events);
+            } catch (Exception e) {
+                log.error("Audit sink {} failed for batch of {} events", sink.getClass().getSimpleName(), events.size(), e);
+            }
+        }
+    }
+
+    /**
+     * Snapshot of pipeline counters for monitoring
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("capacity", buffer.capacity());
+        stats.put("queueDepth", buffer.size());
+        stats.put("overflowPolicy", overflowPolicy);
+        stats.put("enqueued", enqueued.get());
+        stats.put("dropped", dropped.get());
+        stats.put("callerRuns", callerRuns.get());
+        stats.put("written", written.get());
+        stats.put("failed", failed.get());
+        stats.put("batches", batches.get());
+        stats.put("lastFlushMicros", lastFlushMicros);
+        return stats;
+    }
+}
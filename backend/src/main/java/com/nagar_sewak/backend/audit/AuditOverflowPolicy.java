@@ -0,0 +1,11 @@
+package com.nagar_sewak.backend.audit;
+
+/**
+ * What to do with an audit event when the ring buffer is full
+ */
+public enum AuditOverflowPolicy {
+    /** Discard the event and count it as dropped */
+    DROP,
+    /** Write the event synchronously on the calling thread */
+    CALLER_RUNS
+}
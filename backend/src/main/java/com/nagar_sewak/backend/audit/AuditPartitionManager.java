@@ -0,0 +1,191 @@
+package com.nagar_sewak.backend.audit;
+
+import com.nagar_sewak.backend.services.JobLockService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Maintains monthly RANGE partitions on MySQL for the audit and login-attempt
+ * tables. On databases without native partitioning the tables stay as they
+ * are and the retention job falls back to chunked month-by-month deletes.
+ * Partition changes run on one replica at a time (job_locks lease).
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class AuditPartitionManager {
+
+    private static final DateTimeFormatter PARTITION_FORMAT = DateTimeFormatter.ofPattern("'p'yyyyMM");
+    private static final String MAX_PARTITION = "pmax";
+    static final String LOCK_NAME = "audit-partitions";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JobLockService jobLockService;
+
+    @Value("${app.audit.partition.months-ahead:3}")
+    private int monthsAhead;
+
+    private volatile Boolean nativePartitioning;
+
+    /**
+     * Create partitions once Hibernate has finished creating/updating the schema
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void initializePartitions() {
+        if (!supportsNativePartitioning()) {
+            log.info("Native partitioning not available, audit retention will use chunked deletes");
+            return;
+        }
+        // Replicas starting together would otherwise both try to partition the same table
+        if (!jobLockService.tryLock(LOCK_NAME, Duration.ofHours(1))) {
+            log.info("Audit partitions are being prepared by another node");
+            return;
+        }
+        try {
+            for (PartitionedTable table : PartitionedTable.values()) {
+                try {
+                    if (listPartitionMonths(table).isEmpty()) {
+                        partitionTable(table);
+                    } else {
+                        addFuturePartitions(table);
+                    }
+                } catch (Exception e) {
+                    log.error("Failed to prepare partitions for table {}", table.tableName(), e);
+                }
+            }
+        } finally {
+            jobLockService.unlock(LOCK_NAME);
+        }
+    }
+
+    /**
+     * Keep a few empty partitions ahead of the current month
+     */
+    @Scheduled(cron = "${app.audit.partition.cron:0 0 2 * * *}")
+    public void maintainPartitions() {
+        if (!supportsNativePartitioning() || !jobLockService.tryLock(LOCK_NAME, Duration.ofHours(1))) {
+            return;
+        }
+        try {
+            for (PartitionedTable table : PartitionedTable.values()) {
+                try {
+                    addFuturePartitions(table);
+                } catch (Exception e) {
+                    log.error("Failed to add partitions for table {}", table.tableName(), e);
+                }
+            }
+        } finally {
+            jobLockService.unlock(LOCK_NAME);
+        }
+    }
+
+    public boolean supportsNativePartitioning() {
+        if (nativePartitioning == null) {
+            try {
+                String product = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                        connection.getMetaData().getDatabaseProductName());
+                nativePartitioning = product != null && product.toLowerCase().contains("mysql");
+            } catch (Exception e) {
+                log.warn("Could not detect database product, disabling native partitioning: {}", e.getMessage());
+                nativePartitioning = false;
+            }
+        }
+        return nativePartitioning;
+    }
+
+    /**
+     * Months that currently have a partition, oldest first (MySQL only)
+     */
+    public List<YearMonth> listPartitionMonths(PartitionedTable table) {
+        List<String> names = jdbcTemplate.queryForList(
+                "SELECT PARTITION_NAME FROM information_schema.PARTITIONS " +
+                "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND PARTITION_NAME IS NOT NULL",
+                String.class, table.tableName());
+
+        TreeSet<YearMonth> months = new TreeSet<>();
+        for (String name : names) {
+            if (!MAX_PARTITION.equals(name)) {
+                months.add(YearMonth.parse(name, PARTITION_FORMAT));
+            }
+        }
+        return new ArrayList<>(months);
+    }
+
+    /**
+     * Drop a month's partition after its rows have been archived (MySQL only)
+     */
+    public void dropPartition(PartitionedTable table, YearMonth month) {
+        jdbcTemplate.execute("ALTER TABLE " + table.tableName() + " DROP PARTITION " + partitionName(month));
+        log.info("Dropped partition {} of {}", partitionName(month), table.tableName());
+    }
+
+    private void partitionTable(PartitionedTable table) {
+        Timestamp oldest = jdbcTemplate.queryForObject(
+                "SELECT MIN(`" + table.timeColumn() + "`) FROM " + table.tableName(), Timestamp.class);
+        YearMonth first = oldest != null
+                ? YearMonth.from(oldest.toLocalDateTime())
+                : YearMonth.now();
+        YearMonth last = YearMonth.now().plusMonths(monthsAhead);
+
+        StringBuilder partitions = new StringBuilder();
+        for (YearMonth month = first; !month.isAfter(last); month = month.plusMonths(1)) {
+            partitions.append(partitionClause(month)).append(", ");
+        }
+        partitions.append("PARTITION ").append(MAX_PARTITION).append(" VALUES LESS THAN (MAXVALUE)");
+
+        // MySQL requires the partitioning column in every unique key, including the primary key
+        jdbcTemplate.execute("ALTER TABLE " + table.tableName() +
+                " DROP PRIMARY KEY, ADD PRIMARY KEY (id, `" + table.timeColumn() + "`)");
+        jdbcTemplate.execute("ALTER TABLE " + table.tableName() +
+                " PARTITION BY RANGE COLUMNS(`" + table.timeColumn() + "`) (" + partitions + ")");
+
+        log.info("Partitioned {} by month from {} to {}", table.tableName(), first, last);
+    }
+
+    private void addFuturePartitions(PartitionedTable table) {
+        List<YearMonth> existing = listPartitionMonths(table);
+        if (existing.isEmpty()) {
+            return;
+        }
+        YearMonth newest = existing.get(existing.size() - 1);
+        YearMonth target = YearMonth.now().plusMonths(monthsAhead);
+        if (!newest.isBefore(target)) {
+            return;
+        }
+
+        StringBuilder partitions = new StringBuilder();
+        for (YearMonth month = newest.plusMonths(1); !month.isAfter(target); month = month.plusMonths(1)) {
+            partitions.append(partitionClause(month)).append(", ");
+        }
+        partitions.append("PARTITION ").append(MAX_PARTITION).append(" VALUES LESS THAN (MAXVALUE)");
+
+        jdbcTemplate.execute("ALTER TABLE " + table.tableName() +
+                " REORGANIZE PARTITION " + MAX_PARTITION + " INTO (" + partitions + ")");
+        log.info("Added partitions to {} up to {}", table.tableName(), target);
+    }
+
+    private String partitionClause(YearMonth month) {
+        LocalDateTime upperBound = month.plusMonths(1).atDay(1).atStartOfDay();
+        return "PARTITION " + partitionName(month) + " VALUES LESS THAN ('" + upperBound.toLocalDate() + "')";
+    }
+
+    private String partitionName(YearMonth month) {
+        return month.format(PARTITION_FORMAT);
+    }
+}
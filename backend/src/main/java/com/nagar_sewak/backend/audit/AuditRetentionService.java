@@ -0,0 +1,211 @@
+package com.nagar_sewak.backend.audit;
+
+import com.nagar_sewak.backend.services.JobLockService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSetMetaData;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Enforces the advertised retention windows: every month that lies entirely
+ * before the cutoff is exported to the cold archive and then removed from the
+ * hot table, by dropping its partition on MySQL or by chunked deletes elsewhere.
+ * Runs on one replica at a time (job_locks lease).
+ */
+@Service
+@Slf4j
+public class AuditRetentionService {
+
+    static final String LOCK_NAME = "audit-retention";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final AuditPartitionManager partitionManager;
+    private final AuditArchiveStore archiveStore;
+    private final JobLockService jobLockService;
+    private final boolean enabled;
+    private final int auditLogRetentionDays;
+    private final int loginAttemptRetentionDays;
+    private final int deleteChunkSize;
+
+    public AuditRetentionService(JdbcTemplate jdbcTemplate,
+                             AuditPartitionManager partitionManager,
+                             AuditArchiveStore archiveStore,
+                             JobLockService jobLockService,
+                             @Value("${app.audit.archive.enabled:true}") boolean enabled,
+                             @Value("${app.retention.audit-log-days:365}") int auditLogRetentionDays,
+                             @Value("${app.retention.login-attempt-days:30}") int loginAttemptRetentionDays,
+                             @Value("${app.audit.archive.delete-chunk-size:1000}") int deleteChunkSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.partitionManager = partitionManager;
+        this.archiveStore = archiveStore;
+        this.jobLockService = jobLockService;
+        this.enabled = enabled;
+        this.auditLogRetentionDays = auditLogRetentionDays;
+        this.loginAttemptRetentionDays = loginAttemptRetentionDays;
+        this.deleteChunkSize = Math.max(1, deleteChunkSize);
+    }
+
+    public int getRetentionDays(PartitionedTable table) {
+        return table == PartitionedTable.SECURITY_AUDIT_LOGS ? auditLogRetentionDays : loginAttemptRetentionDays;
+    }
+
+    /**
+     * Oldest timestamp hot queries need to consider for a table
+     */
+    public LocalDateTime hotWindowStart(PartitionedTable table) {
+        return YearMonth.from(LocalDate.now().minusDays(getRetentionDays(table))).atDay(1).atStartOfDay();
+    }
+
+    @Scheduled(cron = "${app.audit.archive.cron:0 30 3 * * *}")
+    public void archiveExpiredPartitions() {
+        if (!enabled) {
+            return;
+        }
+        // Two replicas exporting the same month would write it to the archive twice
+        if (!jobLockService.tryLock(LOCK_NAME, Duration.ofHours(6))) {
+            log.debug("Audit retention run skipped, another node holds the lock");
+            return;
+        }
+        try {
+            for (PartitionedTable table : PartitionedTable.values()) {
+                try {
+                    archiveExpired(table);
+                } catch (Exception e) {
+                    log.error("Retention run failed for table {}", table.tableName(), e);
+                }
+            }
+        } finally {
+            jobLockService.unlock(LOCK_NAME);
+        }
+    }
+
+    /**
+     * Archive and remove every fully expired month of one table
+     */
+    public Map<YearMonth, Long> archiveExpired(PartitionedTable table) throws IOException {
+        YearMonth firstRetained = YearMonth.from(LocalDate.now().minusDays(getRetentionDays(table)));
+        boolean partitioned = partitionManager.supportsNativePartitioning()
+                && !partitionManager.listPartitionMonths(table).isEmpty();
+
+        Map<YearMonth, Long> archived = new LinkedHashMap<>();
+        for (YearMonth month : expiredMonths(table, firstRetained, partitioned)) {
+            long rows = exportMonth(table, month);
+            if (partitioned) {
+                partitionManager.dropPartition(table, month);
+            } else {
+                deleteMonthInChunks(table, month);
+            }
+            archived.put(month, rows);
+            log.info("Archived {} rows of {} for {}", rows, table.tableName(), month);
+        }
+        return archived;
+    }
+
+    private List<YearMonth> expiredMonths(PartitionedTable table, YearMonth firstRetained, boolean partitioned) {
+        List<YearMonth> months = new ArrayList<>();
+        if (partitioned) {
+            for (YearMonth month : partitionManager.listPartitionMonths(table)) {
+                if (month.isBefore(firstRetained)) {
+                    months.add(month);
+                }
+            }
+            return months;
+        }
+
+        Timestamp oldest = jdbcTemplate.queryForObject(
+                "SELECT MIN(" + table.timeColumn() + ") FROM " + table.tableName(), Timestamp.class);
+        if (oldest == null) {
+            return months;
+        }
+        for (YearMonth month = YearMonth.from(oldest.toLocalDateTime()); month.isBefore(firstRetained);
+             month = month.plusMonths(1)) {
+            months.add(month);
+        }
+        return months;
+    }
+
+    /**
+     * Export one month in id-ordered chunks of {@code deleteChunkSize} rows, so only
+     * one chunk is ever held in memory (Connector/J buffers whole result sets)
+     */
+    private long exportMonth(PartitionedTable table, YearMonth month) throws IOException {
+        Timestamp start = Timestamp.valueOf(month.atDay(1).atStartOfDay());
+        Timestamp end = Timestamp.valueOf(month.plusMonths(1).atDay(1).atStartOfDay());
+        String sql = "SELECT " + String.join(", ", table.columns()) + " FROM " + table.tableName() +
+                " WHERE " + table.timeColumn() + " >= ? AND " + table.timeColumn() + " < ? AND id > ? ORDER BY id";
+
+        try (AuditArchiveStore.Appender appender = archiveStore.openAppender(table, month)) {
+            long lastId = 0;
+            while (true) {
+                long afterId = lastId;
+                List<Map<String, Object>> rows = jdbcTemplate.query(connection -> {
+                    var ps = connection.prepareStatement(sql);
+                    ps.setMaxRows(deleteChunkSize);
+                    ps.setTimestamp(1, start);
+                    ps.setTimestamp(2, end);
+                    ps.setLong(3, afterId);
+                    return ps;
+                }, (rs, rowNum) -> {
+                    ResultSetMetaData meta = rs.getMetaData();
+                    Map<String, Object> row = new LinkedHashMap<>();
+                    for (int i = 1; i <= meta.getColumnCount(); i++) {
+                        Object value = rs.getObject(i);
+                        if (value instanceof Timestamp ts) {
+                            value = ts.toLocalDateTime().toString();
+                        } else if (value instanceof LocalDateTime dateTime) {
+                            value = dateTime.toString();
+                        } else if (value instanceof byte[] bytes) {
+                            value = new String(bytes, StandardCharsets.UTF_8);
+                        }
+                        row.put(meta.getColumnLabel(i).toLowerCase(), value);
+                    }
+                    return row;
+                });
+                if (rows.isEmpty()) {
+                    return appender.rows();
+                }
+                for (Map<String, Object> row : rows) {
+                    appender.write(row);
+                }
+                lastId = ((Number) rows.get(rows.size() - 1).get("id")).longValue();
+            }
+        }
+    }
+
+    private void deleteMonthInChunks(PartitionedTable table, YearMonth month) {
+        Timestamp start = Timestamp.valueOf(month.atDay(1).atStartOfDay());
+        Timestamp end = Timestamp.valueOf(month.plusMonths(1).atDay(1).atStartOfDay());
+        String selectIds = "SELECT id FROM " + table.tableName() + " WHERE " + table.timeColumn() +
+                " >= ? AND " + table.timeColumn() + " < ? ORDER BY id";
+        String deleteRange = "DELETE FROM " + table.tableName() + " WHERE id BETWEEN ? AND ? AND " +
+                table.timeColumn() + " >= ? AND " + table.timeColumn() + " < ?";
+
+        while (true) {
+            List<Long> ids = jdbcTemplate.query(connection -> {
+                var ps = connection.prepareStatement(selectIds);
+                ps.setMaxRows(deleteChunkSize);
+                ps.setTimestamp(1, start);
+                ps.setTimestamp(2, end);
+                return ps;
+            }, (rs, rowNum) -> rs.getLong(1));
+            if (ids.isEmpty()) {
+                return;
+            }
+            jdbcTemplate.update(deleteRange, ids.get(0), ids.get(ids.size() - 1), start, end);
+        }
+    }
+}
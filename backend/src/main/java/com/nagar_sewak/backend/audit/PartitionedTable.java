@@ -0,0 +1,54 @@
+package com.nagar_sewak.backend.audit;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Append-mostly tables stored in monthly time partitions and archived once
+ * they fall outside their retention window.
+ */
+public enum PartitionedTable {
+
+    SECURITY_AUDIT_LOGS(
+            "security_audit_logs",
+            "timestamp",
+            List.of("id", "user_id", "event_type", "ip_address", "timestamp", "details", "user_agent", "location"),
+            Set.of("user_id", "ip_address")),
+
+    LOGIN_ATTEMPTS(
+            "login_attempts",
+            "attempt_time",
+            List.of("id", "email", "ip_address", "attempt_time", "successful", "user_agent", "location"),
+            Set.of("email", "ip_address"));
+
+    private final String tableName;
+    private final String timeColumn;
+    private final List<String> columns;
+    private final Set<String> lookupColumns;
+
+    PartitionedTable(String tableName, String timeColumn, List<String> columns, Set<String> lookupColumns) {
+        this.tableName = tableName;
+        this.timeColumn = timeColumn;
+        this.columns = columns;
+        this.lookupColumns = lookupColumns;
+    }
+
+    public String tableName() {
+        return tableName;
+    }
+
+    public String timeColumn() {
+        return timeColumn;
+    }
+
+    public List<String> columns() {
+        return columns;
+    }
+
+    /**
+     * Columns the archive reader may filter on for compliance lookups
+     */
+    public Set<String> lookupColumns() {
+        return lookupColumns;
+    }
+}
@@ -0,0 +1,393 @@
+package com.nagar_sewak.backend.audit;
+
+import com.nagar_sewak.backend.entities.RollupGranularity;
+import com.nagar_sewak.backend.entities.SecurityActorRollup.ActorType;
+import com.nagar_sewak.backend.entities.SecurityEventType;
+import com.nagar_sewak.backend.repositories.SecurityActorRollupRepository;
+import com.nagar_sewak.backend.repositories.SecurityEventRollupRepository;
+import com.nagar_sewak.backend.services.JobLockService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Hourly and daily security event rollups.
+ * <p>
+ * The audit writer feeds every written batch into {@link #onBatchWritten}, which
+ * adds the batch's per-hour counts to the rollup tables with one batched UPDATE
+ * (and INSERTs for new buckets). A scheduled compaction folds complete days of
+ * hourly rows into one daily row per event type and keeps only the top actors,
+ * so stats queries read a bounded number of rows whatever the range.
+ * <p>
+ * Raw audit rows written before the rollups existed are folded in once at
+ * startup by {@link #backfill}.
+ */
+@Service
+@Slf4j
+public class SecurityEventRollupService implements AuditEventSink {
+
+    private static final String EVENT_TABLE = "security_event_rollups";
+    private static final String ACTOR_TABLE = "security_actor_rollups";
+    private static final String AUDIT_TABLE = "security_audit_logs";
+    private static final String BACKFILL_LOCK = "security-rollup-backfill";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final JobLockService jobLockService;
+    private final SecurityEventRollupRepository eventRollupRepository;
+    private final SecurityActorRollupRepository actorRollupRepository;
+    private final int hourlyRetentionDays;
+    private final int topActorsPerDay;
+    private final int retentionDays;
+
+    public SecurityEventRollupService(JdbcTemplate jdbcTemplate,
+                                      TransactionTemplate transactionTemplate,
+                                      JobLockService jobLockService,
+                                      SecurityEventRollupRepository eventRollupRepository,
+                                      SecurityActorRollupRepository actorRollupRepository,
+                                      @Value("${app.audit.rollup.hourly-retention-days:2}") int hourlyRetentionDays,
+                                      @Value("${app.audit.rollup.top-actors-per-day:50}") int topActorsPerDay,
+                                      @Value("${app.retention.audit-log-days:365}") int retentionDays) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.jobLockService = jobLockService;
+        this.eventRollupRepository = eventRollupRepository;
+        this.actorRollupRepository = actorRollupRepository;
+        this.hourlyRetentionDays = Math.max(1, hourlyRetentionDays);
+        this.topActorsPerDay = Math.max(1, topActorsPerDay);
+        this.retentionDays = retentionDays;
+    }
+
+    private record EventKey(LocalDateTime bucket, SecurityEventType eventType) {}
+
+    private record ActorKey(LocalDateTime bucket, ActorType actorType, String actor) {}
+
+    @Override
+    public void onBatchWritten(List<AuditEvent> events) {
+        Map<EventKey, Long> eventCounts = new HashMap<>();
+        Map<ActorKey, Long> actorCounts = new HashMap<>();
+
+        for (AuditEvent event : events) {
+            LocalDateTime hour = event.timestamp().truncatedTo(ChronoUnit.HOURS);
+            eventCounts.merge(new EventKey(hour, event.eventType()), 1L, Long::sum);
+            if (event.eventType().isSuspicious()) {
+                if (event.ipAddress() != null) {
+                    actorCounts.merge(new ActorKey(hour, ActorType.IP, event.ipAddress()), 1L, Long::sum);
+                }
+                if (event.userId() != null) {
+                    actorCounts.merge(new ActorKey(hour, ActorType.USER, event.userId()), 1L, Long::sum);
+                }
+            }
+        }
+
+        incrementEvents(RollupGranularity.HOUR, eventCounts);
+        incrementActors(RollupGranularity.HOUR, actorCounts);
+    }
+
+    /**
+     * Event counts by type over [start, end), as [eventType, count] rows
+     */
+    public List<Object[]> getEventCountsByType(LocalDateTime start, LocalDateTime end) {
+        return eventRollupRepository.sumByEventType(RollupGranularity.HOUR, RollupGranularity.DAY,
+                start.truncatedTo(ChronoUnit.HOURS), firstWholeDay(start), end);
+    }
+
+    /**
+     * Suspicious event counts by type over [start, end), keyed by event type
+     */
+    public Map<SecurityEventType, Long> getSuspiciousCounts(LocalDateTime start, LocalDateTime end) {
+        List<SecurityEventType> suspicious = new ArrayList<>();
+        for (SecurityEventType type : SecurityEventType.values()) {
+            if (type.isSuspicious()) {
+                suspicious.add(type);
+            }
+        }
+
+        Map<SecurityEventType, Long> counts = new EnumMap<>(SecurityEventType.class);
+        for (Object[] row : eventRollupRepository.sumByEventTypeIn(suspicious, RollupGranularity.HOUR,
+                RollupGranularity.DAY, start.truncatedTo(ChronoUnit.HOURS), firstWholeDay(start), end)) {
+            counts.put((SecurityEventType) row[0], ((Number) row[1]).longValue());
+        }
+        return counts;
+    }
+
+    /**
+     * Top IPs or users by suspicious event count over [start, end)
+     */
+    public List<Map<String, Object>> getTopActors(ActorType actorType, LocalDateTime start, LocalDateTime end, int limit) {
+        List<Map<String, Object>> actors = new ArrayList<>();
+        for (Object[] row : actorRollupRepository.findTopActors(actorType, RollupGranularity.HOUR, RollupGranularity.DAY,
+                start.truncatedTo(ChronoUnit.HOURS), firstWholeDay(start), end, PageRequest.of(0, limit))) {
+            Map<String, Object> actor = new LinkedHashMap<>();
+            actor.put(actorType == ActorType.IP ? "ipAddress" : "userId", row[0]);
+            actor.put("count", ((Number) row[1]).longValue());
+            actors.add(actor);
+        }
+        return actors;
+    }
+
+    /**
+     * First day bucket that lies wholly inside a range starting at {@code start}. A partial leading day is
+     * only counted from its hourly buckets; its daily row would add the hours before {@code start}.
+     */
+    private static LocalDateTime firstWholeDay(LocalDateTime start) {
+        LocalDateTime day = start.truncatedTo(ChronoUnit.DAYS);
+        return day.isEqual(start) ? day : day.plusDays(1);
+    }
+
+    /**
+     * Fold complete days of hourly rollups into daily rows and prune expired rollups
+     */
+    @Scheduled(cron = "${app.audit.rollup.compaction-cron:0 10 * * * *}")
+    public void compact() {
+        LocalDateTime cutoff = LocalDate.now().minusDays(hourlyRetentionDays).atStartOfDay();
+        try {
+            Timestamp oldest = jdbcTemplate.queryForObject(
+                    "SELECT MIN(bucket_start) FROM " + EVENT_TABLE + " WHERE granularity = 'HOUR'", Timestamp.class);
+            Timestamp oldestActor = jdbcTemplate.queryForObject(
+                    "SELECT MIN(bucket_start) FROM " + ACTOR_TABLE + " WHERE granularity = 'HOUR'", Timestamp.class);
+            LocalDateTime from = earliest(oldest, oldestActor);
+
+            if (from != null) {
+                for (LocalDateTime day = from.truncatedTo(ChronoUnit.DAYS); day.isBefore(cutoff); day = day.plusDays(1)) {
+                    LocalDateTime dayStart = day;
+                    transactionTemplate.executeWithoutResult(status -> compactDay(dayStart));
+                }
+            }
+
+            LocalDateTime expired = LocalDate.now().minusDays(retentionDays).atStartOfDay();
+            transactionTemplate.executeWithoutResult(status -> {
+                eventRollupRepository.deleteByBucketStartBefore(expired);
+                actorRollupRepository.deleteByBucketStartBefore(expired);
+            });
+        } catch (Exception e) {
+            log.error("Security event rollup compaction failed", e);
+        }
+    }
+
+    /**
+     * Roll up raw audit rows that predate the rollup tables: everything inside the
+     * retention window and before the earliest existing bucket (or the current hour
+     * when there is none). Days older than the hourly retention go straight into
+     * daily rows. A completed backfill leaves nothing to do on the next start.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        if (!jobLockService.tryLock(BACKFILL_LOCK, Duration.ofHours(1))) {
+            return;
+        }
+        try {
+            Timestamp earliestBucket = jdbcTemplate.queryForObject(
+                    "SELECT MIN(bucket_start) FROM " + EVENT_TABLE, Timestamp.class);
+            LocalDateTime boundary = earliestBucket != null
+                    ? earliestBucket.toLocalDateTime()
+                    : LocalDateTime.now().truncatedTo(ChronoUnit.HOURS);
+            LocalDateTime retentionStart = LocalDate.now().minusDays(retentionDays).atStartOfDay();
+
+            Timestamp oldestRaw = jdbcTemplate.queryForObject(
+                    "SELECT MIN(timestamp) FROM " + AUDIT_TABLE + " WHERE timestamp >= ? AND timestamp < ?",
+                    Timestamp.class, Timestamp.valueOf(retentionStart), Timestamp.valueOf(boundary));
+            if (oldestRaw == null) {
+                return;
+            }
+
+            LocalDateTime hourlyCutoff = LocalDate.now().minusDays(hourlyRetentionDays).atStartOfDay();
+            int days = 0;
+            for (LocalDateTime day = oldestRaw.toLocalDateTime().truncatedTo(ChronoUnit.DAYS);
+                 day.isBefore(boundary); day = day.plusDays(1)) {
+                LocalDateTime from = day;
+                LocalDateTime to = day.plusDays(1).isBefore(boundary) ? day.plusDays(1) : boundary;
+                boolean daily = to.isBefore(hourlyCutoff) || to.isEqual(hourlyCutoff);
+                transactionTemplate.executeWithoutResult(status -> backfillRange(from, to, daily));
+                days++;
+            }
+            log.info("Backfilled security rollups from raw audit rows for {} days before {}", days, boundary);
+        } catch (Exception e) {
+            log.error("Security event rollup backfill failed", e);
+        } finally {
+            jobLockService.unlock(BACKFILL_LOCK);
+        }
+    }
+
+    private void backfillRange(LocalDateTime from, LocalDateTime to, boolean daily) {
+        Timestamp start = Timestamp.valueOf(from);
+        Timestamp end = Timestamp.valueOf(to);
+        LocalDateTime day = from.truncatedTo(ChronoUnit.DAYS);
+        String range = " FROM " + AUDIT_TABLE + " WHERE timestamp >= ? AND timestamp < ?";
+
+        Map<EventKey, Long> eventCounts = new HashMap<>();
+        jdbcTemplate.query("SELECT event_type, HOUR(timestamp), COUNT(*)" + range + " GROUP BY event_type, HOUR(timestamp)",
+                rs -> {
+                    LocalDateTime bucket = daily ? day : day.plusHours(rs.getInt(2));
+                    eventCounts.merge(new EventKey(bucket, SecurityEventType.valueOf(rs.getString(1))),
+                            rs.getLong(3), Long::sum);
+                }, start, end);
+
+        String suspicious = Arrays.stream(SecurityEventType.values())
+                .filter(SecurityEventType::isSuspicious)
+                .map(type -> "'" + type.name() + "'")
+                .collect(Collectors.joining(", "));
+        Map<ActorKey, Long> actorCounts = new HashMap<>();
+        for (ActorType actorType : ActorType.values()) {
+            String column = actorType == ActorType.IP ? "ip_address" : "user_id";
+            jdbcTemplate.query("SELECT " + column + ", HOUR(timestamp), COUNT(*)" + range +
+                            " AND event_type IN (" + suspicious + ") AND " + column + " IS NOT NULL" +
+                            " GROUP BY " + column + ", HOUR(timestamp)",
+                    rs -> {
+                        LocalDateTime bucket = daily ? day : day.plusHours(rs.getInt(2));
+                        actorCounts.merge(new ActorKey(bucket, actorType, rs.getString(1)), rs.getLong(3), Long::sum);
+                    }, start, end);
+        }
+
+        RollupGranularity granularity = daily ? RollupGranularity.DAY : RollupGranularity.HOUR;
+        incrementEvents(granularity, eventCounts);
+        incrementActors(granularity, daily ? topActors(actorCounts) : actorCounts);
+    }
+
+    private void compactDay(LocalDateTime day) {
+        Timestamp start = Timestamp.valueOf(day);
+        Timestamp end = Timestamp.valueOf(day.plusDays(1));
+
+        // FOR UPDATE makes a concurrent compaction on another replica wait and then find nothing
+        Map<EventKey, Long> eventCounts = new HashMap<>();
+        jdbcTemplate.query("SELECT event_type, event_count FROM " + EVENT_TABLE +
+                        " WHERE granularity = 'HOUR' AND bucket_start >= ? AND bucket_start < ? FOR UPDATE",
+                rs -> {
+                    eventCounts.merge(new EventKey(day, SecurityEventType.valueOf(rs.getString(1))),
+                            rs.getLong(2), Long::sum);
+                }, start, end);
+
+        Map<ActorKey, Long> actorCounts = new HashMap<>();
+        jdbcTemplate.query("SELECT actor_type, actor, event_count FROM " + ACTOR_TABLE +
+                        " WHERE granularity = 'HOUR' AND bucket_start >= ? AND bucket_start < ? FOR UPDATE",
+                rs -> {
+                    actorCounts.merge(new ActorKey(day, ActorType.valueOf(rs.getString(1)), rs.getString(2)),
+                            rs.getLong(3), Long::sum);
+                }, start, end);
+
+        incrementEvents(RollupGranularity.DAY, eventCounts);
+        incrementActors(RollupGranularity.DAY, topActors(actorCounts));
+
+        jdbcTemplate.update("DELETE FROM " + EVENT_TABLE +
+                " WHERE granularity = 'HOUR' AND bucket_start >= ? AND bucket_start < ?", start, end);
+        jdbcTemplate.update("DELETE FROM " + ACTOR_TABLE +
+                " WHERE granularity = 'HOUR' AND bucket_start >= ? AND bucket_start < ?", start, end);
+
+        log.info("Compacted security rollups for {} ({} event types, {} actors)",
+                day.toLocalDate(), eventCounts.size(), actorCounts.size());
+    }
+
+    private Map<ActorKey, Long> topActors(Map<ActorKey, Long> actorCounts) {
+        Map<ActorKey, Long> top = new HashMap<>();
+        for (ActorType actorType : ActorType.values()) {
+            actorCounts.entrySet().stream()
+                    .filter(entry -> entry.getKey().actorType() == actorType)
+                    .sorted(Map.Entry.<ActorKey, Long>comparingByValue(Comparator.reverseOrder()))
+                    .limit(topActorsPerDay)
+                    .forEach(entry -> top.put(entry.getKey(), entry.getValue()));
+        }
+        return top;
+    }
+
+    private void incrementEvents(RollupGranularity granularity, Map<EventKey, Long> counts) {
+        if (counts.isEmpty()) {
+            return;
+        }
+        List<Map.Entry<EventKey, Long>> entries = new ArrayList<>(counts.entrySet());
+        int[] updated = jdbcTemplate.batchUpdate(
+                "UPDATE " + EVENT_TABLE + " SET event_count = event_count + ? " +
+                "WHERE granularity = ? AND bucket_start = ? AND event_type = ?",
+                entries, entries.size(), (ps, entry) -> {
+                    ps.setLong(1, entry.getValue());
+                    ps.setString(2, granularity.name());
+                    ps.setTimestamp(3, Timestamp.valueOf(entry.getKey().bucket()));
+                    ps.setString(4, entry.getKey().eventType().name());
+                })[0];
+
+        for (int i = 0; i < entries.size(); i++) {
+            if (updated[i] != 0) {
+                continue;
+            }
+            Map.Entry<EventKey, Long> entry = entries.get(i);
+            Timestamp bucket = Timestamp.valueOf(entry.getKey().bucket());
+            String eventType = entry.getKey().eventType().name();
+            try {
+                jdbcTemplate.update("INSERT INTO " + EVENT_TABLE +
+                        " (granularity, bucket_start, event_type, event_count) VALUES (?, ?, ?, ?)",
+                        granularity.name(), bucket, eventType, entry.getValue());
+            } catch (DuplicateKeyException e) {
+                // Another writer created the bucket between our UPDATE and INSERT
+                jdbcTemplate.update("UPDATE " + EVENT_TABLE + " SET event_count = event_count + ? " +
+                        "WHERE granularity = ? AND bucket_start = ? AND event_type = ?",
+                        entry.getValue(), granularity.name(), bucket, eventType);
+            }
+        }
+    }
+
+    private void incrementActors(RollupGranularity granularity, Map<ActorKey, Long> counts) {
+        if (counts.isEmpty()) {
+            return;
+        }
+        List<Map.Entry<ActorKey, Long>> entries = new ArrayList<>(counts.entrySet());
+        int[] updated = jdbcTemplate.batchUpdate(
+                "UPDATE " + ACTOR_TABLE + " SET event_count = event_count + ? " +
+                "WHERE granularity = ? AND bucket_start = ? AND actor_type = ? AND actor = ?",
+                entries, entries.size(), (ps, entry) -> {
+                    ps.setLong(1, entry.getValue());
+                    ps.setString(2, granularity.name());
+                    ps.setTimestamp(3, Timestamp.valueOf(entry.getKey().bucket()));
+                    ps.setString(4, entry.getKey().actorType().name());
+                    ps.setString(5, entry.getKey().actor());
+                })[0];
+
+        for (int i = 0; i < entries.size(); i++) {
+            if (updated[i] != 0) {
+                continue;
+            }
+            Map.Entry<ActorKey, Long> entry = entries.get(i);
+            ActorKey key = entry.getKey();
+            Timestamp bucket = Timestamp.valueOf(key.bucket());
+            try {
+                jdbcTemplate.update("INSERT INTO " + ACTOR_TABLE +
+                        " (granularity, bucket_start, actor_type, actor, event_count) VALUES (?, ?, ?, ?, ?)",
+                        granularity.name(), bucket, key.actorType().name(), key.actor(), entry.getValue());
+            } catch (DuplicateKeyException e) {
+                jdbcTemplate.update("UPDATE " + ACTOR_TABLE + " SET event_count = event_count + ? " +
+                        "WHERE granularity = ? AND bucket_start = ? AND actor_type = ? AND actor = ?",
+                        entry.getValue(), granularity.name(), bucket, key.actorType().name(), key.actor());
+            }
+        }
+    }
+
+    private static LocalDateTime earliest(Timestamp a, Timestamp b) {
+        if (a == null) {
+            return b != null ? b.toLocalDateTime() : null;
+        }
+        if (b == null) {
+            return a.toLocalDateTime();
+        }
+        return a.before(b) ? a.toLocalDateTime() : b.toLocalDateTime();
+    }
+}
@@ -0,0 +1,58 @@
+package com.nagar_sewak.backend.config;
+
+import com.nagar_sewak.backend.util.InstrumentedExecutor;
+import com.nagar_sewak.backend.util.InstrumentedExecutor.RejectionPolicy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * One bounded executor per async workload, so a backlog of slow SMTP sends cannot
+ * starve push delivery or PDF rendering. Email and notification delivery are I/O-bound
+ * and may opt into virtual threads; PDF rendering is CPU-bound and always uses a
+ * small platform pool. Audit events have their own ring-buffer writer
+ * ({@link com.nagar_sewak.backend.audit.AuditEventWriter}).
+ */
+@Configuration
+public class AsyncExecutorConfig {
+
+    public static final String EMAIL_EXECUTOR = "emailExecutor";
+    public static final String NOTIFICATION_EXECUTOR = "notificationExecutor";
+    public static final String PDF_EXECUTOR = "pdfExecutor";
+
+    @Bean(name = EMAIL_EXECUTOR, destroyMethod = "shutdown")
+    public InstrumentedExecutor emailExecutor(
+            @Value("${app.executors.email.core-size:2}") int coreSize,
+            @Value("${app.executors.email.max-size:8}") int maxSize,
+            @Value("${app.executors.email.queue-capacity:2000}") int queueCapacity,
+            @Value("${app.executors.email.rejection-policy:CALLER_RUNS}") RejectionPolicy rejectionPolicy,
+            @Value("${app.executors.email.virtual-threads:false}") boolean virtualThreads) {
+        return create("email", coreSize, maxSize, queueCapacity, rejectionPolicy, virtualThreads);
+    }
+
+    @Bean(name = NOTIFICATION_EXECUTOR, destroyMethod = "shutdown")
+    public InstrumentedExecutor notificationExecutor(
+            @Value("${app.executors.notification.core-size:2}") int coreSize,
+            @Value("${app.executors.notification.max-size:4}") int maxSize,
+            @Value("${app.executors.notification.queue-capacity:5000}") int queueCapacity,
+            @Value("${app.executors.notification.rejection-policy:CALLER_RUNS}") RejectionPolicy rejectionPolicy,
+            @Value("${app.executors.notification.virtual-threads:false}") boolean virtualThreads) {
+        return create("notification", coreSize, maxSize, queueCapacity, rejectionPolicy, virtualThreads);
+    }
+
+    @Bean(name = PDF_EXECUTOR, destroyMethod = "shutdown")
+    public InstrumentedExecutor pdfExecutor(
+            @Value("${app.executors.pdf.core-size:2}") int coreSize,
+            @Value("${app.executors.pdf.max-size:2}") int maxSize,
+            @Value("${app.executors.pdf.queue-capacity:50}") int queueCapacity,
+            @Value("${app.executors.pdf.rejection-policy:CALLER_RUNS}") RejectionPolicy rejectionPolicy) {
+        return create("pdf", coreSize, maxSize, queueCapacity, rejectionPolicy, false);
+    }
+
+    private static InstrumentedExecutor create(String name, int coreSize, int maxSize, int queueCapacity,
+                                               RejectionPolicy rejectionPolicy, boolean virtualThreads) {
+        return virtualThreads
+                ? InstrumentedExecutor.virtual(name, maxSize, queueCapacity, rejectionPolicy)
+                : InstrumentedExecutor.platform(name, coreSize, maxSize, queueCapacity, rejectionPolicy);
+    }
+}
@@ -2,6 +2,7 @@ package com.nagar_sewak.backend.config;
 
 import com.nagar_sewak.backend.entities.*;
 import com.nagar_sewak.backend.repositories.*;
+import com.nagar_sewak.backend.services.EmailTemplateService;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import org.springframework.boot.context.event.ApplicationReadyEvent;
@@ -29,6 +30,7 @@ public class DataSeeder {
         private final ComplaintRepository complaintRepo;
         private final TenderRepository tenderRepo;
         private final EmailTemplateRepository emailTemplateRepo;
+        private final EmailTemplateService emailTemplateService;
         private final PasswordEncoder passwordEncoder;
 
         @EventListener
@@ -395,5 +397,6 @@ public class DataSeeder {
                                 securityAlertTemplate,
                                 accountLockedTemplate,
                                 newDeviceTemplate));
+                emailTemplateService.invalidateTemplates();
         }
 }
\ No newline at end of file
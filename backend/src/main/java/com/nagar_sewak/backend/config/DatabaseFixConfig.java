@@ -1,11 +1,21 @@
 package com.nagar_sewak.backend.config;
 
+import com.nagar_sewak.backend.entities.EmailStatus;
+import com.nagar_sewak.backend.entities.EmailTemplateType;
+import com.nagar_sewak.backend.entities.NotificationType;
+import com.nagar_sewak.backend.services.NotificationPreferenceCache;
+import com.nagar_sewak.backend.services.NotificationPreferenceDefaults;
 import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
 @Component
 @RequiredArgsConstructor
 @Slf4j
@@ -27,4 +37,110 @@ public class DatabaseFixConfig {
             log.debug("Tender table fix not needed or already applied: {}", e.getMessage());
         }
     }
+
+    @PostConstruct
+    public void fixDeviceFingerprintUniqueKey() {
+        try {
+            // Fingerprint hashes used to be globally unique; they are now unique per user (uk_device_user_hash)
+            List<String> indexes = jdbcTemplate.queryForList(
+                    "SELECT INDEX_NAME FROM information_schema.STATISTICS " +
+                    "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'device_fingerprints' " +
+                    "AND NON_UNIQUE = 0 AND INDEX_NAME <> 'PRIMARY' " +
+                    "GROUP BY INDEX_NAME HAVING COUNT(*) = 1 AND MAX(COLUMN_NAME) = 'fingerprint_hash'",
+                    String.class);
+            for (String index : indexes) {
+                jdbcTemplate.execute("ALTER TABLE device_fingerprints DROP INDEX `" + index + "`");
+                log.info("Dropped legacy unique index {} on device_fingerprints.fingerprint_hash", index);
+            }
+        } catch (Exception e) {
+            log.debug("Device fingerprint index fix not needed or already applied: {}", e.getMessage());
+        }
+    }
+
+    @PostConstruct
+    public void fixComplaintFollowerUniqueKey() {
+        try {
+            // Follows used to be unique per (complaint, user); they are now unique per reason as well
+            List<String> indexes = jdbcTemplate.queryForList(
+                    "SELECT INDEX_NAME FROM information_schema.STATISTICS " +
+                    "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'complaint_followers' " +
+                    "AND NON_UNIQUE = 0 AND INDEX_NAME <> 'PRIMARY' " +
+                    "GROUP BY INDEX_NAME HAVING COUNT(*) = 2 " +
+                    "AND SUM(COLUMN_NAME IN ('complaint_id', 'user_id')) = 2",
+                    String.class);
+            if (indexes.isEmpty()) {
+                return;
+            }
+            // Create the replacement first (unless Hibernate already has) so the complaint_id foreign key keeps an index
+            try {
+                jdbcTemplate.execute("CREATE UNIQUE INDEX uk_follower_complaint_user_reason " +
+                        "ON complaint_followers (complaint_id, user_id, reason)");
+            } catch (Exception e) {
+                log.debug("Complaint follower reason index already present: {}", e.getMessage());
+            }
+            for (String index : indexes) {
+                jdbcTemplate.execute("ALTER TABLE complaint_followers DROP INDEX `" + index + "`");
+                log.info("Dropped legacy unique index {} on complaint_followers (complaint_id, user_id)", index);
+            }
+        } catch (Exception e) {
+            log.debug("Complaint follower index fix not needed or already applied: {}", e.getMessage());
+        }
+    }
+
+    @PostConstruct
+    public void removeDefaultNotificationPreferences() {
+        try {
+            // Preferences used to be stored for every type; rows equal to the defaults are now implied
+            List<Object[]> defaults = new ArrayList<>();
+            for (NotificationType type : NotificationType.values()) {
+                defaults.add(new Object[]{type.name(),
+                        NotificationPreferenceDefaults.isEnabled(type, NotificationPreferenceCache.Channel.IN_APP),
+                        NotificationPreferenceDefaults.isEnabled(type, NotificationPreferenceCache.Channel.EMAIL),
+                        NotificationPreferenceDefaults.isEnabled(type, NotificationPreferenceCache.Channel.PUSH)});
+            }
+            int removed = Arrays.stream(jdbcTemplate.batchUpdate(
+                    "DELETE FROM notification_preferences WHERE notification_type = ? " +
+                    "AND in_app_enabled = ? AND email_enabled = ? AND push_enabled = ?", defaults)).sum();
+            if (removed > 0) {
+                log.info("Removed {} notification preference rows that matched the defaults", removed);
+            }
+        } catch (Exception e) {
+            log.debug("Notification preference cleanup not needed or already applied: {}", e.getMessage());
+        }
+    }
+
+    @PostConstruct
+    public void widenEmailTemplateTypeColumn() {
+        widenEnumColumn("email_history", "template_type", EmailTemplateType.class, true);
+    }
+
+    @PostConstruct
+    public void widenEmailStatusColumn() {
+        // Adds PARKED, for emails out of retry attempts
+        widenEnumColumn("email_history", "status", EmailStatus.class, false);
+    }
+
+    /**
+     * Hibernate creates native ENUM columns on MySQL and ddl-auto=update never adds values to them,
+     * so redeclare the column with every constant of the Java enum
+     */
+    private void widenEnumColumn(String table, String column, Class<? extends Enum<?>> type, boolean nullable) {
+        try {
+            List<String> dataTypes = jdbcTemplate.queryForList(
+                    "SELECT DATA_TYPE FROM information_schema.COLUMNS " +
+                    "WHERE TABLE_SCHEMA = SCHEMA() AND LOWER(TABLE_NAME) = ? AND LOWER(COLUMN_NAME) = ?",
+                    String.class, table, column);
+            if (dataTypes.isEmpty() || !"enum".equalsIgnoreCase(dataTypes.get(0))) {
+                return;
+            }
+            String values = Arrays.stream(type.getEnumConstants())
+                    .map(value -> "'" + value.name() + "'")
+                    .collect(Collectors.joining(","));
+            jdbcTemplate.execute("ALTER TABLE " + table + " MODIFY COLUMN " + column +
+                    " ENUM(" + values + ")" + (nullable ? " NULL" : " NOT NULL"));
+            log.debug("Declared {}.{} with enum values {}", table, column, values);
+        } catch (Exception e) {
+            log.debug("Enum column fix for {}.{} not needed or already applied: {}", table, column, e.getMessage());
+        }
+    }
 }
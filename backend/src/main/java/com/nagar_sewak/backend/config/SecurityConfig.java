@@ -40,6 +40,8 @@ public class SecurityConfig {
                     .requestMatchers("/auth/**", "/login", "/register", "/test/**").permitAll()
                     
                     // ================= REPORTS ACCESS =================
+                    // Report jobs hold rendered reports for later download, so only signed-in users may start or fetch them
+                    .requestMatchers("/api/reports/jobs/**").authenticated()
                     .requestMatchers("/api/reports/**").permitAll()
                     
                     // ================= ADMIN/CONTRACTOR ACCESS =================
@@ -105,7 +107,7 @@ public class SecurityConfig {
         var configuration = new CorsConfiguration();
         configuration.setAllowedOrigins(List.of("http://localhost:3000", "http://127.0.0.1:3000"));
         configuration.setAllowedMethods(List.of("GET", "POST", "PUT", "DELETE", "PATCH", "OPTIONS"));
-        configuration.setAllowedHeaders(List.of("Authorization", "Content-Type"));
+        configuration.setAllowedHeaders(List.of("Authorization", "Content-Type", "Last-Event-ID"));
         configuration.setAllowCredentials(true);
 
         var source = new UrlBasedCorsConfigurationSource();
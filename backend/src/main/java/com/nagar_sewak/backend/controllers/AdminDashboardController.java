@@ -1,15 +1,24 @@
 package com.nagar_sewak.backend.controllers;
 
+import com.nagar_sewak.backend.audit.AuditEventWriter;
 import com.nagar_sewak.backend.dto.AdminDashboardDTO;
 import com.nagar_sewak.backend.dto.ContractorCreationDTO;
+import com.nagar_sewak.backend.mail.EmailQueueWorker;
+import com.nagar_sewak.backend.mail.EmailRetryWorker;
+import com.nagar_sewak.backend.mail.SecurityAlertSuppressor;
+import com.nagar_sewak.backend.reports.PdfRenderCache;
+import com.nagar_sewak.backend.reports.PdfRenderingContext;
+import com.nagar_sewak.backend.reports.ReportJobService;
 import com.nagar_sewak.backend.services.AdminDashboardService;
 import com.nagar_sewak.backend.services.ContractorCreationService;
+import com.nagar_sewak.backend.util.InstrumentedExecutor;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 @RestController
@@ -20,6 +29,14 @@ public class AdminDashboardController {
 
     private final AdminDashboardService dashboardService;
     private final ContractorCreationService contractorCreationService;
+    private final Map<String, InstrumentedExecutor> executors;
+    private final AuditEventWriter auditEventWriter;
+    private final EmailQueueWorker emailQueueWorker;
+    private final EmailRetryWorker emailRetryWorker;
+    private final SecurityAlertSuppressor securityAlertSuppressor;
+    private final PdfRenderCache pdfRenderCache;
+    private final PdfRenderingContext pdfRenderingContext;
+    private final ReportJobService reportJobService;
 
     // GET /admin/dashboard (Admin Only - Secured by SecurityConfig)
     @GetMapping("/dashboard")
@@ -45,4 +62,32 @@ public class AdminDashboardController {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(errorResponse);
         }
     }
-}
\ No newline at end of file
+
+    // GET /admin/executors (Admin Only - Queue depth, saturation and latency per async workload)
+    @GetMapping("/executors")
+    public ResponseEntity<Map<String, Object>> getExecutorStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        executors.forEach((name, executor) -> stats.put(name, executor.getStats()));
+        stats.put("auditWriter", auditEventWriter.getStats());
+        return ResponseEntity.ok(stats);
+    }
+
+    // GET /admin/email-queue (Admin Only - Queue worker, SMTP pool, per-domain throttle, retry and security alert suppression stats)
+    @GetMapping("/email-queue")
+    public ResponseEntity<Map<String, Object>> getEmailQueueStats() {
+        Map<String, Object> stats = new LinkedHashMap<>(emailQueueWorker.getStats());
+        stats.put("retry", emailRetryWorker.getStats());
+        stats.put("securityAlerts", securityAlertSuppressor.getStats());
+        return ResponseEntity.ok(stats);
+    }
+
+    // GET /admin/reports (Admin Only - PDF render cache size and hit rate, report job timings and rejections, render CPU cost)
+    @GetMapping("/reports")
+    public ResponseEntity<Map<String, Object>> getReportStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("cache", pdfRenderCache.getStats());
+        stats.put("jobs", reportJobService.getStats());
+        stats.put("rendering", pdfRenderingContext.getStats());
+        return ResponseEntity.ok(stats);
+    }
+}
@@ -4,6 +4,7 @@ import com.google.firebase.FirebaseApp;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseAuthException;
 import com.google.firebase.auth.FirebaseToken;
+import com.nagar_sewak.backend.anomaly.LoginAnomalyDetector;
 import com.nagar_sewak.backend.dto.AuthResponse;
 import com.nagar_sewak.backend.dto.ComplaintSummaryDTO;
 import com.nagar_sewak.backend.dto.FirebaseLoginRequest;
@@ -53,6 +54,7 @@ public class AuthController {
     private final JwtUtil jwtUtil;
     private final LoginAttemptService loginAttemptService;
     private final DeviceFingerprintService deviceFingerprintService;
+    private final LoginAnomalyDetector loginAnomalyDetector;
     private final com.nagar_sewak.backend.services.EmailService emailService;
 
     @PostMapping("/register")
@@ -120,6 +122,15 @@ public class AuthController {
             String email = req.getEmail().toLowerCase();
             String clientIp = loginAttemptService.getClientIpAddress(request);
 
+            // Reject IPs temporarily blocked by the anomaly detector
+            if (loginAnomalyDetector.isBlocked(clientIp)) {
+                return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(
+                    AuthResponse.builder()
+                        .message("Too many suspicious login attempts from this network. Please try again later.")
+                        .build()
+                );
+            }
+
             // Check if account is locked
             if (loginAttemptService.isAccountLocked(email)) {
                 long remainingMinutes = loginAttemptService.getRemainingLockTimeMinutes(email);
@@ -168,11 +179,8 @@ public class AuthController {
                 // Record successful login
                 loginAttemptService.recordSuccessfulAttempt(email, clientIp, request);
 
-                // Check if this is a new device
-                boolean isNewDevice = deviceFingerprintService.isNewDeviceLogin(user.getId().toString(), request);
-                
-                // Process device fingerprint (register if new, update if existing)
-                deviceFingerprintService.processDeviceForLogin(user.getId().toString(), request);
+                // Register or refresh the device fingerprint; reports whether the device is new
+                boolean isNewDevice = deviceFingerprintService.processDeviceForLogin(user.getId().toString(), user.getEmail(), request);
 
                 // Generate JWT token
                 String token = jwtUtil.generateToken(user.getUsername());
@@ -286,11 +294,8 @@ public class AuthController {
                 userRepo.save(user);
             }
 
-            // Check if this is a new device
-            boolean isNewDevice = deviceFingerprintService.isNewDeviceLogin(user.getId().toString(), request);
-            
-            // Process device fingerprint (register if new, update if existing)
-            deviceFingerprintService.processDeviceForLogin(user.getId().toString(), request);
+            // Register or refresh the device fingerprint; reports whether the device is new
+            boolean isNewDevice = deviceFingerprintService.processDeviceForLogin(user.getId().toString(), user.getEmail(), request);
 
             String token = jwtUtil.generateToken(user.getUsername());
 
@@ -32,6 +32,7 @@ public class ComplaintController {
     private final CommentAttachmentRepository commentAttachmentRepo;
     private final CommentMentionRepository commentMentionRepo;
     private final com.nagar_sewak.backend.services.NotificationService notificationService;
+    private final com.nagar_sewak.backend.services.ComplaintFollowerService complaintFollowerService;
 
     private final Path uploadBase = Paths.get("uploads/complaints");
 
@@ -182,6 +183,7 @@ public class ComplaintController {
         }
 
         Complaint saved = complaintRepo.save(complaint);
+        complaintFollowerService.follow(saved, citizen, FollowReason.REPORTER);
 
         // Notify user about successful submission
         try {
@@ -293,6 +295,7 @@ public class ComplaintController {
         vote.setComplaint(complaint);
         vote.setUser(user);
         voteRepo.save(vote);
+        complaintFollowerService.follow(complaint, user, FollowReason.VOTER);
 
         long voteCount = voteRepo.countByComplaintId(id);
         return ResponseEntity.ok(java.util.Map.of(
@@ -307,6 +310,7 @@ public class ComplaintController {
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.UNAUTHORIZED));
 
         voteRepo.deleteByComplaintIdAndUserId(id, user.getId());
+        complaintFollowerService.unfollowVoter(id, user.getId());
 
         long voteCount = voteRepo.countByComplaintId(id);
         return ResponseEntity.ok(java.util.Map.of(
@@ -372,6 +376,7 @@ public class ComplaintController {
         comment.setUser(user);
         comment.setContent(content.trim());
         comment = commentRepo.save(comment);
+        complaintFollowerService.follow(complaint, user, FollowReason.COMMENTER);
 
         // Process @mentions
         processMentions(comment, content);
@@ -455,6 +460,7 @@ public class ComplaintController {
 
         comment.setContent(content.trim());
         comment = commentRepo.save(comment);
+        complaintFollowerService.follow(comment.getComplaint(), user, FollowReason.COMMENTER);
 
         return ResponseEntity.ok(new CommentResponse(
                 comment.getId(),
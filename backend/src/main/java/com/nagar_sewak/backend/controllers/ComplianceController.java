@@ -1,9 +1,11 @@
 package com.nagar_sewak.backend.controllers;
 
+import com.nagar_sewak.backend.audit.PartitionedTable;
 import com.nagar_sewak.backend.entities.User;
 import com.nagar_sewak.backend.repositories.UserRepository;
 import com.nagar_sewak.backend.services.ComplianceService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -15,7 +17,9 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import java.time.YearMonth;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -153,6 +157,28 @@ public class ComplianceController {
         }
     }
 
+    /**
+     * Search archived audit logs or login attempts (Admin only)
+     */
+    @GetMapping("/archive/{table}")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('SUPER_ADMIN')")
+    public ResponseEntity<List<Map<String, Object>>> searchArchive(
+            @PathVariable PartitionedTable table,
+            @RequestParam String column,
+            @RequestParam String value,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM") YearMonth from,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM") YearMonth to) {
+
+        try {
+            return ResponseEntity.ok(complianceService.findArchivedRecords(table, column, value, from, to));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        } catch (Exception e) {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR,
+                    "Failed to search archive: " + e.getMessage());
+        }
+    }
+
     /**
      * Validate password encryption compliance
      */
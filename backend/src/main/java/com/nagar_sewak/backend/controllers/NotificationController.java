@@ -1,15 +1,33 @@
 package com.nagar_sewak.backend.controllers;
 
+import com.nagar_sewak.backend.dto.NotificationInboxPage;
+import com.nagar_sewak.backend.dto.PushSubscriptionRequest;
 import com.nagar_sewak.backend.entities.Notification;
+import com.nagar_sewak.backend.entities.NotificationPriority;
+import com.nagar_sewak.backend.entities.NotificationType;
 
 import com.nagar_sewak.backend.entities.User;
+import com.nagar_sewak.backend.events.OutboxRelay;
+import com.nagar_sewak.backend.push.PushSubscriptionService;
+import com.nagar_sewak.backend.push.VapidKeys;
+import com.nagar_sewak.backend.push.WebPushSender;
+import com.nagar_sewak.backend.realtime.NotificationStreamRegistry;
+import com.nagar_sewak.backend.realtime.NotificationStreamRelay;
+import com.nagar_sewak.backend.services.NotificationCoalescer;
+import com.nagar_sewak.backend.services.NotificationDigestService;
+import com.nagar_sewak.backend.services.NotificationFanoutService;
+import com.nagar_sewak.backend.services.NotificationRetentionService;
 import com.nagar_sewak.backend.services.NotificationService;
+import com.nagar_sewak.backend.services.UnreadCounterService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.HashMap;
 
@@ -22,6 +40,17 @@ import java.util.Map;
 public class NotificationController {
 
     private final NotificationService notificationService;
+    private final NotificationFanoutService notificationFanoutService;
+    private final OutboxRelay outboxRelay;
+    private final NotificationStreamRegistry notificationStreamRegistry;
+    private final NotificationStreamRelay notificationStreamRelay;
+    private final UnreadCounterService unreadCounterService;
+    private final NotificationCoalescer notificationCoalescer;
+    private final NotificationDigestService notificationDigestService;
+    private final NotificationRetentionService notificationRetentionService;
+    private final PushSubscriptionService pushSubscriptionService;
+    private final WebPushSender webPushSender;
+    private final VapidKeys vapidKeys;
 
     @GetMapping
     public ResponseEntity<Page<Notification>> getNotifications(
@@ -34,6 +63,35 @@ public class NotificationController {
         return ResponseEntity.ok(notifications);
     }
 
+    /**
+     * Keyset-paginated inbox; pass the returned nextCursor to fetch the following page
+     */
+    @GetMapping("/inbox")
+    public ResponseEntity<NotificationInboxPage> getInbox(
+            @AuthenticationPrincipal UserDetails userDetails,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) NotificationType type,
+            @RequestParam(required = false) NotificationPriority priority,
+            @RequestParam(defaultValue = "false") boolean unreadOnly) {
+
+        Long userId = ((User) userDetails).getId();
+        return ResponseEntity.ok(notificationService.getInbox(userId, cursor, size, type, priority, unreadOnly));
+    }
+
+    /**
+     * Server-sent events: an "unread" count on connect, then each new notification as it commits.
+     * Reconnecting clients send Last-Event-ID to receive what they missed.
+     */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamNotifications(
+            @AuthenticationPrincipal UserDetails userDetails,
+            @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+
+        Long userId = ((User) userDetails).getId();
+        return notificationStreamRegistry.open(userId, lastEventId);
+    }
+
     @GetMapping("/unread-count")
     public ResponseEntity<Map<String, Long>> getUnreadCount(@AuthenticationPrincipal UserDetails userDetails) {
         Long userId = ((User) userDetails).getId();
@@ -77,6 +135,80 @@ public class NotificationController {
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * Public key for the browser's pushManager.subscribe({applicationServerKey})
+     */
+    @GetMapping("/push/vapid-public-key")
+    public ResponseEntity<Map<String, String>> getVapidPublicKey() {
+        return ResponseEntity.ok(Map.of("publicKey", vapidKeys.getPublicKey()));
+    }
+
+    @PostMapping("/push/subscriptions")
+    public ResponseEntity<Map<String, String>> subscribePush(
+            @AuthenticationPrincipal UserDetails userDetails,
+            @RequestBody PushSubscriptionRequest request) {
+
+        pushSubscriptionService.subscribe((User) userDetails, request);
+        return ResponseEntity.ok(Map.of("message", "Push subscription saved"));
+    }
+
+    @DeleteMapping("/push/subscriptions")
+    public ResponseEntity<Map<String, String>> unsubscribePush(
+            @AuthenticationPrincipal UserDetails userDetails,
+            @RequestParam String endpoint) {
+
+        pushSubscriptionService.unsubscribe((User) userDetails, endpoint);
+        return ResponseEntity.ok(Map.of("message", "Push subscription removed"));
+    }
+
+    @GetMapping("/push/stats")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('SUPER_ADMIN')")
+    public ResponseEntity<Map<String, Object>> getPushStats() {
+        return ResponseEntity.ok(webPushSender.getStats());
+    }
+
+    @GetMapping("/fanout/stats")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('SUPER_ADMIN')")
+    public ResponseEntity<Map<String, Object>> getFanoutStats() {
+        return ResponseEntity.ok(notificationFanoutService.getStats());
+    }
+
+    @GetMapping("/stream/stats")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('SUPER_ADMIN')")
+    public ResponseEntity<Map<String, Object>> getStreamStats() {
+        return ResponseEntity.ok(notificationStreamRelay.getStats());
+    }
+
+    @GetMapping("/unread-count/stats")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('SUPER_ADMIN')")
+    public ResponseEntity<Map<String, Object>> getUnreadCounterStats() {
+        return ResponseEntity.ok(unreadCounterService.getStats());
+    }
+
+    @GetMapping("/coalesce/stats")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('SUPER_ADMIN')")
+    public ResponseEntity<Map<String, Object>> getCoalesceStats() {
+        return ResponseEntity.ok(notificationCoalescer.getStats());
+    }
+
+    @GetMapping("/digest/stats")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('SUPER_ADMIN')")
+    public ResponseEntity<Map<String, Object>> getDigestStats() {
+        return ResponseEntity.ok(notificationDigestService.getStats());
+    }
+
+    @GetMapping("/purge/stats")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('SUPER_ADMIN')")
+    public ResponseEntity<Map<String, Object>> getPurgeStats() {
+        return ResponseEntity.ok(notificationRetentionService.getStats());
+    }
+
+    @GetMapping("/outbox/stats")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('SUPER_ADMIN')")
+    public ResponseEntity<Map<String, Object>> getOutboxStats() {
+        return ResponseEntity.ok(outboxRelay.getStats());
+    }
+
     @PostMapping("/test")
     public ResponseEntity<Notification> createTestNotification(@AuthenticationPrincipal UserDetails userDetails) {
         Long userId = ((User) userDetails).getId();
@@ -1,13 +1,16 @@
 package com.nagar_sewak.backend.controllers;
 
+import com.nagar_sewak.backend.entities.EmailDigestFrequency;
 import com.nagar_sewak.backend.entities.NotificationPreference;
 import com.nagar_sewak.backend.entities.NotificationType;
 import com.nagar_sewak.backend.entities.User;
 import com.nagar_sewak.backend.repositories.UserRepository;
+import com.nagar_sewak.backend.services.NotificationPreferenceCache;
 import com.nagar_sewak.backend.services.NotificationPreferenceService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
@@ -24,6 +27,7 @@ import java.util.Map;
 public class NotificationPreferenceController {
 
     private final NotificationPreferenceService notificationPreferenceService;
+    private final NotificationPreferenceCache notificationPreferenceCache;
     private final UserRepository userRepository;
 
     /**
@@ -40,15 +44,7 @@ public class NotificationPreferenceController {
         User user = userRepository.findByUsername(userDetails.getUsername())
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found"));
 
-        List<NotificationPreference> preferences = notificationPreferenceService.getUserPreferences(user);
-        
-        // If no preferences exist, initialize defaults
-        if (preferences.isEmpty()) {
-            notificationPreferenceService.initializeDefaultPreferences(user);
-            preferences = notificationPreferenceService.getUserPreferences(user);
-        }
-
-        return ResponseEntity.ok(preferences);
+        return ResponseEntity.ok(notificationPreferenceService.getUserPreferences(user));
     }
 
     /**
@@ -169,6 +165,59 @@ public class NotificationPreferenceController {
         return ResponseEntity.ok(NotificationType.values());
     }
 
+    /**
+     * Get how notification emails are delivered (IMMEDIATE, HOURLY or DAILY digest)
+     */
+    @GetMapping("/digest")
+    public ResponseEntity<Map<String, EmailDigestFrequency>> getDigestFrequency(
+            @AuthenticationPrincipal UserDetails userDetails) {
+        
+        if (userDetails == null) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "No authenticated user found");
+        }
+
+        User user = userRepository.findByUsername(userDetails.getUsername())
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found"));
+
+        EmailDigestFrequency frequency = user.getEmailDigest() != null
+                ? user.getEmailDigest() : EmailDigestFrequency.IMMEDIATE;
+        return ResponseEntity.ok(Map.of("frequency", frequency));
+    }
+
+    /**
+     * Set how notification emails are delivered
+     */
+    @PutMapping("/digest")
+    public ResponseEntity<Map<String, EmailDigestFrequency>> updateDigestFrequency(
+            @RequestBody Map<String, EmailDigestFrequency> request,
+            @AuthenticationPrincipal UserDetails userDetails) {
+        
+        if (userDetails == null) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "No authenticated user found");
+        }
+
+        EmailDigestFrequency frequency = request.get("frequency");
+        if (frequency == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "frequency is required");
+        }
+
+        User user = userRepository.findByUsername(userDetails.getUsername())
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found"));
+
+        user.setEmailDigest(frequency);
+        userRepository.save(user);
+        return ResponseEntity.ok(Map.of("frequency", frequency));
+    }
+
+    /**
+     * Preference cache hit/load counters
+     */
+    @GetMapping("/cache/stats")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('SUPER_ADMIN')")
+    public ResponseEntity<Map<String, Object>> getCacheStats() {
+        return ResponseEntity.ok(notificationPreferenceCache.getStats());
+    }
+
     /**
      * Check if specific notification type is enabled for email
      */
@@ -2,9 +2,16 @@ package com.nagar_sewak.backend.controllers;
 
 import com.nagar_sewak.backend.dto.ProjectDetailDTO;
 import com.nagar_sewak.backend.entities.Project;
+import com.nagar_sewak.backend.reports.PdfRenderCache;
+import com.nagar_sewak.backend.reports.PdfResponses;
+import com.nagar_sewak.backend.reports.ReportJobService;
 import com.nagar_sewak.backend.repositories.ProjectRepository;
+import com.nagar_sewak.backend.services.PdfGeneratorService;
 import com.nagar_sewak.backend.services.ProjectService;
+import com.nagar_sewak.backend.services.ReportService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
@@ -13,7 +20,10 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequiredArgsConstructor
@@ -23,6 +33,12 @@ public class ProjectController {
 
     private final ProjectRepository repo;
     private final ProjectService projectService;
+    private final PdfGeneratorService pdfGeneratorService;
+    private final ReportJobService reportJobService;
+
+    /** How long a progress report download waits for its render; kept under the servlet async timeout */
+    @Value("${app.reports.sync-timeout-ms:25000}")
+    private long syncTimeoutMillis;
 
     @GetMapping
     public List<Project> all() {
@@ -213,17 +229,8 @@ public class ProjectController {
                 progressRecord.setPhotoUrls(String.join(",", photoFilenames));
             }
 
-            milestoneRepo.save(progressRecord);
-
-            // Also trigger notification event for major milestones
-            if (List.of(25, 50, 75, 100).contains(progress)) {
-                org.springframework.context.ApplicationEventPublisher eventPublisher = 
-                    projectService.eventPublisher;
-                if (eventPublisher != null) {
-                    eventPublisher.publishEvent(new com.nagar_sewak.backend.events.ProjectMilestoneCompletedEvent(
-                        this, savedProject, progressRecord));
-                }
-            }
+            // Also record a notification event for major milestones
+            projectService.saveMilestone(progressRecord, null, List.of(25, 50, 75, 100).contains(progress));
         } catch (Exception e) {
             // Log but don't fail the request if milestone creation fails
             System.err.println("Failed to create progress milestone: " + e.getMessage());
@@ -301,8 +308,6 @@ public class ProjectController {
             milestone.setPhotoUrls(String.join(",", photoUrls));
         }
 
-        milestoneRepo.save(milestone);
-
         // Update project progress
         project.setProgressPercentage(percentage);
         if (percentage == 100) {
@@ -310,15 +315,9 @@ public class ProjectController {
         } else if (percentage > 0) {
             project.setStatus("In Progress");
         }
-        repo.save(project);
-
-        // Trigger notification event
-        org.springframework.context.ApplicationEventPublisher eventPublisher = 
-            projectService.eventPublisher;
-        if (eventPublisher != null) {
-            eventPublisher.publishEvent(new com.nagar_sewak.backend.events.ProjectMilestoneCompletedEvent(
-                this, project, milestone));
-        }
+
+        // Save milestone and project, and record the notification event, in one transaction
+        milestone = projectService.saveMilestone(milestone, project, true);
 
         return ResponseEntity.ok(java.util.Map.of(
             "message", "Milestone updated successfully",
@@ -415,7 +414,9 @@ public class ProjectController {
     }
 
     @GetMapping("/{id}/progress-report")
-    public ResponseEntity<byte[]> downloadProgressReport(@PathVariable Long id) {
+    public CompletableFuture<ResponseEntity<?>> downloadProgressReport(
+            @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         Project project = repo.findById(id)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Project not found"));
 
@@ -424,13 +425,28 @@ public class ProjectController {
         List<com.nagar_sewak.backend.entities.ProjectMilestone> milestones = 
             milestoneRepo.findByProjectIdOrderByPercentageAsc(id);
 
-        com.nagar_sewak.backend.services.PdfGeneratorService pdfService = 
-            new com.nagar_sewak.backend.services.PdfGeneratorService();
-        byte[] pdfBytes = pdfService.generateProgressReportPdf(project, milestones);
+        // The ETag comes from the project and milestones, so an unchanged report is confirmed without rendering
+        PdfRenderCache.Key key = pdfGeneratorService.progressReportKey(project, milestones);
+        if (key.matches(ifNoneMatch)) {
+            return CompletableFuture.<ResponseEntity<?>>completedFuture(ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(key.etag())
+                    .cacheControl(PdfResponses.REVALIDATE)
+                    .build());
+        }
 
-        return ResponseEntity.ok()
-                .header("Content-Type", "application/pdf")
-                .header("Content-Disposition", "attachment; filename=Project_" + id + "_Progress_Report.pdf")
-                .body(pdfBytes);
+        // Render through the report jobs on the bounded PDF pool, refused with 503 when its queue is full, then
+        // stream the file rather than loading reports full of photos onto the heap
+        try {
+            CompletableFuture<ReportService.RenderedReport> rendered = reportJobService.render("progress", String.valueOf(id),
+                    () -> {
+                        PdfRenderCache.RenderedFile file = pdfGeneratorService.progressReportFile(project, milestones);
+                        return new ReportService.RenderedReport(file, file.temporary() ? null : key.etag());
+                    });
+            return PdfResponses.whenRendered(rendered, Duration.ofMillis(syncTimeoutMillis),
+                    report -> PdfResponses.attachment(report.file(), "Project_" + id + "_Progress_Report.pdf",
+                            report.etag(), true), null);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.<ResponseEntity<?>>completedFuture(PdfResponses.busy(e));
+        }
     }
 }
@@ -1,14 +1,27 @@
 package com.nagar_sewak.backend.controllers;
 
+import com.nagar_sewak.backend.reports.PdfRenderCache;
+import com.nagar_sewak.backend.reports.PdfResponses;
+import com.nagar_sewak.backend.reports.ReportJobService;
 import com.nagar_sewak.backend.services.ReportService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.net.URI;
+import java.time.Duration;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/api/reports")
@@ -18,71 +31,160 @@ import java.util.Map;
 public class ReportController {
 
     private final ReportService reportService;
+    private final ReportJobService reportJobService;
 
+    /** How long a synchronous download waits for its render; kept under the servlet async timeout */
+    @Value("${app.reports.sync-timeout-ms:25000}")
+    private long syncTimeoutMillis;
+
+    /**
+     * Render and return a report in one request. The render still runs on the bounded PDF pool, and the
+     * request is refused with 503 when that pool's queue is full or the render outlasts the sync timeout.
+     */
     @PostMapping("/generate-pdf")
-    public ResponseEntity<?> generatePDFReport(@RequestBody Map<String, Object> reportData) {
-        try {
-            log.info("Generating PDF report for: {} with ID: {}", reportData.get("type"), reportData.get("id"));
-            
-            // Validate input data
-            if (reportData.get("type") == null || reportData.get("id") == null) {
-                Map<String, String> errorResponse = Map.of(
-                    "error", "Missing required fields: type and id are required",
-                    "type", String.valueOf(reportData.get("type")),
-                    "id", String.valueOf(reportData.get("id"))
-                );
-                return ResponseEntity.badRequest()
-                    .contentType(MediaType.APPLICATION_JSON)
-                    .body(errorResponse);
-            }
-            
-            byte[] pdfBytes = reportService.generatePDFReport(reportData);
-            
-            if (pdfBytes == null || pdfBytes.length == 0) {
-                throw new RuntimeException("Generated PDF is empty");
-            }
-            
-            String filename = String.format("%s-%s-report.pdf", 
-                reportData.get("type"), 
-                reportData.get("id"));
-            
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_PDF);
-            headers.setContentDispositionFormData("attachment", filename);
-            headers.setContentLength(pdfBytes.length);
-            headers.setCacheControl("no-cache, no-store, must-revalidate");
-            headers.setPragma("no-cache");
-            headers.setExpires(0);
-            
-            log.info("Successfully generated PDF report with {} bytes", pdfBytes.length);
-            
-            return ResponseEntity.ok()
-                .headers(headers)
-                .body(pdfBytes);
-                
-        } catch (Exception e) {
-            log.error("Failed to generate PDF report for type: {} with ID: {}", 
-                reportData.get("type"), reportData.get("id"), e);
-            
-            // Provide more detailed error information
-            String detailedError = e.getMessage();
-            if (e.getCause() != null) {
-                detailedError += " (Cause: " + e.getCause().getMessage() + ")";
-            }
-            
+    public CompletableFuture<ResponseEntity<?>> generatePDFReport(@RequestBody Map<String, Object> reportData) {
+        log.info("Generating PDF report for: {} with ID: {}", reportData.get("type"), reportData.get("id"));
+        
+        // Validate input data
+        if (reportData.get("type") == null || reportData.get("id") == null) {
             Map<String, String> errorResponse = Map.of(
-                "error", "Failed to generate PDF report: " + detailedError,
+                "error", "Missing required fields: type and id are required",
                 "type", String.valueOf(reportData.get("type")),
-                "id", String.valueOf(reportData.get("id")),
-                "timestamp", java.time.LocalDateTime.now().toString()
+                "id", String.valueOf(reportData.get("id"))
             );
-            
-            return ResponseEntity.internalServerError()
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest()
                 .contentType(MediaType.APPLICATION_JSON)
-                .body(errorResponse);
+                .body(errorResponse));
+        }
+        
+        try {
+            return PdfResponses.whenRendered(reportJobService.render(reportData), Duration.ofMillis(syncTimeoutMillis),
+                report -> {
+                    log.info("Successfully generated PDF report with {} bytes", report.file().size());
+                    return pdfResponse(String.valueOf(reportData.get("type")), String.valueOf(reportData.get("id")), report, true);
+                },
+                e -> errorResponse(reportData, e));
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.<ResponseEntity<?>>completedFuture(PdfResponses.busy(e));
         }
     }
 
+    /**
+     * Report for a stored complaint or project. Supports If-None-Match, answered from the entity's version
+     * without rendering.
+     */
+    @GetMapping("/{type}/{id}/pdf")
+    public CompletableFuture<ResponseEntity<?>> downloadPDFReport(
+            @PathVariable String type,
+            @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        PdfRenderCache.Key key;
+        try {
+            key = reportService.reportKey(type, id)
+                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, type + " not found"));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        if (key.matches(ifNoneMatch)) {
+            return CompletableFuture.<ResponseEntity<?>>completedFuture(ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(key.etag())
+                    .cacheControl(PdfResponses.REVALIDATE)
+                    .build());
+        }
+        try {
+            return PdfResponses.whenRendered(reportJobService.render(Map.of("type", type, "id", id)),
+                    Duration.ofMillis(syncTimeoutMillis), report -> pdfResponse(type, String.valueOf(id), report, true), null);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.<ResponseEntity<?>>completedFuture(PdfResponses.busy(e));
+        }
+    }
+
+    /**
+     * Start a report job; returns 202 with the job's status and where to poll, listen and download
+     */
+    @PostMapping("/jobs")
+    public ResponseEntity<Map<String, Object>> submitReportJob(@RequestBody Map<String, Object> reportData) {
+        if (reportData.get("type") == null || reportData.get("id") == null) {
+            return ResponseEntity.badRequest()
+                .body(Map.of("error", "Missing required fields: type and id are required"));
+        }
+        ReportJobService.Job job;
+        try {
+            job = reportJobService.submit(reportData);
+        } catch (RejectedExecutionException e) {
+            return PdfResponses.busy(e);
+        }
+        String statusUrl = "/api/reports/jobs/" + job.getId();
+        Map<String, Object> body = new LinkedHashMap<>(job.toStatus());
+        body.put("statusUrl", statusUrl);
+        body.put("eventsUrl", statusUrl + "/events");
+        body.put("downloadUrl", statusUrl + "/file");
+        return ResponseEntity.accepted()
+            .location(URI.create(statusUrl))
+            .body(body);
+    }
+
+    @GetMapping("/jobs/{jobId}")
+    public ResponseEntity<Map<String, Object>> getReportJob(@PathVariable String jobId) {
+        return ResponseEntity.ok(job(jobId).toStatus());
+    }
+
+    /**
+     * Server-sent events for a job: its current status, then "done" or "failed" when it finishes
+     */
+    @GetMapping(value = "/jobs/{jobId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamReportJob(@PathVariable String jobId) {
+        return reportJobService.subscribe(job(jobId));
+    }
+
+    /**
+     * The finished report; 409 while the job is still queued or running
+     */
+    @GetMapping("/jobs/{jobId}/file")
+    public ResponseEntity<?> downloadReportJob(@PathVariable String jobId) {
+        ReportJobService.Job job = job(jobId);
+        return switch (job.getStatus()) {
+            // The job keeps its file until it expires, so it can be downloaded again
+            case DONE -> pdfResponse(job.getType(), job.getEntityId(), job.getResult().join(), false);
+            case FAILED -> ResponseEntity.internalServerError()
+                .body(job.toStatus());
+            default -> ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(job.toStatus());
+        };
+    }
+
+    private ReportJobService.Job job(String jobId) {
+        return reportJobService.find(jobId)
+            .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Report job not found or expired"));
+    }
+
+    private static ResponseEntity<?> errorResponse(Map<String, Object> reportData, Throwable e) {
+        log.error("Failed to generate PDF report for type: {} with ID: {}", 
+            reportData.get("type"), reportData.get("id"), e);
+        
+        // Provide more detailed error information
+        String detailedError = e.getMessage();
+        if (e.getCause() != null) {
+            detailedError += " (Cause: " + e.getCause().getMessage() + ")";
+        }
+        
+        Map<String, String> errorResponse = Map.of(
+            "error", "Failed to generate PDF report: " + detailedError,
+            "type", String.valueOf(reportData.get("type")),
+            "id", String.valueOf(reportData.get("id")),
+            "timestamp", java.time.LocalDateTime.now().toString()
+        );
+        
+        return ResponseEntity.internalServerError()
+            .contentType(MediaType.APPLICATION_JSON)
+            .body(errorResponse);
+    }
+
+    private static ResponseEntity<StreamingResponseBody> pdfResponse(String type, String id,
+                                                                     ReportService.RenderedReport report, boolean release) {
+        return PdfResponses.attachment(report.file(), String.format("%s-%s-report.pdf", type, id), report.etag(), release);
+    }
+
     @GetMapping("/export/{type}/{id}")
     public ResponseEntity<Map<String, Object>> exportItemData(
             @PathVariable String type,
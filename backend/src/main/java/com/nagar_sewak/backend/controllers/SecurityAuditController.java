@@ -1,5 +1,6 @@
 package com.nagar_sewak.backend.controllers;
 
+import com.nagar_sewak.backend.entities.SecurityActorRollup.ActorType;
 import com.nagar_sewak.backend.entities.SecurityAuditLog;
 import com.nagar_sewak.backend.entities.SecurityEventType;
 import com.nagar_sewak.backend.entities.User;
@@ -134,13 +135,13 @@ public class SecurityAuditController {
     }
 
     /**
-     * Get recent suspicious activities (Admin only)
+     * Summary of suspicious activity over the last 24 hours: counts by type and the top IPs and users,
+     * answered from the rollups rather than by scanning raw audit rows (Admin only)
      */
-    @GetMapping("/suspicious")
+    @GetMapping({"/suspicious", "/suspicious/summary"})
     @PreAuthorize("hasRole('ADMIN') or hasRole('SUPER_ADMIN')")
-    public ResponseEntity<List<SecurityAuditLog>> getRecentSuspiciousActivity() {
-        List<SecurityAuditLog> suspiciousLogs = securityAuditService.getRecentSuspiciousActivity();
-        return ResponseEntity.ok(suspiciousLogs);
+    public ResponseEntity<Map<String, Object>> getSuspiciousActivitySummary() {
+        return ResponseEntity.ok(securityAuditService.getSuspiciousActivitySummary());
     }
 
     /**
@@ -167,13 +168,43 @@ public class SecurityAuditController {
         
         // Calculate totals
         long totalEvents = eventCounts.stream()
-                .mapToLong(row -> (Long) row[1])
+                .mapToLong(row -> ((Number) row[1]).longValue())
                 .sum();
         stats.put("totalEvents", totalEvents);
+        stats.put("topSuspiciousIps", securityAuditService.getTopSuspiciousActors(ActorType.IP, start, end));
+        stats.put("topSuspiciousUsers", securityAuditService.getTopSuspiciousActors(ActorType.USER, start, end));
 
         return ResponseEntity.ok(stats);
     }
 
+    /**
+     * Get audit write pipeline metrics (Admin only)
+     */
+    @GetMapping("/pipeline")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('SUPER_ADMIN')")
+    public ResponseEntity<Map<String, Object>> getPipelineStats() {
+        return ResponseEntity.ok(securityAuditService.getPipelineStats());
+    }
+
+    /**
+     * Get streaming anomaly detector metrics (Admin only)
+     */
+    @GetMapping("/anomalies")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('SUPER_ADMIN')")
+    public ResponseEntity<Map<String, Object>> getAnomalyDetectorStats() {
+        return ResponseEntity.ok(securityAuditService.getAnomalyDetectorStats());
+    }
+
+    /**
+     * Lift a temporary IP block (Admin only)
+     */
+    @DeleteMapping("/blocks/{ipAddress}")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('SUPER_ADMIN')")
+    public ResponseEntity<Map<String, String>> unblockIp(@PathVariable String ipAddress) {
+        securityAuditService.unblockIp(ipAddress);
+        return ResponseEntity.ok(Map.of("message", "IP unblocked", "ipAddress", ipAddress));
+    }
+
     /**
      * Search security logs by IP address (Admin only)
      */
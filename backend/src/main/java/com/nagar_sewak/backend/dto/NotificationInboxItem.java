@@ -0,0 +1,28 @@
+package com.nagar_sewak.backend.dto;
+
+import com.nagar_sewak.backend.entities.NotificationPriority;
+import com.nagar_sewak.backend.entities.NotificationType;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Inbox row projected straight from the notifications table, without the user association.
+ */
+@Data
+@AllArgsConstructor
+public class NotificationInboxItem {
+    private Long id;
+    private NotificationType type;
+    private NotificationPriority priority;
+    private String title;
+    private String message;
+    private String actionUrl;
+    private Boolean isRead;
+    private LocalDateTime readAt;
+    private LocalDateTime createdAt;
+    private LocalDateTime expiresAt;
+    private String metadata;
+    private Integer occurrenceCount;
+}
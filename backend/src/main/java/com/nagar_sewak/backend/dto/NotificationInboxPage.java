@@ -0,0 +1,17 @@
+package com.nagar_sewak.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * One page of the keyset-paginated inbox; pass {@code nextCursor} back to get the next page.
+ */
+@Data
+@AllArgsConstructor
+public class NotificationInboxPage {
+    private List<NotificationInboxItem> items;
+    private String nextCursor;
+    private boolean hasMore;
+}
@@ -0,0 +1,15 @@
+package com.nagar_sewak.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Minimal user projection used when fanning a notification out to many recipients.
+ */
+@Data
+@AllArgsConstructor
+public class NotificationRecipient {
+    private Long id;
+    private String email;
+    private String username;
+}
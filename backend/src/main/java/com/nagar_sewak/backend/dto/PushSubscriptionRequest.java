@@ -0,0 +1,19 @@
+package com.nagar_sewak.backend.dto;
+
+import lombok.Data;
+
+/**
+ * A browser PushSubscription as serialized by its toJSON()
+ */
+@Data
+public class PushSubscriptionRequest {
+    private String endpoint;
+    private Long expirationTime;
+    private Keys keys;
+
+    @Data
+    public static class Keys {
+        private String p256dh;
+        private String auth;
+    }
+}
@@ -2,10 +2,12 @@ package com.nagar_sewak.backend.entities;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.UpdateTimestamp;
+
 import java.time.Instant;
 
 @Entity
-@Table(name = "complaints")
+@Table(name = "complaints", indexes = @Index(name = "idx_complaint_project_id", columnList = "project_id"))
 @Getter
 @Setter
 @NoArgsConstructor
@@ -35,6 +37,10 @@ public class Complaint {
 
     private Instant resolvedAt;
 
+    @UpdateTimestamp
+    @Column(name = "updated_at")
+    private Instant updatedAt;
+
     @ManyToOne
     @JoinColumn(name = "user_id")
     private User user; 
@@ -0,0 +1,48 @@
+package com.nagar_sewak.backend.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * A user who follows a complaint (and, through it, the complaint's project).
+ * One row per (complaint, user, reason), so withdrawing one reason (a vote) leaves the others in place.
+ */
+@Entity
+@Table(name = "complaint_followers",
+        uniqueConstraints = @UniqueConstraint(name = "uk_follower_complaint_user_reason", columnNames = {"complaint_id", "user_id", "reason"}),
+        indexes = @Index(name = "idx_follower_user_id", columnList = "user_id"))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ComplaintFollower {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "complaint_id", nullable = false)
+    private Complaint complaint;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    private User user;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private FollowReason reason;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        if (createdAt == null) {
+            createdAt = LocalDateTime.now();
+        }
+    }
+}
@@ -5,7 +5,9 @@ import lombok.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "device_fingerprints", indexes = {
+@Table(name = "device_fingerprints",
+    uniqueConstraints = @UniqueConstraint(name = "uk_device_user_hash", columnNames = {"user_id", "fingerprint_hash"}),
+    indexes = {
     @Index(name = "idx_device_user_id", columnList = "user_id"),
     @Index(name = "idx_fingerprint_hash", columnList = "fingerprint_hash"),
     @Index(name = "idx_trusted", columnList = "trusted"),
@@ -37,7 +39,7 @@ public class DeviceFingerprint {
     @Column(name = "ip_address", length = 45) // IPv6 support
     private String ipAddress;
 
-    @Column(name = "fingerprint_hash", nullable = false, length = 64, unique = true)
+    @Column(name = "fingerprint_hash", nullable = false, length = 64)
     private String fingerprintHash;
 
     @Column(name = "first_seen", nullable = false)
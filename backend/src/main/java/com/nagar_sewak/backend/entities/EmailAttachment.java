@@ -0,0 +1,44 @@
+package com.nagar_sewak.backend.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+import java.time.LocalDateTime;
+
+/**
+ * Attachment content for queued emails, stored once however many emails reference it
+ */
+@Entity
+@Table(name = "email_attachments", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_email_attachment_content", columnNames = {"sha256", "filename"})
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class EmailAttachment {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 64)
+    private String sha256;
+
+    @Column(nullable = false, length = 255)
+    private String filename;
+
+    @Lob
+    @Column(nullable = false)
+    private byte[] content;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        if (createdAt == null) {
+            createdAt = LocalDateTime.now();
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package com.nagar_sewak.backend.entities;
+
+public enum EmailDigestFrequency {
+    IMMEDIATE,  // One email per notification
+    HOURLY,     // Pending notifications batched into one email each hour
+    DAILY       // Pending notifications batched into one email each day
+}
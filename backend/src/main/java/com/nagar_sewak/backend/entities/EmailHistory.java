@@ -10,7 +10,8 @@ import java.time.LocalDateTime;
     @Index(name = "idx_template_type", columnList = "template_type"),
     @Index(name = "idx_sent_at", columnList = "sent_at"),
     @Index(name = "idx_status", columnList = "status"),
-    @Index(name = "idx_recipient_status", columnList = "recipient_email,status")
+    @Index(name = "idx_recipient_status", columnList = "recipient_email,status"),
+    @Index(name = "idx_email_queue", columnList = "status,available_at")
 })
 @Getter
 @Setter
@@ -51,6 +52,18 @@ public class EmailHistory {
     @Column(name = "last_retry_at")
     private LocalDateTime lastRetryAt;
 
+    /** Rendered body, kept so the queue worker can send (and resend) the email */
+    @Lob
+    @Column(name = "html_body")
+    private String htmlBody;
+
+    @Column(name = "attachment_id")
+    private Long attachmentId;
+
+    /** When a PENDING email may next be claimed: its enqueue time, a throttle delay, a worker's lease or a retry's backoff */
+    @Column(name = "available_at")
+    private LocalDateTime availableAt;
+
     @PrePersist
     protected void onCreate() {
         if (sentAt == null) {
@@ -5,5 +5,7 @@ public enum EmailStatus {
     SENT,
     DELIVERED,
     FAILED,
-    RETRY
+    RETRY,
+    /** Out of retry attempts, or not resendable; left for an admin */
+    PARKED
 }
\ No newline at end of file
@@ -9,5 +9,6 @@ public enum EmailTemplateType {
     PROJECT_UPDATE,
     TENDER_NOTIFICATION,
     WELCOME_EMAIL,
-    ACCOUNT_VERIFICATION
+    ACCOUNT_VERIFICATION,
+    NOTIFICATION_DIGEST
 }
\ No newline at end of file
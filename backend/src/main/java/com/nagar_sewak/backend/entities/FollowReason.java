@@ -0,0 +1,7 @@
+package com.nagar_sewak.backend.entities;
+
+public enum FollowReason {
+    REPORTER,
+    VOTER,
+    COMMENTER
+}
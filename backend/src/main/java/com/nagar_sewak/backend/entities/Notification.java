@@ -9,7 +9,11 @@ import java.time.LocalDateTime;
     @Index(name = "idx_notif_user_id", columnList = "user_id"),
     @Index(name = "idx_is_read", columnList = "is_read"),
     @Index(name = "idx_created_at", columnList = "created_at"),
-    @Index(name = "idx_user_read_created", columnList = "user_id,is_read,created_at")
+    @Index(name = "idx_user_read_created", columnList = "user_id,is_read,created_at"),
+    @Index(name = "idx_notif_user_created", columnList = "user_id,created_at,id"),
+    @Index(name = "idx_notif_user_group", columnList = "user_id,group_key,created_at"),
+    @Index(name = "idx_notif_email_pending", columnList = "email_pending,user_id"),
+    @Index(name = "idx_notif_expires_at", columnList = "expires_at")
 })
 @Getter
 @Setter
@@ -59,6 +63,20 @@ public class Notification {
     @Column(columnDefinition = "JSON")
     private String metadata; // Additional data as JSON string
 
+    /** Target entity repeat events are coalesced on (e.g. the complaint URL); null if never coalesced */
+    @Column(name = "group_key", length = 255)
+    private String groupKey;
+
+    /** Number of events merged into this notification */
+    @Builder.Default
+    @Column(name = "occurrence_count", nullable = false, columnDefinition = "INT DEFAULT 1")
+    private Integer occurrenceCount = 1;
+
+    /** Waiting for the user's next email digest */
+    @Builder.Default
+    @Column(name = "email_pending", nullable = false, columnDefinition = "BOOLEAN DEFAULT FALSE")
+    private Boolean emailPending = false;
+
     @PrePersist
     protected void onCreate() {
         if (createdAt == null) {
@@ -67,5 +85,11 @@ public class Notification {
         if (isRead == null) {
             isRead = false;
         }
+        if (occurrenceCount == null) {
+            occurrenceCount = 1;
+        }
+        if (emailPending == null) {
+            emailPending = false;
+        }
     }
 }
@@ -0,0 +1,78 @@
+package com.nagar_sewak.backend.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * A domain event recorded in the same transaction as the state change that raised it,
+ * waiting to be dispatched by the outbox relay.
+ */
+@Entity
+@Table(name = "outbox_events", indexes = {
+    @Index(name = "idx_outbox_status_available", columnList = "status,available_at,id"),
+    @Index(name = "idx_outbox_processed_at", columnList = "processed_at")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OutboxEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "event_type", nullable = false, length = 100)
+    private String eventType;
+
+    @Column(name = "aggregate_type", nullable = false, length = 50)
+    private String aggregateType;
+
+    @Column(name = "aggregate_id", nullable = false)
+    private Long aggregateId;
+
+    @Column(columnDefinition = "TEXT")
+    private String payload;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private OutboxStatus status;
+
+    @Builder.Default
+    @Column(nullable = false)
+    private Integer attempts = 0;
+
+    /** Earliest time the relay may (re)claim the row; doubles as the processing lease expiry. */
+    @Column(name = "available_at", nullable = false)
+    private LocalDateTime availableAt;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "processed_at")
+    private LocalDateTime processedAt;
+
+    /** Last recipient id whose fan-out chunk committed, so a redelivered event resumes after it. */
+    @Column(name = "fanout_cursor")
+    private Long fanoutCursor;
+
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+
+    @PrePersist
+    protected void onCreate() {
+        LocalDateTime now = LocalDateTime.now();
+        if (createdAt == null) {
+            createdAt = now;
+        }
+        if (availableAt == null) {
+            availableAt = now;
+        }
+        if (status == null) {
+            status = OutboxStatus.PENDING;
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package com.nagar_sewak.backend.entities;
+
+public enum OutboxStatus {
+    PENDING,
+    PROCESSING,
+    DONE,
+    FAILED
+}
@@ -0,0 +1,6 @@
+package com.nagar_sewak.backend.entities;
+
+public enum RollupGranularity {
+    HOUR,
+    DAY
+}
@@ -0,0 +1,50 @@
+package com.nagar_sewak.backend.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+import java.time.LocalDateTime;
+
+/**
+ * Pre-aggregated count of suspicious security events per IP address or user
+ * and time bucket. Daily buckets only keep the top actors.
+ */
+@Entity
+@Table(name = "security_actor_rollups",
+    uniqueConstraints = @UniqueConstraint(name = "uk_actor_rollup_bucket_actor",
+        columnNames = {"granularity", "bucket_start", "actor_type", "actor"}),
+    indexes = {
+        @Index(name = "idx_actor_rollup_bucket", columnList = "granularity,actor_type,bucket_start")
+    })
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SecurityActorRollup {
+
+    public enum ActorType {
+        IP,
+        USER
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 10)
+    private RollupGranularity granularity;
+
+    @Column(name = "bucket_start", nullable = false)
+    private LocalDateTime bucketStart;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "actor_type", nullable = false, length = 10)
+    private ActorType actorType;
+
+    @Column(nullable = false, length = 255)
+    private String actor;
+
+    @Column(name = "event_count", nullable = false)
+    private Long eventCount;
+}
@@ -0,0 +1,42 @@
+package com.nagar_sewak.backend.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+import java.time.LocalDateTime;
+
+/**
+ * Pre-aggregated count of security events per event type and time bucket,
+ * maintained incrementally by the audit writer.
+ */
+@Entity
+@Table(name = "security_event_rollups",
+    uniqueConstraints = @UniqueConstraint(name = "uk_rollup_bucket_type",
+        columnNames = {"granularity", "bucket_start", "event_type"}),
+    indexes = {
+        @Index(name = "idx_rollup_granularity_bucket", columnList = "granularity,bucket_start")
+    })
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SecurityEventRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 10)
+    private RollupGranularity granularity;
+
+    @Column(name = "bucket_start", nullable = false)
+    private LocalDateTime bucketStart;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "event_type", nullable = false, length = 50)
+    private SecurityEventType eventType;
+
+    @Column(name = "event_count", nullable = false)
+    private Long eventCount;
+}
@@ -16,5 +16,15 @@ public enum SecurityEventType {
     EMAIL_NOTIFICATION_SENT,
     EMAIL_NOTIFICATION_FAILED,
     DEVICE_TRUSTED,
-    DEVICE_UNTRUSTED
+    DEVICE_UNTRUSTED;
+
+    /**
+     * Event types that count as suspicious activity
+     */
+    public boolean isSuspicious() {
+        return switch (this) {
+            case FAILED_LOGIN_ATTEMPT, ACCOUNT_LOCKED, SUSPICIOUS_ACTIVITY_DETECTED, MFA_VERIFICATION_FAILED -> true;
+            default -> false;
+        };
+    }
 }
\ No newline at end of file
@@ -26,6 +26,8 @@ public class User {
     private String fullName;
 
     @ElementCollection(fetch = FetchType.EAGER)
+    @CollectionTable(name = "user_roles", joinColumns = @JoinColumn(name = "user_id"),
+            indexes = @Index(name = "idx_user_roles_role", columnList = "roles,user_id"))
     @Enumerated(EnumType.STRING)
     private Set<Role> roles;
 
@@ -40,4 +42,9 @@ public class User {
 
     @Column(name = "account_locked_until")
     private java.time.LocalDateTime accountLockedUntil;
+
+    /** How notification emails are delivered; null means immediately */
+    @Enumerated(EnumType.STRING)
+    @Column(name = "email_digest", length = 20)
+    private EmailDigestFrequency emailDigest;
 }
\ No newline at end of file
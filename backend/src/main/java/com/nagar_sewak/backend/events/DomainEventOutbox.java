@@ -0,0 +1,159 @@
+package com.nagar_sewak.backend.events;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nagar_sewak.backend.entities.OutboxEvent;
+import com.nagar_sewak.backend.repositories.ComplaintRepository;
+import com.nagar_sewak.backend.repositories.OutboxEventRepository;
+import com.nagar_sewak.backend.repositories.ProjectMilestoneRepository;
+import com.nagar_sewak.backend.repositories.ProjectRepository;
+import com.nagar_sewak.backend.repositories.TenderRepository;
+import com.nagar_sewak.backend.services.NotificationFanoutService.FanoutCheckpoint;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Records domain events in the outbox table instead of publishing them in-process.
+ * Events are stored by aggregate id and rebuilt from the database when the
+ * {@link OutboxRelay} dispatches them, so listeners only ever see committed state.
+ * A rebuilt event's source is the outbox row it came from.
+ */
+@Component
+@RequiredArgsConstructor
+public class DomainEventOutbox {
+
+    private static final TypeReference<Map<String, Object>> PAYLOAD_TYPE = new TypeReference<>() {};
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final TenderRepository tenderRepository;
+    private final ProjectRepository projectRepository;
+    private final ProjectMilestoneRepository milestoneRepository;
+    private final ComplaintRepository complaintRepository;
+    private final ObjectMapper objectMapper;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${app.outbox.relay.lease-seconds:300}")
+    private long leaseSeconds;
+
+    /**
+     * Store the event in the caller's transaction (or a new one if there is none)
+     */
+    @Transactional
+    public void publish(ApplicationEvent event) {
+        outboxEventRepository.save(encode(event));
+    }
+
+    /**
+     * Rebuild the event a row describes, with the row as its source; empty if its aggregate has since been deleted
+     */
+    public Optional<ApplicationEvent> decode(OutboxEvent row) {
+        Map<String, Object> payload = readPayload(row.getPayload());
+        Long id = row.getAggregateId();
+
+        return switch (row.getEventType()) {
+            case "TenderPublishedEvent" -> tenderRepository.findById(id)
+                    .map(tender -> new TenderPublishedEvent(row, tender));
+            case "TenderSubmittedEvent" -> tenderRepository.findById(id)
+                    .map(tender -> new TenderSubmittedEvent(row, tender));
+            case "TenderStatusChangedEvent" -> tenderRepository.findById(id)
+                    .map(tender -> new TenderStatusChangedEvent(row, tender,
+                            (String) payload.get("oldStatus"),
+                            (String) payload.get("newStatus"),
+                            (String) payload.get("rejectionReason")));
+            case "ComplaintStatusChangedEvent" -> complaintRepository.findById(id)
+                    .map(complaint -> new ComplaintStatusChangedEvent(row, complaint,
+                            (String) payload.get("oldStatus"),
+                            (String) payload.get("newStatus")));
+            case "ProjectMilestoneCompletedEvent" -> projectRepository.findById(id)
+                    .flatMap(project -> milestoneRepository.findById(((Number) payload.get("milestoneId")).longValue())
+                            .map(milestone -> new ProjectMilestoneCompletedEvent(row, project, milestone)));
+            default -> throw new IllegalStateException("Unknown outbox event type: " + row.getEventType());
+        };
+    }
+
+    /**
+     * Fan-out progress kept on the outbox row an event was rebuilt from, so a retried
+     * delivery skips recipients already notified. Each save also renews the row's relay
+     * lease, so a fan-out that outlasts one lease is not claimed and run again elsewhere.
+     * {@link FanoutCheckpoint#NONE} for events that did not come through the relay
+     */
+    public FanoutCheckpoint fanoutCheckpoint(ApplicationEvent event) {
+        if (!(event.getSource() instanceof OutboxEvent row)) {
+            return FanoutCheckpoint.NONE;
+        }
+        return new FanoutCheckpoint() {
+            @Override
+            public long lastRecipientId() {
+                return row.getFanoutCursor() != null ? row.getFanoutCursor() : 0L;
+            }
+
+            @Override
+            public void save(long lastRecipientId) {
+                jdbcTemplate.update("UPDATE outbox_events SET fanout_cursor = ?, available_at = ? WHERE id = ?",
+                        lastRecipientId, Timestamp.valueOf(LocalDateTime.now().plusSeconds(leaseSeconds)), row.getId());
+                row.setFanoutCursor(lastRecipientId);
+            }
+        };
+    }
+
+    private OutboxEvent encode(ApplicationEvent event) {
+        Map<String, Object> payload = new HashMap<>();
+
+        return switch (event) {
+            case TenderPublishedEvent e -> row(e, "Tender", e.getTender().getId(), payload);
+            case TenderSubmittedEvent e -> row(e, "Tender", e.getTender().getId(), payload);
+            case TenderStatusChangedEvent e -> {
+                payload.put("oldStatus", e.getOldStatus());
+                payload.put("newStatus", e.getNewStatus());
+                payload.put("rejectionReason", e.getRejectionReason());
+                yield row(e, "Tender", e.getTender().getId(), payload);
+            }
+            case ComplaintStatusChangedEvent e -> {
+                payload.put("oldStatus", e.getOldStatus());
+                payload.put("newStatus", e.getNewStatus());
+                yield row(e, "Complaint", e.getComplaint().getId(), payload);
+            }
+            case ProjectMilestoneCompletedEvent e -> {
+                payload.put("milestoneId", e.getMilestone().getId());
+                yield row(e, "Project", e.getProject().getId(), payload);
+            }
+            default -> throw new IllegalArgumentException(
+                    "Event cannot be stored in the outbox: " + event.getClass().getSimpleName());
+        };
+    }
+
+    private OutboxEvent row(ApplicationEvent event, String aggregateType, Long aggregateId, Map<String, Object> payload) {
+        try {
+            return OutboxEvent.builder()
+                    .eventType(event.getClass().getSimpleName())
+                    .aggregateType(aggregateType)
+                    .aggregateId(aggregateId)
+                    .payload(payload.isEmpty() ? null : objectMapper.writeValueAsString(payload))
+                    .build();
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Failed to serialize outbox payload", e);
+        }
+    }
+
+    private Map<String, Object> readPayload(String json) {
+        if (json == null || json.isEmpty()) {
+            return Map.of();
+        }
+        try {
+            return objectMapper.readValue(json, PAYLOAD_TYPE);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Corrupt outbox payload", e);
+        }
+    }
+}
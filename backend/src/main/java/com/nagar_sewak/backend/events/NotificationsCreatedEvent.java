@@ -0,0 +1,17 @@
+package com.nagar_sewak.backend.events;
+
+import com.nagar_sewak.backend.realtime.NotificationStreamMessage;
+import lombok.Getter;
+import org.springframework.context.ApplicationEvent;
+
+import java.util.List;
+
+@Getter
+public class NotificationsCreatedEvent extends ApplicationEvent {
+    private final List<NotificationStreamMessage> messages;
+
+    public NotificationsCreatedEvent(Object source, List<NotificationStreamMessage> messages) {
+        super(source);
+        this.messages = messages;
+    }
+}
@@ -0,0 +1,227 @@
+package com.nagar_sewak.backend.events;
+
+import com.nagar_sewak.backend.entities.OutboxEvent;
+import com.nagar_sewak.backend.entities.OutboxStatus;
+import com.nagar_sewak.backend.repositories.OutboxEventRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Polls the outbox and dispatches events to in-process listeners with at-least-once delivery.
+ * Rows are claimed with {@code FOR UPDATE SKIP LOCKED} and leased by pushing {@code available_at}
+ * forward, so several replicas can relay concurrently and a crashed relay's rows are retried
+ * once their lease expires. A batch still being dispatched renews the lease of its remaining rows
+ * once half of it has passed, and fan-outs renew their own row at every checkpoint.
+ */
+@Component
+@Slf4j
+public class OutboxRelay {
+
+    private static final String CLAIM_SQL =
+            "SELECT id FROM outbox_events WHERE status IN ('PENDING', 'PROCESSING') AND available_at <= ? " +
+            "ORDER BY id LIMIT ? FOR UPDATE SKIP LOCKED";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final OutboxEventRepository outboxEventRepository;
+    private final DomainEventOutbox domainEventOutbox;
+    private final ApplicationEventPublisher eventPublisher;
+    private final boolean enabled;
+    private final int batchSize;
+    private final int maxBatchesPerPoll;
+    private final long leaseSeconds;
+    private final int maxAttempts;
+    private final long retryBaseSeconds;
+    private final long retryMaxSeconds;
+    private final int doneRetentionDays;
+
+    private final AtomicLong dispatched = new AtomicLong();
+    private final AtomicLong retried = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+
+    public OutboxRelay(JdbcTemplate jdbcTemplate,
+                       TransactionTemplate transactionTemplate,
+                       OutboxEventRepository outboxEventRepository,
+                       DomainEventOutbox domainEventOutbox,
+                       ApplicationEventPublisher eventPublisher,
+                       @Value("${app.outbox.relay.enabled:true}") boolean enabled,
+                       @Value("${app.outbox.relay.batch-size:100}") int batchSize,
+                       @Value("${app.outbox.relay.max-batches-per-poll:20}") int maxBatchesPerPoll,
+                       @Value("${app.outbox.relay.lease-seconds:300}") long leaseSeconds,
+                       @Value("${app.outbox.relay.max-attempts:10}") int maxAttempts,
+                       @Value("${app.outbox.relay.retry-base-seconds:5}") long retryBaseSeconds,
+                       @Value("${app.outbox.relay.retry-max-seconds:3600}") long retryMaxSeconds,
+                       @Value("${app.outbox.done-retention-days:7}") int doneRetentionDays) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.outboxEventRepository = outboxEventRepository;
+        this.domainEventOutbox = domainEventOutbox;
+        this.eventPublisher = eventPublisher;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.maxBatchesPerPoll = maxBatchesPerPoll;
+        this.leaseSeconds = leaseSeconds;
+        this.maxAttempts = maxAttempts;
+        this.retryBaseSeconds = retryBaseSeconds;
+        this.retryMaxSeconds = retryMaxSeconds;
+        this.doneRetentionDays = doneRetentionDays;
+    }
+
+    /**
+     * Drain full batches back to back, up to max-batches-per-poll, then wait for the next tick
+     */
+    @Scheduled(fixedDelayString = "${app.outbox.relay.poll-interval-ms:500}")
+    public void poll() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            for (int batch = 0; batch < maxBatchesPerPoll; batch++) {
+                if (relayBatch() < batchSize) {
+                    break;
+                }
+            }
+        } catch (Exception e) {
+            log.error("Outbox relay poll failed", e);
+        }
+    }
+
+    /**
+     * Claim and dispatch one batch; returns the number of rows claimed
+     */
+    public int relayBatch() {
+        List<Long> ids = claim();
+        if (ids.isEmpty()) {
+            return 0;
+        }
+
+        List<OutboxEvent> rows = outboxEventRepository.findAllById(ids);
+        rows.sort(Comparator.comparing(OutboxEvent::getId));
+        LocalDateTime renewAt = LocalDateTime.now().plusSeconds(leaseSeconds / 2);
+        for (int i = 0; i < rows.size(); i++) {
+            if (LocalDateTime.now().isAfter(renewAt)) {
+                // A long dispatch earlier in the batch must not let the rest be claimed by another relay
+                renewLease(rows.subList(i, rows.size()));
+                renewAt = LocalDateTime.now().plusSeconds(leaseSeconds / 2);
+            }
+            dispatch(rows.get(i));
+        }
+        return ids.size();
+    }
+
+    /**
+     * Delete dispatched rows past their retention window
+     */
+    @Scheduled(cron = "${app.outbox.cleanup-cron:0 45 3 * * *}")
+    public void purgeDispatched() {
+        Timestamp cutoff = Timestamp.valueOf(LocalDateTime.now().minusDays(doneRetentionDays));
+        int total = 0;
+        while (true) {
+            List<Long> ids = jdbcTemplate.queryForList(
+                    "SELECT id FROM outbox_events WHERE status = 'DONE' AND processed_at < ? ORDER BY id LIMIT 1000",
+                    Long.class, cutoff);
+            if (ids.isEmpty()) {
+                break;
+            }
+            total += jdbcTemplate.update("DELETE FROM outbox_events WHERE id IN (" + joinIds(ids) + ")");
+        }
+        if (total > 0) {
+            log.info("Purged {} dispatched outbox events older than {} days", total, doneRetentionDays);
+        }
+    }
+
+    /**
+     * Relay counters and current outbox depth by status
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("dispatched", dispatched.get());
+        stats.put("retried", retried.get());
+        stats.put("failed", failed.get());
+        stats.put("skipped", skipped.get());
+        for (OutboxStatus status : OutboxStatus.values()) {
+            stats.put(status.name().toLowerCase(), outboxEventRepository.countByStatus(status));
+        }
+        return stats;
+    }
+
+    private List<Long> claim() {
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> ids = transactionTemplate.execute(status -> {
+            List<Long> claimed = jdbcTemplate.queryForList(CLAIM_SQL, Long.class, Timestamp.valueOf(now), batchSize);
+            if (!claimed.isEmpty()) {
+                jdbcTemplate.update("UPDATE outbox_events SET status = 'PROCESSING', attempts = attempts + 1, " +
+                                "available_at = ? WHERE id IN (" + joinIds(claimed) + ")",
+                        Timestamp.valueOf(now.plusSeconds(leaseSeconds)));
+            }
+            return claimed;
+        });
+        return ids != null ? ids : List.of();
+    }
+
+    private void renewLease(List<OutboxEvent> rows) {
+        jdbcTemplate.update("UPDATE outbox_events SET available_at = ? WHERE status = 'PROCESSING' AND id IN (" +
+                        joinIds(rows.stream().map(OutboxEvent::getId).toList()) + ")",
+                Timestamp.valueOf(LocalDateTime.now().plusSeconds(leaseSeconds)));
+    }
+
+    private void dispatch(OutboxEvent row) {
+        try {
+            Optional<ApplicationEvent> event = domainEventOutbox.decode(row);
+            if (event.isPresent()) {
+                eventPublisher.publishEvent(event.get());
+                dispatched.incrementAndGet();
+            } else {
+                skipped.incrementAndGet();
+                log.warn("Skipping outbox event {} ({}): {} {} no longer exists",
+                        row.getId(), row.getEventType(), row.getAggregateType(), row.getAggregateId());
+            }
+            jdbcTemplate.update("UPDATE outbox_events SET status = 'DONE', processed_at = ?, last_error = NULL WHERE id = ?",
+                    Timestamp.valueOf(LocalDateTime.now()), row.getId());
+        } catch (Exception e) {
+            markFailed(row, e);
+        }
+    }
+
+    private void markFailed(OutboxEvent row, Exception e) {
+        String error = e.getClass().getSimpleName() + ": " + e.getMessage();
+        if (error.length() > 1000) {
+            error = error.substring(0, 1000);
+        }
+
+        if (row.getAttempts() >= maxAttempts) {
+            failed.incrementAndGet();
+            log.error("Outbox event {} ({}) failed after {} attempts", row.getId(), row.getEventType(), row.getAttempts(), e);
+            jdbcTemplate.update("UPDATE outbox_events SET status = 'FAILED', last_error = ? WHERE id = ?", error, row.getId());
+            return;
+        }
+
+        long delay = Math.min(retryMaxSeconds, retryBaseSeconds << Math.min(20, row.getAttempts() - 1));
+        retried.incrementAndGet();
+        log.warn("Outbox event {} ({}) failed on attempt {}, retrying in {}s: {}",
+                row.getId(), row.getEventType(), row.getAttempts(), delay, error);
+        jdbcTemplate.update("UPDATE outbox_events SET status = 'PENDING', available_at = ?, last_error = ? WHERE id = ?",
+                Timestamp.valueOf(LocalDateTime.now().plusSeconds(delay)), error, row.getId());
+    }
+
+    private static String joinIds(List<Long> ids) {
+        return ids.stream().map(String::valueOf).collect(Collectors.joining(","));
+    }
+}
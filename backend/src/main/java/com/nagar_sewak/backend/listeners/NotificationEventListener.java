@@ -1,33 +1,51 @@
 package com.nagar_sewak.backend.listeners;
 
+import com.nagar_sewak.backend.dto.NotificationRecipient;
 import com.nagar_sewak.backend.entities.*;
 import com.nagar_sewak.backend.events.ComplaintStatusChangedEvent;
+import com.nagar_sewak.backend.events.DomainEventOutbox;
 import com.nagar_sewak.backend.events.TenderStatusChangedEvent;
-import com.nagar_sewak.backend.repositories.UserRepository;
+import com.nagar_sewak.backend.services.ComplaintFollowerService;
+import com.nagar_sewak.backend.services.EmailTemplateService;
+import com.nagar_sewak.backend.services.NotificationFanoutService;
+import com.nagar_sewak.backend.services.NotificationPreferenceCache;
 import com.nagar_sewak.backend.services.NotificationService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEvent;
 import org.springframework.context.event.EventListener;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Component;
 
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Handles domain events. They are dispatched by the outbox relay on its own thread
+ * once the publishing transaction has committed, so handlers run synchronously and a
+ * thrown exception causes the event to be retried. Fan-outs pass the event's outbox
+ * checkpoint, so a retry resumes after the recipients already notified.
+ */
 @Component
 @RequiredArgsConstructor
 @Slf4j
 public class NotificationEventListener {
 
     private final NotificationService notificationService;
-    private final UserRepository userRepository;
+    private final NotificationFanoutService notificationFanoutService;
+    private final ComplaintFollowerService complaintFollowerService;
     private final com.nagar_sewak.backend.services.EmailService emailService;
     private final com.nagar_sewak.backend.services.PdfGeneratorService pdfGeneratorService;
-    private final com.nagar_sewak.backend.repositories.NotificationPreferenceRepository preferenceRepository;
+    private final NotificationPreferenceCache preferenceCache;
+    private final EmailTemplateService emailTemplateService;
+    private final DomainEventOutbox domainEventOutbox;
+
+    private static final DateTimeFormatter MILESTONE_DATE_FORMAT = DateTimeFormatter.ofPattern("dd MMM yyyy, hh:mm a");
 
     @EventListener
-    @Async
     public void handleComplaintStatusChanged(ComplaintStatusChangedEvent event) {
         log.info("Handling complaint status change event: {} -> {}",
                 event.getOldStatus(), event.getNewStatus());
@@ -63,7 +81,6 @@ public class NotificationEventListener {
     }
 
     @EventListener
-    @Async
     public void handleTenderStatusChanged(TenderStatusChangedEvent event) {
         log.info("Handling tender status change event: {} -> {}",
                 event.getOldStatus(), event.getNewStatus());
@@ -127,11 +144,10 @@ public class NotificationEventListener {
             User user = tender.getContractor().getUser();
 
             // Check if email notifications are enabled
-            NotificationPreference preference = preferenceRepository
-                    .findByUserAndNotificationType(user, NotificationType.TENDER_BID_ACCEPTED)
-                    .orElse(null);
+            boolean emailEnabled = preferenceCache.get(user.getId())
+                    .isEnabled(NotificationType.TENDER_BID_ACCEPTED, NotificationPreferenceCache.Channel.EMAIL);
 
-            if (preference != null && preference.getEmailEnabled() &&
+            if (emailEnabled &&
                     user.getEmail() != null && !user.getEmail().isEmpty()) {
 
                 // Generate PDF
@@ -156,199 +172,75 @@ public class NotificationEventListener {
     }
 
     private String buildTenderEmailBody(Tender tender, String message) {
-        return String.format(
-                """
-                        <!DOCTYPE html>
-                        <html>
-                        <head>
-                            <style>
-                                body { font-family: Arial, sans-serif; line-height: 1.6; color: #333; }
-                                .container { max-width: 600px; margin: 0 auto; padding: 20px; }
-                                .header { background-color: #4CAF50; color: white; padding: 20px; text-align: center; }
-                                .content { background-color: #f9f9f9; padding: 20px; margin: 20px 0; }
-                                .details { background-color: white; padding: 15px; margin: 10px 0; border-left: 4px solid #4CAF50; }
-                                .footer { text-align: center; color: #666; font-size: 12px; margin-top: 20px; }
-                            </style>
-                        </head>
-                        <body>
-                            <div class="container">
-                                <div class="header">
-                                    <h1>🎉 Tender Bid Accepted!</h1>
-                                </div>
-                                <div class="content">
-                                    <p>Dear %s,</p>
-                                    <p>%s</p>
-                                    <div class="details">
-                                        <h3>Tender Details:</h3>
-                                        <p><strong>Tender ID:</strong> #%d</p>
-                                        <p><strong>Title:</strong> %s</p>
-                                        <p><strong>Budget:</strong> ₹%s</p>
-                                        <p><strong>Your Quote:</strong> ₹%s</p>
-                                        <p><strong>Start Date:</strong> %s</p>
-                                        <p><strong>End Date:</strong> %s</p>
-                                    </div>
-                                    <p>Please find the detailed tender document attached as a PDF.</p>
-                                    <p>We look forward to working with you on this project.</p>
-                                </div>
-                                <div class="footer">
-                                    <p>This is an automated notification from Nagar Sewak System.</p>
-                                    <p>Please do not reply to this email.</p>
-                                </div>
-                            </div>
-                        </body>
-                        </html>
-                        """,
-                tender.getContractor().getCompanyName(),
-                message,
-                tender.getId(),
-                tender.getTitle(),
-                tender.getBudget(),
-                tender.getQuoteAmount(),
-                tender.getStartDate(),
-                tender.getEndDate());
+        Map<String, Object> variables = tenderVariables(tender);
+        variables.put("contractorName", tender.getContractor().getCompanyName());
+        variables.put("message", message);
+        variables.put("quoteAmount", tender.getQuoteAmount());
+        return emailTemplateService.renderView("email/tender-accepted", variables);
+    }
+
+    private Map<String, Object> tenderVariables(Tender tender) {
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("tenderId", tender.getId());
+        variables.put("tenderTitle", tender.getTitle());
+        variables.put("budget", tender.getBudget());
+        variables.put("startDate", tender.getStartDate());
+        variables.put("endDate", tender.getEndDate());
+        return variables;
     }
 
     @EventListener
-    @Async
     public void handleTenderPublished(com.nagar_sewak.backend.events.TenderPublishedEvent event) {
         log.info("Handling tender published event for tender ID: {}", event.getTender().getId());
 
         Tender tender = event.getTender();
 
-        // Notify all contractors about new tender
-        List<User> contractors = userRepository.findAll().stream()
-                .filter(user -> user.getRoles() != null && user.getRoles().contains(Role.CONTRACTOR))
-                .toList();
-
-        for (User contractor : contractors) {
-            try {
-                Map<String, Object> metadata = new HashMap<>();
-                metadata.put("tenderId", tender.getId());
-                metadata.put("complaintId", tender.getComplaint().getId());
-                metadata.put("budget", tender.getBudget());
-
-                NotificationService.NotificationDTO dto = NotificationService.NotificationDTO.builder()
-                        .userId(contractor.getId())
-                        .type(NotificationType.TENDER_NEW_OPPORTUNITY)
-                        .priority(NotificationPriority.HIGH)
-                        .title("New Tender Available")
-                        .message(String.format("A new tender '%s' with budget ₹%s is now available for bidding.",
-                                tender.getTitle(), tender.getBudget()))
-                        .actionUrl("/tenders/" + tender.getId())
-                        .metadata(metadata)
-                        .build();
-
-                notificationService.createNotification(dto);
-
-                // Send email with PDF to contractors
-                sendTenderPublishedEmail(contractor, tender);
-
-            } catch (Exception e) {
-                log.error("Failed to notify contractor {} about tender {}", contractor.getId(), tender.getId(), e);
-            }
-        }
-
-        log.info("Notified {} contractors about new tender", contractors.size());
-    }
-
-    private void sendTenderPublishedEmail(User contractor, Tender tender) {
-        try {
-            // Check if email notifications are enabled
-            NotificationPreference preference = preferenceRepository
-                    .findByUserAndNotificationType(contractor, NotificationType.TENDER_NEW_OPPORTUNITY)
-                    .orElse(null);
+        Map<String, Object> metadata = new HashMap<>();
+        metadata.put("tenderId", tender.getId());
+        metadata.put("complaintId", tender.getComplaint().getId());
+        metadata.put("budget", tender.getBudget());
 
-            if (preference != null && preference.getEmailEnabled() &&
-                    contractor.getEmail() != null && !contractor.getEmail().isEmpty()) {
+        NotificationService.NotificationDTO dto = NotificationService.NotificationDTO.builder()
+                .type(NotificationType.TENDER_NEW_OPPORTUNITY)
+                .priority(NotificationPriority.HIGH)
+                .title("New Tender Available")
+                .message(String.format("A new tender '%s' with budget ₹%s is now available for bidding.",
+                        tender.getTitle(), tender.getBudget()))
+                .actionUrl("/tenders/" + tender.getId())
+                .metadata(metadata)
+                .build();
 
-                // Generate PDF
-                byte[] pdfBytes = pdfGeneratorService.generateTenderPdf(tender);
+        // Notify all contractors; the tender PDF is rendered once and attached to every email
+        NotificationFanoutService.FanoutResult result =
+                notificationFanoutService.fanOut(Role.CONTRACTOR, dto, tenderPublishedEmail(tender),
+                        domainEventOutbox.fanoutCheckpoint(event));
 
-                // Build email body
-                String emailBody = buildTenderPublishedEmailBody(contractor, tender);
+        log.info("Notified {} contractors about new tender", result.recipients());
+    }
 
-                // Send email with PDF attachment
-                emailService.sendEmailWithAttachment(
-                        contractor.getEmail(),
-                        "New Tender Available - " + tender.getTitle(),
-                        emailBody,
-                        pdfBytes,
-                        "Tender_" + tender.getId() + "_Details.pdf");
+    private NotificationFanoutService.EmailComposer tenderPublishedEmail(Tender tender) {
+        String subject = "New Tender Available - " + tender.getTitle();
+        String attachmentName = "Tender_" + tender.getId() + "_Details.pdf";
+        AtomicReference<byte[]> pdf = new AtomicReference<>();
 
-                log.info("Tender published email with PDF sent to {}", contractor.getEmail());
+        return contractor -> {
+            if (pdf.get() == null) {
+                pdf.set(pdfGeneratorService.generateTenderPdf(tender));
             }
-        } catch (Exception e) {
-            log.error("Failed to send tender published email", e);
-        }
+            return new NotificationFanoutService.FanoutEmail(subject,
+                    buildTenderPublishedEmailBody(contractor, tender), pdf.get(), attachmentName);
+        };
     }
 
-    private String buildTenderPublishedEmailBody(User contractor, Tender tender) {
-        String contractorName = "Contractor";
-        if (contractor.getUsername() != null) {
-            contractorName = contractor.getUsername();
-        }
-
-        return String.format(
-                """
-                        <!DOCTYPE html>
-                        <html>
-                        <head>
-                            <style>
-                                body { font-family: Arial, sans-serif; line-height: 1.6; color: #333; }
-                                .container { max-width: 600px; margin: 0 auto; padding: 20px; }
-                                .header { background-color: #2196F3; color: white; padding: 20px; text-align: center; }
-                                .content { background-color: #f9f9f9; padding: 20px; margin: 20px 0; }
-                                .details { background-color: white; padding: 15px; margin: 10px 0; border-left: 4px solid #2196F3; }
-                                .button { background-color: #2196F3; color: white; padding: 12px 24px;
-                                         text-decoration: none; display: inline-block; margin: 15px 0; border-radius: 4px; }
-                                .footer { text-align: center; color: #666; font-size: 12px; margin-top: 20px; }
-                            </style>
-                        </head>
-                        <body>
-                            <div class="container">
-                                <div class="header">
-                                    <h1>📢 New Tender Opportunity</h1>
-                                </div>
-                                <div class="content">
-                                    <p>Dear %s,</p>
-                                    <p>A new tender has been published that matches your profile. We invite you to review and submit your bid.</p>
-                                    <div class="details">
-                                        <h3>Tender Details:</h3>
-                                        <p><strong>Tender ID:</strong> #%d</p>
-                                        <p><strong>Title:</strong> %s</p>
-                                        <p><strong>Description:</strong> %s</p>
-                                        <p><strong>Budget:</strong> ₹%s</p>
-                                        <p><strong>Bid Start Date:</strong> %s</p>
-                                        <p><strong>Bid End Date:</strong> %s</p>
-                                        <p><strong>Status:</strong> %s</p>
-                                    </div>
-                                    <p>Please find the complete tender document attached as a PDF for your reference.</p>
-                                    <p style="text-align: center;">
-                                        <a href="http://localhost:3000/tenders/%d" class="button">View Tender & Submit Bid</a>
-                                    </p>
-                                    <p><strong>Important:</strong> Please submit your bid before the deadline.</p>
-                                </div>
-                                <div class="footer">
-                                    <p>This is an automated notification from Nagar Sewak System.</p>
-                                    <p>Please do not reply to this email.</p>
-                                </div>
-                            </div>
-                        </body>
-                        </html>
-                        """,
-                contractorName,
-                tender.getId(),
-                tender.getTitle(),
-                tender.getDescription(),
-                tender.getBudget(),
-                tender.getStartDate(),
-                tender.getEndDate(),
-                tender.getStatus(),
-                tender.getId());
+    private String buildTenderPublishedEmailBody(NotificationRecipient contractor, Tender tender) {
+        Map<String, Object> variables = tenderVariables(tender);
+        variables.put("contractorName", contractor.getUsername() != null ? contractor.getUsername() : "Contractor");
+        variables.put("description", tender.getDescription());
+        variables.put("status", tender.getStatus());
+        return emailTemplateService.renderView("email/tender-published", variables);
     }
 
     @EventListener
-    @Async
     public void handleProjectMilestoneCompleted(com.nagar_sewak.backend.events.ProjectMilestoneCompletedEvent event) {
         log.info("Handling project milestone completed event for project ID: {}, milestone: {}%",
                 event.getProject().getId(), event.getMilestone().getPercentage());
@@ -356,59 +248,36 @@ public class NotificationEventListener {
         com.nagar_sewak.backend.entities.Project project = event.getProject();
         com.nagar_sewak.backend.entities.ProjectMilestone milestone = event.getMilestone();
 
-        // Find all citizens who filed complaints related to this project
-        List<com.nagar_sewak.backend.entities.Complaint> relatedComplaints = userRepository.findAll().stream()
-                .flatMap(user -> {
-                    try {
-                        @SuppressWarnings("unchecked")
-                        var complaints = (java.util.Collection<com.nagar_sewak.backend.entities.Complaint>) user
-                                .getClass().getMethod("getComplaints").invoke(user);
-                        return complaints.stream();
-                    } catch (Exception e) {
-                        return java.util.stream.Stream.empty();
-                    }
-                })
-                .filter(c -> c.getProject() != null && c.getProject().getId().equals(project.getId()))
-                .toList();
-
-        // Notify each citizen
-        for (com.nagar_sewak.backend.entities.Complaint complaint : relatedComplaints) {
-            if (complaint.getUser() == null)
-                continue;
-
-            try {
-                Map<String, Object> metadata = new HashMap<>();
-                metadata.put("projectId", project.getId());
-                metadata.put("milestonePercentage", milestone.getPercentage());
-                metadata.put("complaintId", complaint.getId());
-
-                String milestoneLabel = getMilestoneLabel(milestone.getPercentage());
-
-                NotificationService.NotificationDTO dto = NotificationService.NotificationDTO.builder()
-                        .userId(complaint.getUser().getId())
-                        .type(NotificationType.PROJECT_UPDATE_REQUIRED)
-                        .priority(milestone.getPercentage() == 100 ? NotificationPriority.HIGH
-                                : NotificationPriority.MEDIUM)
-                        .title("Project Progress Update: " + milestoneLabel)
-                        .message(String.format("The project '%s' has reached %d%% completion. %s",
-                                project.getTitle(), milestone.getPercentage(), milestone.getNotes()))
-                        .actionUrl("/projects/" + project.getId())
-                        .metadata(metadata)
-                        .build();
-
-                notificationService.createNotification(dto);
-
-                // Send email for major milestones (50%, 100%)
-                if (milestone.getPercentage() == 50 || milestone.getPercentage() == 100) {
-                    sendMilestoneEmail(complaint.getUser(), project, milestone);
-                }
-
-            } catch (Exception e) {
-                log.error("Failed to notify citizen {} about milestone", complaint.getUser().getId(), e);
-            }
-        }
+        Map<String, Object> metadata = new HashMap<>();
+        metadata.put("projectId", project.getId());
+        metadata.put("milestonePercentage", milestone.getPercentage());
+
+        String milestoneLabel = getMilestoneLabel(milestone.getPercentage());
 
-        log.info("Notified {} citizens about milestone completion", relatedComplaints.size());
+        NotificationService.NotificationDTO dto = NotificationService.NotificationDTO.builder()
+                .type(NotificationType.PROJECT_UPDATE_REQUIRED)
+                .priority(milestone.getPercentage() == 100 ? NotificationPriority.HIGH
+                        : NotificationPriority.MEDIUM)
+                .title("Project Progress Update: " + milestoneLabel)
+                .message(String.format("The project '%s' has reached %d%% completion. %s",
+                        project.getTitle(), milestone.getPercentage(), milestone.getNotes()))
+                .actionUrl("/projects/" + project.getId())
+                .metadata(metadata)
+                .build();
+
+        // Send email for major milestones (50%, 100%)
+        NotificationFanoutService.EmailComposer email = milestone.getPercentage() == 50 || milestone.getPercentage() == 100
+                ? citizen -> new NotificationFanoutService.FanoutEmail("Project Progress Update: " + milestoneLabel,
+                        buildMilestoneEmailBody(citizen, project, milestone), null, null)
+                : null;
+
+        // Notify everyone following a complaint on this project (reporters, voters, commenters)
+        NotificationFanoutService.FanoutResult result = notificationFanoutService.fanOut(
+                "followers of project " + project.getId(),
+                (afterId, limit) -> complaintFollowerService.findProjectFollowers(project.getId(), afterId, limit),
+                dto, email, domainEventOutbox.fanoutCheckpoint(event));
+
+        log.info("Notified {} citizens about milestone completion", result.recipients());
     }
 
     private String getMilestoneLabel(Integer percentage) {
@@ -422,141 +291,32 @@ public class NotificationEventListener {
         };
     }
 
-    private void sendMilestoneEmail(User citizen, com.nagar_sewak.backend.entities.Project project,
-            com.nagar_sewak.backend.entities.ProjectMilestone milestone) {
-        try {
-            NotificationPreference preference = preferenceRepository
-                    .findByUserAndNotificationType(citizen, NotificationType.PROJECT_UPDATE_REQUIRED)
-                    .orElse(null);
-
-            if (preference != null && preference.getEmailEnabled() &&
-                    citizen.getEmail() != null && !citizen.getEmail().isEmpty()) {
-
-                String emailBody = buildMilestoneEmailBody(citizen, project, milestone);
-
-                emailService.sendHtmlEmail(
-                        citizen.getEmail(),
-                        "Project Progress Update: " + getMilestoneLabel(milestone.getPercentage()),
-                        emailBody);
-
-                log.info("Milestone email sent to {}", citizen.getEmail());
-            }
-        } catch (Exception e) {
-            log.error("Failed to send milestone email", e);
-        }
-    }
-
-    private String buildMilestoneEmailBody(User citizen, com.nagar_sewak.backend.entities.Project project,
+    private String buildMilestoneEmailBody(NotificationRecipient citizen, com.nagar_sewak.backend.entities.Project project,
             com.nagar_sewak.backend.entities.ProjectMilestone milestone) {
-        String citizenName = citizen.getUsername();
-        String milestoneLabel = getMilestoneLabel(milestone.getPercentage());
-
-        // Build photo gallery HTML
-        StringBuilder photoGallery = new StringBuilder();
-        if (milestone.getPhotoUrls() != null && !milestone.getPhotoUrls().isEmpty()) {
-            String[] photos = milestone.getPhotoUrls().split(",");
-            photoGallery.append(
-                    "<div style='margin: 15px 0;'><h4>Progress Photos:</h4><div style='display: flex; gap: 10px; flex-wrap: wrap;'>");
-            for (String photo : photos) {
-                photoGallery.append(String.format(
-                        "<img src='http://localhost:8080/uploads/projects/%s' style='width: 150px; height: 150px; object-fit: cover; border-radius: 8px;' />",
-                        photo.trim()));
-            }
-            photoGallery.append("</div></div>");
-        }
-
-        return String.format(
-                """
-                        <!DOCTYPE html>
-                        <html>
-                        <head>
-                            <style>
-                                body { font-family: Arial, sans-serif; line-height: 1.6; color: #333; }
-                                .container { max-width: 600px; margin: 0 auto; padding: 20px; }
-                                .header { background-color: #4CAF50; color: white; padding: 20px; text-align: center; border-radius: 8px 8px 0 0; }
-                                .content { background-color: #f9f9f9; padding: 20px; margin: 0; }
-                                .progress-bar { background-color: #e0e0e0; height: 30px; border-radius: 15px; overflow: hidden; margin: 20px 0; }
-                                .progress-fill { background-color: #4CAF50; height: 100%%; width: %d%%; display: flex; align-items: center; justify-content: center; color: white; font-weight: bold; }
-                                .details { background-color: white; padding: 15px; margin: 10px 0; border-left: 4px solid #4CAF50; border-radius: 4px; }
-                                .button { background-color: #4CAF50; color: white; padding: 12px 24px; text-decoration: none; display: inline-block; margin: 15px 0; border-radius: 4px; }
-                                .footer { text-align: center; color: #666; font-size: 12px; margin-top: 20px; padding: 20px; background-color: #f5f5f5; border-radius: 0 0 8px 8px; }
-                            </style>
-                        </head>
-                        <body>
-                            <div class="container">
-                                <div class="header">
-                                    <h1>🎉 Project Progress Update</h1>
-                                </div>
-                                <div class="content">
-                                    <p>Dear %s,</p>
-                                    <p>Great news! The project related to your complaint has made significant progress.</p>
-
-                                    <div class="progress-bar">
-                                        <div class="progress-fill">%d%%</div>
-                                    </div>
-
-                                    <div class="details">
-                                        <h3>%s</h3>
-                                        <p><strong>Project:</strong> %s</p>
-                                        <p><strong>Status:</strong> %s</p>
-                                        <p><strong>Progress:</strong> %d%% Complete</p>
-                                        <p><strong>Update:</strong> %s</p>
-                                        <p><strong>Updated:</strong> %s</p>
-                                    </div>
-
-                                    %s
-
-                                    <p style="text-align: center;">
-                                        <a href="http://localhost:3000/projects/%d" class="button">View Project Details</a>
-                                    </p>
-
-                                    <p>Thank you for your patience and for being an active citizen!</p>
-                                </div>
-                                <div class="footer">
-                                    <p>This is an automated notification from Nagar Sewak System.</p>
-                                    <p>You're receiving this because you filed a complaint related to this project.</p>
-                                </div>
-                            </div>
-                        </body>
-                        </html>
-                        """,
-                milestone.getPercentage(),
-                citizenName,
-                milestone.getPercentage(),
-                milestoneLabel,
-                project.getTitle(),
-                project.getStatus(),
-                milestone.getPercentage(),
-                milestone.getNotes() != null ? milestone.getNotes() : "Work is progressing as planned.",
-                milestone.getCompletedAt() != null ? milestone.getCompletedAt()
-                        .format(java.time.format.DateTimeFormatter.ofPattern("dd MMM yyyy, hh:mm a")) : "Recently",
-                photoGallery.toString(),
-                project.getId());
+        List<String> photos = milestone.getPhotoUrls() == null || milestone.getPhotoUrls().isBlank()
+                ? List.of()
+                : Arrays.stream(milestone.getPhotoUrls().split(",")).map(String::trim).toList();
+
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("citizenName", citizen.getUsername());
+        variables.put("percentage", milestone.getPercentage());
+        variables.put("milestoneLabel", getMilestoneLabel(milestone.getPercentage()));
+        variables.put("projectId", project.getId());
+        variables.put("projectTitle", project.getTitle());
+        variables.put("projectStatus", project.getStatus());
+        variables.put("notes", milestone.getNotes() != null ? milestone.getNotes() : "Work is progressing as planned.");
+        variables.put("updatedAt", milestone.getCompletedAt() != null
+                ? milestone.getCompletedAt().format(MILESTONE_DATE_FORMAT) : "Recently");
+        variables.put("photos", photos);
+        return emailTemplateService.renderView("email/project-milestone", variables);
     }
 
     // Helper method to notify all admins
-    private void notifyAllAdmins(NotificationService.NotificationDTO baseDto) {
-        List<User> admins = userRepository.findAll().stream()
-                .filter(user -> user.getRoles() != null && user.getRoles().contains(Role.ADMIN))
-                .toList();
-
-        for (User admin : admins) {
-            NotificationService.NotificationDTO adminDto = NotificationService.NotificationDTO.builder()
-                    .userId(admin.getId())
-                    .type(baseDto.getType())
-                    .priority(baseDto.getPriority())
-                    .title(baseDto.getTitle())
-                    .message(baseDto.getMessage())
-                    .actionUrl(baseDto.getActionUrl())
-                    .metadata(baseDto.getMetadata())
-                    .build();
-
-            notificationService.createNotification(adminDto);
-        }
+    private void notifyAllAdmins(NotificationService.NotificationDTO baseDto, ApplicationEvent event) {
+        notificationFanoutService.fanOut(Role.ADMIN, baseDto, domainEventOutbox.fanoutCheckpoint(event));
     }
 
     @EventListener
-    @Async
     public void handleTenderSubmitted(com.nagar_sewak.backend.events.TenderSubmittedEvent event) {
         Tender tender = event.getTender();
         log.info("Handling tender submission event for tender ID: {}", tender.getId());
@@ -586,7 +346,6 @@ public class NotificationEventListener {
             metadata.put("amount", tender.getQuoteAmount());
 
             NotificationService.NotificationDTO adminBaseDto = NotificationService.NotificationDTO.builder()
-                    .userId(0L) // placeholder
                     .type(NotificationType.TENDER_SUBMITTED)
                     .priority(NotificationPriority.MEDIUM)
                     .title("New Tender Bid Received")
@@ -597,7 +356,7 @@ public class NotificationEventListener {
                     .metadata(metadata)
                     .build();
 
-            notifyAllAdmins(adminBaseDto);
+            notifyAllAdmins(adminBaseDto, event);
         } catch (Exception e) {
             log.error("Failed to notify admins about new bid", e);
         }
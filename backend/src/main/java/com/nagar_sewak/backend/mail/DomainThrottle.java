@@ -0,0 +1,69 @@
+package com.nagar_sewak.backend.mail;
+
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.ConsumptionProbe;
+import io.github.bucket4j.Refill;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-recipient-domain send rate limits, so a bulk announcement does not trip a large provider's
+ * throttling and get the sender greylisted. Each domain has a token bucket refilled per minute;
+ * limits apply per replica.
+ */
+@Component
+public class DomainThrottle {
+
+    private final int defaultPerMinute;
+    private final Map<String, Integer> perMinute = new HashMap<>();
+    private final ConcurrentHashMap<String, Bucket> buckets = new ConcurrentHashMap<>();
+
+    public DomainThrottle(@Value("${app.email.throttle.default-per-minute:120}") int defaultPerMinute,
+                          @Value("${app.email.throttle.domains:}") String domainLimits) {
+        this.defaultPerMinute = Math.max(1, defaultPerMinute);
+        // domain=limit pairs, e.g. gmail.com=60,yahoo.com=30
+        for (String entry : domainLimits.split(",")) {
+            String[] parts = entry.trim().split("=");
+            if (parts.length == 2) {
+                perMinute.put(parts[0].trim().toLowerCase(Locale.ROOT), Math.max(1, Integer.parseInt(parts[1].trim())));
+            }
+        }
+    }
+
+    /**
+     * Take a send permit for the domain; returns 0 if granted, else the nanoseconds until one frees up
+     */
+    public long tryAcquire(String domain) {
+        Bucket bucket = buckets.computeIfAbsent(domain, this::newBucket);
+        ConsumptionProbe probe = bucket.tryConsumeAndReturnRemaining(1);
+        return probe.isConsumed() ? 0L : Math.max(1L, probe.getNanosToWaitForRefill());
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("defaultPerMinute", defaultPerMinute);
+        stats.put("domainLimits", perMinute);
+        stats.put("trackedDomains", buckets.size());
+        return stats;
+    }
+
+    public static String domainOf(String email) {
+        int at = email != null ? email.lastIndexOf('@') : -1;
+        return at >= 0 ? email.substring(at + 1).toLowerCase(Locale.ROOT) : "";
+    }
+
+    private Bucket newBucket(String domain) {
+        int limit = perMinute.getOrDefault(domain, defaultPerMinute);
+        return Bucket.builder()
+                .addLimit(Bandwidth.classic(limit, Refill.greedy(limit, Duration.ofMinutes(1))))
+                .build();
+    }
+}
@@ -0,0 +1,131 @@
+package com.nagar_sewak.backend.mail;
+
+import com.nagar_sewak.backend.entities.EmailAttachment;
+import com.nagar_sewak.backend.entities.EmailTemplateType;
+import com.nagar_sewak.backend.repositories.EmailAttachmentRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * The persistent outgoing email queue. Each email is one email_history row, inserted PENDING with its
+ * rendered body; {@link EmailQueueWorker} sends it and records the outcome with a single update. The row
+ * is the email's history, so there is no separate history write. With email disabled the row is
+ * written SENT at enqueue time, no attachment content is stored and nothing is sent, as before.
+ */
+@Service
+@Slf4j
+public class EmailQueue {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO email_history (recipient_email, template_type, subject, sent_at, status, retry_count, " +
+            "html_body, attachment_id, available_at) VALUES (?, ?, ?, ?, ?, 0, ?, ?, ?)";
+
+    public record QueuedEmail(String to, String subject, String htmlBody, EmailTemplateType templateType,
+                              Long attachmentId) {
+
+        public QueuedEmail(String to, String subject, String htmlBody, EmailTemplateType templateType) {
+            this(to, subject, htmlBody, templateType, null);
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EmailAttachmentRepository attachmentRepository;
+    private final boolean emailEnabled;
+
+    public EmailQueue(JdbcTemplate jdbcTemplate,
+                      EmailAttachmentRepository attachmentRepository,
+                      @Value("${app.email.enabled:true}") boolean emailEnabled) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.attachmentRepository = attachmentRepository;
+        this.emailEnabled = emailEnabled;
+    }
+
+    public void enqueue(QueuedEmail email) {
+        enqueueAll(List.of(email));
+    }
+
+    /**
+     * Queue emails with one batched insert
+     */
+    public void enqueueAll(List<QueuedEmail> emails) {
+        if (emails.isEmpty()) {
+            return;
+        }
+        if (!emailEnabled) {
+            log.info("Email sending is disabled. Would have sent {} emails, first to: {}", emails.size(), emails.get(0).to());
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        String status = emailEnabled ? "PENDING" : "SENT";
+        jdbcTemplate.batchUpdate(INSERT_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                QueuedEmail email = emails.get(i);
+                ps.setString(1, email.to());
+                ps.setString(2, email.templateType() != null ? email.templateType().name() : null);
+                ps.setString(3, truncate(email.subject(), 500));
+                ps.setTimestamp(4, now);
+                ps.setString(5, status);
+                ps.setString(6, email.htmlBody());
+                if (email.attachmentId() != null) {
+                    ps.setLong(7, email.attachmentId());
+                } else {
+                    ps.setNull(7, Types.BIGINT);
+                }
+                ps.setTimestamp(8, emailEnabled ? now : null);
+            }
+
+            @Override
+            public int getBatchSize() {
+                return emails.size();
+            }
+        });
+    }
+
+    /**
+     * Store attachment content once and return its id; identical content under the same name is shared.
+     * Returns null with email disabled, since the email will never be sent.
+     */
+    public Long storeAttachment(byte[] content, String filename) {
+        if (!emailEnabled) {
+            return null;
+        }
+        String sha256 = sha256(content);
+        return attachmentRepository.findBySha256AndFilename(sha256, filename)
+                .map(EmailAttachment::getId)
+                .orElseGet(() -> {
+                    try {
+                        return attachmentRepository.save(EmailAttachment.builder()
+                                .sha256(sha256).filename(filename).content(content).build()).getId();
+                    } catch (DataIntegrityViolationException e) {
+                        // Stored concurrently by another sender
+                        return attachmentRepository.findBySha256AndFilename(sha256, filename).orElseThrow().getId();
+                    }
+                });
+    }
+
+    private static String sha256(byte[] content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String truncate(String value, int length) {
+        return value != null && value.length() > length ? value.substring(0, length) : value;
+    }
+}
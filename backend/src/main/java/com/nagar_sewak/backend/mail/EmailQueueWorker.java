@@ -0,0 +1,320 @@
+package com.nagar_sewak.backend.mail;
+
+import com.nagar_sewak.backend.config.AsyncExecutorConfig;
+import com.nagar_sewak.backend.entities.EmailAttachment;
+import com.nagar_sewak.backend.entities.EmailHistory;
+import com.nagar_sewak.backend.repositories.EmailAttachmentRepository;
+import com.nagar_sewak.backend.repositories.EmailHistoryRepository;
+import com.nagar_sewak.backend.util.InstrumentedExecutor;
+import jakarta.mail.MessagingException;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.internet.MimeMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Sends the emails in {@link EmailQueue}. Each poll claims batches of due PENDING rows with
+ * {@code FOR UPDATE SKIP LOCKED} and a lease on {@code available_at}, so replicas share the queue and a
+ * crashed worker's rows are picked up once the lease runs out. A batch is split across the email
+ * executor, each slice sending over one pooled SMTP connection; rows whose domain is over its
+ * {@link DomainThrottle} limit are pushed back to when it has capacity. Outcomes are written with one
+ * batched update per batch; FAILED rows are put back on the queue by {@link EmailRetryWorker}.
+ */
+@Component
+@Slf4j
+public class EmailQueueWorker {
+
+    private static final String CLAIM_SQL =
+            "SELECT id FROM email_history WHERE status = 'PENDING' AND available_at <= ? " +
+            "ORDER BY id LIMIT ? FOR UPDATE SKIP LOCKED";
+
+    private record Failure(Long id, String error) {
+    }
+
+    private record SliceResult(List<Long> sent, Map<Long, String> errors) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final EmailHistoryRepository emailHistoryRepository;
+    private final EmailAttachmentRepository attachmentRepository;
+    private final SmtpTransportPool transportPool;
+    private final DomainThrottle domainThrottle;
+    private final InstrumentedExecutor emailExecutor;
+    private final String fromEmail;
+    private final boolean emailEnabled;
+    private final int batchSize;
+    private final int maxBatchesPerPoll;
+    private final long leaseSeconds;
+
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong throttled = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+
+    public EmailQueueWorker(JdbcTemplate jdbcTemplate,
+                            TransactionTemplate transactionTemplate,
+                            EmailHistoryRepository emailHistoryRepository,
+                            EmailAttachmentRepository attachmentRepository,
+                            SmtpTransportPool transportPool,
+                            DomainThrottle domainThrottle,
+                            @Qualifier(AsyncExecutorConfig.EMAIL_EXECUTOR) InstrumentedExecutor emailExecutor,
+                            @Value("${app.email.from}") String fromEmail,
+                            @Value("${app.email.enabled:true}") boolean emailEnabled,
+                            @Value("${app.email.queue.batch-size:100}") int batchSize,
+                            @Value("${app.email.queue.max-batches-per-poll:10}") int maxBatchesPerPoll,
+                            @Value("${app.email.queue.lease-seconds:300}") long leaseSeconds) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.emailHistoryRepository = emailHistoryRepository;
+        this.attachmentRepository = attachmentRepository;
+        this.transportPool = transportPool;
+        this.domainThrottle = domainThrottle;
+        this.emailExecutor = emailExecutor;
+        this.fromEmail = fromEmail;
+        this.emailEnabled = emailEnabled;
+        this.batchSize = Math.max(1, batchSize);
+        this.maxBatchesPerPoll = Math.max(1, maxBatchesPerPoll);
+        this.leaseSeconds = leaseSeconds;
+    }
+
+    @Scheduled(fixedDelayString = "${app.email.queue.poll-interval-ms:1000}")
+    public void poll() {
+        if (!emailEnabled) {
+            return;
+        }
+        try {
+            for (int batch = 0; batch < maxBatchesPerPoll; batch++) {
+                if (drainBatch() < batchSize) {
+                    break;
+                }
+            }
+        } catch (Exception e) {
+            log.error("Email queue poll failed", e);
+        }
+    }
+
+    /**
+     * Claim and send one batch; returns the number of rows claimed
+     */
+    public int drainBatch() {
+        List<Long> ids = claim();
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        batches.incrementAndGet();
+
+        List<EmailHistory> rows = emailHistoryRepository.findAllById(ids);
+        rows.sort(Comparator.comparing(EmailHistory::getId));
+
+        // Throttled rows wait for their domain's next free slot; no attempt is counted
+        long now = System.nanoTime();
+        LocalDateTime wallNow = LocalDateTime.now();
+        List<EmailHistory> sendable = new ArrayList<>(rows.size());
+        List<Object[]> deferred = new ArrayList<>();
+        for (EmailHistory row : rows) {
+            long waitNanos = domainThrottle.tryAcquire(DomainThrottle.domainOf(row.getRecipientEmail()));
+            if (waitNanos == 0) {
+                sendable.add(row);
+            } else {
+                deferred.add(new Object[]{Timestamp.valueOf(wallNow.plusNanos(waitNanos)), row.getId()});
+            }
+        }
+        if (!deferred.isEmpty()) {
+            throttled.addAndGet(deferred.size());
+            jdbcTemplate.batchUpdate("UPDATE email_history SET available_at = ? WHERE id = ?", deferred);
+        }
+
+        Map<Long, EmailAttachment> attachments = loadAttachments(sendable);
+        List<Long> delivered = new ArrayList<>();
+        List<Failure> failures = new ArrayList<>();
+        sendInSlices(sendable, attachments, delivered, failures);
+        record(delivered, failures);
+
+        log.debug("Email batch of {}: {} sent, {} failed, {} throttled in {} ms", rows.size(), delivered.size(),
+                failures.size(), deferred.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - now));
+        return ids.size();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("batches", batches.get());
+        stats.put("sent", sent.get());
+        stats.put("failed", failed.get());
+        stats.put("throttled", throttled.get());
+        stats.put("smtp", transportPool.getStats());
+        stats.put("throttle", domainThrottle.getStats());
+        return stats;
+    }
+
+    private List<Long> claim() {
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> ids = transactionTemplate.execute(status -> {
+            List<Long> claimed = jdbcTemplate.queryForList(CLAIM_SQL, Long.class, Timestamp.valueOf(now), batchSize);
+            if (!claimed.isEmpty()) {
+                jdbcTemplate.update("UPDATE email_history SET available_at = ? WHERE id IN (" + joinIds(claimed) + ")",
+                        Timestamp.valueOf(now.plusSeconds(leaseSeconds)));
+            }
+            return claimed;
+        });
+        return ids != null ? ids : List.of();
+    }
+
+    private Map<Long, EmailAttachment> loadAttachments(List<EmailHistory> rows) {
+        List<Long> ids = rows.stream().map(EmailHistory::getAttachmentId).filter(Objects::nonNull).distinct().toList();
+        if (ids.isEmpty()) {
+            return Map.of();
+        }
+        return attachmentRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(EmailAttachment::getId, Function.identity()));
+    }
+
+    /**
+     * One slice per pooled connection, sent concurrently. A slice the email executor will not take (full, or
+     * shutting down) is sent on this thread instead of being dropped. Slices still running when the batch's
+     * lease runs out are not waited for; their rows go back to the queue with the lease.
+     */
+    private void sendInSlices(List<EmailHistory> rows, Map<Long, EmailAttachment> attachments,
+                              List<Long> delivered, List<Failure> failures) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(leaseSeconds);
+        int slices = Math.min(transportPool.getMaxSize(), rows.size());
+        List<CompletableFuture<SliceResult>> futures = new ArrayList<>(slices);
+        for (int slice = 0; slice < slices; slice++) {
+            List<EmailHistory> part = new ArrayList<>();
+            for (int i = slice; i < rows.size(); i += slices) {
+                part.add(rows.get(i));
+            }
+            CompletableFuture<SliceResult> future = new CompletableFuture<>();
+            Runnable send = () -> {
+                try {
+                    future.complete(sendSlice(part, attachments));
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                }
+            };
+            if (!emailExecutor.tryExecute(send)) {
+                send.run();
+            }
+            futures.add(future);
+        }
+        for (CompletableFuture<SliceResult> future : futures) {
+            try {
+                SliceResult result = future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                delivered.addAll(result.sent());
+                result.errors().forEach((id, error) -> failures.add(new Failure(id, error)));
+            } catch (TimeoutException e) {
+                log.warn("Email slice still sending after the {}s lease; its rows return to the queue", leaseSeconds);
+            } catch (ExecutionException e) {
+                log.error("Email slice failed", e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private SliceResult sendSlice(List<EmailHistory> rows, Map<Long, EmailAttachment> attachments) {
+        Map<Long, String> errors = new LinkedHashMap<>();
+        List<Long> sentIds = new ArrayList<>(rows.size());
+        SmtpTransportPool.PooledTransport transport = null;
+        try {
+            for (int i = 0; i < rows.size(); i++) {
+                EmailHistory row = rows.get(i);
+                if (row.getHtmlBody() == null) {
+                    errors.put(row.getId(), "No stored body to send");
+                    continue;
+                }
+                if (transport == null) {
+                    try {
+                        transport = transportPool.borrow();
+                    } catch (MessagingException | RuntimeException e) {
+                        // Server unreachable: fail the rest of the slice rather than reconnecting per email
+                        String error = describe(e);
+                        rows.subList(i, rows.size()).forEach(remaining -> errors.put(remaining.getId(), error));
+                        break;
+                    }
+                }
+                try {
+                    transportPool.send(transport, buildMessage(row, attachments.get(row.getAttachmentId())));
+                    sentIds.add(row.getId());
+                } catch (SendFailedException e) {
+                    // Recipient rejected; the connection is still fine
+                    errors.put(row.getId(), describe(e));
+                } catch (MessagingException | RuntimeException e) {
+                    errors.put(row.getId(), describe(e));
+                    transportPool.release(transport, true);
+                    transport = null;
+                }
+            }
+        } finally {
+            if (transport != null) {
+                transportPool.release(transport, false);
+            }
+        }
+        return new SliceResult(sentIds, errors);
+    }
+
+    private MimeMessage buildMessage(EmailHistory row, EmailAttachment attachment) throws MessagingException {
+        MimeMessage message = transportPool.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(message, attachment != null, "UTF-8");
+        helper.setFrom(fromEmail);
+        helper.setTo(row.getRecipientEmail());
+        helper.setSubject(row.getSubject());
+        helper.setText(row.getHtmlBody(), true);
+        if (attachment != null) {
+            helper.addAttachment(attachment.getFilename(), new ByteArrayResource(attachment.getContent()));
+        }
+        return message;
+    }
+
+    private void record(List<Long> delivered, List<Failure> failures) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        if (!delivered.isEmpty()) {
+            jdbcTemplate.update("UPDATE email_history SET status = 'SENT', sent_at = ?, error_message = NULL, " +
+                    "available_at = NULL WHERE id IN (" + joinIds(delivered) + ")", now);
+            sent.addAndGet(delivered.size());
+        }
+        if (!failures.isEmpty()) {
+            jdbcTemplate.batchUpdate("UPDATE email_history SET status = 'FAILED', error_message = ?, " +
+                            "retry_count = retry_count + 1, last_retry_at = ?, available_at = NULL WHERE id = ?",
+                    failures.stream().map(failure -> new Object[]{failure.error(), now, failure.id()}).toList());
+            failed.addAndGet(failures.size());
+            log.warn("{} emails failed to send, first error: {}", failures.size(), failures.get(0).error());
+        }
+    }
+
+    private static String describe(Exception e) {
+        String error = e.getClass().getSimpleName() + ": " + e.getMessage();
+        return error.length() > 1000 ? error.substring(0, 1000) : error;
+    }
+
+    private static String joinIds(List<Long> ids) {
+        return ids.stream().map(String::valueOf).collect(Collectors.joining(","));
+    }
+}
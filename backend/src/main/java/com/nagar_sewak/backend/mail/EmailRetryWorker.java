@@ -0,0 +1,169 @@
+package com.nagar_sewak.backend.mail;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Puts FAILED emails back on the queue. Each scan walks the FAILED rows in id order, a batch at a time,
+ * and returns each one to PENDING with {@code available_at} set one backoff after its last attempt. The
+ * backoff doubles with every attempt up to a cap, and half of it is random, so a batch that failed
+ * together during an SMTP outage is resent spread out rather than all at once. Rows that have used up
+ * {@code app.email.retry.maxAttempts}, or that have no stored body to resend, are PARKED for an admin to
+ * look at. Updates only apply to rows still FAILED, so replicas scanning together cannot double-schedule.
+ */
+@Component
+@Slf4j
+public class EmailRetryWorker {
+
+    private static final String SCAN_SQL =
+            "SELECT id, retry_count, last_retry_at, CASE WHEN html_body IS NULL THEN 1 ELSE 0 END " +
+            "FROM email_history WHERE status = 'FAILED' AND id > ? ORDER BY id LIMIT ?";
+
+    public record RescanResult(int rescheduled, int parked) {
+    }
+
+    private record FailedRow(long id, int attempts, LocalDateTime lastAttemptAt, boolean missingBody) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean emailEnabled;
+    private final int maxAttempts;
+    private final long baseDelaySeconds;
+    private final long maxDelaySeconds;
+    private final int batchSize;
+
+    private final AtomicLong scans = new AtomicLong();
+    private final AtomicLong rescheduled = new AtomicLong();
+    private final AtomicLong parked = new AtomicLong();
+
+    public EmailRetryWorker(JdbcTemplate jdbcTemplate,
+                            @Value("${app.email.enabled:true}") boolean emailEnabled,
+                            @Value("${app.email.retry.maxAttempts:5}") int maxAttempts,
+                            @Value("${app.email.retry.base-delay-seconds:60}") long baseDelaySeconds,
+                            @Value("${app.email.retry.max-delay-seconds:3600}") long maxDelaySeconds,
+                            @Value("${app.email.retry.batch-size:500}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.emailEnabled = emailEnabled;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.baseDelaySeconds = Math.max(1, baseDelaySeconds);
+        this.maxDelaySeconds = Math.max(this.baseDelaySeconds, maxDelaySeconds);
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    @Scheduled(fixedDelayString = "${app.email.retry.scan-interval-ms:30000}")
+    public void scheduledRescan() {
+        if (!emailEnabled) {
+            return;
+        }
+        try {
+            RescanResult result = rescan();
+            if (result.rescheduled() > 0 || result.parked() > 0) {
+                log.info("Email retry scan: {} rescheduled, {} parked", result.rescheduled(), result.parked());
+            }
+        } catch (Exception e) {
+            log.error("Email retry scan failed", e);
+        }
+    }
+
+    /**
+     * Reschedule or park every FAILED email
+     */
+    public RescanResult rescan() {
+        scans.incrementAndGet();
+        LocalDateTime now = LocalDateTime.now();
+        int rescheduledCount = 0;
+        int parkedCount = 0;
+        long afterId = 0L;
+        while (true) {
+            List<FailedRow> rows = jdbcTemplate.query(SCAN_SQL,
+                    (rs, rowNum) -> {
+                        Timestamp lastAttempt = rs.getTimestamp(3);
+                        return new FailedRow(rs.getLong(1), rs.getInt(2),
+                                lastAttempt != null ? lastAttempt.toLocalDateTime() : null, rs.getInt(4) == 1);
+                    },
+                    afterId, batchSize);
+            if (rows.isEmpty()) {
+                break;
+            }
+
+            List<Object[]> retries = new ArrayList<>(rows.size());
+            List<Long> poison = new ArrayList<>();
+            for (FailedRow row : rows) {
+                if (row.missingBody() || row.attempts() >= maxAttempts) {
+                    poison.add(row.id());
+                } else {
+                    retries.add(new Object[]{Timestamp.valueOf(nextAttemptAt(row, now)), row.id()});
+                }
+            }
+            if (!retries.isEmpty()) {
+                int[] counts = jdbcTemplate.batchUpdate("UPDATE email_history SET status = 'PENDING', available_at = ? " +
+                        "WHERE id = ? AND status = 'FAILED'", retries);
+                rescheduledCount += updated(counts);
+            }
+            if (!poison.isEmpty()) {
+                parkedCount += jdbcTemplate.update("UPDATE email_history SET status = 'PARKED', available_at = NULL " +
+                        "WHERE status = 'FAILED' AND id IN (" +
+                        poison.stream().map(String::valueOf).collect(Collectors.joining(",")) + ")");
+            }
+
+            afterId = rows.get(rows.size() - 1).id();
+            if (rows.size() < batchSize) {
+                break;
+            }
+        }
+        rescheduled.addAndGet(rescheduledCount);
+        parked.addAndGet(parkedCount);
+        return new RescanResult(rescheduledCount, parkedCount);
+    }
+
+    /**
+     * Backoff before the attempt after {@code attempts} failed ones: base * 2^(attempts - 1), capped,
+     * of which the upper half is random
+     */
+    long backoffSeconds(int attempts) {
+        int doublings = Math.min(Math.max(attempts, 1) - 1, 30);
+        long delay = Math.min(maxDelaySeconds, baseDelaySeconds << doublings);
+        long half = delay / 2;
+        return delay - half + ThreadLocalRandom.current().nextLong(half + 1);
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("maxAttempts", maxAttempts);
+        stats.put("baseDelaySeconds", baseDelaySeconds);
+        stats.put("maxDelaySeconds", maxDelaySeconds);
+        stats.put("scans", scans.get());
+        stats.put("rescheduled", rescheduled.get());
+        stats.put("parked", parked.get());
+        return stats;
+    }
+
+    private LocalDateTime nextAttemptAt(FailedRow row, LocalDateTime now) {
+        long backoff = backoffSeconds(row.attempts());
+        LocalDateTime due = row.lastAttemptAt() != null ? row.lastAttemptAt().plusSeconds(backoff) : null;
+        // Overdue rows (the worker was down, say) still get a random offset instead of all going now
+        return due != null && due.isAfter(now) ? due : now.plusSeconds(backoff / 2);
+    }
+
+    private static int updated(int[] counts) {
+        int total = 0;
+        for (int count : counts) {
+            // Some drivers report SUCCESS_NO_INFO (-2) for batched statements
+            total += count == -2 ? 1 : Math.max(count, 0);
+        }
+        return total;
+    }
+}
@@ -0,0 +1,245 @@
+package com.nagar_sewak.backend.mail;
+
+import com.nagar_sewak.backend.entities.EmailTemplateType;
+import com.nagar_sewak.backend.services.EmailTemplateService;
+import com.nagar_sewak.backend.util.StripedLruCache;
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.Refill;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps security alert emails (security alert, account locked, new device) bounded under attack. An
+ * alert is dropped if the same (recipient, type, IP) alert went out within the dedupe window, if the
+ * recipient's token bucket is empty, or if the global bucket is. Dropped alerts are counted per recipient,
+ * and each recipient with any gets one summary email per summary interval instead, within the same global
+ * limit (recipients it cannot cover wait for the next interval). Everything is held in
+ * memory per replica, and the number of recipients tracked is capped.
+ */
+@Component
+@Slf4j
+public class SecurityAlertSuppressor {
+
+    private static final int MAX_IPS_LISTED = 10;
+
+    private static final int MAX_IPS_COUNTED = 1000;
+
+    private static final DateTimeFormatter SUMMARY_TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+
+    /** Alerts held back for one recipient since their last summary */
+    private static final class Suppressed {
+        private final LocalDateTime since = LocalDateTime.now();
+        private final Map<EmailTemplateType, Integer> byType = new EnumMap<>(EmailTemplateType.class);
+        /** Distinct source addresses in arrival order, up to {@link #MAX_IPS_COUNTED} */
+        private final Set<String> ipAddresses = new LinkedHashSet<>();
+        private int total;
+
+        synchronized void add(EmailTemplateType type, String ipAddress) {
+            total++;
+            byType.merge(type, 1, Integer::sum);
+            if (ipAddress != null && ipAddresses.size() < MAX_IPS_COUNTED) {
+                ipAddresses.add(ipAddress);
+            }
+        }
+    }
+
+    private final EmailQueue emailQueue;
+    private final EmailTemplateService emailTemplateService;
+    private final int perRecipientPerHour;
+    private final Bucket globalBucket;
+    private final long dedupeNanos;
+    private final int maxTracked;
+
+    /** (recipient, type, IP) to the time its dedupe window ends */
+    private final StripedLruCache<String, Long> recentAlerts;
+    private final StripedLruCache<String, Bucket> recipientBuckets;
+    private final ConcurrentHashMap<String, Suppressed> suppressed = new ConcurrentHashMap<>();
+
+    private final AtomicLong allowed = new AtomicLong();
+    private final AtomicLong deduplicated = new AtomicLong();
+    private final AtomicLong rateLimited = new AtomicLong();
+    private final AtomicLong untracked = new AtomicLong();
+    private final AtomicLong summariesSent = new AtomicLong();
+    private final AtomicLong summariesDeferred = new AtomicLong();
+
+    public SecurityAlertSuppressor(EmailQueue emailQueue,
+                                   EmailTemplateService emailTemplateService,
+                                   @Value("${app.security.alerts.per-recipient-per-hour:5}") int perRecipientPerHour,
+                                   @Value("${app.security.alerts.global-per-minute:120}") int globalPerMinute,
+                                   @Value("${app.security.alerts.dedupe-window-seconds:3600}") long dedupeWindowSeconds,
+                                   @Value("${app.security.alerts.max-tracked:50000}") int maxTracked) {
+        this.emailQueue = emailQueue;
+        this.emailTemplateService = emailTemplateService;
+        this.perRecipientPerHour = Math.max(1, perRecipientPerHour);
+        int global = Math.max(1, globalPerMinute);
+        this.globalBucket = Bucket.builder()
+                .addLimit(Bandwidth.classic(global, Refill.greedy(global, Duration.ofMinutes(1))))
+                .build();
+        this.dedupeNanos = TimeUnit.SECONDS.toNanos(Math.max(0, dedupeWindowSeconds));
+        this.maxTracked = Math.max(1, maxTracked);
+        this.recentAlerts = new StripedLruCache<>(this.maxTracked, 16);
+        this.recipientBuckets = new StripedLruCache<>(this.maxTracked, 16);
+    }
+
+    /**
+     * Whether the alert may be sent now; if not it is counted toward the recipient's next summary
+     */
+    public boolean tryAcquire(String recipient, EmailTemplateType type, String ipAddress) {
+        String normalized = recipient.toLowerCase(Locale.ROOT);
+        String key = normalized + '|' + type + '|' + ipAddress;
+        long now = System.nanoTime();
+
+        Long windowEnd = recentAlerts.get(key);
+        if (windowEnd != null && now - windowEnd < 0) {
+            deduplicated.incrementAndGet();
+            suppress(normalized, type, ipAddress);
+            return false;
+        }
+        Bucket bucket = recipientBuckets.computeIfAbsent(normalized, r -> newRecipientBucket());
+        boolean recipientToken = bucket.tryConsume(1);
+        if (!recipientToken || !globalBucket.tryConsume(1)) {
+            if (recipientToken) {
+                // Held back by the global limit; the recipient keeps their allowance
+                bucket.addTokens(1);
+            }
+            rateLimited.incrementAndGet();
+            suppress(normalized, type, ipAddress);
+            return false;
+        }
+        recentAlerts.put(key, now + dedupeNanos);
+        allowed.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Queue one summary email per recipient with suppressed alerts, oldest first; returns the number queued.
+     * Summaries take tokens from the global bucket like any alert, and recipients left over when it runs dry
+     * keep their held alerts for the next run
+     */
+    @Scheduled(fixedDelayString = "${app.security.alerts.summary-interval-ms:900000}")
+    public int sendSummaries() {
+        List<String> recipients = suppressed.entrySet().stream()
+                .sorted(Comparator.comparing(entry -> entry.getValue().since))
+                .map(Map.Entry::getKey)
+                .toList();
+        List<EmailQueue.QueuedEmail> summaries = new ArrayList<>();
+        for (String recipient : recipients) {
+            if (!globalBucket.tryConsume(1)) {
+                break;
+            }
+            Suppressed held = suppressed.remove(recipient);
+            if (held != null) {
+                summaries.add(summary(recipient, held));
+            } else {
+                globalBucket.addTokens(1);
+            }
+        }
+        int deferred = recipients.size() - summaries.size();
+        if (deferred > 0) {
+            summariesDeferred.addAndGet(deferred);
+            log.info("Global alert limit reached, {} security alert summaries carried over to the next run", deferred);
+        }
+        if (summaries.isEmpty()) {
+            return 0;
+        }
+        try {
+            emailQueue.enqueueAll(summaries);
+            summariesSent.addAndGet(summaries.size());
+            log.info("Queued {} security alert summaries", summaries.size());
+        } catch (Exception e) {
+            log.error("Failed to queue {} security alert summaries", summaries.size(), e);
+            return 0;
+        }
+        return summaries.size();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("perRecipientPerHour", perRecipientPerHour);
+        stats.put("allowed", allowed.get());
+        stats.put("deduplicated", deduplicated.get());
+        stats.put("rateLimited", rateLimited.get());
+        stats.put("untracked", untracked.get());
+        stats.put("pendingSummaries", suppressed.size());
+        stats.put("summariesSent", summariesSent.get());
+        stats.put("summariesDeferred", summariesDeferred.get());
+        return stats;
+    }
+
+    /**
+     * Count the alert under the map's per-key lock, so it lands either in the entry a concurrent
+     * {@link #sendSummaries()} removes before reading it, or in a fresh one
+     */
+    private void suppress(String recipient, EmailTemplateType type, String ipAddress) {
+        suppressed.compute(recipient, (r, held) -> {
+            if (held == null) {
+                if (suppressed.size() >= maxTracked) {
+                    // Too many recipients under attack at once; this one gets no summary
+                    untracked.incrementAndGet();
+                    return null;
+                }
+                held = new Suppressed();
+            }
+            held.add(type, ipAddress);
+            return held;
+        });
+    }
+
+    private EmailQueue.QueuedEmail summary(String recipient, Suppressed held) {
+        StringBuilder message = new StringBuilder();
+        synchronized (held) {
+            message.append("To avoid flooding your inbox we held back ").append(held.total)
+                    .append(held.total == 1 ? " security alert" : " security alerts")
+                    .append(" for your account since ").append(held.since.format(SUMMARY_TIME_FORMAT)).append(": ");
+            List<String> counts = new ArrayList<>();
+            held.byType.forEach((type, count) -> counts.add(count + " " + describe(type)));
+            message.append(String.join(", ", counts)).append('.');
+            if (!held.ipAddresses.isEmpty()) {
+                message.append(" Requests came from ")
+                        .append(String.join(", ", held.ipAddresses.stream().limit(MAX_IPS_LISTED).toList()));
+                int others = held.ipAddresses.size() - MAX_IPS_LISTED;
+                if (others > 0) {
+                    message.append(" and ").append(others)
+                            .append(held.ipAddresses.size() == MAX_IPS_COUNTED ? "+" : "").append(" other addresses");
+                }
+                message.append('.');
+            }
+        }
+        message.append(" If this was not you, change your password and review your devices.");
+        String body = emailTemplateService.renderNotificationEmail("Security alerts summary", message.toString(), "/login");
+        return new EmailQueue.QueuedEmail(recipient, "Security alerts summary", body, EmailTemplateType.SECURITY_ALERT);
+    }
+
+    private static String describe(EmailTemplateType type) {
+        return switch (type) {
+            case ACCOUNT_LOCKED -> "account lock notices";
+            case NEW_DEVICE_LOGIN -> "new device sign-in alerts";
+            default -> "security alerts";
+        };
+    }
+
+    private Bucket newRecipientBucket() {
+        return Bucket.builder()
+                .addLimit(Bandwidth.classic(perRecipientPerHour, Refill.greedy(perRecipientPerHour, Duration.ofHours(1))))
+                .build();
+    }
+}
@@ -0,0 +1,191 @@
+package com.nagar_sewak.backend.mail;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.MimeMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded pool of connected SMTP transports. A transport is opened (TCP, STARTTLS and AUTH) once and
+ * then sends many messages, up to {@code max-messages-per-connection} or {@code max-age-ms}, instead of
+ * one handshake per email as {@link JavaMailSender#send} does. Idle transports are checked with a NOOP
+ * before reuse and dropped after {@code idle-timeout-ms}, before most servers would close them.
+ */
+@Component
+@Slf4j
+public class SmtpTransportPool {
+
+    /** A pooled connection; only the borrowing thread touches it */
+    public static final class PooledTransport {
+        private final Transport transport;
+        private final long openedAt = System.nanoTime();
+        private long lastUsedAt = openedAt;
+        private int messagesSent;
+
+        private PooledTransport(Transport transport) {
+            this.transport = transport;
+        }
+    }
+
+    private static final long VERIFY_AFTER_IDLE_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    private final JavaMailSenderImpl mailSender;
+    private final int maxSize;
+    private final int maxMessagesPerConnection;
+    private final long maxAgeNanos;
+    private final long idleTimeoutNanos;
+    private final long borrowTimeoutMillis;
+
+    private final LinkedBlockingDeque<PooledTransport> idle = new LinkedBlockingDeque<>();
+    private final Semaphore permits;
+
+    private final AtomicLong opened = new AtomicLong();
+    private final AtomicLong closed = new AtomicLong();
+    private final AtomicLong reused = new AtomicLong();
+    private final AtomicLong messagesSent = new AtomicLong();
+
+    public SmtpTransportPool(JavaMailSender mailSender,
+                             @Value("${app.email.smtp.pool-size:4}") int maxSize,
+                             @Value("${app.email.smtp.max-messages-per-connection:100}") int maxMessagesPerConnection,
+                             @Value("${app.email.smtp.max-age-ms:600000}") long maxAgeMs,
+                             @Value("${app.email.smtp.idle-timeout-ms:60000}") long idleTimeoutMs,
+                             @Value("${app.email.smtp.borrow-timeout-ms:30000}") long borrowTimeoutMs) {
+        if (!(mailSender instanceof JavaMailSenderImpl impl)) {
+            throw new IllegalStateException("SMTP transport pool needs a JavaMailSenderImpl, got " + mailSender.getClass());
+        }
+        this.mailSender = impl;
+        this.maxSize = Math.max(1, maxSize);
+        this.maxMessagesPerConnection = Math.max(1, maxMessagesPerConnection);
+        this.maxAgeNanos = TimeUnit.MILLISECONDS.toNanos(maxAgeMs);
+        this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMs);
+        this.borrowTimeoutMillis = borrowTimeoutMs;
+        this.permits = new Semaphore(this.maxSize);
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public MimeMessage createMimeMessage() {
+        return mailSender.createMimeMessage();
+    }
+
+    /**
+     * A connected transport, reusing an idle one when it is still healthy. Must be given back
+     * with {@link #release}.
+     */
+    public PooledTransport borrow() throws MessagingException {
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new MessagingException("No SMTP connection free after " + borrowTimeoutMillis + " ms");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MessagingException("Interrupted waiting for an SMTP connection", e);
+        }
+
+        try {
+            PooledTransport pooled;
+            while ((pooled = idle.pollFirst()) != null) {
+                if (isUsable(pooled)) {
+                    reused.incrementAndGet();
+                    return pooled;
+                }
+                close(pooled);
+            }
+            return open();
+        } catch (MessagingException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Send one message over a borrowed transport
+     */
+    public void send(PooledTransport pooled, MimeMessage message) throws MessagingException {
+        message.saveChanges();
+        pooled.transport.sendMessage(message, message.getAllRecipients());
+        pooled.messagesSent++;
+        pooled.lastUsedAt = System.nanoTime();
+        messagesSent.incrementAndGet();
+    }
+
+    /**
+     * Return a transport; broken ones (after a connection-level failure) are closed instead of pooled
+     */
+    public void release(PooledTransport pooled, boolean broken) {
+        try {
+            if (broken || !isReusable(pooled, System.nanoTime())) {
+                close(pooled);
+            } else {
+                // Most recently used first, so surplus connections age out when traffic drops
+                idle.offerFirst(pooled);
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("maxSize", maxSize);
+        stats.put("inUse", maxSize - permits.availablePermits());
+        stats.put("idle", idle.size());
+        stats.put("connectionsOpened", opened.get());
+        stats.put("connectionsClosed", closed.get());
+        stats.put("connectionsReused", reused.get());
+        stats.put("messagesSent", messagesSent.get());
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        PooledTransport pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            close(pooled);
+        }
+    }
+
+    private PooledTransport open() throws MessagingException {
+        String protocol = mailSender.getProtocol() != null ? mailSender.getProtocol() : "smtp";
+        Transport transport = mailSender.getSession().getTransport(protocol);
+        transport.connect(mailSender.getHost(), mailSender.getPort(), mailSender.getUsername(), mailSender.getPassword());
+        opened.incrementAndGet();
+        return new PooledTransport(transport);
+    }
+
+    private boolean isUsable(PooledTransport pooled) {
+        long now = System.nanoTime();
+        if (!isReusable(pooled, now) || now - pooled.lastUsedAt > idleTimeoutNanos) {
+            return false;
+        }
+        // isConnected() costs a NOOP round trip, so only after a pause long enough for the server to have hung up
+        return now - pooled.lastUsedAt < VERIFY_AFTER_IDLE_NANOS || pooled.transport.isConnected();
+    }
+
+    private boolean isReusable(PooledTransport pooled, long now) {
+        return pooled.messagesSent < maxMessagesPerConnection && now - pooled.openedAt < maxAgeNanos;
+    }
+
+    private void close(PooledTransport pooled) {
+        closed.incrementAndGet();
+        try {
+            pooled.transport.close();
+        } catch (MessagingException e) {
+            log.debug("Error closing SMTP connection: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.nagar_sewak.backend.push;
+
+import com.nagar_sewak.backend.dto.PushSubscriptionRequest;
+import com.nagar_sewak.backend.entities.PushSubscription;
+import com.nagar_sewak.backend.entities.User;
+import com.nagar_sewak.backend.repositories.PushSubscriptionRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.net.URI;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Registers and removes the browser push subscriptions {@link WebPushSender} delivers to. Endpoints
+ * must be on a known push service ({@code app.push.allowed-hosts}), since the server will POST to them.
+ */
+@Service
+@Slf4j
+public class PushSubscriptionService {
+
+    private final PushSubscriptionRepository subscriptionRepository;
+    /** Exact host names, or suffixes when they start with a dot */
+    private final List<String> allowedHosts;
+
+    public PushSubscriptionService(PushSubscriptionRepository subscriptionRepository,
+                                   @Value("${app.push.allowed-hosts:fcm.googleapis.com,.push.services.mozilla.com,.notify.windows.com,.push.apple.com}")
+                                   List<String> allowedHosts) {
+        this.subscriptionRepository = subscriptionRepository;
+        this.allowedHosts = allowedHosts.stream().map(host -> host.trim().toLowerCase(Locale.ROOT)).toList();
+    }
+
+    /**
+     * Store the subscription for the user, taking over the endpoint if the browser re-subscribed
+     * under another account
+     */
+    @Transactional
+    public PushSubscription subscribe(User user, PushSubscriptionRequest request) {
+        if (request.getEndpoint() == null || request.getKeys() == null
+                || request.getKeys().getP256dh() == null || request.getKeys().getAuth() == null) {
+            throw new IllegalArgumentException("endpoint, keys.p256dh and keys.auth are required");
+        }
+        URI endpoint = URI.create(request.getEndpoint());
+        if (!"https".equalsIgnoreCase(endpoint.getScheme()) || endpoint.getHost() == null) {
+            throw new IllegalArgumentException("Push endpoint must be an https URL");
+        }
+        // Only known push services, so a subscription cannot point the sender at internal addresses
+        if (endpoint.getRawUserInfo() != null || (endpoint.getPort() != -1 && endpoint.getPort() != 443)
+                || !isAllowedHost(endpoint.getHost())) {
+            throw new IllegalArgumentException("Push endpoint is not on a known push service");
+        }
+        // Rejects keys the sender could not encrypt for
+        WebPushCrypto.decodePublicKey(WebPushCrypto.decodeBase64(request.getKeys().getP256dh()));
+        if (WebPushCrypto.decodeBase64(request.getKeys().getAuth()).length != 16) {
+            throw new IllegalArgumentException("keys.auth must be a 16-byte secret");
+        }
+
+        PushSubscription subscription = subscriptionRepository.findByEndpoint(request.getEndpoint())
+                .orElseGet(() -> PushSubscription.builder().endpoint(request.getEndpoint()).build());
+        subscription.setUser(user);
+        subscription.setP256dhKey(request.getKeys().getP256dh());
+        subscription.setAuthKey(request.getKeys().getAuth());
+        subscription.setExpiresAt(request.getExpirationTime() != null
+                ? LocalDateTime.ofInstant(Instant.ofEpochMilli(request.getExpirationTime()), ZoneId.systemDefault())
+                : null);
+        subscription.setIsActive(true);
+        PushSubscription saved = subscriptionRepository.save(subscription);
+        log.debug("Push subscription {} registered for user {}", saved.getId(), user.getId());
+        return saved;
+    }
+
+    private boolean isAllowedHost(String host) {
+        String name = host.toLowerCase(Locale.ROOT);
+        for (String allowed : allowedHosts) {
+            if (allowed.startsWith(".") ? name.endsWith(allowed) : name.equals(allowed)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Transactional
+    public void unsubscribe(User user, String endpoint) {
+        subscriptionRepository.deleteByUserAndEndpoint(user, endpoint);
+    }
+}
@@ -0,0 +1,90 @@
+package com.nagar_sewak.backend.push;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.Signature;
+import java.security.interfaces.ECPrivateKey;
+import java.security.interfaces.ECPublicKey;
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The application server's VAPID identity (RFC 8292). Push services require a JWT signed with
+ * this key, scoped to their origin; one token is signed per origin and reused until close to
+ * expiry, so signing stays off the per-message path. Without configured keys a pair is generated
+ * at startup, which is fine for development but invalidates every browser subscription on restart.
+ */
+@Component
+@Slf4j
+public class VapidKeys {
+
+    private static final Duration TOKEN_LIFETIME = Duration.ofHours(12);
+    private static final Duration TOKEN_RENEW_BEFORE = Duration.ofHours(1);
+
+    private record Token(String header, long renewAtMillis) {
+    }
+
+    private final ECPrivateKey privateKey;
+    private final String publicKey;
+    private final String subject;
+    private final ConcurrentHashMap<String, Token> tokens = new ConcurrentHashMap<>();
+
+    public VapidKeys(@Value("${app.push.vapid.public-key:}") String publicKey,
+                     @Value("${app.push.vapid.private-key:}") String privateKey,
+                     @Value("${app.push.vapid.subject:mailto:admin@nagarsewak.gov.in}") String subject) {
+        if (publicKey.isBlank() || privateKey.isBlank()) {
+            KeyPair generated = WebPushCrypto.generateKeyPair();
+            this.privateKey = (ECPrivateKey) generated.getPrivate();
+            this.publicKey = WebPushCrypto.base64Url(WebPushCrypto.encodePublicKey((ECPublicKey) generated.getPublic()));
+            log.warn("No VAPID keys configured (app.push.vapid.*); generated a temporary pair, "
+                    + "browser push subscriptions will not survive a restart");
+        } else {
+            // Decoding validates both keys at startup
+            WebPushCrypto.decodePublicKey(WebPushCrypto.decodeBase64(publicKey));
+            this.privateKey = WebPushCrypto.decodePrivateKey(WebPushCrypto.decodeBase64(privateKey));
+            this.publicKey = WebPushCrypto.base64Url(WebPushCrypto.decodeBase64(publicKey));
+        }
+        this.subject = subject;
+    }
+
+    /** Public key for the browser's applicationServerKey, base64url */
+    public String getPublicKey() {
+        return publicKey;
+    }
+
+    /**
+     * Authorization header value for a push service origin such as {@code https://fcm.googleapis.com}
+     */
+    public String authorization(String origin) {
+        long now = System.currentTimeMillis();
+        Token token = tokens.get(origin);
+        if (token == null || now >= token.renewAtMillis()) {
+            long expiresAt = now + TOKEN_LIFETIME.toMillis();
+            token = new Token("vapid t=" + sign(origin, expiresAt / 1000) + ", k=" + publicKey,
+                    expiresAt - TOKEN_RENEW_BEFORE.toMillis());
+            tokens.put(origin, token);
+        }
+        return token.header();
+    }
+
+    private String sign(String audience, long expiresAtSeconds) {
+        String header = WebPushCrypto.base64Url("{\"typ\":\"JWT\",\"alg\":\"ES256\"}".getBytes(StandardCharsets.UTF_8));
+        String claims = WebPushCrypto.base64Url(String.format("{\"aud\":\"%s\",\"exp\":%d,\"sub\":\"%s\"}",
+                audience, expiresAtSeconds, subject).getBytes(StandardCharsets.UTF_8));
+        String signingInput = header + "." + claims;
+        try {
+            // JWS wants the raw r || s form rather than DER
+            Signature signature = Signature.getInstance("SHA256withECDSAinP1363Format");
+            signature.initSign(privateKey);
+            signature.update(signingInput.getBytes(StandardCharsets.US_ASCII));
+            return signingInput + "." + WebPushCrypto.base64Url(signature.sign());
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("VAPID signing failed", e);
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.nagar_sewak.backend.push;
+
+import javax.crypto.Cipher;
+import javax.crypto.KeyAgreement;
+import javax.crypto.Mac;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.AlgorithmParameters;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.SecureRandom;
+import java.security.interfaces.ECPrivateKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.ECParameterSpec;
+import java.security.spec.ECPoint;
+import java.security.spec.ECPrivateKeySpec;
+import java.security.spec.ECPublicKeySpec;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * P-256 key handling and the aes128gcm payload encryption of RFC 8291, on the JDK's own
+ * providers. Keys travel in the formats browsers use: the public key as a 65-byte
+ * uncompressed point and the private key as its 32-byte scalar, both base64url.
+ */
+public final class WebPushCrypto {
+
+    static final int RECORD_SIZE = 4096;
+    private static final int PUBLIC_KEY_LENGTH = 65;
+    private static final int TAG_BITS = 128;
+
+    private static final ECParameterSpec P256 = p256();
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private WebPushCrypto() {
+    }
+
+    /**
+     * Encrypt a push message body for one subscription. The result is the aes128gcm header
+     * (salt, record size, the sender's ephemeral public key) followed by a single record.
+     */
+    public static byte[] encrypt(byte[] plaintext, ECPublicKey subscriberKey, byte[] authSecret) {
+        try {
+            KeyPair ephemeral = generateKeyPair();
+            byte[] senderPublic = encodePublicKey((ECPublicKey) ephemeral.getPublic());
+            byte[] subscriberPublic = encodePublicKey(subscriberKey);
+
+            KeyAgreement agreement = KeyAgreement.getInstance("ECDH");
+            agreement.init(ephemeral.getPrivate());
+            agreement.doPhase(subscriberKey, true);
+            byte[] ecdhSecret = agreement.generateSecret();
+
+            byte[] keyInfo = concat("WebPush: info\0".getBytes(StandardCharsets.US_ASCII), subscriberPublic, senderPublic);
+            byte[] ikm = hkdf(authSecret, ecdhSecret, keyInfo, 32);
+
+            byte[] salt = new byte[16];
+            RANDOM.nextBytes(salt);
+            byte[] cek = hkdf(salt, ikm, "Content-Encoding: aes128gcm\0".getBytes(StandardCharsets.US_ASCII), 16);
+            byte[] nonce = hkdf(salt, ikm, "Content-Encoding: nonce\0".getBytes(StandardCharsets.US_ASCII), 12);
+
+            // One record, so the padding delimiter is 0x02 (last record) and no padding follows
+            byte[] padded = Arrays.copyOf(plaintext, plaintext.length + 1);
+            padded[plaintext.length] = 2;
+            if (padded.length + TAG_BITS / 8 > RECORD_SIZE) {
+                throw new IllegalArgumentException("Push payload of " + plaintext.length + " bytes does not fit one record");
+            }
+
+            Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(cek, "AES"), new GCMParameterSpec(TAG_BITS, nonce));
+            byte[] ciphertext = cipher.doFinal(padded);
+
+            return ByteBuffer.allocate(16 + 4 + 1 + senderPublic.length + ciphertext.length)
+                    .put(salt)
+                    .putInt(RECORD_SIZE)
+                    .put((byte) senderPublic.length)
+                    .put(senderPublic)
+                    .put(ciphertext)
+                    .array();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Push payload encryption failed", e);
+        }
+    }
+
+    public static KeyPair generateKeyPair() {
+        try {
+            KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+            generator.initialize(P256, RANDOM);
+            return generator.generateKeyPair();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("P-256 is not available", e);
+        }
+    }
+
+    /** Uncompressed point: 0x04 || x || y */
+    public static byte[] encodePublicKey(ECPublicKey key) {
+        byte[] encoded = new byte[PUBLIC_KEY_LENGTH];
+        encoded[0] = 4;
+        writeUnsigned(key.getW().getAffineX(), encoded, 1);
+        writeUnsigned(key.getW().getAffineY(), encoded, 33);
+        return encoded;
+    }
+
+    public static ECPublicKey decodePublicKey(byte[] encoded) {
+        if (encoded.length != PUBLIC_KEY_LENGTH || encoded[0] != 4) {
+            throw new IllegalArgumentException("Expected a 65-byte uncompressed P-256 public key");
+        }
+        ECPoint point = new ECPoint(new BigInteger(1, Arrays.copyOfRange(encoded, 1, 33)),
+                new BigInteger(1, Arrays.copyOfRange(encoded, 33, 65)));
+        try {
+            return (ECPublicKey) KeyFactory.getInstance("EC").generatePublic(new ECPublicKeySpec(point, P256));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalArgumentException("Not a valid P-256 public key", e);
+        }
+    }
+
+    public static byte[] encodePrivateKey(ECPrivateKey key) {
+        byte[] encoded = new byte[32];
+        writeUnsigned(key.getS(), encoded, 0);
+        return encoded;
+    }
+
+    public static ECPrivateKey decodePrivateKey(byte[] encoded) {
+        try {
+            return (ECPrivateKey) KeyFactory.getInstance("EC")
+                    .generatePrivate(new ECPrivateKeySpec(new BigInteger(1, encoded), P256));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalArgumentException("Not a valid P-256 private key", e);
+        }
+    }
+
+    public static String base64Url(byte[] bytes) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    /** Accepts base64url or standard base64, padded or not, as browsers and tools differ */
+    public static byte[] decodeBase64(String value) {
+        String normalized = value.trim().replace('+', '-').replace('/', '_').replace("=", "");
+        return Base64.getUrlDecoder().decode(normalized);
+    }
+
+    /** HKDF-SHA-256 (RFC 5869) for outputs of at most one hash block */
+    static byte[] hkdf(byte[] salt, byte[] ikm, byte[] info, int length) throws GeneralSecurityException {
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(salt, "HmacSHA256"));
+        byte[] prk = mac.doFinal(ikm);
+        mac.init(new SecretKeySpec(prk, "HmacSHA256"));
+        mac.update(info);
+        mac.update((byte) 1);
+        return Arrays.copyOf(mac.doFinal(), length);
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        int length = 0;
+        for (byte[] part : parts) {
+            length += part.length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        for (byte[] part : parts) {
+            buffer.put(part);
+        }
+        return buffer.array();
+    }
+
+    private static void writeUnsigned(BigInteger value, byte[] target, int offset) {
+        byte[] bytes = value.toByteArray();
+        int start = bytes.length > 32 ? bytes.length - 32 : 0;
+        int length = bytes.length - start;
+        System.arraycopy(bytes, start, target, offset + 32 - length, length);
+    }
+
+    private static ECParameterSpec p256() {
+        try {
+            AlgorithmParameters parameters = AlgorithmParameters.getInstance("EC");
+            parameters.init(new ECGenParameterSpec("secp256r1"));
+            return parameters.getParameterSpec(ECParameterSpec.class);
+        } catch (GeneralSecurityException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package com.nagar_sewak.backend.push;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nagar_sewak.backend.entities.NotificationPriority;
+import com.nagar_sewak.backend.entities.PushSubscription;
+import com.nagar_sewak.backend.repositories.PushSubscriptionRepository;
+import com.nagar_sewak.backend.services.NotificationService;
+import com.nagar_sewak.backend.services.PushNotificationSender;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.interfaces.ECPublicKey;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Web Push delivery to the browsers in push_subscriptions. A batch (one fan-out chunk, or a single
+ * notification) loads every recipient's active subscriptions in one query, encrypts the payload per
+ * subscription (RFC 8291), signs per push-service origin with {@link VapidKeys}, and sends all requests
+ * asynchronously over a small pool of HTTP/2 clients: each client keeps one multiplexed connection per
+ * origin, so most pushes share a handful of connections to FCM, Mozilla and Apple. At most
+ * {@code max-in-flight} requests are outstanding; the batch's thread waits for a permit beyond that.
+ * Subscriptions the push service reports gone (404/410) are deactivated together at the end of the batch.
+ */
+@Component
+@Slf4j
+public class WebPushSender implements PushNotificationSender {
+
+    private static final int MAX_BODY_CHARS = 1000;
+
+    private final PushSubscriptionRepository subscriptionRepository;
+    private final VapidKeys vapidKeys;
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final int ttlSeconds;
+    private final Duration requestTimeout;
+    private final long batchTimeoutMillis;
+    private final int maxInFlight;
+
+    private final HttpClient[] clients;
+    private final AtomicInteger nextClient = new AtomicInteger();
+    private final Semaphore inFlight;
+
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong rateLimited = new AtomicLong();
+    private final AtomicLong deactivated = new AtomicLong();
+    private final AtomicLong sendNanos = new AtomicLong();
+
+    public WebPushSender(PushSubscriptionRepository subscriptionRepository,
+                         VapidKeys vapidKeys,
+                         ObjectMapper objectMapper,
+                         @Value("${app.push.enabled:true}") boolean enabled,
+                         @Value("${app.push.ttl-seconds:86400}") int ttlSeconds,
+                         @Value("${app.push.connections-per-origin:2}") int connectionsPerOrigin,
+                         @Value("${app.push.max-in-flight:512}") int maxInFlight,
+                         @Value("${app.push.connect-timeout-ms:5000}") long connectTimeoutMs,
+                         @Value("${app.push.request-timeout-ms:10000}") long requestTimeoutMs,
+                         @Value("${app.push.batch-timeout-ms:60000}") long batchTimeoutMs) {
+        this.subscriptionRepository = subscriptionRepository;
+        this.vapidKeys = vapidKeys;
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.ttlSeconds = ttlSeconds;
+        this.requestTimeout = Duration.ofMillis(requestTimeoutMs);
+        this.batchTimeoutMillis = batchTimeoutMs;
+        this.maxInFlight = Math.max(1, maxInFlight);
+        this.inFlight = new Semaphore(this.maxInFlight);
+        this.clients = new HttpClient[Math.max(1, connectionsPerOrigin)];
+        for (int i = 0; i < clients.length; i++) {
+            clients[i] = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_2)
+                    .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                    .build();
+        }
+    }
+
+    @Override
+    public void send(NotificationService.NotificationDTO notification) {
+        sendAll(List.of(notification));
+    }
+
+    @Override
+    public void sendAll(List<NotificationService.NotificationDTO> notifications) {
+        if (!enabled || notifications.isEmpty()) {
+            return;
+        }
+        long start = System.nanoTime();
+        Set<Long> userIds = notifications.stream()
+                .map(NotificationService.NotificationDTO::getUserId)
+                .collect(Collectors.toSet());
+        Map<Long, List<PushSubscription>> subscriptions = subscriptionRepository
+                .findDeliverable(userIds, LocalDateTime.now()).stream()
+                .collect(Collectors.groupingBy(subscription -> subscription.getUser().getId()));
+        if (subscriptions.isEmpty()) {
+            return;
+        }
+        batches.incrementAndGet();
+
+        Set<Long> gone = ConcurrentHashMap.newKeySet();
+        List<CompletableFuture<Void>> requests = new ArrayList<>();
+        try {
+            for (NotificationService.NotificationDTO notification : notifications) {
+                List<PushSubscription> targets = subscriptions.get(notification.getUserId());
+                if (targets == null) {
+                    continue;
+                }
+                byte[] payload = payload(notification);
+                for (PushSubscription subscription : targets) {
+                    requests.add(push(subscription, payload, notification.getPriority(), gone));
+                }
+            }
+            CompletableFuture.allOf(requests.toArray(CompletableFuture[]::new))
+                    .get(batchTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (TimeoutException e) {
+            log.warn("Push batch of {} requests still running after {} ms", requests.size(), batchTimeoutMillis);
+        } catch (Exception e) {
+            log.error("Push batch failed", e);
+        } finally {
+            sendNanos.addAndGet(System.nanoTime() - start);
+        }
+
+        if (!gone.isEmpty()) {
+            int count = subscriptionRepository.deactivateByIds(gone);
+            deactivated.addAndGet(count);
+            log.info("Deactivated {} push subscriptions the push service reported gone", count);
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        long delivered = sent.get();
+        long nanos = sendNanos.get();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("batches", batches.get());
+        stats.put("sent", delivered);
+        stats.put("failed", failed.get());
+        stats.put("rateLimited", rateLimited.get());
+        stats.put("deactivated", deactivated.get());
+        stats.put("inFlight", maxInFlight - inFlight.availablePermits());
+        stats.put("pushesPerSecond", nanos > 0 ? Math.round(delivered * 1e9 / nanos) : 0);
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (HttpClient client : clients) {
+            client.shutdownNow();
+        }
+    }
+
+    private CompletableFuture<Void> push(PushSubscription subscription, byte[] payload,
+                                         NotificationPriority priority, Set<Long> gone) {
+        URI endpoint;
+        ECPublicKey subscriberKey;
+        byte[] authSecret;
+        try {
+            endpoint = URI.create(subscription.getEndpoint());
+            subscriberKey = WebPushCrypto.decodePublicKey(WebPushCrypto.decodeBase64(subscription.getP256dhKey()));
+            authSecret = WebPushCrypto.decodeBase64(subscription.getAuthKey());
+        } catch (IllegalArgumentException e) {
+            // A malformed endpoint or key will never work
+            log.warn("Deactivating unusable push subscription {}: {}", subscription.getId(), e.getMessage());
+            gone.add(subscription.getId());
+            return CompletableFuture.completedFuture(null);
+        }
+
+        HttpRequest request;
+        try {
+            request = HttpRequest.newBuilder(endpoint)
+                    .timeout(requestTimeout)
+                    .header("Authorization", vapidKeys.authorization(origin(endpoint)))
+                    .header("Content-Encoding", "aes128gcm")
+                    .header("Content-Type", "application/octet-stream")
+                    .header("TTL", String.valueOf(ttlSeconds))
+                    .header("Urgency", priority == NotificationPriority.HIGH ? "high" : "normal")
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(WebPushCrypto.encrypt(payload, subscriberKey, authSecret)))
+                    .build();
+        } catch (Exception e) {
+            log.error("Failed to build push request for subscription {}", subscription.getId(), e);
+            failed.incrementAndGet();
+            return CompletableFuture.completedFuture(null);
+        }
+
+        inFlight.acquireUninterruptibly();
+        HttpClient client = clients[Math.floorMod(nextClient.getAndIncrement(), clients.length)];
+        return client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .handle((response, error) -> {
+                    inFlight.release();
+                    if (error != null) {
+                        failed.incrementAndGet();
+                        log.debug("Push to subscription {} failed: {}", subscription.getId(), error.getMessage());
+                    } else if (response.statusCode() / 100 == 2) {
+                        sent.incrementAndGet();
+                    } else if (response.statusCode() == 404 || response.statusCode() == 410) {
+                        gone.add(subscription.getId());
+                    } else {
+                        failed.incrementAndGet();
+                        if (response.statusCode() == 429) {
+                            rateLimited.incrementAndGet();
+                        }
+                        log.debug("Push to subscription {} rejected with {}", subscription.getId(), response.statusCode());
+                    }
+                    return null;
+                });
+    }
+
+    private byte[] payload(NotificationService.NotificationDTO notification) {
+        String body = notification.getMessage();
+        if (body != null && body.length() > MAX_BODY_CHARS) {
+            body = body.substring(0, MAX_BODY_CHARS - 1) + "...";
+        }
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("title", notification.getTitle());
+        payload.put("body", body);
+        payload.put("url", notification.getActionUrl());
+        payload.put("type", notification.getType());
+        payload.put("tag", notification.getGroupKey() != null ? notification.getGroupKey() : String.valueOf(notification.getType()));
+        try {
+            return objectMapper.writeValueAsBytes(payload);
+        } catch (Exception e) {
+            return String.valueOf(notification.getTitle()).getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    private static String origin(URI endpoint) {
+        return endpoint.getScheme() + "://" + endpoint.getHost() + (endpoint.getPort() != -1 ? ":" + endpoint.getPort() : "");
+    }
+}
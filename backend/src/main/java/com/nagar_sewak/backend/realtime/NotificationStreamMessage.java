@@ -0,0 +1,23 @@
+package com.nagar_sewak.backend.realtime;
+
+import com.nagar_sewak.backend.entities.Notification;
+import com.nagar_sewak.backend.entities.NotificationPriority;
+import com.nagar_sewak.backend.entities.NotificationType;
+
+import java.time.LocalDateTime;
+
+/**
+ * A notification as pushed to a user's open streams; {@code id} doubles as the SSE event id.
+ * A coalesced repeat is sent again under the same id with a higher {@code occurrenceCount}.
+ */
+public record NotificationStreamMessage(Long id, Long userId, NotificationType type, NotificationPriority priority,
+                                        String title, String message, String actionUrl, LocalDateTime createdAt,
+                                        int occurrenceCount) {
+
+    public static NotificationStreamMessage of(Notification notification) {
+        return new NotificationStreamMessage(notification.getId(), notification.getUser().getId(),
+                notification.getType(), notification.getPriority(), notification.getTitle(),
+                notification.getMessage(), notification.getActionUrl(), notification.getCreatedAt(),
+                notification.getOccurrenceCount() != null ? notification.getOccurrenceCount() : 1);
+    }
+}
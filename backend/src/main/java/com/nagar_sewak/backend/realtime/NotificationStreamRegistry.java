@@ -0,0 +1,183 @@
+package com.nagar_sewak.backend.realtime;
+
+import com.nagar_sewak.backend.config.AsyncExecutorConfig;
+import com.nagar_sewak.backend.entities.Notification;
+import com.nagar_sewak.backend.repositories.NotificationRepository;
+import com.nagar_sewak.backend.services.UnreadCounterService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Open notification streams on this replica, keyed by user. New streams get the unread
+ * count and any notifications after the client's {@code Last-Event-ID}; afterwards
+ * {@link NotificationStreamRelay} hands every committed notification to {@link #deliver},
+ * which writes it to the recipient's streams (if they have any here) on the notification executor.
+ */
+@Component
+@Slf4j
+public class NotificationStreamRegistry {
+
+    private final NotificationRepository notificationRepository;
+    private final UnreadCounterService unreadCounterService;
+    private final Executor notificationExecutor;
+    private final long timeoutMillis;
+    private final int maxStreamsPerUser;
+    private final int replayLimit;
+
+    private final Map<Long, List<SseEmitter>> streams = new ConcurrentHashMap<>();
+
+    private final AtomicLong opened = new AtomicLong();
+    private final AtomicLong delivered = new AtomicLong();
+    private final AtomicLong replayed = new AtomicLong();
+    private final AtomicLong sendFailures = new AtomicLong();
+
+    public NotificationStreamRegistry(NotificationRepository notificationRepository,
+                                      UnreadCounterService unreadCounterService,
+                                      @Qualifier(AsyncExecutorConfig.NOTIFICATION_EXECUTOR) Executor notificationExecutor,
+                                      @Value("${app.notifications.stream.timeout-ms:1800000}") long timeoutMillis,
+                                      @Value("${app.notifications.stream.max-per-user:5}") int maxStreamsPerUser,
+                                      @Value("${app.notifications.stream.replay-limit:100}") int replayLimit) {
+        this.notificationRepository = notificationRepository;
+        this.unreadCounterService = unreadCounterService;
+        this.notificationExecutor = notificationExecutor;
+        this.timeoutMillis = timeoutMillis;
+        this.maxStreamsPerUser = Math.max(1, maxStreamsPerUser);
+        this.replayLimit = Math.max(1, replayLimit);
+    }
+
+    /**
+     * Open a stream for the user. Registered before the replay query runs, so a notification
+     * committed in between may arrive twice but is never lost; clients dedupe by event id.
+     */
+    public SseEmitter open(Long userId, Long lastEventId) {
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        List<SseEmitter> userStreams = streams.compute(userId, (id, existing) -> {
+            List<SseEmitter> list = existing != null ? existing : new CopyOnWriteArrayList<>();
+            list.add(emitter);
+            return list;
+        });
+        emitter.onCompletion(() -> remove(userId, emitter));
+        emitter.onTimeout(() -> remove(userId, emitter));
+        emitter.onError(e -> remove(userId, emitter));
+        opened.incrementAndGet();
+
+        // Close the oldest streams beyond the per-user cap (stale tabs that never disconnected cleanly)
+        while (userStreams.size() > maxStreamsPerUser) {
+            SseEmitter oldest = userStreams.remove(0);
+            oldest.complete();
+        }
+
+        try {
+            emitter.send(SseEmitter.event().name("unread")
+                    .data(Map.of("count", unreadCounterService.get(userId)), MediaType.APPLICATION_JSON));
+            if (lastEventId != null) {
+                replay(emitter, userId, lastEventId);
+            }
+        } catch (IOException | IllegalStateException e) {
+            remove(userId, emitter);
+            emitter.completeWithError(e);
+        }
+        return emitter;
+    }
+
+    /**
+     * Push messages to any of their recipients' streams open on this replica
+     */
+    public void deliver(List<NotificationStreamMessage> messages) {
+        for (NotificationStreamMessage message : messages) {
+            List<SseEmitter> userStreams = streams.get(message.userId());
+            if (userStreams == null || userStreams.isEmpty()) {
+                continue;
+            }
+            notificationExecutor.execute(() -> {
+                for (SseEmitter emitter : userStreams) {
+                    if (send(message.userId(), emitter, notificationEvent(message))) {
+                        delivered.incrementAndGet();
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Comment frame on every stream so proxies keep idle connections open and dead ones are detected
+     */
+    @Scheduled(fixedDelayString = "${app.notifications.stream.heartbeat-ms:25000}")
+    public void heartbeat() {
+        streams.forEach((userId, userStreams) -> {
+            for (SseEmitter emitter : userStreams) {
+                send(userId, emitter, SseEmitter.event().comment("heartbeat"));
+            }
+        });
+    }
+
+    public int getConnectionCount() {
+        return streams.values().stream().mapToInt(List::size).sum();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("connectedUsers", streams.size());
+        stats.put("connections", getConnectionCount());
+        stats.put("opened", opened.get());
+        stats.put("delivered", delivered.get());
+        stats.put("replayed", replayed.get());
+        stats.put("sendFailures", sendFailures.get());
+        return stats;
+    }
+
+    private void replay(SseEmitter emitter, Long userId, Long lastEventId) throws IOException {
+        List<Notification> missed = notificationRepository.findByUser_IdAndIdGreaterThanOrderByIdAsc(
+                userId, lastEventId, PageRequest.of(0, replayLimit + 1));
+        if (missed.size() > replayLimit) {
+            // Too far behind to catch up event by event; the client reloads its list instead
+            emitter.send(SseEmitter.event().name("resync").data(Map.of(), MediaType.APPLICATION_JSON));
+            return;
+        }
+        for (Notification notification : missed) {
+            emitter.send(notificationEvent(NotificationStreamMessage.of(notification)));
+            replayed.incrementAndGet();
+        }
+    }
+
+    private boolean send(Long userId, SseEmitter emitter, SseEmitter.SseEventBuilder event) {
+        try {
+            emitter.send(event);
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            sendFailures.incrementAndGet();
+            remove(userId, emitter);
+            emitter.completeWithError(e);
+            return false;
+        }
+    }
+
+    private void remove(Long userId, SseEmitter emitter) {
+        streams.computeIfPresent(userId, (id, userStreams) -> {
+            userStreams.remove(emitter);
+            return userStreams.isEmpty() ? null : userStreams;
+        });
+    }
+
+    private static SseEmitter.SseEventBuilder notificationEvent(NotificationStreamMessage message) {
+        return SseEmitter.event()
+                .id(String.valueOf(message.id()))
+                .name("notification")
+                .data(message, MediaType.APPLICATION_JSON);
+    }
+}
@@ -0,0 +1,130 @@
+package com.nagar_sewak.backend.realtime;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nagar_sewak.backend.events.NotificationsCreatedEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Carries committed notifications to whichever replica holds the recipient's stream.
+ * With Redis configured every replica publishes to one pub/sub channel and delivers what
+ * it receives to its local {@link NotificationStreamRegistry}; without Redis, or if a
+ * publish fails, notifications are delivered to this replica's streams only.
+ */
+@Component
+@Slf4j
+public class NotificationStreamRelay {
+
+    private static final TypeReference<List<NotificationStreamMessage>> MESSAGES_TYPE = new TypeReference<>() {};
+
+    private final NotificationStreamRegistry registry;
+    private final ObjectMapper objectMapper;
+    private final ObjectProvider<RedisConnectionFactory> connectionFactory;
+    private final String channel;
+    private final boolean redisEnabled;
+
+    private StringRedisTemplate redisTemplate;
+    private RedisMessageListenerContainer listenerContainer;
+
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong received = new AtomicLong();
+    private final AtomicLong localFallbacks = new AtomicLong();
+
+    public NotificationStreamRelay(NotificationStreamRegistry registry,
+                                   ObjectMapper objectMapper,
+                                   ObjectProvider<RedisConnectionFactory> connectionFactory,
+                                   @Value("${app.notifications.stream.redis-channel:notifications:stream}") String channel,
+                                   @Value("${app.notifications.stream.redis-enabled:true}") boolean redisEnabled) {
+        this.registry = registry;
+        this.objectMapper = objectMapper;
+        this.connectionFactory = connectionFactory;
+        this.channel = channel;
+        this.redisEnabled = redisEnabled;
+    }
+
+    @PostConstruct
+    public void start() {
+        RedisConnectionFactory factory = redisEnabled ? connectionFactory.getIfAvailable() : null;
+        if (factory == null) {
+            log.info("Notification streams relay in local mode (no Redis)");
+            return;
+        }
+        try {
+            RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+            container.setConnectionFactory(factory);
+            container.addMessageListener((message, pattern) -> onRelayMessage(message.getBody()), new ChannelTopic(channel));
+            container.afterPropertiesSet();
+            container.start();
+            listenerContainer = container;
+            redisTemplate = new StringRedisTemplate(factory);
+            log.info("Notification streams relayed over Redis channel {}", channel);
+        } catch (Exception e) {
+            log.warn("Redis pub/sub unavailable, notification streams relay in local mode: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws Exception {
+        if (listenerContainer != null) {
+            listenerContainer.destroy();
+        }
+    }
+
+    /**
+     * Runs once the creating transaction commits, so streams never show a notification that rolled back
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onNotificationsCreated(NotificationsCreatedEvent event) {
+        List<NotificationStreamMessage> messages = event.getMessages();
+        if (messages.isEmpty()) {
+            return;
+        }
+        if (redisTemplate != null) {
+            try {
+                redisTemplate.convertAndSend(channel, objectMapper.writeValueAsString(messages));
+                published.incrementAndGet();
+                return;
+            } catch (Exception e) {
+                log.warn("Failed to publish {} notifications to Redis, delivering locally: {}",
+                        messages.size(), e.getMessage());
+            }
+        }
+        localFallbacks.incrementAndGet();
+        registry.deliver(messages);
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>(registry.getStats());
+        stats.put("relayMode", redisTemplate != null ? "redis" : "local");
+        stats.put("published", published.get());
+        stats.put("received", received.get());
+        stats.put("localFallbacks", localFallbacks.get());
+        return stats;
+    }
+
+    private void onRelayMessage(byte[] body) {
+        try {
+            received.incrementAndGet();
+            registry.deliver(objectMapper.readValue(new String(body, StandardCharsets.UTF_8), MESSAGES_TYPE));
+        } catch (Exception e) {
+            log.error("Discarding unreadable notification stream message", e);
+        }
+    }
+}
@@ -0,0 +1,390 @@
+package com.nagar_sewak.backend.reports;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Rendered PDFs on local disk, keyed by (report type, entity id, entity version, template hash). A change to
+ * the entity or the template gives a new key, so a stale report is never served; storing the new version of
+ * a report deletes the old one. Files are evicted least recently used once the total passes
+ * {@code app.reports.cache.max-bytes}, and files left from a previous run are picked up at startup.
+ * Concurrent requests for the same missing report share one render. Renders stream straight into a file in
+ * the cache directory, which is then moved into place, so a report is never held whole on the heap.
+ */
+@Component
+@Slf4j
+public class PdfRenderCache {
+
+    private static final String SUFFIX = ".pdf";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    /** Writes a PDF to the stream it is given */
+    @FunctionalInterface
+    public interface Renderer {
+        void render(OutputStream out) throws IOException;
+    }
+
+    /**
+     * A rendered report on disk. Temporary files are outside the cache and are deleted by {@link #release};
+     * releasing a cached file does nothing.
+     */
+    public record RenderedFile(Path path, long size, boolean temporary) {
+
+        public void release() {
+            if (temporary) {
+                deleteQuietly(path);
+            }
+        }
+    }
+
+    /** What a rendered report depends on; equal keys mean byte-identical content */
+    public record Key(String type, long id, String version, String templateHash) {
+
+        public String digest() {
+            return sha256(type + '|' + id + '|' + version + '|' + templateHash);
+        }
+
+        /** Strong validator for the report; available before anything is rendered */
+        public String etag() {
+            return '"' + digest().substring(0, 32) + '"';
+        }
+
+        /** Whether an If-None-Match header value names this report */
+        public boolean matches(String ifNoneMatch) {
+            if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+                return false;
+            }
+            String etag = etag();
+            for (String candidate : ifNoneMatch.split(",")) {
+                String value = candidate.trim();
+                if (value.startsWith("W/")) {
+                    value = value.substring(2);
+                }
+                if (value.equals("*") || value.equals(etag)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private String entity() {
+            return type + ':' + id;
+        }
+    }
+
+    private record Entry(String entity, long size) {
+    }
+
+    private final Path directory;
+    private final long maxBytes;
+    private final boolean enabled;
+
+    /** File name to entry, in access order; guarded by itself */
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    /** Entity ("type:id") to the file holding its current version; guarded by {@link #entries} */
+    private final Map<String, String> currentByEntity = new HashMap<>();
+    private long totalBytes;
+
+    private final ConcurrentHashMap<String, CompletableFuture<RenderedFile>> inFlight = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong renders = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong writeFailures = new AtomicLong();
+
+    public PdfRenderCache(@Value("${app.reports.cache.dir:${java.io.tmpdir}/nagar-sewak-pdf-cache}") String directory,
+                          @Value("${app.reports.cache.max-bytes:268435456}") long maxBytes,
+                          @Value("${app.reports.cache.enabled:true}") boolean enabled) {
+        this.directory = Paths.get(directory);
+        this.maxBytes = Math.max(0, maxBytes);
+        this.enabled = enabled && this.maxBytes > 0;
+        if (this.enabled) {
+            loadExisting();
+        }
+    }
+
+    /**
+     * The report for {@code key}: the stored file if there is one, otherwise rendered once, streamed
+     * straight to disk and stored. The result is a temporary file instead if the cache is disabled, the
+     * report is larger than the whole cache, or it could not be stored.
+     */
+    public RenderedFile getOrRender(Key key, Renderer renderer) {
+        if (!enabled) {
+            return renderTemporary(renderer);
+        }
+        String fileName = key.digest() + SUFFIX;
+        RenderedFile cached = lookup(fileName);
+        if (cached != null) {
+            hits.incrementAndGet();
+            return cached;
+        }
+        misses.incrementAndGet();
+
+        CompletableFuture<RenderedFile> mine = new CompletableFuture<>();
+        CompletableFuture<RenderedFile> running = inFlight.putIfAbsent(fileName, mine);
+        if (running != null) {
+            RenderedFile shared = running.join();
+            // A temporary result belongs to the thread that rendered it
+            return shared.temporary() ? renderTemporary(renderer) : shared;
+        }
+        try {
+            RenderedFile stored = store(key, fileName, renderTemporary(renderer));
+            mine.complete(stored);
+            return stored;
+        } catch (RuntimeException | Error e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(fileName, mine);
+        }
+    }
+
+    /**
+     * The whole report in memory, for callers that need bytes (email attachments)
+     */
+    public byte[] getOrRenderBytes(Key key, Renderer renderer) {
+        for (int attempt = 0; ; attempt++) {
+            RenderedFile file = getOrRender(key, renderer);
+            try {
+                return Files.readAllBytes(file.path());
+            } catch (NoSuchFileException e) {
+                // Evicted between lookup and read; the next lookup misses and renders again
+                if (attempt > 0) {
+                    throw new UncheckedIOException(e);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                file.release();
+            }
+        }
+    }
+
+    /**
+     * Render into a temporary file that is not cached; the caller releases it
+     */
+    public RenderedFile renderTemporary(Renderer renderer) {
+        Path temp;
+        try {
+            Files.createDirectories(directory);
+            temp = Files.createTempFile(directory, "render-", TEMP_SUFFIX);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not create a file for the report", e);
+        }
+        try {
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temp), 64 * 1024)) {
+                renderer.render(out);
+            }
+            renders.incrementAndGet();
+            long size = Files.size(temp);
+            if (size == 0) {
+                throw new IllegalStateException("Generated PDF is empty");
+            }
+            return new RenderedFile(temp, size, true);
+        } catch (IOException e) {
+            deleteQuietly(temp);
+            throw new UncheckedIOException("Could not write the report", e);
+        } catch (RuntimeException | Error e) {
+            deleteQuietly(temp);
+            throw e;
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        synchronized (entries) {
+            stats.put("entries", entries.size());
+            stats.put("bytes", totalBytes);
+        }
+        stats.put("maxBytes", maxBytes);
+        stats.put("hits", hits.get());
+        stats.put("misses", misses.get());
+        stats.put("renders", renders.get());
+        stats.put("evictions", evictions.get());
+        stats.put("writeFailures", writeFailures.get());
+        return stats;
+    }
+
+    /** Version string for an entity's last-modified time; entities never updated fall back to {@code created} */
+    public static String version(LocalDateTime updated, LocalDateTime created) {
+        LocalDateTime at = updated != null ? updated : created;
+        return at != null ? String.valueOf(at.toInstant(ZoneOffset.UTC).toEpochMilli()) : "0";
+    }
+
+    public static String version(Instant updated, Instant created) {
+        Instant at = updated != null ? updated : created;
+        return at != null ? String.valueOf(at.toEpochMilli()) : "0";
+    }
+
+    /** SHA-256 of a template or class file, for the key's template hash; empty if it is missing */
+    public static String hashResource(Resource resource) {
+        if (!resource.exists()) {
+            return "";
+        }
+        try (InputStream in = resource.getInputStream()) {
+            return sha256(in.readAllBytes());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read " + resource.getDescription(), e);
+        }
+    }
+
+    public static String sha256(String value) {
+        return sha256(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static String sha256(byte[] value) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(value));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private RenderedFile lookup(String fileName) {
+        Path path = directory.resolve(fileName);
+        synchronized (entries) {
+            Entry entry = entries.get(fileName);
+            if (entry == null) {
+                return null;
+            }
+            if (Files.exists(path)) {
+                return new RenderedFile(path, entry.size(), false);
+            }
+            // Deleted behind our back; forget it and render again
+            remove(fileName);
+            return null;
+        }
+    }
+
+    private RenderedFile store(Key key, String fileName, RenderedFile rendered) {
+        if (rendered.size() > maxBytes) {
+            return rendered;
+        }
+        Path target = directory.resolve(fileName);
+        try {
+            Files.move(rendered.path(), target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            writeFailures.incrementAndGet();
+            log.warn("Could not cache report {}: {}", fileName, e.getMessage());
+            return rendered;
+        }
+
+        List<String> dropped = new ArrayList<>();
+        synchronized (entries) {
+            Entry previous = entries.put(fileName, new Entry(key.entity(), rendered.size()));
+            if (previous != null) {
+                totalBytes -= previous.size();
+            }
+            totalBytes += rendered.size();
+            String superseded = currentByEntity.put(key.entity(), fileName);
+            if (superseded != null && !superseded.equals(fileName)) {
+                // The entity or template changed; the old render can never be asked for again
+                remove(superseded);
+                dropped.add(superseded);
+            }
+            Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+            while (totalBytes > maxBytes && eldest.hasNext()) {
+                Map.Entry<String, Entry> victim = eldest.next();
+                if (victim.getKey().equals(fileName)) {
+                    continue;
+                }
+                eldest.remove();
+                totalBytes -= victim.getValue().size();
+                currentByEntity.remove(victim.getValue().entity(), victim.getKey());
+                dropped.add(victim.getKey());
+                evictions.incrementAndGet();
+            }
+        }
+        // Readers that already opened an evicted file keep reading it; the space is freed when they close
+        dropped.forEach(name -> deleteQuietly(directory.resolve(name)));
+        return new RenderedFile(target, rendered.size(), false);
+    }
+
+    /** Forget a file; caller holds the {@link #entries} lock */
+    private void remove(String fileName) {
+        Entry entry = entries.remove(fileName);
+        if (entry != null) {
+            totalBytes -= entry.size();
+            currentByEntity.remove(entry.entity(), fileName);
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Could not delete report file {}: {}", path, e.getMessage());
+        }
+    }
+
+    private void loadExisting() {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            List<Path> reports = files
+                    .filter(path -> {
+                        String name = path.getFileName().toString();
+                        if (name.endsWith(TEMP_SUFFIX)) {
+                            // A render or download interrupted by the last shutdown
+                            deleteQuietly(path);
+                        }
+                        return name.endsWith(SUFFIX);
+                    })
+                    .sorted(Comparator.comparingLong(PdfRenderCache::lastModified))
+                    .toList();
+            synchronized (entries) {
+                for (Path path : reports) {
+                    long size = Files.size(path);
+                    // The entity is unknown until the report is stored again, so these only leave by LRU
+                    entries.put(path.getFileName().toString(), new Entry("", size));
+                    totalBytes += size;
+                }
+            }
+            log.info("PDF render cache: {} reports ({} bytes) found in {}", reports.size(), totalBytes, directory);
+        } catch (IOException e) {
+            log.warn("Could not scan PDF render cache {}: {}", directory, e.getMessage());
+        }
+    }
+
+    private static long lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path).toMillis();
+        } catch (IOException e) {
+            return 0L;
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.nagar_sewak.backend.reports;
+
+import com.itextpdf.html2pdf.ConverterProperties;
+import com.itextpdf.html2pdf.HtmlConverter;
+import com.itextpdf.html2pdf.resolver.font.DefaultFontProvider;
+import com.itextpdf.io.font.FontProgram;
+import com.itextpdf.io.font.FontProgramFactory;
+import com.itextpdf.io.font.PdfEncodings;
+import com.itextpdf.io.font.constants.StandardFonts;
+import com.itextpdf.kernel.font.PdfFontFactory;
+import com.itextpdf.kernel.pdf.PdfDocument;
+import com.itextpdf.kernel.pdf.PdfWriter;
+import com.itextpdf.layout.Document;
+import com.itextpdf.layout.font.FontSet;
+import com.itextpdf.styledxmlparser.resolver.font.BasicFontProvider;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * iText state shared by every report render. html2pdf otherwise builds a font provider for each conversion,
+ * reading and parsing its shipped fonts every time; here they are parsed once into a {@link FontSet} that
+ * each conversion wraps in its own light provider (a provider caches fonts per PDF document, so it cannot be
+ * shared between concurrent renders). Layout documents get their default font from a preloaded program.
+ * <p>
+ * Also keeps the CPU time spent per render, which is what sizes the PDF executor: reports per CPU second is
+ * roughly the throughput of one core. The warm-up's figure is the same measure on sample reports.
+ */
+@Component
+@Slf4j
+public class PdfRenderingContext {
+
+    private final FontSet fontSet;
+    private final String defaultFontFamily;
+    private final ConverterProperties converterProperties;
+    private final FontProgram layoutFont;
+    private final long fontLoadNanos;
+
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    private final AtomicLong renders = new AtomicLong();
+    private final LongAdder renderCpuNanos = new LongAdder();
+    private final LongAdder renderWallNanos = new LongAdder();
+    private volatile long warmupNanos = -1;
+    private volatile double warmReportsPerCpuSecond;
+
+    public PdfRenderingContext() {
+        long start = System.nanoTime();
+        // Same fonts html2pdf loads by default: the standard 14 and its shipped fonts, not the system's
+        DefaultFontProvider fonts = new DefaultFontProvider(true, true, false);
+        this.fontSet = fonts.getFontSet();
+        this.defaultFontFamily = fonts.getDefaultFontFamily();
+        this.converterProperties = new ConverterProperties();
+        try {
+            this.layoutFont = FontProgramFactory.createFont(StandardFonts.HELVETICA);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not load the report font", e);
+        }
+        this.fontLoadNanos = System.nanoTime() - start;
+        log.info("Loaded {} report fonts in {} ms", fontSet.size(), TimeUnit.NANOSECONDS.toMillis(fontLoadNanos));
+    }
+
+    /** Converter properties for one HTML conversion, backed by the shared fonts */
+    public ConverterProperties converterProperties() {
+        return new ConverterProperties(converterProperties)
+                .setFontProvider(new BasicFontProvider(fontSet, defaultFontFamily));
+    }
+
+    /** Convert {@code html} to a PDF written to {@code out} */
+    public void convertHtml(String html, OutputStream out) {
+        HtmlConverter.convertToPdf(html, out, converterProperties());
+    }
+
+    /**
+     * Layout document writing to {@code out}, with the same default font iText would pick, created from the
+     * preloaded program. Closing the document closes {@code out}.
+     */
+    public Document openDocument(OutputStream out) {
+        Document document = new Document(new PdfDocument(new PdfWriter(out)));
+        document.setFont(PdfFontFactory.createFont(layoutFont, PdfEncodings.WINANSI));
+        return document;
+    }
+
+    /**
+     * {@code renderer} with its wall and CPU time recorded; the CPU time is the rendering thread's own
+     */
+    public PdfRenderCache.Renderer measured(PdfRenderCache.Renderer renderer) {
+        return out -> {
+            long cpuStart = threads.getCurrentThreadCpuTime();
+            long wallStart = System.nanoTime();
+            renderer.render(out);
+            renderWallNanos.add(System.nanoTime() - wallStart);
+            long cpuEnd = threads.getCurrentThreadCpuTime();
+            if (cpuStart >= 0 && cpuEnd >= 0) {
+                renderCpuNanos.add(cpuEnd - cpuStart);
+            }
+            renders.incrementAndGet();
+        };
+    }
+
+    void warmedUp(long nanos, int reports, long cpuNanos) {
+        warmupNanos = nanos;
+        warmReportsPerCpuSecond = perCpuSecond(reports, cpuNanos);
+    }
+
+    public Map<String, Object> getStats() {
+        long count = renders.get();
+        long cpu = renderCpuNanos.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("fonts", fontSet.size());
+        stats.put("fontLoadMillis", TimeUnit.NANOSECONDS.toMillis(fontLoadNanos));
+        stats.put("warmupMillis", warmupNanos < 0 ? null : TimeUnit.NANOSECONDS.toMillis(warmupNanos));
+        stats.put("warmReportsPerCpuSecond", warmReportsPerCpuSecond);
+        stats.put("renders", count);
+        stats.put("avgRenderMillis", count > 0 ? toMillis(renderWallNanos.sum() / count) : 0.0);
+        stats.put("avgRenderCpuMillis", count > 0 ? toMillis(cpu / count) : 0.0);
+        stats.put("reportsPerCpuSecond", perCpuSecond(count, cpu));
+        return stats;
+    }
+
+    private static double perCpuSecond(long reports, long cpuNanos) {
+        return cpuNanos > 0 ? Math.round(reports * 1e11 / cpuNanos) / 100.0 : 0.0;
+    }
+
+    private static double toMillis(long nanos) {
+        return Math.round(nanos / 10_000.0) / 100.0;
+    }
+}
@@ -0,0 +1,147 @@
+package com.nagar_sewak.backend.reports;
+
+import com.nagar_sewak.backend.services.ReportService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * Responses that stream a rendered PDF from disk to the client in buffer-sized chunks, rather than
+ * loading the file into a byte array first.
+ */
+@Slf4j
+public final class PdfResponses {
+
+    /** Reports may carry personal details, so only the browser keeps them */
+    public static final CacheControl REVALIDATE = CacheControl.noCache().cachePrivate();
+
+    private PdfResponses() {
+    }
+
+    /**
+     * Download of {@code file}. The file is opened here, before the response is returned, so a cached
+     * file evicted while it is being sent is still sent in full. With {@code release} the file is released
+     * once sent; pass false when something else owns it.
+     *
+     * @param etag validator for cached reports, or null to forbid caching
+     */
+    public static ResponseEntity<StreamingResponseBody> attachment(PdfRenderCache.RenderedFile file, String filename,
+                                                                   String etag, boolean release) {
+        InputStream in;
+        try {
+            in = Files.newInputStream(file.path());
+        } catch (NoSuchFileException e) {
+            throw new ResponseStatusException(HttpStatus.GONE, "Report file has expired, please request it again");
+        } catch (IOException e) {
+            if (release) {
+                file.release();
+            }
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Could not read the report", e);
+        }
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_PDF);
+        headers.setContentDispositionFormData("attachment", filename);
+        headers.setContentLength(file.size());
+        if (etag != null) {
+            // Browsers keep the file but must check it is still current
+            headers.setETag(etag);
+            headers.setCacheControl(REVALIDATE);
+        } else {
+            headers.setCacheControl("no-cache, no-store, must-revalidate");
+            headers.setPragma("no-cache");
+            headers.setExpires(0);
+        }
+
+        StreamingResponseBody body = out -> {
+            try (in) {
+                in.transferTo(out);
+            } finally {
+                if (release) {
+                    file.release();
+                }
+            }
+        };
+        return ResponseEntity.ok()
+                .headers(headers)
+                .body(body);
+    }
+
+    /**
+     * Response for a render the request waits on. Answers 503 if the render outlasts {@code timeout}, which
+     * should be shorter than the servlet async timeout. A report that arrives after that has no response to
+     * stream it, so its file is released here instead.
+     *
+     * @param onFailure response for a failed render, or null to let the failure propagate
+     */
+    public static CompletableFuture<ResponseEntity<?>> whenRendered(
+            CompletableFuture<ReportService.RenderedReport> rendered, Duration timeout,
+            Function<ReportService.RenderedReport, ResponseEntity<?>> toResponse,
+            Function<Throwable, ResponseEntity<?>> onFailure) {
+        CompletableFuture<ResponseEntity<?>> response = new CompletableFuture<>();
+        AtomicBoolean answered = new AtomicBoolean();
+        CompletableFuture.delayedExecutor(timeout.toMillis(), TimeUnit.MILLISECONDS).execute(() -> {
+            if (answered.compareAndSet(false, true)) {
+                log.warn("PDF report render exceeded {} ms; answered 503", timeout.toMillis());
+                response.complete(retryLater("Report is taking longer than expected, please retry or use a report job"));
+            }
+        });
+        rendered.whenComplete((report, failure) -> {
+            if (!answered.compareAndSet(false, true)) {
+                if (report != null) {
+                    report.file().release();
+                }
+                return;
+            }
+            if (failure != null) {
+                Throwable cause = failure instanceof CompletionException && failure.getCause() != null
+                        ? failure.getCause() : failure;
+                if (onFailure != null) {
+                    response.complete(onFailure.apply(cause));
+                } else {
+                    response.completeExceptionally(cause);
+                }
+                return;
+            }
+            try {
+                response.complete(toResponse.apply(report));
+            } catch (RuntimeException e) {
+                // attachment() has already released the file if it could not be opened
+                response.completeExceptionally(e);
+            }
+        });
+        return response;
+    }
+
+    /**
+     * 503 with Retry-After for a render refused because the PDF pool's queue is full
+     */
+    public static ResponseEntity<Map<String, Object>> busy(RejectedExecutionException e) {
+        log.warn("Refused PDF report request: {}", e.getMessage());
+        return retryLater("Report service is busy, please retry shortly");
+    }
+
+    private static ResponseEntity<Map<String, Object>> retryLater(String error) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "5")
+                .body(Map.of("error", error));
+    }
+}
@@ -0,0 +1,326 @@
+package com.nagar_sewak.backend.reports;
+
+import com.nagar_sewak.backend.config.AsyncExecutorConfig;
+import com.nagar_sewak.backend.services.ReportService;
+import com.nagar_sewak.backend.util.InstrumentedExecutor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * PDF report jobs. A submitted job goes on the bounded PDF executor, or is refused outright when its queue
+ * is full, so report traffic can never hold request threads or pile up unbounded work. Clients poll the job
+ * or listen for its "done" event, then download the result. Finished jobs are kept for
+ * {@code app.reports.jobs.retention-seconds}. Synchronous downloads share the pool but may only hold
+ * {@code app.reports.sync-max-in-flight} of its places, so anonymous downloads cannot crowd out jobs.
+ * <p>
+ * Jobs are held in memory on the replica that accepted them: with more than one replica, requests for
+ * {@code /api/reports/jobs/**} must be routed sticky (e.g. by client IP) or they will not find their job.
+ */
+@Component
+@Slf4j
+public class ReportJobService {
+
+    public enum Status { QUEUED, RUNNING, DONE, FAILED }
+
+    /** One report render and, once it finishes, its result */
+    public static final class Job {
+
+        private final String id = UUID.randomUUID().toString();
+        private final String type;
+        private final String entityId;
+        private final long submittedNanos = System.nanoTime();
+        private final Instant submittedAt = Instant.now();
+        private final CompletableFuture<ReportService.RenderedReport> result = new CompletableFuture<>();
+        private final List<SseEmitter> listeners = new CopyOnWriteArrayList<>();
+        private volatile Status status = Status.QUEUED;
+        private volatile long queueWaitNanos;
+        private volatile long renderNanos;
+        private volatile long finishedNanos;
+        private volatile Instant finishedAt;
+        private volatile String error;
+
+        private Job(String type, String entityId) {
+            this.type = type;
+            this.entityId = entityId;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        public String getEntityId() {
+            return entityId;
+        }
+
+        public Status getStatus() {
+            return status;
+        }
+
+        /** Completes with the rendered report, or exceptionally if the render failed */
+        public CompletableFuture<ReportService.RenderedReport> getResult() {
+            return result;
+        }
+
+        public Map<String, Object> toStatus() {
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("jobId", id);
+            body.put("type", type);
+            body.put("id", entityId);
+            body.put("status", status.name());
+            body.put("submittedAt", submittedAt.toString());
+            if (status != Status.QUEUED) {
+                body.put("queueWaitMillis", TimeUnit.NANOSECONDS.toMillis(queueWaitNanos));
+            }
+            if (finishedAt != null) {
+                body.put("renderMillis", TimeUnit.NANOSECONDS.toMillis(renderNanos));
+                body.put("finishedAt", finishedAt.toString());
+            }
+            if (status == Status.DONE && result.isDone()) {
+                body.put("bytes", result.join().file().size());
+            }
+            if (error != null) {
+                body.put("error", error);
+            }
+            return body;
+        }
+    }
+
+    private final ReportService reportService;
+    private final InstrumentedExecutor pdfExecutor;
+    private final long retentionNanos;
+    private final int maxTracked;
+    private final long eventsTimeoutMillis;
+    private final int syncMaxInFlight;
+    private final Semaphore syncPermits;
+
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong syncRejected = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final LongAdder queueWaitNanos = new LongAdder();
+    private final LongAdder renderNanos = new LongAdder();
+    private final AtomicLong maxQueueWaitNanos = new AtomicLong();
+    private final AtomicLong maxRenderNanos = new AtomicLong();
+
+    public ReportJobService(ReportService reportService,
+                            @Qualifier(AsyncExecutorConfig.PDF_EXECUTOR) InstrumentedExecutor pdfExecutor,
+                            @Value("${app.reports.jobs.retention-seconds:600}") long retentionSeconds,
+                            @Value("${app.reports.jobs.max-tracked:200}") int maxTracked,
+                            @Value("${app.reports.jobs.events-timeout-ms:120000}") long eventsTimeoutMillis,
+                            @Value("${app.reports.sync-max-in-flight:8}") int syncMaxInFlight) {
+        this.reportService = reportService;
+        this.pdfExecutor = pdfExecutor;
+        this.retentionNanos = TimeUnit.SECONDS.toNanos(Math.max(1, retentionSeconds));
+        this.maxTracked = Math.max(1, maxTracked);
+        this.eventsTimeoutMillis = eventsTimeoutMillis;
+        this.syncMaxInFlight = Math.max(1, syncMaxInFlight);
+        this.syncPermits = new Semaphore(this.syncMaxInFlight);
+    }
+
+    /**
+     * Queue a render of the report described by {@code reportData} (type and id, plus fallback fields) and
+     * keep the job so it can be polled and downloaded
+     *
+     * @throws RejectedExecutionException if the render queue, or the number of jobs held, is full
+     */
+    public Job submit(Map<String, Object> reportData) {
+        if (jobs.size() >= maxTracked) {
+            purgeExpired();
+            if (jobs.size() >= maxTracked) {
+                rejected.incrementAndGet();
+                throw new RejectedExecutionException("Too many report jobs in progress");
+            }
+        }
+        Job job = new Job(String.valueOf(reportData.get("type")), String.valueOf(reportData.get("id")));
+        jobs.put(job.id, job);
+        try {
+            enqueue(job, () -> reportService.renderReport(reportData));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.id);
+            throw e;
+        }
+        return job;
+    }
+
+    /**
+     * Queue a render for a caller that waits on the result itself and releases its file; the job is not
+     * kept afterwards
+     *
+     * @throws RejectedExecutionException if the render queue is full
+     */
+    public CompletableFuture<ReportService.RenderedReport> render(Map<String, Object> reportData) {
+        return render(String.valueOf(reportData.get("type")), String.valueOf(reportData.get("id")),
+                () -> reportService.renderReport(reportData));
+    }
+
+    /**
+     * Queue a render of a report {@link ReportService} does not build, for a caller that waits on the result
+     * itself; it shares the PDF pool, its queue limit and the render timings with every other report
+     *
+     * @throws RejectedExecutionException if the synchronous quota or the render queue is full
+     */
+    public CompletableFuture<ReportService.RenderedReport> render(String type, String entityId,
+                                                                  Supplier<ReportService.RenderedReport> renderer) {
+        if (!syncPermits.tryAcquire()) {
+            rejected.incrementAndGet();
+            syncRejected.incrementAndGet();
+            throw new RejectedExecutionException("Too many report downloads in progress");
+        }
+        Job job = new Job(type, entityId);
+        try {
+            enqueue(job, renderer);
+        } catch (RejectedExecutionException e) {
+            syncPermits.release();
+            throw e;
+        }
+        job.result.whenComplete((report, e) -> syncPermits.release());
+        return job.result;
+    }
+
+    public Optional<Job> find(String jobId) {
+        return Optional.ofNullable(jobs.get(jobId));
+    }
+
+    /**
+     * Stream for the job: a "status" event now, then a "done" or "failed" event when it finishes, after which
+     * the stream closes
+     */
+    public SseEmitter subscribe(Job job) {
+        SseEmitter emitter = new SseEmitter(eventsTimeoutMillis);
+        job.listeners.add(emitter);
+        emitter.onCompletion(() -> job.listeners.remove(emitter));
+        emitter.onTimeout(() -> job.listeners.remove(emitter));
+        emitter.onError(e -> job.listeners.remove(emitter));
+        try {
+            emitter.send(SseEmitter.event().name("status").data(job.toStatus(), MediaType.APPLICATION_JSON));
+        } catch (IOException | IllegalStateException e) {
+            job.listeners.remove(emitter);
+            emitter.completeWithError(e);
+            return emitter;
+        }
+        // The result completes after the status is set and before listeners are notified, so a job that
+        // finished before this listener was added is caught here; each listener is only notified once
+        if (job.result.isDone()) {
+            notifyListeners(job);
+        }
+        return emitter;
+    }
+
+    @Scheduled(fixedDelayString = "${app.reports.jobs.purge-interval-ms:60000}")
+    public void purgeExpired() {
+        long now = System.nanoTime();
+        jobs.values().removeIf(job -> {
+            if (job.finishedAt == null || now - job.finishedNanos - retentionNanos <= 0) {
+                return false;
+            }
+            if (job.status == Status.DONE) {
+                job.result.join().file().release();
+            }
+            return true;
+        });
+    }
+
+    public Map<String, Object> getStats() {
+        long done = completed.get() + failed.get();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("tracked", jobs.size());
+        stats.put("submitted", submitted.get());
+        stats.put("rejected", rejected.get());
+        stats.put("syncInFlight", syncMaxInFlight - syncPermits.availablePermits());
+        stats.put("syncRejected", syncRejected.get());
+        stats.put("completed", completed.get());
+        stats.put("failed", failed.get());
+        stats.put("avgQueueWaitMillis", done > 0 ? toMillis(queueWaitNanos.sum() / done) : 0.0);
+        stats.put("maxQueueWaitMillis", toMillis(maxQueueWaitNanos.get()));
+        stats.put("avgRenderMillis", done > 0 ? toMillis(renderNanos.sum() / done) : 0.0);
+        stats.put("maxRenderMillis", toMillis(maxRenderNanos.get()));
+        return stats;
+    }
+
+    private void enqueue(Job job, Supplier<ReportService.RenderedReport> renderer) {
+        if (!pdfExecutor.tryExecute(() -> run(job, renderer))) {
+            rejected.incrementAndGet();
+            throw new RejectedExecutionException("Report render queue is full");
+        }
+        submitted.incrementAndGet();
+    }
+
+    private void run(Job job, Supplier<ReportService.RenderedReport> renderer) {
+        long startedAt = System.nanoTime();
+        job.queueWaitNanos = startedAt - job.submittedNanos;
+        job.status = Status.RUNNING;
+        ReportService.RenderedReport report = null;
+        Exception failure = null;
+        try {
+            report = renderer.get();
+        } catch (Exception e) {
+            failure = e;
+        }
+        job.finishedNanos = System.nanoTime();
+        job.renderNanos = job.finishedNanos - startedAt;
+        job.finishedAt = Instant.now();
+        queueWaitNanos.add(job.queueWaitNanos);
+        renderNanos.add(job.renderNanos);
+        maxQueueWaitNanos.accumulateAndGet(job.queueWaitNanos, Math::max);
+        maxRenderNanos.accumulateAndGet(job.renderNanos, Math::max);
+
+        if (failure == null) {
+            job.status = Status.DONE;
+            completed.incrementAndGet();
+            job.result.complete(report);
+        } else {
+            job.error = failure.getMessage();
+            job.status = Status.FAILED;
+            failed.incrementAndGet();
+            job.result.completeExceptionally(failure);
+        }
+        notifyListeners(job);
+    }
+
+    private void notifyListeners(Job job) {
+        String event = job.status == Status.DONE ? "done" : "failed";
+        for (SseEmitter emitter : job.listeners) {
+            if (job.listeners.remove(emitter)) {
+                try {
+                    emitter.send(SseEmitter.event().name(event).data(job.toStatus(), MediaType.APPLICATION_JSON));
+                    emitter.complete();
+                } catch (IOException | IllegalStateException e) {
+                    log.debug("Report job {} listener gone: {}", job.id, e.getMessage());
+                }
+            }
+        }
+    }
+
+    private static double toMillis(long nanos) {
+        return Math.round(nanos / 10_000.0) / 100.0;
+    }
+}
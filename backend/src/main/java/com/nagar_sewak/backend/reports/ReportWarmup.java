@@ -0,0 +1,118 @@
+package com.nagar_sewak.backend.reports;
+
+import com.nagar_sewak.backend.config.AsyncExecutorConfig;
+import com.nagar_sewak.backend.entities.Project;
+import com.nagar_sewak.backend.entities.Tender;
+import com.nagar_sewak.backend.services.PdfGeneratorService;
+import com.nagar_sewak.backend.services.ReportService;
+import com.nagar_sewak.backend.util.InstrumentedExecutor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Renders a sample of each report kind, uncached and to nowhere, once the application is up: the report views
+ * are parsed and cached, iText and html2pdf classes are loaded and the render path is compiled before the first
+ * real download rather than during it. Runs on the PDF executor so startup does not wait for it.
+ */
+@Component
+@Slf4j
+public class ReportWarmup {
+
+    private static final int SAMPLES = 4;
+
+    private final ReportService reportService;
+    private final PdfGeneratorService pdfGeneratorService;
+    private final PdfRenderingContext renderingContext;
+    private final InstrumentedExecutor pdfExecutor;
+    private final boolean enabled;
+    private final int rounds;
+
+    public ReportWarmup(ReportService reportService,
+                        PdfGeneratorService pdfGeneratorService,
+                        PdfRenderingContext renderingContext,
+                        @Qualifier(AsyncExecutorConfig.PDF_EXECUTOR) InstrumentedExecutor pdfExecutor,
+                        @Value("${app.reports.warmup.enabled:true}") boolean enabled,
+                        @Value("${app.reports.warmup.rounds:3}") int rounds) {
+        this.reportService = reportService;
+        this.pdfGeneratorService = pdfGeneratorService;
+        this.renderingContext = renderingContext;
+        this.pdfExecutor = pdfExecutor;
+        this.enabled = enabled;
+        this.rounds = Math.max(1, rounds);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void scheduleWarmup() {
+        if (enabled && !pdfExecutor.tryExecute(this::warmUp)) {
+            log.warn("Report warm-up skipped, the PDF executor is busy");
+        }
+    }
+
+    /**
+     * Render the samples {@code rounds} times. The first round is the cold render; the last is timed as a
+     * benchmark of warm renders, in reports per CPU second (about one core's throughput).
+     */
+    public void warmUp() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        long start = System.nanoTime();
+        try {
+            long first = 0;
+            long lastCpu = 0;
+            for (int round = 0; round < rounds; round++) {
+                long roundStart = System.nanoTime();
+                long cpuStart = threads.getCurrentThreadCpuTime();
+                renderSamples();
+                lastCpu = threads.getCurrentThreadCpuTime() - cpuStart;
+                if (round == 0) {
+                    first = System.nanoTime() - roundStart;
+                }
+            }
+            long elapsed = System.nanoTime() - start;
+            renderingContext.warmedUp(elapsed, SAMPLES, lastCpu);
+            log.info("Report rendering warmed up in {} ms (first round {} ms); warm renders {} reports per CPU second",
+                    TimeUnit.NANOSECONDS.toMillis(elapsed), TimeUnit.NANOSECONDS.toMillis(first),
+                    renderingContext.getStats().get("warmReportsPerCpuSecond"));
+        } catch (Exception e) {
+            log.warn("Report warm-up failed, the first reports will render cold", e);
+        }
+    }
+
+    /** Request data carries every field the views read, as the views fail on a missing one */
+    private void renderSamples() {
+        reportService.writeReport(Map.of(
+                "type", "complaint", "id", 0, "title", "Sample complaint", "description", "Warm-up",
+                "status", "OPEN", "severity", 3, "lat", 0.0, "lng", 0.0), OutputStream.nullOutputStream());
+        reportService.writeReport(Map.of(
+                "type", "project", "id", 0, "title", "Sample project", "description", "Warm-up",
+                "status", "In Progress", "budget", 0, "lat", 0.0, "lng", 0.0, "createdAt", LocalDateTime.now()),
+                OutputStream.nullOutputStream());
+
+        Tender tender = new Tender();
+        tender.setTitle("Sample tender");
+        tender.setDescription("Warm-up");
+        tender.setBudget(BigDecimal.ZERO);
+        tender.setStatus("OPEN");
+        pdfGeneratorService.writeTenderPdf(tender, OutputStream.nullOutputStream());
+
+        Project project = new Project();
+        project.setTitle("Sample project");
+        project.setDescription("Warm-up");
+        project.setBudget(BigDecimal.ZERO);
+        project.setStatus("In Progress");
+        project.setProgressPercentage(0);
+        pdfGeneratorService.writeProgressReportPdf(project, List.of(), OutputStream.nullOutputStream());
+    }
+}
@@ -0,0 +1,52 @@
+package com.nagar_sewak.backend.repositories;
+
+import com.nagar_sewak.backend.dto.NotificationRecipient;
+import com.nagar_sewak.backend.entities.ComplaintFollower;
+import com.nagar_sewak.backend.entities.FollowReason;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+@Repository
+public interface ComplaintFollowerRepository extends JpaRepository<ComplaintFollower, Long> {
+
+    boolean existsByComplaintIdAndUserIdAndReason(Long complaintId, Long userId, FollowReason reason);
+
+    /**
+     * Distinct users following a complaint, whatever their reasons
+     */
+    @Query("SELECT COUNT(DISTINCT f.user.id) FROM ComplaintFollower f WHERE f.complaint.id = :complaintId")
+    long countFollowers(@Param("complaintId") Long complaintId);
+
+    /**
+     * Next chunk of distinct users following any complaint linked to a project, keyset-paginated by user id
+     */
+    @Query("SELECT DISTINCT new com.nagar_sewak.backend.dto.NotificationRecipient(u.id, u.email, u.username) " +
+           "FROM ComplaintFollower f JOIN f.user u JOIN f.complaint c " +
+           "WHERE c.project.id = :projectId AND u.id > :afterId ORDER BY u.id")
+    List<NotificationRecipient> findProjectFollowers(@Param("projectId") Long projectId,
+                                                     @Param("afterId") Long afterId,
+                                                     Pageable pageable);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM ComplaintFollower f WHERE f.complaint.id = :complaintId AND f.user.id = :userId AND f.reason = :reason")
+    int deleteByComplaintIdAndUserIdAndReason(@Param("complaintId") Long complaintId,
+                                              @Param("userId") Long userId,
+                                              @Param("reason") FollowReason reason);
+
+    /**
+     * Remove everything a user follows, plus all follows of complaints they reported
+     */
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM ComplaintFollower f WHERE f.user.id = :userId " +
+           "OR f.complaint.id IN (SELECT c.id FROM Complaint c WHERE c.user.id = :userId)")
+    int deleteByUserOrReportedComplaints(@Param("userId") Long userId);
+}
@@ -4,9 +4,11 @@ import com.nagar_sewak.backend.entities.DeviceFingerprint;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -20,6 +22,31 @@ public interface DeviceFingerprintRepository extends JpaRepository<DeviceFingerp
      */
     Optional<DeviceFingerprint> findByFingerprintHash(String fingerprintHash);
 
+    /**
+     * Find a user's device by fingerprint hash
+     */
+    Optional<DeviceFingerprint> findByUserIdAndFingerprintHash(String userId, String fingerprintHash);
+
+    /**
+     * Insert the device or refresh last_seen/ip_address on the (user_id, fingerprint_hash) key.
+     * MySQL reports 1 affected row for an insert and 2 for an update, so the
+     * caller learns whether the device is new from this single statement.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO device_fingerprints " +
+            "(user_id, browser_type, operating_system, device_type, ip_address, fingerprint_hash, first_seen, last_seen, trusted) " +
+            "VALUES (:userId, :browserType, :operatingSystem, :deviceType, :ipAddress, :fingerprintHash, :seenAt, :seenAt, false) " +
+            "ON DUPLICATE KEY UPDATE last_seen = VALUES(last_seen), ip_address = VALUES(ip_address)",
+            nativeQuery = true)
+    int upsertDevice(@Param("userId") String userId,
+                     @Param("browserType") String browserType,
+                     @Param("operatingSystem") String operatingSystem,
+                     @Param("deviceType") String deviceType,
+                     @Param("ipAddress") String ipAddress,
+                     @Param("fingerprintHash") String fingerprintHash,
+                     @Param("seenAt") LocalDateTime seenAt);
+
     /**
      * Find all device fingerprints for a specific user
      */
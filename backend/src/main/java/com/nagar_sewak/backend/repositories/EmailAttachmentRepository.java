@@ -0,0 +1,13 @@
+package com.nagar_sewak.backend.repositories;
+
+import com.nagar_sewak.backend.entities.EmailAttachment;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface EmailAttachmentRepository extends JpaRepository<EmailAttachment, Long> {
+
+    Optional<EmailAttachment> findBySha256AndFilename(String sha256, String filename);
+}
@@ -6,8 +6,6 @@ import com.nagar_sewak.backend.entities.EmailTemplateType;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.data.jpa.repository.Query;
-import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
@@ -31,12 +29,6 @@ public interface EmailHistoryRepository extends JpaRepository<EmailHistory, Long
      */
     Page<EmailHistory> findByTemplateType(EmailTemplateType templateType, Pageable pageable);
 
-    /**
-     * Find failed emails that can be retried
-     */
-    @Query("SELECT eh FROM EmailHistory eh WHERE eh.status = 'FAILED' AND eh.retryCount < :maxRetries")
-    List<EmailHistory> findFailedEmailsForRetry(@Param("maxRetries") int maxRetries);
-
     /**
      * Find emails sent within a time range
      */
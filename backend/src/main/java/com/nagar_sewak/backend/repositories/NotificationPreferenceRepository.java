@@ -4,8 +4,12 @@ import com.nagar_sewak.backend.entities.NotificationPreference;
 import com.nagar_sewak.backend.entities.NotificationType;
 import com.nagar_sewak.backend.entities.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -16,5 +20,13 @@ public interface NotificationPreferenceRepository extends JpaRepository<Notifica
 
     Optional<NotificationPreference> findByUserAndNotificationType(User user, NotificationType notificationType);
 
+    List<NotificationPreference> findByUser_IdIn(Collection<Long> userIds);
+
+    List<NotificationPreference> findByUser_IdInAndNotificationType(Collection<Long> userIds, NotificationType notificationType);
+
     void deleteByUser(User user);
+
+    @Modifying
+    @Query("DELETE FROM NotificationPreference p WHERE p.user.id = :userId AND p.notificationType IN :types")
+    int deleteOverrides(@Param("userId") Long userId, @Param("types") Collection<NotificationType> types);
 }
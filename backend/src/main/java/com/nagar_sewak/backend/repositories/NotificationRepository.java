@@ -1,16 +1,25 @@
 package com.nagar_sewak.backend.repositories;
 
+import com.nagar_sewak.backend.dto.NotificationInboxItem;
+import com.nagar_sewak.backend.entities.EmailDigestFrequency;
 import com.nagar_sewak.backend.entities.Notification;
+import com.nagar_sewak.backend.entities.NotificationPriority;
+import com.nagar_sewak.backend.entities.NotificationType;
 import com.nagar_sewak.backend.entities.User;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 
 @Repository
 public interface NotificationRepository extends JpaRepository<Notification, Long> {
@@ -19,15 +28,64 @@ public interface NotificationRepository extends JpaRepository<Notification, Long
 
     long countByUserAndIsRead(User user, Boolean isRead);
 
+    /**
+     * Inbox page ordered newest first, strictly after the (createdAt, id) keyset position
+     */
+    @Query("SELECT new com.nagar_sewak.backend.dto.NotificationInboxItem(n.id, n.type, n.priority, n.title, n.message, " +
+           "n.actionUrl, n.isRead, n.readAt, n.createdAt, n.expiresAt, n.metadata, n.occurrenceCount) " +
+           "FROM Notification n WHERE n.user.id = :userId " +
+           "AND (:unreadOnly = false OR n.isRead = false) " +
+           "AND (:type IS NULL OR n.type = :type) " +
+           "AND (:priority IS NULL OR n.priority = :priority) " +
+           "AND (n.createdAt < :createdAt OR (n.createdAt = :createdAt AND n.id < :id)) " +
+           "ORDER BY n.createdAt DESC, n.id DESC")
+    List<NotificationInboxItem> findInboxPage(@Param("userId") Long userId,
+                                              @Param("unreadOnly") boolean unreadOnly,
+                                              @Param("type") NotificationType type,
+                                              @Param("priority") NotificationPriority priority,
+                                              @Param("createdAt") LocalDateTime createdAt,
+                                              @Param("id") Long id,
+                                              Pageable pageable);
+
+    long countByUser_IdAndIsRead(Long userId, Boolean isRead);
+
+    List<Notification> findByUser_IdAndIdGreaterThanOrderByIdAsc(Long userId, Long afterId, Pageable pageable);
+
+    /**
+     * Newest unread notification for the user on the same type and target created since {@code since},
+     * locked; as a locking read it also sees rows committed after the transaction's snapshot
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT n FROM Notification n WHERE n.user.id = :userId AND n.type = :type " +
+           "AND n.groupKey = :groupKey AND n.isRead = false AND n.createdAt >= :since ORDER BY n.id DESC")
+    List<Notification> findCoalesceTargetForUpdate(@Param("userId") Long userId,
+                                                   @Param("type") NotificationType type,
+                                                   @Param("groupKey") String groupKey,
+                                                   @Param("since") LocalDateTime since,
+                                                   Pageable pageable);
+
+    @Query("SELECT DISTINCT n.user.id FROM Notification n WHERE n.emailPending = true " +
+           "AND n.user.emailDigest IN :frequencies AND n.user.id > :afterUserId ORDER BY n.user.id")
+    List<Long> findDigestRecipients(@Param("frequencies") Collection<EmailDigestFrequency> frequencies,
+                                    @Param("afterUserId") Long afterUserId,
+                                    Pageable pageable);
+
+    List<Notification> findByUser_IdAndEmailPendingTrueOrderByIdAsc(Long userId);
+
+    /**
+     * Take the user's pending digest rows up to {@code maxId}; returns 0 if another node already took them
+     */
     @Modifying
-    @Query("UPDATE Notification n SET n.isRead = true, n.readAt = :readAt WHERE n.user = :user AND n.isRead = false")
-    int markAllAsReadForUser(@Param("user") User user, @Param("readAt") LocalDateTime readAt);
+    @Transactional
+    @Query("UPDATE Notification n SET n.emailPending = false WHERE n.user.id = :userId AND n.emailPending = true AND n.id <= :maxId")
+    int claimDigest(@Param("userId") Long userId, @Param("maxId") Long maxId);
 
     @Modifying
-    @Query("DELETE FROM Notification n WHERE n.expiresAt < :now")
-    int deleteExpiredNotifications(@Param("now") LocalDateTime now);
+    @Transactional
+    @Query("UPDATE Notification n SET n.emailPending = true WHERE n.id IN :ids")
+    int restoreDigest(@Param("ids") Collection<Long> ids);
 
     @Modifying
-    @Query("DELETE FROM Notification n WHERE n.createdAt < :cutoffDate")
-    int deleteOldNotifications(@Param("cutoffDate") LocalDateTime cutoffDate);
+    @Query("UPDATE Notification n SET n.isRead = true, n.readAt = :readAt WHERE n.user = :user AND n.isRead = false")
+    int markAllAsReadForUser(@Param("user") User user, @Param("readAt") LocalDateTime readAt);
 }
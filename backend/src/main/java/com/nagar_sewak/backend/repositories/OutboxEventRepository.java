@@ -0,0 +1,12 @@
+package com.nagar_sewak.backend.repositories;
+
+import com.nagar_sewak.backend.entities.OutboxEvent;
+import com.nagar_sewak.backend.entities.OutboxStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    long countByStatus(OutboxStatus status);
+}
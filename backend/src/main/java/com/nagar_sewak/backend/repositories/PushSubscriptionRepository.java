@@ -7,8 +7,10 @@ import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -23,5 +25,17 @@ public interface PushSubscriptionRepository extends JpaRepository<PushSubscripti
     @Query("UPDATE PushSubscription p SET p.isActive = false WHERE p.expiresAt < :now AND p.isActive = true")
     int deactivateExpiredSubscriptions(@Param("now") LocalDateTime now);
 
+    /**
+     * Active, unexpired subscriptions of the given users, for one push batch
+     */
+    @Query("SELECT p FROM PushSubscription p WHERE p.user.id IN :userIds AND p.isActive = true " +
+           "AND (p.expiresAt IS NULL OR p.expiresAt > :now)")
+    List<PushSubscription> findDeliverable(@Param("userIds") Collection<Long> userIds, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE PushSubscription p SET p.isActive = false WHERE p.id IN :ids")
+    int deactivateByIds(@Param("ids") Collection<Long> ids);
+
     void deleteByUserAndEndpoint(User user, String endpoint);
 }
@@ -0,0 +1,37 @@
+package com.nagar_sewak.backend.repositories;
+
+import com.nagar_sewak.backend.entities.RollupGranularity;
+import com.nagar_sewak.backend.entities.SecurityActorRollup;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface SecurityActorRollupRepository extends JpaRepository<SecurityActorRollup, Long> {
+
+    /**
+     * Top actors (IPs or users) by suspicious event count over a range
+     */
+    @Query("SELECT r.actor, SUM(r.eventCount) FROM SecurityActorRollup r " +
+           "WHERE r.actorType = :actorType " +
+           "AND ((r.granularity = :hour AND r.bucketStart >= :hourStart) " +
+           "    OR (r.granularity = :day AND r.bucketStart >= :dayStart)) " +
+           "AND r.bucketStart < :end GROUP BY r.actor ORDER BY SUM(r.eventCount) DESC")
+    List<Object[]> findTopActors(@Param("actorType") SecurityActorRollup.ActorType actorType,
+                                 @Param("hour") RollupGranularity hour,
+                                 @Param("day") RollupGranularity day,
+                                 @Param("hourStart") LocalDateTime hourStart,
+                                 @Param("dayStart") LocalDateTime dayStart,
+                                 @Param("end") LocalDateTime end,
+                                 Pageable pageable);
+
+    /**
+     * Delete rollups older than the retention window
+     */
+    void deleteByBucketStartBefore(LocalDateTime cutoff);
+}
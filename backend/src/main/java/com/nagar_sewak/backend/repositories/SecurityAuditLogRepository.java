@@ -35,6 +35,15 @@ public interface SecurityAuditLogRepository extends JpaRepository<SecurityAuditL
      */
     Page<SecurityAuditLog> findByTimestampBetween(LocalDateTime start, LocalDateTime end, Pageable pageable);
 
+    /**
+     * Hot-window variants: bounded by timestamp so MySQL prunes to recent partitions
+     */
+    Page<SecurityAuditLog> findByUserIdAndTimestampGreaterThanEqual(String userId, LocalDateTime since, Pageable pageable);
+
+    Page<SecurityAuditLog> findByEventTypeAndTimestampGreaterThanEqual(SecurityEventType eventType, LocalDateTime since, Pageable pageable);
+
+    Page<SecurityAuditLog> findByIpAddressAndTimestampGreaterThanEqual(String ipAddress, LocalDateTime since, Pageable pageable);
+
     /**
      * Find security logs for a user within a time range
      */
@@ -55,14 +64,6 @@ public interface SecurityAuditLogRepository extends JpaRepository<SecurityAuditL
      */
     List<SecurityAuditLog> findTop100ByOrderByTimestampDesc();
 
-    /**
-     * Find recent suspicious activities
-     */
-    @Query("SELECT sal FROM SecurityAuditLog sal WHERE sal.eventType IN :suspiciousEvents " +
-           "AND sal.timestamp >= :since ORDER BY sal.timestamp DESC")
-    List<SecurityAuditLog> findRecentSuspiciousActivity(@Param("suspiciousEvents") List<SecurityEventType> suspiciousEvents, 
-                                                       @Param("since") LocalDateTime since);
-
     /**
      * Count events by type within a time range
      */
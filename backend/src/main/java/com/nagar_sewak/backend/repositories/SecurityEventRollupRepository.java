@@ -0,0 +1,52 @@
+package com.nagar_sewak.backend.repositories;
+
+import com.nagar_sewak.backend.entities.RollupGranularity;
+import com.nagar_sewak.backend.entities.SecurityEventRollup;
+import com.nagar_sewak.backend.entities.SecurityEventType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface SecurityEventRollupRepository extends JpaRepository<SecurityEventRollup, Long> {
+
+    /**
+     * Sum event counts by type using hourly buckets in [hourStart, end) and
+     * daily buckets in [dayStart, end). Hourly rows are removed once rolled
+     * into a day, so the two granularities never overlap.
+     */
+    @Query("SELECT r.eventType, SUM(r.eventCount) FROM SecurityEventRollup r " +
+           "WHERE ((r.granularity = :hour AND r.bucketStart >= :hourStart) " +
+           "    OR (r.granularity = :day AND r.bucketStart >= :dayStart)) " +
+           "AND r.bucketStart < :end GROUP BY r.eventType")
+    List<Object[]> sumByEventType(@Param("hour") RollupGranularity hour,
+                                  @Param("day") RollupGranularity day,
+                                  @Param("hourStart") LocalDateTime hourStart,
+                                  @Param("dayStart") LocalDateTime dayStart,
+                                  @Param("end") LocalDateTime end);
+
+    /**
+     * Same as {@link #sumByEventType} restricted to a set of event types
+     */
+    @Query("SELECT r.eventType, SUM(r.eventCount) FROM SecurityEventRollup r " +
+           "WHERE r.eventType IN :eventTypes " +
+           "AND ((r.granularity = :hour AND r.bucketStart >= :hourStart) " +
+           "    OR (r.granularity = :day AND r.bucketStart >= :dayStart)) " +
+           "AND r.bucketStart < :end GROUP BY r.eventType")
+    List<Object[]> sumByEventTypeIn(@Param("eventTypes") Collection<SecurityEventType> eventTypes,
+                                    @Param("hour") RollupGranularity hour,
+                                    @Param("day") RollupGranularity day,
+                                    @Param("hourStart") LocalDateTime hourStart,
+                                    @Param("dayStart") LocalDateTime dayStart,
+                                    @Param("end") LocalDateTime end);
+
+    /**
+     * Delete rollups older than the retention window
+     */
+    void deleteByBucketStartBefore(LocalDateTime cutoff);
+}
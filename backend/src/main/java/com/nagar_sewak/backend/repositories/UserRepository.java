@@ -1,7 +1,16 @@
 package com.nagar_sewak.backend.repositories;
 
+import com.nagar_sewak.backend.dto.NotificationRecipient;
+import com.nagar_sewak.backend.entities.Role;
 import com.nagar_sewak.backend.entities.User;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
 import java.util.Optional;
 
 public interface UserRepository extends JpaRepository<User, Long> {
@@ -9,4 +18,20 @@ public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByEmail(String email);
     boolean existsByUsername(String username);
     boolean existsByEmail(String email);
-}
\ No newline at end of file
+
+    /**
+     * The user, with their row locked until the transaction ends; serializes per-user work across replicas
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT u FROM User u WHERE u.id = :id")
+    Optional<User> findByIdForUpdate(@Param("id") Long id);
+
+    /**
+     * Next chunk of users holding a role, keyset-paginated by id (uses idx_user_roles_role).
+     */
+    @Query("SELECT new com.nagar_sewak.backend.dto.NotificationRecipient(u.id, u.email, u.username) " +
+           "FROM User u JOIN u.roles r WHERE r = :role AND u.id > :afterId ORDER BY u.id")
+    List<NotificationRecipient> findRecipientsByRole(@Param("role") Role role,
+                                                     @Param("afterId") Long afterId,
+                                                     Pageable pageable);
+}
@@ -0,0 +1,116 @@
+package com.nagar_sewak.backend.services;
+
+import com.nagar_sewak.backend.dto.NotificationRecipient;
+import com.nagar_sewak.backend.entities.Complaint;
+import com.nagar_sewak.backend.entities.ComplaintFollower;
+import com.nagar_sewak.backend.entities.FollowReason;
+import com.nagar_sewak.backend.entities.User;
+import com.nagar_sewak.backend.repositories.ComplaintFollowerRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Maintains the complaint follower index (reporters, voters, commenters) that
+ * project and complaint notifications are resolved against. A user has one
+ * row per reason they follow a complaint for.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ComplaintFollowerService {
+
+    private final ComplaintFollowerRepository followerRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final JobLockService jobLockService;
+
+    private static final String BACKFILL_LOCK = "complaint-follower-backfill";
+
+    /**
+     * Record that a user follows a complaint for a reason; no-op if they already do for that reason
+     */
+    public void follow(Complaint complaint, User user, FollowReason reason) {
+        if (complaint == null || user == null) {
+            return;
+        }
+        if (followerRepository.existsByComplaintIdAndUserIdAndReason(complaint.getId(), user.getId(), reason)) {
+            return;
+        }
+        try {
+            followerRepository.save(ComplaintFollower.builder()
+                    .complaint(complaint)
+                    .user(user)
+                    .reason(reason)
+                    .build());
+        } catch (DataIntegrityViolationException e) {
+            // A concurrent request added the same follower first
+            log.debug("User {} already follows complaint {} as {}", user.getId(), complaint.getId(), reason);
+        }
+    }
+
+    /**
+     * Drop the follow a withdrawn vote created; follows for reporting or commenting stay
+     */
+    public void unfollowVoter(Long complaintId, Long userId) {
+        followerRepository.deleteByComplaintIdAndUserIdAndReason(complaintId, userId, FollowReason.VOTER);
+    }
+
+    /**
+     * Next chunk of users following any complaint on the project, ordered by user id
+     */
+    public List<NotificationRecipient> findProjectFollowers(Long projectId, long afterUserId, int limit) {
+        return followerRepository.findProjectFollowers(projectId, afterUserId, PageRequest.of(0, limit));
+    }
+
+    /**
+     * Remove a user's follows and all follows of complaints they reported
+     */
+    public void removeUser(Long userId) {
+        followerRepository.deleteByUserOrReportedComplaints(userId);
+    }
+
+    /**
+     * Add index rows missing for existing complaints, votes and comments. Each insert
+     * skips rows already present, so this is safe to run on every start and also
+     * fills in reasons recorded before follows were kept per reason.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        if (!jobLockService.tryLock(BACKFILL_LOCK, Duration.ofMinutes(30))) {
+            return;
+        }
+        try {
+            int reporters = jdbcTemplate.update(
+                    "INSERT INTO complaint_followers (complaint_id, user_id, reason, created_at) " +
+                    "SELECT c.id, c.user_id, 'REPORTER', CURRENT_TIMESTAMP FROM complaints c WHERE c.user_id IS NOT NULL " +
+                    "AND NOT EXISTS (SELECT 1 FROM complaint_followers f " +
+                    "WHERE f.complaint_id = c.id AND f.user_id = c.user_id AND f.reason = 'REPORTER')");
+            int voters = jdbcTemplate.update(
+                    "INSERT INTO complaint_followers (complaint_id, user_id, reason, created_at) " +
+                    "SELECT DISTINCT v.complaint_id, v.user_id, 'VOTER', CURRENT_TIMESTAMP FROM complaint_votes v " +
+                    "WHERE NOT EXISTS (SELECT 1 FROM complaint_followers f " +
+                    "WHERE f.complaint_id = v.complaint_id AND f.user_id = v.user_id AND f.reason = 'VOTER')");
+            int commenters = jdbcTemplate.update(
+                    "INSERT INTO complaint_followers (complaint_id, user_id, reason, created_at) " +
+                    "SELECT DISTINCT cc.complaint_id, cc.user_id, 'COMMENTER', CURRENT_TIMESTAMP FROM complaint_comments cc " +
+                    "WHERE NOT EXISTS (SELECT 1 FROM complaint_followers f " +
+                    "WHERE f.complaint_id = cc.complaint_id AND f.user_id = cc.user_id AND f.reason = 'COMMENTER')");
+            if (reporters + voters + commenters > 0) {
+                log.info("Backfilled complaint followers: {} reporters, {} voters, {} commenters",
+                        reporters, voters, commenters);
+            }
+        } catch (Exception e) {
+            log.warn("Complaint follower backfill failed: {}", e.getMessage());
+        } finally {
+            jobLockService.unlock(BACKFILL_LOCK);
+        }
+    }
+}
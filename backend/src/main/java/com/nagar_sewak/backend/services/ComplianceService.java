@@ -1,5 +1,8 @@
 package com.nagar_sewak.backend.services;
 
+import com.nagar_sewak.backend.audit.AuditArchiveStore;
+import com.nagar_sewak.backend.audit.AuditRetentionService;
+import com.nagar_sewak.backend.audit.PartitionedTable;
 import com.nagar_sewak.backend.entities.*;
 import com.nagar_sewak.backend.repositories.*;
 import lombok.RequiredArgsConstructor;
@@ -8,7 +11,9 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
 import java.time.LocalDateTime;
+import java.time.YearMonth;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -28,6 +33,10 @@ public class ComplianceService {
     private final NotificationPreferenceRepository notificationPreferenceRepository;
     private final PasswordEncoder passwordEncoder;
     private final SecurityAuditService securityAuditService;
+    private final AuditRetentionService auditRetentionService;
+    private final AuditArchiveStore auditArchiveStore;
+    private final DeviceFingerprintService deviceFingerprintService;
+    private final ComplaintFollowerService complaintFollowerService;
 
     /**
      * Export all user data in a structured format (GDPR compliance)
@@ -176,6 +185,7 @@ public class ComplianceService {
             device.setUserId(anonymizedId);
         }
         deviceFingerprintRepository.saveAll(devices);
+        deviceFingerprintService.forgetUser(originalUserId);
 
         // Delete notification preferences (no need to keep)
         notificationPreferenceRepository.deleteByUser(user);
@@ -199,6 +209,7 @@ public class ComplianceService {
         
         // Delete device fingerprints
         deviceFingerprintRepository.deleteAll(deviceFingerprintRepository.findByUserId(userId));
+        deviceFingerprintService.forgetUser(userId);
         
         // Delete login attempts
         loginAttemptRepository.deleteAll(loginAttemptRepository.findByEmailOrderByAttemptTimeDesc(user.getEmail(), null));
@@ -209,6 +220,9 @@ public class ComplianceService {
         // Delete security audit logs (consider keeping for compliance)
         // securityAuditLogRepository.deleteAll(securityAuditLogRepository.findByUserId(userId, null).getContent());
         
+        // Delete follows by this user and of their complaints
+        complaintFollowerService.removeUser(user.getId());
+
         // Delete complaints (consider anonymizing instead)
         complaintRepository.deleteAll(complaintRepository.findByUserUsername(user.getUsername()));
         
@@ -216,6 +230,14 @@ public class ComplianceService {
         userRepository.delete(user);
     }
 
+    /**
+     * Look up archived (expired) audit or login-attempt rows by user id, email or IP
+     */
+    public List<Map<String, Object>> findArchivedRecords(PartitionedTable table, String column, String value,
+                                                         YearMonth from, YearMonth to) throws IOException {
+        return auditArchiveStore.find(table, column, value, from, to);
+    }
+
     /**
      * Validate password encryption compliance
      */
@@ -255,14 +277,14 @@ public class ComplianceService {
         
         // Security statistics
         LocalDateTime lastMonth = LocalDateTime.now().minusDays(30);
-        List<Object[]> recentEvents = securityAuditLogRepository.countEventsByTypeInRange(lastMonth, LocalDateTime.now());
+        List<Object[]> recentEvents = securityAuditService.getEventCountsByType(lastMonth, LocalDateTime.now());
         report.put("recentSecurityEvents", recentEvents);
         
         // Data retention information
         report.put("dataRetention", Map.of(
-            "auditLogRetentionDays", 365,
+            "auditLogRetentionDays", auditRetentionService.getRetentionDays(PartitionedTable.SECURITY_AUDIT_LOGS),
             "emailHistoryRetentionDays", 90,
-            "loginAttemptRetentionDays", 30
+            "loginAttemptRetentionDays", auditRetentionService.getRetentionDays(PartitionedTable.LOGIN_ATTEMPTS)
         ));
         
         report.put("generatedAt", LocalDateTime.now());
@@ -3,8 +3,9 @@ package com.nagar_sewak.backend.services;
 import com.nagar_sewak.backend.entities.DeviceFingerprint;
 import com.nagar_sewak.backend.entities.SecurityEventType;
 import com.nagar_sewak.backend.repositories.DeviceFingerprintRepository;
-import lombok.RequiredArgsConstructor;
+import com.nagar_sewak.backend.util.StripedLruCache;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import jakarta.servlet.http.HttpServletRequest;
@@ -12,13 +13,14 @@ import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.time.LocalDateTime;
+import java.util.HexFormat;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class DeviceFingerprintService {
 
@@ -26,73 +28,84 @@ public class DeviceFingerprintService {
     private final SecurityAuditService securityAuditService;
     private final EmailService emailService;
 
+    /** Parsed signature per (User-Agent, Accept-Language, Accept-Encoding) tuple. */
+    private final StripedLruCache<String, DeviceSignature> signatureCache;
+
+    /** Per-user fingerprint hashes already upserted, with the time of the last database touch. */
+    private final StripedLruCache<String, Map<String, Long>> knownDevices;
+    private final long touchIntervalMillis;
+
+    public DeviceFingerprintService(DeviceFingerprintRepository deviceFingerprintRepository,
+                                    SecurityAuditService securityAuditService,
+                                    EmailService emailService,
+                                    @Value("${app.security.device.ua-cache-size:4096}") int userAgentCacheSize,
+                                    @Value("${app.security.device.known-cache-size:10000}") int knownDeviceCacheSize,
+                                    @Value("${app.security.device.touch-interval-seconds:300}") long touchIntervalSeconds) {
+        this.deviceFingerprintRepository = deviceFingerprintRepository;
+        this.securityAuditService = securityAuditService;
+        this.emailService = emailService;
+        this.signatureCache = new StripedLruCache<>(userAgentCacheSize, 16);
+        this.knownDevices = new StripedLruCache<>(knownDeviceCacheSize, 16);
+        this.touchIntervalMillis = touchIntervalSeconds * 1000L;
+    }
+
     /**
      * Create a device fingerprint from HTTP request
      */
     public DeviceFingerprint createFingerprint(HttpServletRequest request, String userId) {
-        String userAgent = request.getHeader("User-Agent");
-        String acceptLanguage = request.getHeader("Accept-Language");
-        String acceptEncoding = request.getHeader("Accept-Encoding");
-        String ipAddress = getClientIpAddress(request);
-        
-        // Extract browser and OS information from User-Agent
-        BrowserInfo browserInfo = parseBrowserInfo(userAgent);
-        
-        // Create fingerprint hash
-        String fingerprintData = String.format("%s|%s|%s|%s|%s", 
-            userAgent != null ? userAgent : "",
-            acceptLanguage != null ? acceptLanguage : "",
-            acceptEncoding != null ? acceptEncoding : "",
-            browserInfo.getBrowser(),
-            browserInfo.getOperatingSystem()
-        );
-        
-        String fingerprintHash = generateHash(fingerprintData);
-        
-        DeviceFingerprint fingerprint = DeviceFingerprint.builder()
+        DeviceSignature signature = resolveSignature(request);
+
+        return DeviceFingerprint.builder()
                 .userId(userId)
-                .browserType(browserInfo.getBrowser())
-                .operatingSystem(browserInfo.getOperatingSystem())
-                .deviceType(browserInfo.getDeviceType())
-                .ipAddress(ipAddress)
-                .fingerprintHash(fingerprintHash)
+                .browserType(signature.browser())
+                .operatingSystem(signature.operatingSystem())
+                .deviceType(signature.deviceType())
+                .ipAddress(getClientIpAddress(request))
+                .fingerprintHash(signature.fingerprintHash())
                 .trusted(false) // New devices are not trusted by default
                 .build();
-        
-        log.info("Created device fingerprint for user: {} with hash: {}", userId, fingerprintHash);
-        return fingerprint;
     }
 
     /**
      * Check if a device is known (previously registered) for a user
      */
     public boolean isKnownDevice(String userId, DeviceFingerprint fingerprint) {
+        Map<String, Long> cached = knownDevices.get(userId);
+        if (cached != null && cached.containsKey(fingerprint.getFingerprintHash())) {
+            return true;
+        }
         return deviceFingerprintRepository.existsByUserIdAndFingerprintHash(userId, fingerprint.getFingerprintHash());
     }
 
     /**
-     * Register a new device for a user
+     * Register the device for a user, or refresh last seen/IP if it already exists.
+     *
+     * @return true if the device was inserted, false if an existing row was updated
      */
-    public DeviceFingerprint registerDevice(String userId, DeviceFingerprint fingerprint) {
-        // Check if device already exists
-        Optional<DeviceFingerprint> existing = deviceFingerprintRepository
-                .findByFingerprintHash(fingerprint.getFingerprintHash());
-        
-        if (existing.isPresent()) {
-            // Update last seen timestamp
-            DeviceFingerprint existingDevice = existing.get();
-            existingDevice.setLastSeen(LocalDateTime.now());
-            existingDevice.setIpAddress(fingerprint.getIpAddress()); // Update IP if changed
-            
-            log.info("Updated existing device fingerprint for user: {} with hash: {}", 
-                    userId, fingerprint.getFingerprintHash());
-            return deviceFingerprintRepository.save(existingDevice);
-        } else {
-            // Save new device
-            DeviceFingerprint saved = deviceFingerprintRepository.save(fingerprint);
+    public boolean registerDevice(String userId, DeviceFingerprint fingerprint) {
+        int affected = deviceFingerprintRepository.upsertDevice(
+                userId,
+                fingerprint.getBrowserType(),
+                fingerprint.getOperatingSystem(),
+                fingerprint.getDeviceType(),
+                fingerprint.getIpAddress(),
+                fingerprint.getFingerprintHash(),
+                LocalDateTime.now());
+        rememberDevice(userId, fingerprint.getFingerprintHash(), System.currentTimeMillis());
+
+        // MySQL: 1 = inserted, 2 = existing row updated
+        boolean inserted = affected == 1;
+        if (inserted) {
             log.info("Registered new device for user: {} with hash: {}", userId, fingerprint.getFingerprintHash());
-            return saved;
         }
+        return inserted;
+    }
+
+    /**
+     * Drop cached device state for a user, e.g. after their data is deleted or anonymized
+     */
+    public void forgetUser(String userId) {
+        knownDevices.remove(userId);
     }
 
     /**
@@ -113,8 +126,8 @@ public class DeviceFingerprintService {
      * Mark a device as trusted
      */
     public void trustDevice(String userId, String fingerprintHash) {
-        Optional<DeviceFingerprint> device = deviceFingerprintRepository.findByFingerprintHash(fingerprintHash);
-        if (device.isPresent() && device.get().getUserId().equals(userId)) {
+        Optional<DeviceFingerprint> device = deviceFingerprintRepository.findByUserIdAndFingerprintHash(userId, fingerprintHash);
+        if (device.isPresent()) {
             DeviceFingerprint deviceFingerprint = device.get();
             deviceFingerprint.setTrusted(true);
             deviceFingerprintRepository.save(deviceFingerprint);
@@ -126,8 +139,8 @@ public class DeviceFingerprintService {
      * Remove trust from a device
      */
     public void untrustDevice(String userId, String fingerprintHash) {
-        Optional<DeviceFingerprint> device = deviceFingerprintRepository.findByFingerprintHash(fingerprintHash);
-        if (device.isPresent() && device.get().getUserId().equals(userId)) {
+        Optional<DeviceFingerprint> device = deviceFingerprintRepository.findByUserIdAndFingerprintHash(userId, fingerprintHash);
+        if (device.isPresent()) {
             DeviceFingerprint deviceFingerprint = device.get();
             deviceFingerprint.setTrusted(false);
             deviceFingerprintRepository.save(deviceFingerprint);
@@ -144,14 +157,23 @@ public class DeviceFingerprintService {
     }
 
     /**
-     * Process device for login - register if new, update if existing
+     * Process device for login - register if new, update if existing.
+     * Devices already touched within the touch interval skip the database entirely.
+     * A new device is alerted to {@code userEmail}.
+     *
+     * @return true if this login came from a device not seen before
      */
-    public DeviceFingerprint processDeviceForLogin(String userId, HttpServletRequest request) {
+    public boolean processDeviceForLogin(String userId, String userEmail, HttpServletRequest request) {
         DeviceFingerprint fingerprint = createFingerprint(request, userId);
-        boolean isNewDevice = !isKnownDevice(userId, fingerprint);
-        
-        DeviceFingerprint savedDevice = registerDevice(userId, fingerprint);
-        
+
+        Map<String, Long> cached = knownDevices.get(userId);
+        Long lastTouched = cached != null ? cached.get(fingerprint.getFingerprintHash()) : null;
+        if (lastTouched != null && System.currentTimeMillis() - lastTouched < touchIntervalMillis) {
+            return false;
+        }
+
+        boolean isNewDevice = registerDevice(userId, fingerprint);
+
         if (isNewDevice) {
             // Log new device login event
             Map<String, Object> details = Map.of(
@@ -161,18 +183,51 @@ public class DeviceFingerprintService {
                 "fingerprintHash", fingerprint.getFingerprintHash()
             );
             securityAuditService.logSecurityEvent(SecurityEventType.NEW_DEVICE_LOGIN, userId, request, details);
-            
-            // Send new device alert email (assuming we have user email)
-            sendNewDeviceAlert(userId, fingerprint, request);
+
+            sendNewDeviceAlert(userId, userEmail, fingerprint, request);
         }
-        
-        return savedDevice;
+
+        return isNewDevice;
+    }
+
+    private void rememberDevice(String userId, String fingerprintHash, long now) {
+        knownDevices.computeIfAbsent(userId, id -> new ConcurrentHashMap<>()).put(fingerprintHash, now);
+    }
+
+    /**
+     * Parse the request headers into a device signature, reusing cached results for repeated header tuples
+     */
+    private DeviceSignature resolveSignature(HttpServletRequest request) {
+        String userAgent = nullToEmpty(request.getHeader("User-Agent"));
+        String acceptLanguage = nullToEmpty(request.getHeader("Accept-Language"));
+        String acceptEncoding = nullToEmpty(request.getHeader("Accept-Encoding"));
+
+        String key = userAgent + '\n' + acceptLanguage + '\n' + acceptEncoding;
+        return signatureCache.computeIfAbsent(key, k -> {
+            BrowserInfo browserInfo = parseBrowserInfo(userAgent);
+            String fingerprintData = new StringBuilder(userAgent.length() + acceptLanguage.length() + acceptEncoding.length() + 32)
+                    .append(userAgent).append('|')
+                    .append(acceptLanguage).append('|')
+                    .append(acceptEncoding).append('|')
+                    .append(browserInfo.getBrowser()).append('|')
+                    .append(browserInfo.getOperatingSystem())
+                    .toString();
+            return new DeviceSignature(browserInfo.getBrowser(), browserInfo.getOperatingSystem(),
+                    browserInfo.getDeviceType(), generateHash(fingerprintData));
+        });
+    }
+
+    private static String nullToEmpty(String value) {
+        return value != null ? value : "";
     }
 
     /**
      * Send new device alert email
      */
-    private void sendNewDeviceAlert(String userId, DeviceFingerprint fingerprint, HttpServletRequest request) {
+    private void sendNewDeviceAlert(String userId, String userEmail, DeviceFingerprint fingerprint, HttpServletRequest request) {
+        if (userEmail == null || userEmail.isBlank()) {
+            return;
+        }
         try {
             // Generate confirmation token
             String confirmationToken = UUID.randomUUID().toString();
@@ -180,9 +235,6 @@ public class DeviceFingerprintService {
             // Get location info
             String location = getLocationFromRequest(request);
             
-            // For now, we'll use userId as email (in real implementation, you'd fetch user email from database)
-            String userEmail = userId; // This should be replaced with actual email lookup
-            
             emailService.sendNewDeviceAlert(
                 userEmail,
                 fingerprint.getDeviceType() + " device",
@@ -284,23 +336,19 @@ public class DeviceFingerprintService {
         try {
             MessageDigest digest = MessageDigest.getInstance("SHA-256");
             byte[] hash = digest.digest(data.getBytes(StandardCharsets.UTF_8));
-            StringBuilder hexString = new StringBuilder();
-            
-            for (byte b : hash) {
-                String hex = Integer.toHexString(0xff & b);
-                if (hex.length() == 1) {
-                    hexString.append('0');
-                }
-                hexString.append(hex);
-            }
-            
-            return hexString.toString();
+            return HexFormat.of().formatHex(hash);
         } catch (NoSuchAlgorithmException e) {
             log.error("SHA-256 algorithm not available", e);
             return String.valueOf(data.hashCode()); // Fallback to simple hash
         }
     }
 
+    /**
+     * Parsed browser details plus the fingerprint hash derived from them
+     */
+    private record DeviceSignature(String browser, String operatingSystem, String deviceType, String fingerprintHash) {
+    }
+
     /**
      * Inner class to hold browser information
      */
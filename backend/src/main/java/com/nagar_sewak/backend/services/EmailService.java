@@ -1,21 +1,18 @@
 package com.nagar_sewak.backend.services;
 
+import com.nagar_sewak.backend.config.AsyncExecutorConfig;
 import com.nagar_sewak.backend.entities.*;
+import com.nagar_sewak.backend.mail.EmailQueue;
+import com.nagar_sewak.backend.mail.SecurityAlertSuppressor;
 import com.nagar_sewak.backend.repositories.EmailHistoryRepository;
-import jakarta.mail.MessagingException;
-import jakarta.mail.internet.MimeMessage;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.io.ByteArrayResource;
-import org.springframework.mail.javamail.JavaMailSender;
-import org.springframework.mail.javamail.MimeMessageHelper;
-import org.springframework.retry.annotation.Backoff;
-import org.springframework.retry.annotation.Retryable;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 
@@ -24,25 +21,23 @@ import java.util.concurrent.CompletableFuture;
 @Slf4j
 public class EmailService {
 
-    private final JavaMailSender mailSender;
+    private final EmailQueue emailQueue;
     private final EmailHistoryRepository emailHistoryRepository;
     private final EmailTemplateService emailTemplateService;
-
-    @Value("${app.email.from}")
-    private String fromEmail;
+    private final SecurityAlertSuppressor securityAlertSuppressor;
 
     @Value("${app.email.enabled:true}")
     private boolean emailEnabled;
 
-    @Value("${app.email.retry.maxAttempts:3}")
-    private int maxRetryAttempts;
-
     /**
-     * Send security alert email asynchronously
+     * Send security alert email asynchronously, unless {@link SecurityAlertSuppressor} holds it back for a summary
      */
-    @Async
+    @Async(AsyncExecutorConfig.EMAIL_EXECUTOR)
     public CompletableFuture<Boolean> sendSecurityAlert(String userEmail, String ipAddress, String location, 
                                                        LocalDateTime timestamp, String alertType) {
+        if (!securityAlertSuppressor.tryAcquire(userEmail, EmailTemplateType.SECURITY_ALERT, ipAddress)) {
+            return CompletableFuture.completedFuture(false);
+        }
         EmailTemplateService.EmailContent content = emailTemplateService.createSecurityAlert(
             userEmail, ipAddress, location, timestamp, alertType);
         
@@ -51,11 +46,14 @@ public class EmailService {
     }
 
     /**
-     * Send account locked notification email asynchronously
+     * Send account locked notification email asynchronously, unless suppressed
      */
-    @Async
+    @Async(AsyncExecutorConfig.EMAIL_EXECUTOR)
     public CompletableFuture<Boolean> sendAccountLockedAlert(String userEmail, String ipAddress, String location,
                                                            LocalDateTime lockTime, long lockDurationMinutes) {
+        if (!securityAlertSuppressor.tryAcquire(userEmail, EmailTemplateType.ACCOUNT_LOCKED, ipAddress)) {
+            return CompletableFuture.completedFuture(false);
+        }
         EmailTemplateService.EmailContent content = emailTemplateService.createAccountLockedAlert(
             userEmail, ipAddress, location, lockTime, lockDurationMinutes);
         
@@ -64,12 +62,15 @@ public class EmailService {
     }
 
     /**
-     * Send new device login alert email asynchronously
+     * Send new device login alert email asynchronously, unless suppressed
      */
-    @Async
+    @Async(AsyncExecutorConfig.EMAIL_EXECUTOR)
     public CompletableFuture<Boolean> sendNewDeviceAlert(String userEmail, String deviceInfo, String browserType,
                                                         String operatingSystem, String ipAddress, String location,
                                                         LocalDateTime loginTime, String confirmationToken) {
+        if (!securityAlertSuppressor.tryAcquire(userEmail, EmailTemplateType.NEW_DEVICE_LOGIN, ipAddress)) {
+            return CompletableFuture.completedFuture(false);
+        }
         EmailTemplateService.EmailContent content = emailTemplateService.createNewDeviceAlert(
             userEmail, deviceInfo, browserType, operatingSystem, ipAddress, location, loginTime, confirmationToken);
         
@@ -80,7 +81,7 @@ public class EmailService {
     /**
      * Send password reset email asynchronously
      */
-    @Async
+    @Async(AsyncExecutorConfig.EMAIL_EXECUTOR)
     public CompletableFuture<Boolean> sendPasswordResetEmail(String userEmail, String resetToken, String userName) {
         EmailTemplateService.EmailContent content = emailTemplateService.createPasswordResetEmail(
             userEmail, resetToken, userName);
@@ -90,114 +91,58 @@ public class EmailService {
     }
 
     /**
-     * Send HTML email with history tracking and retry mechanism
+     * Queue an HTML email; failed sends are retried from the queue by {@link com.nagar_sewak.backend.mail.EmailRetryWorker}
      */
-    @Async
-    @Retryable(value = {MessagingException.class}, maxAttempts = 3, backoff = @Backoff(delay = 1000, multiplier = 2))
+    @Async(AsyncExecutorConfig.EMAIL_EXECUTOR)
     public CompletableFuture<Boolean> sendEmailWithHistory(String to, String subject, String htmlBody, 
                                                           EmailTemplateType templateType) {
-        // Create email history record
-        EmailHistory emailHistory = EmailHistory.builder()
-                .recipientEmail(to)
-                .subject(subject)
-                .templateType(templateType)
-                .status(EmailStatus.PENDING)
-                .build();
-        
-        emailHistory = emailHistoryRepository.save(emailHistory);
-
-        if (!emailEnabled) {
-            log.info("Email sending is disabled. Would have sent email to: {}", to);
-            emailHistory.setStatus(EmailStatus.SENT);
-            emailHistoryRepository.save(emailHistory);
-            return CompletableFuture.completedFuture(true);
-        }
+        return CompletableFuture.completedFuture(queueEmail(to, subject, htmlBody, templateType));
+    }
 
+    /**
+     * Queue an HTML email for the queue worker; returns false if it could not be queued
+     */
+    public boolean queueEmail(String to, String subject, String htmlBody, EmailTemplateType templateType) {
         try {
-            MimeMessage message = mailSender.createMimeMessage();
-            MimeMessageHelper helper = new MimeMessageHelper(message, false, "UTF-8");
-            
-            helper.setFrom(fromEmail);
-            helper.setTo(to);
-            helper.setSubject(subject);
-            helper.setText(htmlBody, true);
-            
-            mailSender.send(message);
-            
-            // Update history as sent
-            emailHistory.setStatus(EmailStatus.SENT);
-            emailHistoryRepository.save(emailHistory);
-            
-            log.info("Email sent successfully to: {} with template type: {}", to, templateType);
-            return CompletableFuture.completedFuture(true);
-            
-        } catch (MessagingException e) {
-            // Update history as failed
-            emailHistory.setStatus(EmailStatus.FAILED);
-            emailHistory.setErrorMessage(e.getMessage());
-            emailHistory.setRetryCount(emailHistory.getRetryCount() + 1);
-            emailHistory.setLastRetryAt(LocalDateTime.now());
-            emailHistoryRepository.save(emailHistory);
-            
-            log.error("Failed to send email to: {} with template type: {}", to, templateType, e);
-            return CompletableFuture.completedFuture(false);
+            emailQueue.enqueue(new EmailQueue.QueuedEmail(to, subject, htmlBody, templateType));
+            return true;
+        } catch (Exception e) {
+            log.error("Failed to queue email to: {} with template type: {}", to, templateType, e);
+            return false;
         }
     }
 
-    @Async
+    @Async(AsyncExecutorConfig.EMAIL_EXECUTOR)
     public void sendSimpleEmail(String to, String subject, String body) {
         sendEmailWithHistory(to, subject, body, null);
     }
 
-    @Async
+    @Async(AsyncExecutorConfig.EMAIL_EXECUTOR)
     public void sendHtmlEmail(String to, String subject, String htmlBody) {
         sendEmailWithHistory(to, subject, htmlBody, null);
     }
 
-    @Async
+    @Async(AsyncExecutorConfig.EMAIL_EXECUTOR)
     public void sendEmailWithAttachment(String to, String subject, String htmlBody, 
                                        byte[] attachment, String attachmentName) {
-        if (!emailEnabled) {
-            log.info("Email sending is disabled. Would have sent email with attachment to: {}", to);
-            return;
-        }
-
-        try {
-            MimeMessage message = mailSender.createMimeMessage();
-            MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
-            
-            helper.setFrom(fromEmail);
-            helper.setTo(to);
-            helper.setSubject(subject);
-            helper.setText(htmlBody, true);
-            
-            if (attachment != null && attachment.length > 0) {
-                helper.addAttachment(attachmentName, new ByteArrayResource(attachment));
-            }
-            
-            mailSender.send(message);
-            log.info("Email with attachment sent successfully to: {}", to);
-        } catch (MessagingException e) {
-            log.error("Failed to send email with attachment to: {}", to, e);
-        }
+        queueEmailWithAttachment(to, subject, htmlBody, attachment, attachmentName);
     }
 
     /**
-     * Retry failed emails
+     * Queue an email with an optional attachment; the attachment content is stored once and shared
+     * by every queued email that carries the same file
      */
-    @Async
-    public void retryFailedEmails() {
-        List<EmailHistory> failedEmails = emailHistoryRepository.findFailedEmailsForRetry(maxRetryAttempts);
-        
-        for (EmailHistory emailHistory : failedEmails) {
-            if (emailHistory.getRetryCount() < maxRetryAttempts) {
-                log.info("Retrying email to: {} (attempt {})", emailHistory.getRecipientEmail(), 
-                        emailHistory.getRetryCount() + 1);
-                
-                // For retry, we'll use a simple HTML email since we don't have the original template variables
-                sendEmailWithHistory(emailHistory.getRecipientEmail(), emailHistory.getSubject(), 
-                                   "This is a retry of a previously failed email.", emailHistory.getTemplateType());
-            }
+    public boolean queueEmailWithAttachment(String to, String subject, String htmlBody,
+                                            byte[] attachment, String attachmentName) {
+        try {
+            Long attachmentId = attachment != null && attachment.length > 0
+                    ? emailQueue.storeAttachment(attachment, attachmentName)
+                    : null;
+            emailQueue.enqueue(new EmailQueue.QueuedEmail(to, subject, htmlBody, null, attachmentId));
+            return true;
+        } catch (Exception e) {
+            log.error("Failed to queue email with attachment to: {}", to, e);
+            return false;
         }
     }
 
@@ -219,16 +164,18 @@ public class EmailService {
         return emailHistoryRepository.findTop100ByOrderBySentAtDesc();
     }
 
-    @Async
+    @Async(AsyncExecutorConfig.EMAIL_EXECUTOR)
     public void sendBulkEmail(String[] recipients, String subject, String htmlBody) {
         if (!emailEnabled) {
             log.info("Email sending is disabled. Would have sent bulk email to {} recipients", recipients.length);
             return;
         }
 
+        List<EmailQueue.QueuedEmail> emails = new ArrayList<>(recipients.length);
         for (String recipient : recipients) {
-            sendHtmlEmail(recipient, subject, htmlBody);
+            emails.add(new EmailQueue.QueuedEmail(recipient, subject, htmlBody, null));
         }
+        emailQueue.enqueueAll(emails);
     }
 
     /**
@@ -3,77 +3,177 @@ package com.nagar_sewak.backend.services;
 import com.nagar_sewak.backend.entities.EmailTemplate;
 import com.nagar_sewak.backend.entities.EmailTemplateType;
 import com.nagar_sewak.backend.repositories.EmailTemplateRepository;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ResourceLoader;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.thymeleaf.TemplateEngine;
 import org.thymeleaf.context.Context;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Optional;
-
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Renders emails. The active {@link EmailTemplate} rows are loaded with one query into an immutable set
+ * keyed by (type, language), with each subject compiled into literal and placeholder segments and each
+ * template's view checked once; rendering then needs no queries. The set is reloaded after
+ * {@link #invalidateTemplates()} or once it is older than the refresh interval. All HTML, including the
+ * notification emails that used to be formatted inline, comes from Thymeleaf views under
+ * {@code templates/email}, which the engine parses once and caches.
+ */
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class EmailTemplateService {
 
-    private final EmailTemplateRepository emailTemplateRepository;
-    private final TemplateEngine templateEngine;
+    private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private static final String DEFAULT_LANGUAGE = "en";
+
+    /**
+     * A subject line split once into literal text and {@code ${name}} placeholders
+     */
+    static final class SubjectTemplate {
 
-    @Value("${app.name:Nagar Sewak}")
-    private String appName;
+        private final String[] literals;
+        private final String[] placeholders;
 
-    @Value("${app.url:http://localhost:3000}")
-    private String appUrl;
+        private SubjectTemplate(String[] literals, String[] placeholders) {
+            this.literals = literals;
+            this.placeholders = placeholders;
+        }
 
-    @Value("${app.support.email:support@nagarsewak.com}")
-    private String supportEmail;
+        static SubjectTemplate compile(String subject) {
+            List<String> literals = new ArrayList<>();
+            List<String> placeholders = new ArrayList<>();
+            int from = 0;
+            while (true) {
+                int open = subject.indexOf("${", from);
+                int close = open < 0 ? -1 : subject.indexOf('}', open + 2);
+                if (close < 0) {
+                    literals.add(subject.substring(from));
+                    break;
+                }
+                literals.add(subject.substring(from, open));
+                placeholders.add(subject.substring(open + 2, close));
+                from = close + 1;
+            }
+            return new SubjectTemplate(literals.toArray(String[]::new), placeholders.toArray(String[]::new));
+        }
+
+        /**
+         * Fill the placeholders from {@code variables}, then {@code common}; unknown ones are left as written
+         */
+        String render(Map<String, Object> variables, Map<String, Object> common) {
+            if (placeholders.length == 0) {
+                return literals[0];
+            }
+            StringBuilder subject = new StringBuilder(64);
+            for (int i = 0; i < placeholders.length; i++) {
+                subject.append(literals[i]);
+                Object value = variables != null ? variables.get(placeholders[i]) : null;
+                if (value == null) {
+                    value = common.get(placeholders[i]);
+                }
+                if (value != null) {
+                    subject.append(value);
+                } else {
+                    subject.append("${").append(placeholders[i]).append('}');
+                }
+            }
+            return subject.append(literals[placeholders.length]).toString();
+        }
+    }
+
+    private record TemplateKey(EmailTemplateType type, String language) {
+    }
+
+    private record CompiledTemplate(SubjectTemplate subject, String view) {
+    }
+
+    /**
+     * Immutable snapshot of the active templates; {@code fallbacks} holds each type's English
+     * template, or else its first by language
+     */
+    private record TemplateSet(Map<TemplateKey, CompiledTemplate> templates,
+                               Map<EmailTemplateType, CompiledTemplate> fallbacks,
+                               long generation, long expiresAt) {
+
+        CompiledTemplate resolve(EmailTemplateType type, String language) {
+            CompiledTemplate template = templates.get(new TemplateKey(type, language));
+            return template != null ? template : fallbacks.get(type);
+        }
+    }
+
+    private final EmailTemplateRepository emailTemplateRepository;
+    private final TemplateEngine templateEngine;
+    private final ResourceLoader resourceLoader;
+    private final String appName;
+    private final String appUrl;
+    private final String supportEmail;
+    private final String uploadsUrl;
+    private final String viewPrefix;
+    private final String viewSuffix;
+    private final long refreshNanos;
+
+    private volatile TemplateSet templateSet;
+
+    /** Bumped on every invalidation; a load that overlapped one is used once but not kept */
+    private final AtomicLong generation = new AtomicLong();
+
+    public EmailTemplateService(EmailTemplateRepository emailTemplateRepository,
+                                TemplateEngine templateEngine,
+                                ResourceLoader resourceLoader,
+                                @Value("${app.name:Nagar Sewak}") String appName,
+                                @Value("${app.url:http://localhost:3000}") String appUrl,
+                                @Value("${app.support.email:support@nagarsewak.com}") String supportEmail,
+                                @Value("${app.uploads-url:http://localhost:8080/uploads}") String uploadsUrl,
+                                @Value("${spring.thymeleaf.prefix:classpath:/templates/}") String viewPrefix,
+                                @Value("${spring.thymeleaf.suffix:.html}") String viewSuffix,
+                                @Value("${app.email.templates.refresh-ms:300000}") long refreshMs) {
+        this.emailTemplateRepository = emailTemplateRepository;
+        this.templateEngine = templateEngine;
+        this.resourceLoader = resourceLoader;
+        this.appName = appName;
+        this.appUrl = appUrl;
+        this.supportEmail = supportEmail;
+        this.uploadsUrl = uploadsUrl;
+        this.viewPrefix = viewPrefix;
+        this.viewSuffix = viewSuffix;
+        this.refreshNanos = TimeUnit.MILLISECONDS.toNanos(refreshMs);
+    }
 
     /**
      * Render email template with variables
      */
     public String renderTemplate(EmailTemplateType type, Map<String, Object> variables) {
-        return renderTemplate(type, variables, "en");
+        return renderTemplate(type, variables, DEFAULT_LANGUAGE);
     }
 
     /**
      * Render email template with variables and language
      */
     public String renderTemplate(EmailTemplateType type, Map<String, Object> variables, String language) {
-        EmailTemplate template = getTemplate(type, language);
-        if (template == null) {
-            log.error("No template found for type: {} and language: {}", type, language);
-            return getDefaultTemplate(type, variables);
+        CompiledTemplate template = templates().resolve(type, language);
+        String view = template != null && template.view() != null ? template.view() : defaultView(type);
+        Map<String, Object> context = new HashMap<>();
+        context.put("templateName", type.name().replace("_", " "));
+        if (variables != null) {
+            context.putAll(variables);
         }
-
         try {
-            // Create Thymeleaf context
-            Context context = new Context();
-            
-            // Add common variables
-            context.setVariable("appName", appName);
-            context.setVariable("appUrl", appUrl);
-            context.setVariable("supportEmail", supportEmail);
-            context.setVariable("currentYear", LocalDateTime.now().getYear());
-            context.setVariable("timestamp", LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")));
-            
-            // Add custom variables
-            if (variables != null) {
-                variables.forEach(context::setVariable);
-            }
-
-            // Process template - use template name directly for file-based templates
-            String templateName = template.getHtmlContent();
-            if (!templateName.startsWith("email/")) {
-                templateName = "email/" + templateName;
-            }
-            return templateEngine.process(templateName, context);
+            return renderView(view, context);
         } catch (Exception e) {
             log.error("Error rendering template for type: {} and language: {}", type, language, e);
-            return getDefaultTemplate(type, variables);
+            return renderView(defaultView(type), context);
         }
     }
 
@@ -81,31 +181,68 @@ public class EmailTemplateService {
      * Get template subject with variable substitution
      */
     public String renderSubject(EmailTemplateType type, Map<String, Object> variables) {
-        return renderSubject(type, variables, "en");
+        return renderSubject(type, variables, DEFAULT_LANGUAGE);
     }
 
     /**
      * Get template subject with variable substitution and language
      */
     public String renderSubject(EmailTemplateType type, Map<String, Object> variables, String language) {
-        EmailTemplate template = getTemplate(type, language);
+        CompiledTemplate template = templates().resolve(type, language);
         if (template == null) {
             return getDefaultSubject(type);
         }
+        return template.subject().render(variables, commonVariables());
+    }
 
-        String subject = template.getSubject();
-        
-        // Simple variable substitution for subject
+    /**
+     * Render a view under {@code templates/} with the common variables (appName, appUrl, supportEmail,
+     * currentYear, timestamp) plus {@code variables}
+     */
+    public String renderView(String view, Map<String, Object> variables) {
+        Context context = new Context();
+        context.setVariables(commonVariables());
         if (variables != null) {
-            for (Map.Entry<String, Object> entry : variables.entrySet()) {
-                String placeholder = "${" + entry.getKey() + "}";
-                if (subject.contains(placeholder)) {
-                    subject = subject.replace(placeholder, String.valueOf(entry.getValue()));
+            context.setVariables(variables);
+        }
+        return templateEngine.process(view, context);
+    }
+
+    /**
+     * The standard notification email; {@code message} is plain text
+     */
+    public String renderNotificationEmail(String title, String message, String actionUrl) {
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("title", title);
+        variables.put("message", message);
+        variables.put("actionUrl", actionUrl);
+        return renderView("email/notification", variables);
+    }
+
+    /**
+     * The standard notification email around a body that is already HTML, escaped by the caller
+     */
+    public String renderNotificationEmailHtml(String title, String messageHtml, String actionUrl) {
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("title", title);
+        variables.put("messageHtml", messageHtml);
+        variables.put("actionUrl", actionUrl);
+        return renderView("email/notification", variables);
+    }
+
+    /**
+     * Drop the loaded templates now and again once the current transaction completes
+     */
+    public void invalidateTemplates() {
+        evictTemplates();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    evictTemplates();
                 }
-            }
+            });
         }
-        
-        return subject;
     }
 
     /**
@@ -117,7 +254,7 @@ public class EmailTemplateService {
             "userEmail", userEmail,
             "ipAddress", ipAddress,
             "location", location,
-            "alertTimestamp", timestamp.format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")),
+            "alertTimestamp", timestamp.format(TIMESTAMP_FORMAT),
             "alertType", alertType
         );
 
@@ -136,9 +273,9 @@ public class EmailTemplateService {
             "userEmail", userEmail,
             "ipAddress", ipAddress,
             "location", location,
-            "lockTimestamp", lockTime.format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")),
+            "lockTimestamp", lockTime.format(TIMESTAMP_FORMAT),
             "lockDurationMinutes", lockDurationMinutes,
-            "unlockTime", lockTime.plusMinutes(lockDurationMinutes).format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"))
+            "unlockTime", lockTime.plusMinutes(lockDurationMinutes).format(TIMESTAMP_FORMAT)
         );
 
         String subject = renderSubject(EmailTemplateType.ACCOUNT_LOCKED, variables);
@@ -160,7 +297,7 @@ public class EmailTemplateService {
             "operatingSystem", operatingSystem,
             "ipAddress", ipAddress,
             "location", location,
-            "loginTimestamp", loginTime.format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")),
+            "loginTimestamp", loginTime.format(TIMESTAMP_FORMAT),
             "confirmationToken", confirmationToken,
             "confirmUrl", appUrl + "/auth/confirm-device?token=" + confirmationToken,
             "secureAccountUrl", appUrl + "/auth/secure-account?token=" + confirmationToken
@@ -190,46 +327,81 @@ public class EmailTemplateService {
         return new EmailContent(subject, content);
     }
 
-    /**
-     * Get template by type and language
-     */
-    private EmailTemplate getTemplate(EmailTemplateType type, String language) {
-        // Try to find template for specific language
-        Optional<EmailTemplate> template = emailTemplateRepository.findByTypeAndLanguageAndActiveTrue(type, language);
-        
-        if (template.isPresent()) {
-            return template.get();
+    private TemplateSet templates() {
+        TemplateSet current = templateSet;
+        if (current != null && current.generation() == generation.get() && System.nanoTime() - current.expiresAt() < 0) {
+            return current;
         }
+        return loadTemplates();
+    }
 
-        // Fallback to default language (English)
-        if (!"en".equals(language)) {
-            template = emailTemplateRepository.findByTypeAndLanguageAndActiveTrue(type, "en");
-            if (template.isPresent()) {
-                return template.get();
+    private TemplateSet loadTemplates() {
+        long startGeneration = generation.get();
+        Map<TemplateKey, CompiledTemplate> templates = new HashMap<>();
+        Map<EmailTemplateType, CompiledTemplate> fallbacks = new HashMap<>();
+        Map<String, String> views = new HashMap<>();
+        List<EmailTemplate> rows = new ArrayList<>(emailTemplateRepository.findByActiveTrue());
+        rows.sort(Comparator.comparing(row -> row.getLanguage() != null ? row.getLanguage() : ""));
+        for (EmailTemplate row : rows) {
+            String language = row.getLanguage() != null ? row.getLanguage() : DEFAULT_LANGUAGE;
+            CompiledTemplate template = new CompiledTemplate(SubjectTemplate.compile(row.getSubject()),
+                    views.computeIfAbsent(row.getHtmlContent(), this::existingView));
+            templates.putIfAbsent(new TemplateKey(row.getType(), language), template);
+            if (DEFAULT_LANGUAGE.equals(language)) {
+                fallbacks.put(row.getType(), template);
+            } else {
+                fallbacks.putIfAbsent(row.getType(), template);
             }
         }
-
-        // Fallback to any active template of this type
-        template = emailTemplateRepository.findByTypeAndActiveTrueOrderByLanguageAsc(type);
-        return template.orElse(null);
+        TemplateSet loaded = new TemplateSet(Map.copyOf(templates), Map.copyOf(fallbacks), startGeneration,
+                System.nanoTime() + refreshNanos);
+        if (generation.get() == startGeneration) {
+            templateSet = loaded;
+        }
+        log.debug("Loaded {} active email templates", templates.size());
+        return loaded;
     }
 
     /**
-     * Get default template content when no template is found
+     * The view a template row names, or null if there is no such file (its type's built-in view is used)
      */
-    private String getDefaultTemplate(EmailTemplateType type, Map<String, Object> variables) {
-        switch (type) {
-            case SECURITY_ALERT:
-                return createDefaultSecurityAlert(variables);
-            case ACCOUNT_LOCKED:
-                return createDefaultAccountLocked(variables);
-            case NEW_DEVICE_LOGIN:
-                return createDefaultNewDeviceAlert(variables);
-            case PASSWORD_RESET:
-                return createDefaultPasswordReset(variables);
-            default:
-                return createGenericTemplate(type, variables);
+    private String existingView(String name) {
+        String view = name.startsWith("email/") ? name : "email/" + name;
+        if (!resourceLoader.getResource(viewPrefix + view + viewSuffix).exists()) {
+            log.warn("Email template view {} does not exist; the built-in view is used instead", view);
+            return null;
         }
+        return view;
+    }
+
+    private void evictTemplates() {
+        generation.incrementAndGet();
+        templateSet = null;
+    }
+
+    private Map<String, Object> commonVariables() {
+        LocalDateTime now = LocalDateTime.now();
+        Map<String, Object> common = new HashMap<>();
+        common.put("appName", appName);
+        common.put("appUrl", appUrl);
+        common.put("supportEmail", supportEmail);
+        common.put("uploadsUrl", uploadsUrl);
+        common.put("currentYear", now.getYear());
+        common.put("timestamp", now.format(TIMESTAMP_FORMAT));
+        return common;
+    }
+
+    /**
+     * Built-in view for a type with no usable template row
+     */
+    private static String defaultView(EmailTemplateType type) {
+        return switch (type) {
+            case SECURITY_ALERT -> "email/security-alert";
+            case ACCOUNT_LOCKED -> "email/account-locked";
+            case NEW_DEVICE_LOGIN -> "email/new-device-login";
+            case PASSWORD_RESET -> "email/password-reset";
+            default -> "email/generic";
+        };
     }
 
     /**
@@ -250,148 +422,6 @@ public class EmailTemplateService {
         }
     }
 
-    private String createDefaultSecurityAlert(Map<String, Object> variables) {
-        return String.format("""
-            <html>
-            <body>
-                <h2>Security Alert</h2>
-                <p>We detected suspicious activity on your %s account.</p>
-                <p><strong>Details:</strong></p>
-                <ul>
-                    <li>Time: %s</li>
-                    <li>IP Address: %s</li>
-                    <li>Location: %s</li>
-                </ul>
-                <p>If this was not you, please contact support immediately at %s</p>
-                <p>Best regards,<br>%s Team</p>
-            </body>
-            </html>
-            """, 
-            appName,
-            variables.get("alertTimestamp"),
-            variables.get("ipAddress"),
-            variables.get("location"),
-            supportEmail,
-            appName
-        );
-    }
-
-    private String createDefaultAccountLocked(Map<String, Object> variables) {
-        return String.format("""
-            <html>
-            <body>
-                <h2>Account Temporarily Locked</h2>
-                <p>Your %s account has been temporarily locked due to multiple failed login attempts.</p>
-                <p><strong>Details:</strong></p>
-                <ul>
-                    <li>Lock Time: %s</li>
-                    <li>Duration: %s minutes</li>
-                    <li>Unlock Time: %s</li>
-                </ul>
-                <p>If you did not attempt to log in, please contact support at %s</p>
-                <p>Best regards,<br>%s Team</p>
-            </body>
-            </html>
-            """,
-            appName,
-            variables.get("lockTimestamp"),
-            variables.get("lockDurationMinutes"),
-            variables.get("unlockTime"),
-            supportEmail,
-            appName
-        );
-    }
-
-    private String createDefaultNewDeviceAlert(Map<String, Object> variables) {
-        return String.format("""
-            <html>
-            <body>
-                <h2>New Device Login Detected</h2>
-                <p>We detected a login to your %s account from a new device.</p>
-                <p><strong>Device Details:</strong></p>
-                <ul>
-                    <li>Browser: %s</li>
-                    <li>Operating System: %s</li>
-                    <li>IP Address: %s</li>
-                    <li>Location: %s</li>
-                    <li>Time: %s</li>
-                </ul>
-                <p>Was this you?</p>
-                <p>
-                    <a href="%s" style="background-color: #4CAF50; color: white; padding: 10px 20px; text-decoration: none; border-radius: 4px;">Yes, it was me</a>
-                    <a href="%s" style="background-color: #f44336; color: white; padding: 10px 20px; text-decoration: none; border-radius: 4px; margin-left: 10px;">No, secure my account</a>
-                </p>
-                <p>Best regards,<br>%s Team</p>
-            </body>
-            </html>
-            """,
-            appName,
-            variables.get("browserType"),
-            variables.get("operatingSystem"),
-            variables.get("ipAddress"),
-            variables.get("location"),
-            variables.get("loginTimestamp"),
-            variables.get("confirmUrl"),
-            variables.get("secureAccountUrl"),
-            appName
-        );
-    }
-
-    private String createDefaultPasswordReset(Map<String, Object> variables) {
-        return String.format("""
-            <html>
-            <body style="font-family: Arial, sans-serif; line-height: 1.6; color: #333;">
-                <div style="max-width: 600px; margin: 0 auto; padding: 20px;">
-                    <h2 style="color: #1e3a8a; margin-bottom: 20px;">Password Reset Request</h2>
-                    <p>Hello %s,</p>
-                    <p>We received a request to reset your password for your %s account.</p>
-                    <p>Click the button below to reset your password:</p>
-                    <div style="text-align: center; margin: 30px 0;">
-                        <a href="%s" style="background-color: #1e3a8a; color: white; padding: 12px 30px; text-decoration: none; border-radius: 6px; display: inline-block; font-weight: bold;">Reset Password</a>
-                    </div>
-                    <p>Or copy and paste this link into your browser:</p>
-                    <p style="word-break: break-all; background-color: #f5f5f5; padding: 10px; border-radius: 4px;">%s</p>
-                    <p><strong>This link will expire in %s.</strong></p>
-                    <p>If you didn't request this password reset, please ignore this email or contact support if you have concerns.</p>
-                    <hr style="margin: 30px 0; border: none; border-top: 1px solid #eee;">
-                    <p style="font-size: 12px; color: #666;">
-                        For security reasons, this link will only work once and will expire after %s.<br>
-                        If you need help, contact us at %s
-                    </p>
-                    <p>Best regards,<br><strong>%s Team</strong></p>
-                </div>
-            </body>
-            </html>
-            """,
-            variables.get("userName"),
-            appName,
-            variables.get("resetUrl"),
-            variables.get("resetUrl"),
-            variables.get("expiryTime"),
-            variables.get("expiryTime"),
-            supportEmail,
-            appName
-        );
-    }
-
-    private String createGenericTemplate(EmailTemplateType type, Map<String, Object> variables) {
-        return String.format("""
-            <html>
-            <body>
-                <h2>%s Notification</h2>
-                <p>This is a notification from %s.</p>
-                <p>If you have any questions, please contact support at %s</p>
-                <p>Best regards,<br>%s Team</p>
-            </body>
-            </html>
-            """,
-            type.name().replace("_", " "),
-            appName,
-            supportEmail,
-            appName
-        );
-    }
-
     /**
      * Inner class to hold email content
      */
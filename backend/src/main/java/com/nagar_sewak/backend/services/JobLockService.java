@@ -0,0 +1,60 @@
+package com.nagar_sewak.backend.services;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.lang.management.ManagementFactory;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Lease-based locks in the job_locks table for scheduled jobs that must not run on two replicas
+ * at once. A lock is taken by moving an expired lease forward (or inserting the row the first
+ * time) and released by ending the lease early; a holder that dies simply lets it expire.
+ */
+@Service
+@Slf4j
+public class JobLockService {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String owner;
+
+    public JobLockService(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.owner = ManagementFactory.getRuntimeMXBean().getName() + "/" + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    /**
+     * Take the lock for at most {@code leaseFor}; false if another holder's lease is still running
+     */
+    public boolean tryLock(String name, Duration leaseFor) {
+        LocalDateTime now = LocalDateTime.now();
+        Timestamp until = Timestamp.valueOf(now.plus(leaseFor));
+        int taken = jdbcTemplate.update(
+                "UPDATE job_locks SET locked_until = ?, locked_at = ?, locked_by = ? WHERE name = ? AND locked_until <= ?",
+                until, Timestamp.valueOf(now), owner, name, Timestamp.valueOf(now));
+        if (taken > 0) {
+            return true;
+        }
+        try {
+            jdbcTemplate.update("INSERT INTO job_locks (name, locked_until, locked_at, locked_by) VALUES (?, ?, ?, ?)",
+                    name, until, Timestamp.valueOf(now), owner);
+            return true;
+        } catch (DataIntegrityViolationException e) {
+            log.debug("Job lock {} is held elsewhere", name);
+            return false;
+        }
+    }
+
+    /**
+     * End this node's lease early so the next run anywhere can start on time
+     */
+    public void unlock(String name) {
+        jdbcTemplate.update("UPDATE job_locks SET locked_until = ? WHERE name = ? AND locked_by = ?",
+                Timestamp.valueOf(LocalDateTime.now()), name, owner);
+    }
+}
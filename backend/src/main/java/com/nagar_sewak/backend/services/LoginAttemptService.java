@@ -1,5 +1,6 @@
 package com.nagar_sewak.backend.services;
 
+import com.nagar_sewak.backend.anomaly.LoginAnomalyDetector;
 import com.nagar_sewak.backend.entities.LoginAttempt;
 import com.nagar_sewak.backend.entities.SecurityEventType;
 import com.nagar_sewak.backend.repositories.LoginAttemptRepository;
@@ -23,6 +24,7 @@ public class LoginAttemptService {
     private final RedisTemplate<String, Object> redisTemplate;
     private final SecurityAuditService securityAuditService;
     private final EmailService emailService;
+    private final LoginAnomalyDetector loginAnomalyDetector;
 
     private static final int MAX_ATTEMPTS = 5;
     private static final int LOCK_DURATION_MINUTES = 15;
@@ -64,6 +66,7 @@ public class LoginAttemptService {
                 .build();
         
         loginAttemptRepository.save(attempt);
+        loginAnomalyDetector.onLoginFailure(normalizedEmail, ipAddress);
         
         int newAttempts = 1;
         try {
@@ -116,6 +119,7 @@ public class LoginAttemptService {
                 .build();
         
         loginAttemptRepository.save(attempt);
+        loginAnomalyDetector.onLoginSuccess(normalizedEmail, ipAddress);
         
         // Reset failed attempts counter
         resetFailedAttempts(normalizedEmail);
@@ -0,0 +1,91 @@
+package com.nagar_sewak.backend.services;
+
+import com.nagar_sewak.backend.entities.Notification;
+import com.nagar_sewak.backend.entities.NotificationType;
+import com.nagar_sewak.backend.repositories.NotificationRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Folds repeat notifications into one. Events of a coalescing type for the same user and target
+ * (the group key, by default the action URL) that arrive while an earlier one is still unread and
+ * younger than the window update that notification's message and occurrence count instead of
+ * inserting another row. The caller holds the user's row lock, so concurrent events for one user
+ * run one at a time: each either adds exactly one occurrence to the locked target row or, when there
+ * is none yet, is the only one to open the group.
+ */
+@Component
+@Slf4j
+public class NotificationCoalescer {
+
+    private final NotificationRepository notificationRepository;
+    private final long windowSeconds;
+    private final Set<NotificationType> types;
+
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong opened = new AtomicLong();
+
+    public NotificationCoalescer(NotificationRepository notificationRepository,
+                                 @Value("${app.notifications.coalesce.window-seconds:900}") long windowSeconds,
+                                 @Value("${app.notifications.coalesce.types:COMMENT,MENTION,COMPLAINT_COMMENTED,COMPLAINT_STATUS_CHANGED}")
+                                 List<NotificationType> types) {
+        this.notificationRepository = notificationRepository;
+        this.windowSeconds = windowSeconds;
+        this.types = types.isEmpty() ? EnumSet.noneOf(NotificationType.class) : EnumSet.copyOf(types);
+    }
+
+    /**
+     * Key to coalesce the notification on, or null if it always gets its own row
+     */
+    public String groupKey(NotificationService.NotificationDTO dto) {
+        if (windowSeconds <= 0 || !types.contains(dto.getType())) {
+            return null;
+        }
+        return dto.getGroupKey() != null ? dto.getGroupKey() : dto.getActionUrl();
+    }
+
+    /**
+     * Add an occurrence to the user's open notification for the key, if any. Returns the updated
+     * notification, or null when a new one should be created. Must run inside a transaction that
+     * holds the user's row lock ({@code UserRepository.findByIdForUpdate}).
+     */
+    public Notification coalesce(Long userId, NotificationType type, String groupKey, String message) {
+        if (groupKey == null) {
+            return null;
+        }
+        LocalDateTime since = LocalDateTime.now().minusSeconds(windowSeconds);
+        List<Notification> candidates = notificationRepository.findCoalesceTargetForUpdate(userId, type, groupKey, since,
+                PageRequest.of(0, 1));
+        if (candidates.isEmpty()) {
+            opened.incrementAndGet();
+            return null;
+        }
+
+        Notification target = candidates.get(0);
+        target.setOccurrenceCount(target.getOccurrenceCount() + 1);
+        target.setMessage(message);
+        coalesced.incrementAndGet();
+        log.debug("Coalesced {} for user {} into notification {} ({} occurrences)",
+                type, userId, target.getId(), target.getOccurrenceCount());
+        return target;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("windowSeconds", windowSeconds);
+        stats.put("types", types);
+        stats.put("groupsOpened", opened.get());
+        stats.put("coalesced", coalesced.get());
+        return stats;
+    }
+}
@@ -0,0 +1,152 @@
+package com.nagar_sewak.backend.services;
+
+import com.nagar_sewak.backend.entities.EmailDigestFrequency;
+import com.nagar_sewak.backend.entities.EmailTemplateType;
+import com.nagar_sewak.backend.entities.Notification;
+import com.nagar_sewak.backend.entities.User;
+import com.nagar_sewak.backend.repositories.NotificationRepository;
+import com.nagar_sewak.backend.repositories.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.util.HtmlUtils;
+
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sends one email per user listing the notifications held back for their digest
+ * ({@code emailPending} rows, written for users on HOURLY or DAILY digests). Hourly users are
+ * sent every run, daily users on the run in the configured hour. A user's rows are claimed
+ * with one update before sending, so two nodes running the job cannot both send the same
+ * digest, and are put back if the digest cannot be queued.
+ */
+@Service
+@Slf4j
+public class NotificationDigestService {
+
+    private final NotificationRepository notificationRepository;
+    private final UserRepository userRepository;
+    private final EmailService emailService;
+    private final EmailTemplateService emailTemplateService;
+    private final int dailyHour;
+    private final int batchSize;
+    private final int maxItems;
+
+    private final AtomicLong digestsSent = new AtomicLong();
+    private final AtomicLong notificationsDigested = new AtomicLong();
+    private final AtomicLong digestsFailed = new AtomicLong();
+
+    public NotificationDigestService(NotificationRepository notificationRepository,
+                                     UserRepository userRepository,
+                                     EmailService emailService,
+                                     EmailTemplateService emailTemplateService,
+                                     @Value("${app.notifications.digest.daily-hour:8}") int dailyHour,
+                                     @Value("${app.notifications.digest.batch-size:200}") int batchSize,
+                                     @Value("${app.notifications.digest.max-items:20}") int maxItems) {
+        this.notificationRepository = notificationRepository;
+        this.userRepository = userRepository;
+        this.emailService = emailService;
+        this.emailTemplateService = emailTemplateService;
+        this.dailyHour = dailyHour;
+        this.batchSize = Math.max(1, batchSize);
+        this.maxItems = Math.max(1, maxItems);
+    }
+
+    @Scheduled(cron = "${app.notifications.digest.cron:0 0 * * * *}")
+    public void sendScheduledDigests() {
+        Set<EmailDigestFrequency> due = EnumSet.of(EmailDigestFrequency.HOURLY);
+        if (LocalDateTime.now().getHour() == dailyHour) {
+            due.add(EmailDigestFrequency.DAILY);
+        }
+        int sent = sendDigests(due);
+        if (sent > 0) {
+            log.info("Sent {} notification digests ({})", sent, due);
+        }
+    }
+
+    /**
+     * Send the pending digest of every user on one of {@code frequencies}; returns the number sent
+     */
+    public int sendDigests(Set<EmailDigestFrequency> frequencies) {
+        int sent = 0;
+        long afterUserId = 0L;
+        while (true) {
+            List<Long> userIds = notificationRepository.findDigestRecipients(frequencies, afterUserId,
+                    PageRequest.of(0, batchSize));
+            for (Long userId : userIds) {
+                if (sendDigest(userId)) {
+                    sent++;
+                }
+            }
+            if (userIds.size() < batchSize) {
+                return sent;
+            }
+            afterUserId = userIds.get(userIds.size() - 1);
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("digestsSent", digestsSent.get());
+        stats.put("notificationsDigested", notificationsDigested.get());
+        stats.put("digestsFailed", digestsFailed.get());
+        return stats;
+    }
+
+    private boolean sendDigest(Long userId) {
+        List<Notification> pending = notificationRepository.findByUser_IdAndEmailPendingTrueOrderByIdAsc(userId);
+        if (pending.isEmpty()) {
+            return false;
+        }
+        User user = userRepository.findById(userId).orElse(null);
+        List<Long> ids = pending.stream().map(Notification::getId).toList();
+        if (notificationRepository.claimDigest(userId, ids.get(ids.size() - 1)) == 0) {
+            return false;
+        }
+        if (user == null || !NotificationService.isValidEmail(user.getEmail())) {
+            // Nowhere to send; drop the rows from the digest rather than retrying forever
+            return false;
+        }
+
+        String subject = pending.size() == 1
+                ? pending.get(0).getTitle()
+                : "You have " + pending.size() + " new notifications";
+        // Queued emails are retried by the queue, so only a failure to queue puts the rows back
+        if (!emailService.queueEmail(user.getEmail(), subject, buildDigestBody(pending),
+                EmailTemplateType.NOTIFICATION_DIGEST)) {
+            notificationRepository.restoreDigest(ids);
+            digestsFailed.incrementAndGet();
+            return false;
+        }
+        digestsSent.incrementAndGet();
+        notificationsDigested.addAndGet(pending.size());
+        return true;
+    }
+
+    private String buildDigestBody(List<Notification> notifications) {
+        StringBuilder items = new StringBuilder();
+        for (Notification notification : notifications.subList(0, Math.min(maxItems, notifications.size()))) {
+            items.append("<strong>").append(HtmlUtils.htmlEscape(notification.getTitle())).append("</strong>");
+            if (notification.getOccurrenceCount() != null && notification.getOccurrenceCount() > 1) {
+                items.append(" (").append(notification.getOccurrenceCount()).append(" updates)");
+            }
+            items.append("<br>").append(HtmlUtils.htmlEscape(notification.getMessage()));
+            if (notification.getActionUrl() != null) {
+                items.append(" <a href='").append(HtmlUtils.htmlEscape(notification.getActionUrl())).append("'>View</a>");
+            }
+            items.append("<br><br>");
+        }
+        if (notifications.size() > maxItems) {
+            items.append("...and ").append(notifications.size() - maxItems).append(" more.");
+        }
+        return emailTemplateService.renderNotificationEmailHtml("Your notification digest", items.toString(), "/notifications");
+    }
+}
@@ -0,0 +1,431 @@
+package com.nagar_sewak.backend.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nagar_sewak.backend.config.AsyncExecutorConfig;
+import com.nagar_sewak.backend.dto.NotificationRecipient;
+import com.nagar_sewak.backend.entities.NotificationPriority;
+import com.nagar_sewak.backend.entities.NotificationType;
+import com.nagar_sewak.backend.entities.Role;
+import com.nagar_sewak.backend.events.NotificationsCreatedEvent;
+import com.nagar_sewak.backend.mail.EmailQueue;
+import com.nagar_sewak.backend.realtime.NotificationStreamMessage;
+import com.nagar_sewak.backend.repositories.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Fans one notification out to a large audience (every user holding a role, every project follower).
+ * Recipients are streamed in id-ordered chunks, each chunk's notifications are
+ * batch-inserted in one transaction, each chunk's emails are batch-inserted into the
+ * {@link EmailQueue}, and push deliveries are handed to the bounded notification executor
+ * so slow channels never hold up the in-app inserts. When that executor is full, its
+ * rejection policy decides whether the fan-out thread pushes itself (throttling the
+ * fan-out) or drops the push.
+ * <p>
+ * A chunk's notifications, queued emails and {@link FanoutCheckpoint} commit together, so a
+ * fan-out that fails part-way and is retried (an outbox redelivery) resumes after the last
+ * committed recipient instead of notifying earlier chunks twice.
+ */
+@Service
+@Slf4j
+public class NotificationFanoutService {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO notifications (user_id, type, priority, title, message, action_url, is_read, created_at, expires_at, metadata, " +
+            "occurrence_count, email_pending) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 1, FALSE)";
+
+    /** Email content for one recipient; attachment may be null. */
+    public record FanoutEmail(String subject, String htmlBody, byte[] attachment, String attachmentName) {
+    }
+
+    /** Supplies recipients in ascending id order, {@code limit} at a time after {@code afterId}. */
+    @FunctionalInterface
+    public interface RecipientSource {
+        List<NotificationRecipient> nextChunk(long afterId, int limit);
+    }
+
+    /** Builds the email for a recipient, or returns null to skip email for them. */
+    @FunctionalInterface
+    public interface EmailComposer {
+        FanoutEmail compose(NotificationRecipient recipient);
+    }
+
+    /** Progress of a fan-out that may be retried: the last recipient id whose chunk committed. */
+    public interface FanoutCheckpoint {
+
+        /** A fan-out that always starts from the first recipient. */
+        FanoutCheckpoint NONE = new FanoutCheckpoint() {
+            @Override
+            public long lastRecipientId() {
+                return 0L;
+            }
+
+            @Override
+            public void save(long lastRecipientId) {
+            }
+        };
+
+        long lastRecipientId();
+
+        /** Called inside each chunk's transaction. */
+        void save(long lastRecipientId);
+    }
+
+    public record FanoutResult(int recipients, int emailsQueued, int pushesQueued, long elapsedMillis) {
+
+        public double recipientsPerSecond() {
+            return elapsedMillis > 0 ? recipients * 1000.0 / elapsedMillis : recipients;
+        }
+    }
+
+    private final UserRepository userRepository;
+    private final NotificationPreferenceCache preferenceCache;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final EmailQueue emailQueue;
+    private final EmailTemplateService emailTemplateService;
+    private final List<PushNotificationSender> pushSenders;
+    private final ApplicationEventPublisher eventPublisher;
+    private final UnreadCounterService unreadCounterService;
+    private final int chunkSize;
+
+    private final Executor pushExecutor;
+
+    private final AtomicLong fanouts = new AtomicLong();
+    private final AtomicLong recipients = new AtomicLong();
+    private final AtomicLong fanoutNanos = new AtomicLong();
+    private final AtomicLong emailsQueued = new AtomicLong();
+    private final AtomicLong emailsFailed = new AtomicLong();
+    private final AtomicLong pushesQueued = new AtomicLong();
+    private final AtomicLong pushesFailed = new AtomicLong();
+    private volatile FanoutResult lastResult;
+
+    public NotificationFanoutService(UserRepository userRepository,
+                                     NotificationPreferenceCache preferenceCache,
+                                     JdbcTemplate jdbcTemplate,
+                                     TransactionTemplate transactionTemplate,
+                                     ObjectMapper objectMapper,
+                                     EmailQueue emailQueue,
+                                     EmailTemplateService emailTemplateService,
+                                     List<PushNotificationSender> pushSenders,
+                                     ApplicationEventPublisher eventPublisher,
+                                     UnreadCounterService unreadCounterService,
+                                     @Qualifier(AsyncExecutorConfig.NOTIFICATION_EXECUTOR) Executor pushExecutor,
+                                     @Value("${app.notifications.fanout.chunk-size:500}") int chunkSize) {
+        this.userRepository = userRepository;
+        this.preferenceCache = preferenceCache;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+        this.emailQueue = emailQueue;
+        this.emailTemplateService = emailTemplateService;
+        this.pushSenders = pushSenders;
+        this.eventPublisher = eventPublisher;
+        this.unreadCounterService = unreadCounterService;
+        this.pushExecutor = pushExecutor;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Fan out to every user with {@code role} using the standard notification email for types that warrant one
+     */
+    public FanoutResult fanOut(Role role, NotificationService.NotificationDTO template) {
+        return fanOut(role, template, standardEmail(template));
+    }
+
+    /**
+     * Fan out to every user with {@code role} using the standard notification email, resuming from {@code checkpoint}
+     */
+    public FanoutResult fanOut(Role role, NotificationService.NotificationDTO template, FanoutCheckpoint checkpoint) {
+        return fanOut(role, template, standardEmail(template), checkpoint);
+    }
+
+    /**
+     * Fan out to every user with {@code role}
+     */
+    public FanoutResult fanOut(Role role, NotificationService.NotificationDTO template, EmailComposer emailComposer) {
+        return fanOut(role, template, emailComposer, FanoutCheckpoint.NONE);
+    }
+
+    /**
+     * Fan out to every user with {@code role}, resuming from {@code checkpoint}
+     */
+    public FanoutResult fanOut(Role role, NotificationService.NotificationDTO template, EmailComposer emailComposer,
+                               FanoutCheckpoint checkpoint) {
+        return fanOut(role.name(), (afterId, limit) ->
+                userRepository.findRecipientsByRole(role, afterId, PageRequest.of(0, limit)),
+                template, emailComposer, checkpoint);
+    }
+
+    /**
+     * Create an in-app notification for every recipient the source yields, then queue email
+     * (via {@code emailComposer}, may be null) and push deliveries per their preferences.
+     * The template's userId is ignored.
+     */
+    public FanoutResult fanOut(String audience, RecipientSource source,
+                               NotificationService.NotificationDTO template, EmailComposer emailComposer) {
+        return fanOut(audience, source, template, emailComposer, FanoutCheckpoint.NONE);
+    }
+
+    /**
+     * As {@link #fanOut(String, RecipientSource, NotificationService.NotificationDTO, EmailComposer)}, starting
+     * after the checkpoint's last recipient and advancing it with every committed chunk
+     */
+    public FanoutResult fanOut(String audience, RecipientSource source, NotificationService.NotificationDTO template,
+                               EmailComposer emailComposer, FanoutCheckpoint checkpoint) {
+        long start = System.nanoTime();
+        String metadataJson = serializeMetadata(template.getMetadata());
+        Timestamp createdAt = Timestamp.valueOf(LocalDateTime.now());
+
+        int total = 0;
+        int emails = 0;
+        int pushes = 0;
+        long afterId = checkpoint.lastRecipientId();
+        if (afterId > 0) {
+            log.info("Resuming fan-out of {} to {} after recipient {}", template.getType(), audience, afterId);
+        }
+        // Composers usually hand every recipient the same attachment array; it is stored once
+        Map<byte[], Long> attachmentIds = new IdentityHashMap<>();
+
+        while (true) {
+            List<NotificationRecipient> chunk = source.nextChunk(afterId, chunkSize);
+            if (chunk.isEmpty()) {
+                break;
+            }
+
+            Map<Long, NotificationPreferenceCache.PreferenceMatrix> preferences = preferenceCache.getAll(
+                    chunk.stream().map(NotificationRecipient::getId).toList());
+            NotificationType type = template.getType();
+            List<EmailQueue.QueuedEmail> chunkEmails = new ArrayList<>();
+            List<NotificationService.NotificationDTO> chunkPushes = new ArrayList<>();
+            for (NotificationRecipient recipient : chunk) {
+                NotificationPreferenceCache.PreferenceMatrix preference = preferences.get(recipient.getId());
+                if (emailComposer != null && preference.isEnabled(type, NotificationPreferenceCache.Channel.EMAIL)
+                        && NotificationService.isValidEmail(recipient.getEmail())) {
+                    EmailQueue.QueuedEmail email = composeEmail(recipient, emailComposer, attachmentIds);
+                    if (email != null) {
+                        chunkEmails.add(email);
+                    }
+                }
+                if (!pushSenders.isEmpty() && preference.isEnabled(type, NotificationPreferenceCache.Channel.PUSH)) {
+                    chunkPushes.add(pushFor(recipient, template));
+                }
+            }
+
+            long lastId = chunk.get(chunk.size() - 1).getId();
+            transactionTemplate.executeWithoutResult(status -> {
+                insertChunk(chunk, template, metadataJson, createdAt);
+                emailQueue.enqueueAll(chunkEmails);
+                checkpoint.save(lastId);
+            });
+            if (!chunkEmails.isEmpty()) {
+                emailsQueued.addAndGet(chunkEmails.size());
+                emails += chunkEmails.size();
+            }
+            if (!chunkPushes.isEmpty()) {
+                queuePushes(chunkPushes);
+                pushes += chunkPushes.size();
+            }
+
+            total += chunk.size();
+            afterId = lastId;
+            if (chunk.size() < chunkSize) {
+                break;
+            }
+        }
+
+        long elapsedNanos = System.nanoTime() - start;
+        FanoutResult result = new FanoutResult(total, emails, pushes, TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+        fanouts.incrementAndGet();
+        recipients.addAndGet(total);
+        fanoutNanos.addAndGet(elapsedNanos);
+        lastResult = result;
+
+        log.info("Fanned out {} to {} recipients ({}) in {} ms ({} recipients/s), {} emails and {} pushes queued",
+                template.getType(), total, audience, result.elapsedMillis(),
+                Math.round(result.recipientsPerSecond()), emails, pushes);
+        return result;
+    }
+
+    /**
+     * Fan-out throughput and delivery statistics; queue depths are reported per executor
+     */
+    public Map<String, Object> getStats() {
+        long totalRecipients = recipients.get();
+        long totalNanos = fanoutNanos.get();
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("fanouts", fanouts.get());
+        stats.put("recipients", totalRecipients);
+        stats.put("recipientsPerSecond", totalNanos > 0 ? Math.round(totalRecipients * 1e9 / totalNanos) : 0);
+        FanoutResult last = lastResult;
+        if (last != null) {
+            stats.put("lastRecipients", last.recipients());
+            stats.put("lastElapsedMillis", last.elapsedMillis());
+            stats.put("lastRecipientsPerSecond", Math.round(last.recipientsPerSecond()));
+        }
+        stats.put("emailsQueued", emailsQueued.get());
+        stats.put("emailsFailed", emailsFailed.get());
+        stats.put("pushesQueued", pushesQueued.get());
+        stats.put("pushesFailed", pushesFailed.get());
+        return stats;
+    }
+
+    /**
+     * The generic notification email, for types and priorities that warrant one
+     */
+    public EmailComposer standardEmail(NotificationService.NotificationDTO template) {
+        if (!NotificationService.shouldSendEmail(template.getType(), priorityOf(template))) {
+            return null;
+        }
+        String body = emailTemplateService.renderNotificationEmail(template.getTitle(), template.getMessage(),
+                template.getActionUrl());
+        return recipient -> new FanoutEmail(template.getTitle(), body, null, null);
+    }
+
+    /**
+     * Batch-insert the chunk's notifications; runs inside the chunk's transaction
+     */
+    private void insertChunk(List<NotificationRecipient> chunk, NotificationService.NotificationDTO template,
+                             String metadataJson, Timestamp createdAt) {
+        String priority = priorityOf(template).name();
+        Timestamp expiresAt = template.getExpiresAt() != null ? Timestamp.valueOf(template.getExpiresAt()) : null;
+
+        KeyHolder keys = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(con -> con.prepareStatement(INSERT_SQL, new String[]{"id"}),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        ps.setLong(1, chunk.get(i).getId());
+                        ps.setString(2, template.getType().name());
+                        ps.setString(3, priority);
+                        ps.setString(4, template.getTitle());
+                        ps.setString(5, template.getMessage());
+                        ps.setString(6, template.getActionUrl());
+                        ps.setBoolean(7, false);
+                        ps.setTimestamp(8, createdAt);
+                        ps.setTimestamp(9, expiresAt);
+                        ps.setString(10, metadataJson);
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return chunk.size();
+                    }
+                }, keys);
+        unreadCounterService.adjustAll(chunk.stream()
+                .collect(Collectors.toMap(NotificationRecipient::getId, recipient -> 1L)));
+        publishCreated(chunk, keys.getKeyList(), template, createdAt);
+    }
+
+    /**
+     * Hand the chunk to open notification streams once its transaction commits
+     */
+    private void publishCreated(List<NotificationRecipient> chunk, List<Map<String, Object>> keys,
+                                NotificationService.NotificationDTO template, Timestamp createdAt) {
+        if (keys.size() != chunk.size()) {
+            log.warn("Driver returned {} keys for {} fan-out rows, skipping stream delivery", keys.size(), chunk.size());
+            return;
+        }
+        List<NotificationStreamMessage> messages = new ArrayList<>(chunk.size());
+        for (int i = 0; i < chunk.size(); i++) {
+            Long id = ((Number) keys.get(i).values().iterator().next()).longValue();
+            messages.add(new NotificationStreamMessage(id, chunk.get(i).getId(), template.getType(),
+                    priorityOf(template), template.getTitle(), template.getMessage(), template.getActionUrl(),
+                    createdAt.toLocalDateTime(), 1));
+        }
+        eventPublisher.publishEvent(new NotificationsCreatedEvent(this, messages));
+    }
+
+    private EmailQueue.QueuedEmail composeEmail(NotificationRecipient recipient, EmailComposer emailComposer,
+                                                Map<byte[], Long> attachmentIds) {
+        try {
+            FanoutEmail email = emailComposer.compose(recipient);
+            if (email == null) {
+                return null;
+            }
+            Long attachmentId = null;
+            if (email.attachment() != null && email.attachment().length > 0) {
+                attachmentId = attachmentIds.computeIfAbsent(email.attachment(),
+                        content -> emailQueue.storeAttachment(content, email.attachmentName()));
+            }
+            return new EmailQueue.QueuedEmail(recipient.getEmail(), email.subject(), email.htmlBody(), null, attachmentId);
+        } catch (Exception e) {
+            log.error("Failed to compose fan-out email for user {}", recipient.getId(), e);
+            emailsFailed.incrementAndGet();
+            return null;
+        }
+    }
+
+    private static NotificationService.NotificationDTO pushFor(NotificationRecipient recipient,
+                                                               NotificationService.NotificationDTO template) {
+        return NotificationService.NotificationDTO.builder()
+                .userId(recipient.getId())
+                .type(template.getType())
+                .priority(priorityOf(template))
+                .title(template.getTitle())
+                .message(template.getMessage())
+                .actionUrl(template.getActionUrl())
+                .metadata(template.getMetadata())
+                .expiresAt(template.getExpiresAt())
+                .build();
+    }
+
+    /**
+     * One push task per chunk, so senders can look up subscriptions and reuse connections across it
+     */
+    private void queuePushes(List<NotificationService.NotificationDTO> pushes) {
+        pushesQueued.addAndGet(pushes.size());
+        pushExecutor.execute(() -> {
+            for (PushNotificationSender sender : pushSenders) {
+                try {
+                    sender.sendAll(pushes);
+                } catch (Exception e) {
+                    pushesFailed.addAndGet(pushes.size());
+                    log.error("Failed to push fan-out chunk of {} notifications", pushes.size(), e);
+                }
+            }
+        });
+    }
+
+    private String serializeMetadata(Map<String, Object> metadata) {
+        if (metadata == null || metadata.isEmpty()) {
+            return null;
+        }
+        try {
+            return objectMapper.writeValueAsString(metadata);
+        } catch (Exception e) {
+            log.error("Failed to serialize metadata", e);
+            return null;
+        }
+    }
+
+    private static NotificationPriority priorityOf(NotificationService.NotificationDTO template) {
+        return template.getPriority() != null ? template.getPriority() : NotificationPriority.MEDIUM;
+    }
+}
@@ -0,0 +1,220 @@
+package com.nagar_sewak.backend.services;
+
+import com.nagar_sewak.backend.entities.NotificationPreference;
+import com.nagar_sewak.backend.entities.NotificationType;
+import com.nagar_sewak.backend.repositories.NotificationPreferenceRepository;
+import com.nagar_sewak.backend.util.StripedLruCache;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Each user's effective notification preferences (the defaults in {@link NotificationPreferenceDefaults}
+ * with their override rows applied) packed into a {@link PreferenceMatrix} bitset, so delivery paths
+ * check a channel with a shift and a mask instead of a query. A user's matrix is loaded with one query
+ * for all their overrides and dropped whenever their preferences change (again when the changing
+ * transaction completes, so neither a concurrent load of the old rows nor a read of rows that
+ * later rolled back stays cached). Entries also expire after a TTL, which bounds how long
+ * another replica's change can go unseen.
+ */
+@Service
+@Slf4j
+public class NotificationPreferenceCache {
+
+    public enum Channel {
+        IN_APP, EMAIL, PUSH
+    }
+
+    private static final int TYPE_COUNT = NotificationType.values().length;
+
+    /** Plane after the three channels marking which types have a stored override row */
+    private static final int CONFIGURED_PLANE = Channel.values().length;
+
+    private static final int WORDS = (TYPE_COUNT * (CONFIGURED_PLANE + 1) + 63) >>> 6;
+
+    /**
+     * Immutable preference bitset for one user: bit {@code plane * types + ordinal} per channel,
+     * plus a plane recording which types the user has overridden
+     */
+    public static final class PreferenceMatrix {
+
+        static final PreferenceMatrix DEFAULTS = of(List.of(), 0L);
+
+        private final long[] bits;
+        private final long expiresAt;
+
+        private PreferenceMatrix(long[] bits, long expiresAt) {
+            this.bits = bits;
+            this.expiresAt = expiresAt;
+        }
+
+        /** Whether the user has overridden the defaults for the type */
+        public boolean isConfigured(NotificationType type) {
+            return bit(CONFIGURED_PLANE, type);
+        }
+
+        /** Whether the channel is enabled for the type, from the user's override or else the default */
+        public boolean isEnabled(NotificationType type, Channel channel) {
+            return bit(channel.ordinal(), type);
+        }
+
+        /** Unsaved preference carrying the effective settings for the type */
+        public NotificationPreference toPreference(NotificationType type) {
+            return NotificationPreference.builder()
+                    .notificationType(type)
+                    .inAppEnabled(isEnabled(type, Channel.IN_APP))
+                    .emailEnabled(isEnabled(type, Channel.EMAIL))
+                    .pushEnabled(isEnabled(type, Channel.PUSH))
+                    .build();
+        }
+
+        private boolean bit(int plane, NotificationType type) {
+            int index = plane * TYPE_COUNT + type.ordinal();
+            return (bits[index >>> 6] & (1L << index)) != 0;
+        }
+
+        private static PreferenceMatrix of(List<NotificationPreference> overrides, long expiresAt) {
+            long[] bits = new long[WORDS];
+            for (NotificationType type : NotificationType.values()) {
+                for (Channel channel : Channel.values()) {
+                    set(bits, channel.ordinal(), type.ordinal(), NotificationPreferenceDefaults.isEnabled(type, channel));
+                }
+            }
+            for (NotificationPreference preference : overrides) {
+                int ordinal = preference.getNotificationType().ordinal();
+                set(bits, CONFIGURED_PLANE, ordinal, true);
+                set(bits, Channel.IN_APP.ordinal(), ordinal, Boolean.TRUE.equals(preference.getInAppEnabled()));
+                set(bits, Channel.EMAIL.ordinal(), ordinal, Boolean.TRUE.equals(preference.getEmailEnabled()));
+                set(bits, Channel.PUSH.ordinal(), ordinal, Boolean.TRUE.equals(preference.getPushEnabled()));
+            }
+            return new PreferenceMatrix(bits, expiresAt);
+        }
+
+        private static void set(long[] bits, int plane, int ordinal, boolean value) {
+            int index = plane * TYPE_COUNT + ordinal;
+            if (value) {
+                bits[index >>> 6] |= 1L << index;
+            } else {
+                bits[index >>> 6] &= ~(1L << index);
+            }
+        }
+    }
+
+    private final NotificationPreferenceRepository preferenceRepository;
+    private final long ttlNanos;
+    private final StripedLruCache<Long, PreferenceMatrix> cache;
+
+    /** Bumped on every invalidation; a load that overlapped one is returned but not cached */
+    private final AtomicLong generation = new AtomicLong();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong loads = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public NotificationPreferenceCache(NotificationPreferenceRepository preferenceRepository,
+                                       @Value("${app.notifications.preferences.cache-size:20000}") int cacheSize,
+                                       @Value("${app.notifications.preferences.cache-ttl-ms:300000}") long ttlMs) {
+        this.preferenceRepository = preferenceRepository;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMs);
+        this.cache = new StripedLruCache<>(cacheSize, 16);
+    }
+
+    /**
+     * The user's preference matrix, loading all their overrides in one query on a miss
+     */
+    public PreferenceMatrix get(Long userId) {
+        PreferenceMatrix cached = lookup(userId, System.nanoTime());
+        if (cached != null) {
+            return cached;
+        }
+        return getAll(List.of(userId)).getOrDefault(userId, PreferenceMatrix.DEFAULTS);
+    }
+
+    /**
+     * Matrices for several users, loading every missing one with a single query
+     */
+    public Map<Long, PreferenceMatrix> getAll(Collection<Long> userIds) {
+        long now = System.nanoTime();
+        Map<Long, PreferenceMatrix> result = new HashMap<>(userIds.size() * 2);
+        List<Long> missing = new ArrayList<>();
+        for (Long userId : userIds) {
+            PreferenceMatrix cached = lookup(userId, now);
+            if (cached != null) {
+                result.put(userId, cached);
+            } else {
+                missing.add(userId);
+            }
+        }
+        if (missing.isEmpty()) {
+            return result;
+        }
+
+        long startGeneration = generation.get();
+        Map<Long, List<NotificationPreference>> rows = new HashMap<>();
+        for (NotificationPreference preference : preferenceRepository.findByUser_IdIn(missing)) {
+            rows.computeIfAbsent(preference.getUser().getId(), id -> new ArrayList<>()).add(preference);
+        }
+        loads.addAndGet(missing.size());
+
+        long expiresAt = System.nanoTime() + ttlNanos;
+        boolean cacheable = generation.get() == startGeneration;
+        for (Long userId : missing) {
+            PreferenceMatrix matrix = PreferenceMatrix.of(rows.getOrDefault(userId, List.of()), expiresAt);
+            if (cacheable) {
+                cache.put(userId, matrix);
+            }
+            result.put(userId, matrix);
+        }
+        return result;
+    }
+
+    /**
+     * Drop the user's matrix now and again once the current transaction completes
+     */
+    public void invalidate(Long userId) {
+        evict(userId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    evict(userId);
+                }
+            });
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", cache.size());
+        stats.put("hits", hits.get());
+        stats.put("loads", loads.get());
+        stats.put("invalidations", invalidations.get());
+        return stats;
+    }
+
+    private PreferenceMatrix lookup(Long userId, long now) {
+        PreferenceMatrix cached = cache.get(userId);
+        if (cached != null && now - cached.expiresAt < 0) {
+            hits.incrementAndGet();
+            return cached;
+        }
+        return null;
+    }
+
+    private void evict(Long userId) {
+        generation.incrementAndGet();
+        invalidations.incrementAndGet();
+        cache.remove(userId);
+    }
+}
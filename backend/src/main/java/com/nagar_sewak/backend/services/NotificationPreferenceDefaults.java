@@ -0,0 +1,52 @@
+package com.nagar_sewak.backend.services;
+
+import com.nagar_sewak.backend.entities.NotificationType;
+
+/**
+ * Default notification preferences, kept in code rather than stored per user. The
+ * notification_preferences table only holds a user's overrides of these values.
+ */
+public final class NotificationPreferenceDefaults {
+
+    private NotificationPreferenceDefaults() {
+    }
+
+    /**
+     * Default for one channel: in-app always, email for security and important types, push for security types
+     */
+    public static boolean isEnabled(NotificationType type, NotificationPreferenceCache.Channel channel) {
+        return switch (channel) {
+            case IN_APP -> true;
+            case EMAIL -> isSecurityNotification(type) || isImportantNotification(type);
+            case PUSH -> isSecurityNotification(type);
+        };
+    }
+
+    /**
+     * Whether the given settings are exactly the defaults, i.e. need no override row
+     */
+    public static boolean isDefault(NotificationType type, boolean inAppEnabled, boolean emailEnabled, boolean pushEnabled) {
+        return inAppEnabled == isEnabled(type, NotificationPreferenceCache.Channel.IN_APP)
+                && emailEnabled == isEnabled(type, NotificationPreferenceCache.Channel.EMAIL)
+                && pushEnabled == isEnabled(type, NotificationPreferenceCache.Channel.PUSH);
+    }
+
+    /**
+     * Check if a notification type is security-related and cannot be completely disabled
+     */
+    public static boolean isSecurityNotification(NotificationType type) {
+        return type == NotificationType.SYSTEM_ALERT ||
+               type == NotificationType.COMPLAINT_STATUS_CHANGED ||
+               type == NotificationType.PROJECT_UPDATE_REQUIRED;
+    }
+
+    /**
+     * Check if a notification type is important and should default to email enabled
+     */
+    public static boolean isImportantNotification(NotificationType type) {
+        return type == NotificationType.COMPLAINT_ASSIGNED ||
+               type == NotificationType.PROJECT_COMPLETED ||
+               type == NotificationType.TENDER_BID_ACCEPTED ||
+               type == NotificationType.TENDER_BID_REJECTED;
+    }
+}
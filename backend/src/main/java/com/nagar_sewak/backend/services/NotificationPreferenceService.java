@@ -6,31 +6,54 @@ import com.nagar_sewak.backend.entities.User;
 import com.nagar_sewak.backend.repositories.NotificationPreferenceRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
+/**
+ * Notification preferences stored sparsely: the defaults live in {@link NotificationPreferenceDefaults}
+ * and a user only has rows for the types they changed. Reads merge those overrides with the defaults
+ * (via {@link NotificationPreferenceCache}); writes upsert the changed types in one batch and delete
+ * overrides that were set back to the defaults.
+ */
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class NotificationPreferenceService {
 
+    private static final String UPSERT_SQL =
+            "INSERT INTO notification_preferences (user_id, notification_type, in_app_enabled, email_enabled, push_enabled) " +
+            "VALUES (?, ?, ?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE in_app_enabled = VALUES(in_app_enabled), email_enabled = VALUES(email_enabled), " +
+            "push_enabled = VALUES(push_enabled)";
+
     private final NotificationPreferenceRepository notificationPreferenceRepository;
+    private final NotificationPreferenceCache preferenceCache;
+    private final JdbcTemplate jdbcTemplate;
 
     /**
-     * Get all notification preferences for a user
+     * Get all notification preferences for a user, one per type, overrides merged with the defaults
      */
     public List<NotificationPreference> getUserPreferences(User user) {
-        return notificationPreferenceRepository.findByUser(user);
+        NotificationPreferenceCache.PreferenceMatrix preferences = preferenceCache.get(user.getId());
+        List<NotificationPreference> merged = new ArrayList<>(NotificationType.values().length);
+        for (NotificationType type : NotificationType.values()) {
+            merged.add(preferences.toPreference(type));
+        }
+        return merged;
     }
 
     /**
-     * Get specific notification preference for a user and type
+     * Get specific notification preference for a user and type, falling back to the default
      */
     public Optional<NotificationPreference> getUserPreference(User user, NotificationType type) {
-        return notificationPreferenceRepository.findByUserAndNotificationType(user, type);
+        return Optional.of(preferenceCache.get(user.getId()).toPreference(type));
     }
 
     /**
@@ -39,110 +62,83 @@ public class NotificationPreferenceService {
     @Transactional
     public NotificationPreference updatePreference(User user, NotificationType type, 
                                                  boolean inAppEnabled, boolean emailEnabled, boolean pushEnabled) {
-        
-        // Check if this is a security notification that cannot be completely disabled
-        if (isSecurityNotification(type) && !inAppEnabled && !emailEnabled && !pushEnabled) {
-            log.warn("Attempt to disable all channels for security notification type: {} by user: {}", 
-                    type, user.getId());
-            // Force at least email to be enabled for security notifications
-            emailEnabled = true;
-        }
-
-        Optional<NotificationPreference> existingPref = getUserPreference(user, type);
-        
-        NotificationPreference preference;
-        if (existingPref.isPresent()) {
-            preference = existingPref.get();
-            preference.setInAppEnabled(inAppEnabled);
-            preference.setEmailEnabled(emailEnabled);
-            preference.setPushEnabled(pushEnabled);
-        } else {
-            preference = NotificationPreference.builder()
-                    .user(user)
-                    .notificationType(type)
-                    .inAppEnabled(inAppEnabled)
-                    .emailEnabled(emailEnabled)
-                    .pushEnabled(pushEnabled)
-                    .build();
-        }
-
-        NotificationPreference saved = notificationPreferenceRepository.save(preference);
-        log.info("Updated notification preference for user: {} type: {} - inApp: {}, email: {}, push: {}", 
-                user.getId(), type, inAppEnabled, emailEnabled, pushEnabled);
-        
-        return saved;
+        updatePreferences(user, List.of(new NotificationPreferenceUpdate(type, inAppEnabled, emailEnabled, pushEnabled)));
+        return getUserPreference(user, type).orElseThrow();
     }
 
     /**
-     * Initialize default preferences for a new user
+     * Defaults apply without stored rows, so there is nothing to write for a new user
      */
-    @Transactional
     public void initializeDefaultPreferences(User user) {
-        for (NotificationType type : NotificationType.values()) {
-            if (getUserPreference(user, type).isEmpty()) {
-                boolean defaultEmail = isSecurityNotification(type) || isImportantNotification(type);
-                boolean defaultInApp = true;
-                boolean defaultPush = isSecurityNotification(type);
-
-                NotificationPreference preference = NotificationPreference.builder()
-                        .user(user)
-                        .notificationType(type)
-                        .inAppEnabled(defaultInApp)
-                        .emailEnabled(defaultEmail)
-                        .pushEnabled(defaultPush)
-                        .build();
-
-                notificationPreferenceRepository.save(preference);
-            }
-        }
-        log.info("Initialized default notification preferences for user: {}", user.getId());
+        log.debug("Notification preferences for user {} use the defaults until overridden", user.getId());
     }
 
     /**
      * Check if user has email notifications enabled for a specific type
      */
     public boolean isEmailEnabled(User user, NotificationType type) {
-        Optional<NotificationPreference> preference = getUserPreference(user, type);
-        if (preference.isPresent()) {
-            return preference.get().getEmailEnabled();
-        }
-        // Default behavior for security notifications
-        return isSecurityNotification(type);
+        return preferenceCache.get(user.getId()).isEnabled(type, NotificationPreferenceCache.Channel.EMAIL);
     }
 
     /**
      * Check if user has in-app notifications enabled for a specific type
      */
     public boolean isInAppEnabled(User user, NotificationType type) {
-        Optional<NotificationPreference> preference = getUserPreference(user, type);
-        if (preference.isPresent()) {
-            return preference.get().getInAppEnabled();
-        }
-        // Default to enabled
-        return true;
+        return preferenceCache.get(user.getId()).isEnabled(type, NotificationPreferenceCache.Channel.IN_APP);
     }
 
     /**
      * Check if user has push notifications enabled for a specific type
      */
     public boolean isPushEnabled(User user, NotificationType type) {
-        Optional<NotificationPreference> preference = getUserPreference(user, type);
-        if (preference.isPresent()) {
-            return preference.get().getPushEnabled();
-        }
-        // Default behavior for security notifications
-        return isSecurityNotification(type);
+        return preferenceCache.get(user.getId()).isEnabled(type, NotificationPreferenceCache.Channel.PUSH);
     }
 
     /**
-     * Bulk update preferences
+     * Bulk update preferences: one batch upsert for the overrides, one delete for types back at their defaults
      */
     @Transactional
     public void updatePreferences(User user, List<NotificationPreferenceUpdate> updates) {
+        Map<NotificationType, NotificationPreferenceUpdate> byType = new EnumMap<>(NotificationType.class);
         for (NotificationPreferenceUpdate update : updates) {
-            updatePreference(user, update.getType(), update.isInAppEnabled(), 
-                           update.isEmailEnabled(), update.isPushEnabled());
+            boolean emailEnabled = update.isEmailEnabled();
+            // Security notifications cannot be completely disabled; force at least email
+            if (NotificationPreferenceDefaults.isSecurityNotification(update.getType())
+                    && !update.isInAppEnabled() && !emailEnabled && !update.isPushEnabled()) {
+                log.warn("Attempt to disable all channels for security notification type: {} by user: {}",
+                        update.getType(), user.getId());
+                emailEnabled = true;
+            }
+            byType.put(update.getType(), new NotificationPreferenceUpdate(update.getType(),
+                    update.isInAppEnabled(), emailEnabled, update.isPushEnabled()));
         }
+
+        List<NotificationPreferenceUpdate> overrides = new ArrayList<>();
+        List<NotificationType> backToDefault = new ArrayList<>();
+        for (NotificationPreferenceUpdate update : byType.values()) {
+            if (NotificationPreferenceDefaults.isDefault(update.getType(),
+                    update.isInAppEnabled(), update.isEmailEnabled(), update.isPushEnabled())) {
+                backToDefault.add(update.getType());
+            } else {
+                overrides.add(update);
+            }
+        }
+
+        if (!backToDefault.isEmpty()) {
+            notificationPreferenceRepository.deleteOverrides(user.getId(), backToDefault);
+        }
+        if (!overrides.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPSERT_SQL, overrides, overrides.size(), (ps, update) -> {
+                ps.setLong(1, user.getId());
+                ps.setString(2, update.getType().name());
+                ps.setBoolean(3, update.isInAppEnabled());
+                ps.setBoolean(4, update.isEmailEnabled());
+                ps.setBoolean(5, update.isPushEnabled());
+            });
+        }
+        preferenceCache.invalidate(user.getId());
+        log.info("Updated notification preferences for user: {} - {} overrides saved, {} reset to default",
+                user.getId(), overrides.size(), backToDefault.size());
     }
 
     /**
@@ -151,29 +147,10 @@ public class NotificationPreferenceService {
     @Transactional
     public void resetToDefaults(User user) {
         notificationPreferenceRepository.deleteByUser(user);
-        initializeDefaultPreferences(user);
+        preferenceCache.invalidate(user.getId());
         log.info("Reset notification preferences to defaults for user: {}", user.getId());
     }
 
-    /**
-     * Check if a notification type is security-related and cannot be completely disabled
-     */
-    private boolean isSecurityNotification(NotificationType type) {
-        return type == NotificationType.SYSTEM_ALERT || 
-               type == NotificationType.COMPLAINT_STATUS_CHANGED ||
-               type == NotificationType.PROJECT_UPDATE_REQUIRED;
-    }
-
-    /**
-     * Check if a notification type is important and should default to email enabled
-     */
-    private boolean isImportantNotification(NotificationType type) {
-        return type == NotificationType.COMPLAINT_ASSIGNED ||
-               type == NotificationType.PROJECT_COMPLETED ||
-               type == NotificationType.TENDER_BID_ACCEPTED ||
-               type == NotificationType.TENDER_BID_REJECTED;
-    }
-
     /**
      * Inner class for bulk preference updates
      */
@@ -0,0 +1,199 @@
+package com.nagar_sewak.backend.services;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Removes expired notifications and those older than the retention window. Rows are deleted
+ * in primary-key order, a small chunk per transaction with a pause in between, so the hot
+ * notifications table is never locked for long. Each chunk's candidates come from a plain,
+ * non-locking read and are deleted by primary key with the purge predicate re-checked, so no
+ * gap locks are taken. The unread counters are moved by the unread rows that read saw; a row
+ * marked read in between is left to {@link UnreadCounterService#reconcile()} to correct.
+ * One replica runs the job at a time through {@link JobLockService}.
+ */
+@Service
+@Slf4j
+public class NotificationRetentionService {
+
+    static final String LOCK_NAME = "notification-retention";
+
+    private static final String PURGE_PREDICATE = "(expires_at < ? OR created_at < ?)";
+
+    private static final String SELECT_CHUNK_SQL =
+            "SELECT id, user_id, is_read FROM notifications WHERE id > ? AND " + PURGE_PREDICATE +
+            " ORDER BY id LIMIT ?";
+
+    public record PurgeResult(long rowsPurged, long unreadPurged, int chunks, long elapsedMillis, boolean complete) {
+    }
+
+    private record PurgedRow(long id, long userId, boolean read) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final UnreadCounterService unreadCounterService;
+    private final JobLockService jobLockService;
+    private final boolean enabled;
+    private final int retentionDays;
+    private final int chunkSize;
+    private final long pauseMillis;
+    private final Duration maxRunTime;
+
+    private final AtomicLong runs = new AtomicLong();
+    private final AtomicLong totalPurged = new AtomicLong();
+    private final AtomicLong skippedLocked = new AtomicLong();
+    private volatile PurgeResult lastResult;
+    private volatile LocalDateTime lastRunAt;
+
+    public NotificationRetentionService(JdbcTemplate jdbcTemplate,
+                                        TransactionTemplate transactionTemplate,
+                                        UnreadCounterService unreadCounterService,
+                                        JobLockService jobLockService,
+                                        @Value("${app.notifications.purge.enabled:true}") boolean enabled,
+                                        @Value("${app.notifications.purge.retention-days:90}") int retentionDays,
+                                        @Value("${app.notifications.purge.chunk-size:500}") int chunkSize,
+                                        @Value("${app.notifications.purge.pause-ms:200}") long pauseMillis,
+                                        @Value("${app.notifications.purge.max-run-seconds:600}") long maxRunSeconds) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.unreadCounterService = unreadCounterService;
+        this.jobLockService = jobLockService;
+        this.enabled = enabled;
+        this.retentionDays = retentionDays;
+        this.chunkSize = Math.max(1, chunkSize);
+        this.pauseMillis = Math.max(0, pauseMillis);
+        this.maxRunTime = Duration.ofSeconds(Math.max(1, maxRunSeconds));
+    }
+
+    @Scheduled(cron = "${app.notifications.purge.cron:0 15 * * * *}")
+    public void scheduledPurge() {
+        if (!enabled) {
+            return;
+        }
+        // The lease outlives the run's time budget, so it can only lapse if this node dies mid-run
+        if (!jobLockService.tryLock(LOCK_NAME, maxRunTime.plusMinutes(5))) {
+            skippedLocked.incrementAndGet();
+            return;
+        }
+        try {
+            purge();
+        } catch (Exception e) {
+            log.error("Notification retention run failed", e);
+        } finally {
+            jobLockService.unlock(LOCK_NAME);
+        }
+    }
+
+    /**
+     * Delete every expired or aged notification, chunk by chunk, until none are left or the run's time is up
+     */
+    public PurgeResult purge() {
+        long start = System.nanoTime();
+        long deadline = start + maxRunTime.toNanos();
+        LocalDateTime now = LocalDateTime.now();
+        Timestamp expiredBefore = Timestamp.valueOf(now);
+        Timestamp createdBefore = Timestamp.valueOf(now.minusDays(retentionDays));
+
+        long purged = 0;
+        long unreadPurged = 0;
+        int chunks = 0;
+        long afterId = 0L;
+        boolean complete = false;
+        while (true) {
+            final long from = afterId;
+            List<PurgedRow> rows = transactionTemplate.execute(status -> deleteChunk(from, expiredBefore, createdBefore));
+            if (rows == null || rows.isEmpty()) {
+                complete = true;
+                break;
+            }
+            chunks++;
+            purged += rows.size();
+            unreadPurged += rows.stream().filter(row -> !row.read()).count();
+            afterId = rows.get(rows.size() - 1).id();
+            if (rows.size() < chunkSize) {
+                complete = true;
+                break;
+            }
+            if (System.nanoTime() - deadline > 0 || !pause()) {
+                break;
+            }
+        }
+
+        PurgeResult result = new PurgeResult(purged, unreadPurged, chunks,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), complete);
+        runs.incrementAndGet();
+        totalPurged.addAndGet(purged);
+        lastResult = result;
+        lastRunAt = now;
+        if (purged > 0 || !complete) {
+            log.info("Purged {} notifications ({} unread) in {} chunks, {} ms{}", purged, unreadPurged, chunks,
+                    result.elapsedMillis(), complete ? "" : "; stopped at the time limit, the rest go next run");
+        }
+        return result;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("retentionDays", retentionDays);
+        stats.put("chunkSize", chunkSize);
+        stats.put("runs", runs.get());
+        stats.put("totalPurged", totalPurged.get());
+        stats.put("skippedLocked", skippedLocked.get());
+        stats.put("lastRunAt", lastRunAt);
+        stats.put("lastResult", lastResult);
+        return stats;
+    }
+
+    private List<PurgedRow> deleteChunk(long afterId, Timestamp expiredBefore, Timestamp createdBefore) {
+        List<PurgedRow> rows = jdbcTemplate.query(SELECT_CHUNK_SQL,
+                (rs, rowNum) -> new PurgedRow(rs.getLong(1), rs.getLong(2), rs.getBoolean(3)),
+                afterId, expiredBefore, createdBefore, chunkSize);
+        if (rows.isEmpty()) {
+            return rows;
+        }
+
+        String ids = rows.stream().map(row -> String.valueOf(row.id())).collect(Collectors.joining(","));
+        jdbcTemplate.update("DELETE FROM notifications WHERE id IN (" + ids + ") AND " + PURGE_PREDICATE,
+                expiredBefore, createdBefore);
+
+        Map<Long, Long> unreadRemoved = new HashMap<>();
+        for (PurgedRow row : rows) {
+            if (!row.read()) {
+                unreadRemoved.merge(row.userId(), -1L, Long::sum);
+            }
+        }
+        // Applied once this chunk's transaction commits
+        unreadCounterService.adjustAll(unreadRemoved);
+        return rows;
+    }
+
+    private boolean pause() {
+        if (pauseMillis == 0) {
+            return true;
+        }
+        try {
+            Thread.sleep(pauseMillis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -1,18 +1,26 @@
 package com.nagar_sewak.backend.services;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nagar_sewak.backend.dto.NotificationInboxItem;
+import com.nagar_sewak.backend.dto.NotificationInboxPage;
 import com.nagar_sewak.backend.entities.*;
+import com.nagar_sewak.backend.events.NotificationsCreatedEvent;
+import com.nagar_sewak.backend.realtime.NotificationStreamMessage;
 import com.nagar_sewak.backend.repositories.*;
 import lombok.*;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.Base64;
 import java.util.List;
 import java.util.Map;
 import java.util.regex.Pattern;
@@ -23,12 +31,22 @@ import java.util.regex.Pattern;
 public class NotificationService {
 
     private final NotificationRepository notificationRepository;
-    private final NotificationPreferenceRepository preferenceRepository;
+    private final NotificationPreferenceService preferenceService;
     private final UserRepository userRepository;
     private final ObjectMapper objectMapper;
     private final EmailService emailService;
     private final PdfGeneratorService pdfGeneratorService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final UnreadCounterService unreadCounterService;
+    private final NotificationPreferenceCache preferenceCache;
+    private final NotificationCoalescer coalescer;
+    private final EmailTemplateService emailTemplateService;
     
+    private static final int MAX_INBOX_PAGE_SIZE = 100;
+
+    /** Keyset start for the first inbox page: later than any stored notification */
+    private static final LocalDateTime INBOX_START = LocalDateTime.of(9999, 12, 31, 0, 0);
+
     private static final Pattern EMAIL_PATTERN = Pattern.compile(
         "^[A-Za-z0-9+_.-]+@[A-Za-z0-9.-]+\\.[A-Za-z]{2,}$"
     );
@@ -48,6 +66,8 @@ public class NotificationService {
         private String actionUrl;
         private Map<String, Object> metadata;
         private LocalDateTime expiresAt;
+        /** Target to coalesce repeat events on; defaults to actionUrl for coalescing types */
+        private String groupKey;
     }
 
     @Data
@@ -72,9 +92,19 @@ public class NotificationService {
             throw new IllegalArgumentException("Missing required fields for notification");
         }
 
-        User user = userRepository.findById(dto.getUserId())
+        // Coalescing events lock the user's row first, so two first events for one group cannot both insert
+        String groupKey = coalescer.groupKey(dto);
+        User user = (groupKey != null ? userRepository.findByIdForUpdate(dto.getUserId()) : userRepository.findById(dto.getUserId()))
             .orElseThrow(() -> new RuntimeException("User not found: " + dto.getUserId()));
 
+        Notification coalesced = coalescer.coalesce(user.getId(), dto.getType(), groupKey, dto.getMessage());
+        if (coalesced != null) {
+            // Still one unread notification and its email (or digest entry) already went out;
+            // streams get the same id again with the new count
+            eventPublisher.publishEvent(new NotificationsCreatedEvent(this, List.of(NotificationStreamMessage.of(coalesced))));
+            return coalesced;
+        }
+
         String metadataJson = null;
         if (dto.getMetadata() != null && !dto.getMetadata().isEmpty()) {
             try {
@@ -84,96 +114,75 @@ public class NotificationService {
             }
         }
 
+        NotificationPriority priority = dto.getPriority() != null ? dto.getPriority() : NotificationPriority.MEDIUM;
+        boolean email = wantsEmail(user, dto.getType(), priority);
+        boolean digest = email && user.getEmailDigest() != null && user.getEmailDigest() != EmailDigestFrequency.IMMEDIATE;
+
         Notification notification = Notification.builder()
             .user(user)
             .type(dto.getType())
-            .priority(dto.getPriority() != null ? dto.getPriority() : NotificationPriority.MEDIUM)
+            .priority(priority)
             .title(dto.getTitle())
             .message(dto.getMessage())
             .actionUrl(dto.getActionUrl())
             .metadata(metadataJson)
             .expiresAt(dto.getExpiresAt())
+            .groupKey(groupKey)
+            .emailPending(digest)
             .isRead(false)
             .createdAt(LocalDateTime.now())
             .build();
 
         Notification saved = notificationRepository.save(notification);
         log.info("Notification created with ID: {}", saved.getId());
+
+        // Counted and pushed to the user's open streams once this transaction commits
+        unreadCounterService.adjust(user.getId(), 1);
+        eventPublisher.publishEvent(new NotificationsCreatedEvent(this, List.of(NotificationStreamMessage.of(saved))));
         
-        // Send email notification if enabled and important
-        sendEmailIfEnabled(saved, user);
+        // Digest users get it in their next digest email instead
+        if (email && !digest) {
+            sendEmail(saved, user);
+        }
         
         return saved;
     }
 
-    private void sendEmailIfEnabled(Notification notification, User user) {
+    /**
+     * Whether the notification warrants an email and the user has email enabled for its type
+     */
+    private boolean wantsEmail(User user, NotificationType type, NotificationPriority priority) {
         try {
-            // Check if user has email notifications enabled for this type
-            NotificationPreference preference = preferenceRepository
-                .findByUserAndNotificationType(user, notification.getType())
-                .orElse(null);
-
-            if (preference != null && preference.getEmailEnabled() && 
-                user.getEmail() != null && isValidEmail(user.getEmail())) {
-                
-                // Only send email for important notifications
-                if (shouldSendEmail(notification)) {
-                    String emailBody = buildEmailBody(notification);
-                    emailService.sendHtmlEmail(user.getEmail(), notification.getTitle(), emailBody);
-                    log.info("Email notification sent to {}", user.getEmail());
-                }
-            }
+            return shouldSendEmail(type, priority)
+                && user.getEmail() != null && isValidEmail(user.getEmail())
+                && preferenceCache.get(user.getId()).isEnabled(type, NotificationPreferenceCache.Channel.EMAIL);
+        } catch (Exception e) {
+            log.error("Failed to check email preference", e);
+            return false;
+        }
+    }
+
+    private void sendEmail(Notification notification, User user) {
+        try {
+            String emailBody = buildEmailBody(notification);
+            emailService.sendHtmlEmail(user.getEmail(), notification.getTitle(), emailBody);
+            log.info("Email notification sent to {}", user.getEmail());
         } catch (Exception e) {
             log.error("Failed to send email notification", e);
         }
     }
 
-    private boolean shouldSendEmail(Notification notification) {
+    static boolean shouldSendEmail(NotificationType type, NotificationPriority priority) {
         // Send email for HIGH priority or specific types
-        return notification.getPriority() == NotificationPriority.HIGH ||
-               notification.getType() == NotificationType.TENDER_NEW_OPPORTUNITY ||
-               notification.getType() == NotificationType.TENDER_BID_ACCEPTED ||
-               notification.getType() == NotificationType.COMPLAINT_STATUS_CHANGED;
+        return priority == NotificationPriority.HIGH ||
+               type == NotificationType.TENDER_NEW_OPPORTUNITY ||
+               type == NotificationType.TENDER_BID_ACCEPTED ||
+               type == NotificationType.COMPLAINT_STATUS_CHANGED;
     }
 
     private String buildEmailBody(Notification notification) {
-        return String.format("""
-            <!DOCTYPE html>
-            <html>
-            <head>
-                <style>
-                    body { font-family: Arial, sans-serif; line-height: 1.6; color: #333; }
-                    .container { max-width: 600px; margin: 0 auto; padding: 20px; }
-                    .header { background-color: #4CAF50; color: white; padding: 20px; text-align: center; }
-                    .content { background-color: #f9f9f9; padding: 20px; margin: 20px 0; }
-                    .footer { text-align: center; color: #666; font-size: 12px; margin-top: 20px; }
-                    .button { background-color: #4CAF50; color: white; padding: 10px 20px; 
-                             text-decoration: none; display: inline-block; margin: 10px 0; }
-                </style>
-            </head>
-            <body>
-                <div class="container">
-                    <div class="header">
-                        <h1>Nagar Sewak</h1>
-                    </div>
-                    <div class="content">
-                        <h2>%s</h2>
-                        <p>%s</p>
-                        %s
-                    </div>
-                    <div class="footer">
-                        <p>This is an automated notification from Nagar Sewak System.</p>
-                        <p>Please do not reply to this email.</p>
-                    </div>
-                </div>
-            </body>
-            </html>
-            """,
-            notification.getTitle(),
-            notification.getMessage(),
-            notification.getActionUrl() != null ? 
-                String.format("<a href='%s' class='button'>View Details</a>", notification.getActionUrl()) : ""
-        );
+        return emailTemplateService.renderNotificationEmail(notification.getTitle(), notification.getMessage(),
+                notification.getActionUrl());
     }
 
     @Transactional(readOnly = true)
@@ -187,14 +196,51 @@ public class NotificationService {
         return notificationRepository.findByUserOrderByCreatedAtDesc(user, pageable);
     }
 
+    /**
+     * One inbox page, newest first. {@code cursor} is the previous page's nextCursor (null for the
+     * first page). Keyset-paginated on (createdAt, id) with no total count, so every page costs the same.
+     */
     @Transactional(readOnly = true)
-    public long getUnreadCount(Long userId) {
-        log.debug("Getting unread count for user {}", userId);
-        
-        User user = userRepository.findById(userId)
-            .orElseThrow(() -> new RuntimeException("User not found: " + userId));
+    public NotificationInboxPage getInbox(Long userId, String cursor, int size, NotificationType type,
+                                          NotificationPriority priority, boolean unreadOnly) {
+        int limit = Math.max(1, Math.min(size, MAX_INBOX_PAGE_SIZE));
+        LocalDateTime afterCreatedAt = INBOX_START;
+        long afterId = Long.MAX_VALUE;
+        if (cursor != null && !cursor.isBlank()) {
+            String[] position = decodeCursor(cursor);
+            afterCreatedAt = LocalDateTime.parse(position[0]);
+            afterId = Long.parseLong(position[1]);
+        }
+
+        List<NotificationInboxItem> rows = notificationRepository.findInboxPage(userId, unreadOnly, type, priority,
+                afterCreatedAt, afterId, PageRequest.of(0, limit + 1));
+        boolean hasMore = rows.size() > limit;
+        List<NotificationInboxItem> items = hasMore ? new ArrayList<>(rows.subList(0, limit)) : rows;
+        String nextCursor = hasMore ? encodeCursor(items.get(items.size() - 1)) : null;
+        return new NotificationInboxPage(items, nextCursor, hasMore);
+    }
 
-        return notificationRepository.countByUserAndIsRead(user, false);
+    private static String encodeCursor(NotificationInboxItem last) {
+        String position = last.getCreatedAt() + "|" + last.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String[] decodeCursor(String cursor) {
+        try {
+            String[] position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|");
+            if (position.length != 2) {
+                throw new IllegalArgumentException("Invalid inbox cursor");
+            }
+            LocalDateTime.parse(position[0]);
+            Long.parseLong(position[1]);
+            return position;
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid inbox cursor");
+        }
+    }
+
+    public long getUnreadCount(Long userId) {
+        return unreadCounterService.get(userId);
     }
 
     @Transactional
@@ -212,6 +258,7 @@ public class NotificationService {
             notification.setIsRead(true);
             notification.setReadAt(LocalDateTime.now());
             notification = notificationRepository.save(notification);
+            unreadCounterService.adjust(userId, -1);
             log.info("Notification {} marked as read", notificationId);
         }
 
@@ -226,6 +273,7 @@ public class NotificationService {
             .orElseThrow(() -> new RuntimeException("User not found: " + userId));
 
         int updated = notificationRepository.markAllAsReadForUser(user, LocalDateTime.now());
+        unreadCounterService.reset(userId);
         log.info("Marked {} notifications as read for user {}", updated, userId);
     }
 
@@ -241,27 +289,21 @@ public class NotificationService {
         }
 
         notificationRepository.delete(notification);
+        if (!notification.getIsRead()) {
+            unreadCounterService.adjust(userId, -1);
+        }
         log.info("Notification {} deleted", notificationId);
     }
 
     // ==================== Preference Methods ====================
 
-    @Transactional(readOnly = true)
     public List<NotificationPreference> getUserPreferences(Long userId) {
         log.debug("Fetching preferences for user {}", userId);
         
         User user = userRepository.findById(userId)
             .orElseThrow(() -> new RuntimeException("User not found: " + userId));
 
-        List<NotificationPreference> preferences = preferenceRepository.findByUser(user);
-        
-        if (preferences.isEmpty()) {
-            log.info("No preferences found for user {}, initializing defaults", userId);
-            initializeDefaultPreferences(userId);
-            preferences = preferenceRepository.findByUser(user);
-        }
-
-        return preferences;
+        return preferenceService.getUserPreferences(user);
     }
 
     @Transactional
@@ -279,56 +321,38 @@ public class NotificationService {
             }
         }
 
-        List<NotificationPreference> updatedPreferences = new ArrayList<>();
-
+        // Channels left null keep their current (override or default) setting
+        NotificationPreferenceCache.PreferenceMatrix current = preferenceCache.get(userId);
+        List<NotificationPreferenceService.NotificationPreferenceUpdate> updates = new ArrayList<>();
         for (NotificationPreferenceDTO dto : preferenceDTOs) {
-            NotificationPreference preference = preferenceRepository
-                .findByUserAndNotificationType(user, dto.getNotificationType())
-                .orElseGet(() -> NotificationPreference.builder()
-                    .user(user)
-                    .notificationType(dto.getNotificationType())
-                    .build());
-
-            if (dto.getInAppEnabled() != null) {
-                preference.setInAppEnabled(dto.getInAppEnabled());
-            }
-            if (dto.getEmailEnabled() != null) {
-                preference.setEmailEnabled(dto.getEmailEnabled());
-            }
-            if (dto.getPushEnabled() != null) {
-                preference.setPushEnabled(dto.getPushEnabled());
-            }
+            NotificationType type = dto.getNotificationType();
+            updates.add(new NotificationPreferenceService.NotificationPreferenceUpdate(type,
+                dto.getInAppEnabled() != null ? dto.getInAppEnabled()
+                    : current.isEnabled(type, NotificationPreferenceCache.Channel.IN_APP),
+                dto.getEmailEnabled() != null ? dto.getEmailEnabled()
+                    : current.isEnabled(type, NotificationPreferenceCache.Channel.EMAIL),
+                dto.getPushEnabled() != null ? dto.getPushEnabled()
+                    : current.isEnabled(type, NotificationPreferenceCache.Channel.PUSH)));
+        }
+        preferenceService.updatePreferences(user, updates);
 
-            updatedPreferences.add(preferenceRepository.save(preference));
+        List<NotificationPreference> updatedPreferences = new ArrayList<>();
+        for (NotificationPreferenceService.NotificationPreferenceUpdate update : updates) {
+            updatedPreferences.add(preferenceService.getUserPreference(user, update.getType()).orElseThrow());
         }
 
         log.info("Updated {} preferences for user {}", updatedPreferences.size(), userId);
         return updatedPreferences;
     }
 
-    @Transactional
     public void initializeDefaultPreferences(Long userId) {
-        log.info("Initializing default preferences for user {}", userId);
-        
         User user = userRepository.findById(userId)
             .orElseThrow(() -> new RuntimeException("User not found: " + userId));
 
-        for (NotificationType type : NotificationType.values()) {
-            NotificationPreference preference = NotificationPreference.builder()
-                .user(user)
-                .notificationType(type)
-                .inAppEnabled(true)
-                .emailEnabled(true)
-                .pushEnabled(false)
-                .build();
-
-            preferenceRepository.save(preference);
-        }
-
-        log.info("Initialized {} default preferences for user {}", NotificationType.values().length, userId);
+        preferenceService.initializeDefaultPreferences(user);
     }
 
-    private boolean isValidEmail(String email) {
+    static boolean isValidEmail(String email) {
         return email != null && EMAIL_PATTERN.matcher(email).matches();
     }
 }
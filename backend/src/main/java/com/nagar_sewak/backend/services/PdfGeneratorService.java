@@ -2,8 +2,6 @@ package com.nagar_sewak.backend.services;
 
 import com.itextpdf.kernel.colors.ColorConstants;
 import com.itextpdf.kernel.colors.DeviceRgb;
-import com.itextpdf.kernel.pdf.PdfDocument;
-import com.itextpdf.kernel.pdf.PdfWriter;
 import com.itextpdf.layout.Document;
 import com.itextpdf.layout.borders.SolidBorder;
 import com.itextpdf.layout.element.Paragraph;
@@ -15,13 +13,24 @@ import com.itextpdf.layout.properties.VerticalAlignment;
 import com.nagar_sewak.backend.entities.Tender;
 import com.nagar_sewak.backend.entities.Project;
 import com.nagar_sewak.backend.entities.Complaint;
+import com.nagar_sewak.backend.entities.Contractor;
+import com.nagar_sewak.backend.entities.ProjectMilestone;
+import com.nagar_sewak.backend.reports.PdfRenderCache;
+import com.nagar_sewak.backend.reports.PdfRenderingContext;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.ClassPathResource;
 import org.springframework.stereotype.Service;
 
-import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
 
+/**
+ * iText layouts for tender, project, complaint and progress report PDFs. Each report is cached in the
+ * {@link PdfRenderCache} under a version built from the fields it prints, and a hash of this class stands in
+ * for the template hash, so a new build never serves reports laid out by the old one. Documents are opened
+ * through the {@link PdfRenderingContext}, which holds the preloaded fonts.
+ */
 @Service
 @Slf4j
 public class PdfGeneratorService {
@@ -35,453 +44,505 @@ public class PdfGeneratorService {
     private static final DeviceRgb HEADER_BG = new DeviceRgb(245, 245, 245); // Light gray
     private static final DeviceRgb TEXT_COLOR = new DeviceRgb(51, 51, 51); // Dark gray
 
+    private final PdfRenderCache pdfRenderCache;
+    private final PdfRenderingContext renderingContext;
+    private final String layoutHash = PdfRenderCache.hashResource(
+            new ClassPathResource(PdfGeneratorService.class.getName().replace('.', '/') + ".class"));
+
+    public PdfGeneratorService(PdfRenderCache pdfRenderCache, PdfRenderingContext renderingContext) {
+        this.pdfRenderCache = pdfRenderCache;
+        this.renderingContext = renderingContext;
+    }
+
     public byte[] generateTenderPdf(Tender tender) {
-        try (ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
-            PdfWriter writer = new PdfWriter(baos);
-            PdfDocument pdf = new PdfDocument(writer);
-            Document document = new Document(pdf);
-            
-            // Add margins
-            document.setMargins(40, 40, 40, 40);
+        return cachedBytes("tender", tenderKey(tender), out -> writeTenderPdf(tender, out));
+    }
 
-            // Header with logo/title
-            Paragraph header = new Paragraph("NAGAR SEWAK")
-                    .setFontSize(24)
-                    .setBold()
-                    .setFontColor(PRIMARY_COLOR)
-                    .setTextAlignment(TextAlignment.CENTER);
-            document.add(header);
-            
-            Paragraph subHeader = new Paragraph("Tender Notification Document")
-                    .setFontSize(16)
-                    .setFontColor(TEXT_COLOR)
-                    .setTextAlignment(TextAlignment.CENTER)
-                    .setMarginBottom(20);
-            document.add(subHeader);
-            
-            // Horizontal line
-            document.add(new Paragraph("\n").setBorderBottom(new SolidBorder(PRIMARY_COLOR, 2)));
+    public byte[] generateProjectPdf(Project project) {
+        PdfRenderCache.Key key = new PdfRenderCache.Key("project-summary", project.getId(),
+                PdfRenderCache.version(project.getUpdatedAt(), project.getCreatedAt())
+                        + "-" + fingerprint(contractor(project.getContractor())), layoutHash);
+        return cachedBytes("project", key, out -> writeProjectPdf(project, out));
+    }
 
-            // Tender ID Badge
-            Paragraph tenderIdBadge = new Paragraph("Tender ID: #" + tender.getId())
-                    .setFontSize(14)
-                    .setBold()
-                    .setFontColor(ColorConstants.WHITE)
-                    .setBackgroundColor(PRIMARY_COLOR)
-                    .setPadding(10)
-                    .setTextAlignment(TextAlignment.CENTER)
-                    .setMarginTop(15)
-                    .setMarginBottom(15);
-            document.add(tenderIdBadge);
-
-            // Main Details Section
-            Paragraph sectionTitle = new Paragraph("Tender Details")
-                    .setFontSize(16)
-                    .setBold()
-                    .setFontColor(PRIMARY_COLOR)
-                    .setMarginTop(10)
-                    .setMarginBottom(10);
-            document.add(sectionTitle);
+    public byte[] generateComplaintPdf(Complaint complaint) {
+        PdfRenderCache.Key key = new PdfRenderCache.Key("complaint-summary", complaint.getId(),
+                PdfRenderCache.version(complaint.getUpdatedAt(), complaint.getCreatedAt()), layoutHash);
+        return cachedBytes("complaint", key, out -> writeComplaintPdf(complaint, out));
+    }
 
-            // Tender Details Table with improved styling
-            Table table = new Table(UnitValue.createPercentArray(new float[]{35, 65}));
-            table.setWidth(UnitValue.createPercentValue(100));
+    public byte[] generateProgressReportPdf(Project project, List<ProjectMilestone> milestones) {
+        return cachedBytes("progress report", progressReportKey(project, milestones),
+                out -> writeProgressReportPdf(project, milestones, out));
+    }
 
-            addStyledTableRow(table, "Title", tender.getTitle() != null ? tender.getTitle() : "N/A", true);
-            addStyledTableRow(table, "Description", tender.getDescription() != null ? tender.getDescription() : "N/A", false);
-            
-            if (tender.getBudget() != null) {
-                addStyledTableRow(table, "Budget", "₹ " + String.format("%,.2f", tender.getBudget()), true);
-            }
-            
-            if (tender.getQuoteAmount() != null) {
-                addStyledTableRow(table, "Quote Amount", "₹ " + String.format("%,.2f", tender.getQuoteAmount()), true);
-            }
-            
-            if (tender.getStartDate() != null) {
-                addStyledTableRow(table, "Bid Start Date", tender.getStartDate().format(DATE_ONLY_FORMATTER), false);
-            }
-            
-            if (tender.getEndDate() != null) {
-                addStyledTableRow(table, "Bid End Date", tender.getEndDate().format(DATE_ONLY_FORMATTER), true);
-            }
-            
-            if (tender.getEstimatedDays() != null) {
-                addStyledTableRow(table, "Estimated Days", tender.getEstimatedDays() + " days", false);
-            }
-            
-            addStyledTableRow(table, "Status", tender.getStatus() != null ? tender.getStatus() : "N/A", true);
-            
-            if (tender.getComplaint() != null) {
-                addStyledTableRow(table, "Related Complaint", "#" + tender.getComplaint().getId() + " - " + tender.getComplaint().getTitle(), false);
-            }
-            
-            if (tender.getContractor() != null) {
-                addStyledTableRow(table, "Contractor", tender.getContractor().getCompanyName(), true);
-                addStyledTableRow(table, "License No", tender.getContractor().getLicenseNo(), false);
-            }
+    /**
+     * Progress report as a file to stream to the client; reports with many photos can be large, so this
+     * avoids holding them on the heap. Release the file once sent.
+     */
+    public PdfRenderCache.RenderedFile progressReportFile(Project project, List<ProjectMilestone> milestones) {
+        return pdfRenderCache.getOrRender(progressReportKey(project, milestones),
+                renderingContext.measured(out -> writeProgressReportPdf(project, milestones, out)));
+    }
 
-            document.add(table);
+    public PdfRenderCache.Key tenderKey(Tender tender) {
+        String related = (tender.getComplaint() != null ? tender.getComplaint().getTitle() : "")
+                + "|" + contractor(tender.getContractor());
+        return new PdfRenderCache.Key("tender", tender.getId(),
+                PdfRenderCache.version(tender.getUpdatedAt(), tender.getCreatedAt()) + "-" + fingerprint(related),
+                layoutHash);
+    }
 
-            // Footer
-            document.add(new Paragraph("\n\n"));
-            document.add(new Paragraph("\n").setBorderTop(new SolidBorder(HEADER_BG, 1)));
-            
-            Paragraph footer = new Paragraph("This is an official document generated by Nagar Sewak System")
-                    .setFontSize(9)
-                    .setItalic()
-                    .setFontColor(ColorConstants.GRAY)
-                    .setTextAlignment(TextAlignment.CENTER)
-                    .setMarginTop(10);
-            document.add(footer);
-            
-            Paragraph timestamp = new Paragraph("Generated on: " + java.time.LocalDateTime.now().format(DATE_FORMATTER))
-                    .setFontSize(8)
-                    .setFontColor(ColorConstants.GRAY)
-                    .setTextAlignment(TextAlignment.CENTER);
-            document.add(timestamp);
-
-            document.close();
-            return baos.toByteArray();
+    /** Milestones change without touching the project row, so each one printed is part of the version */
+    public PdfRenderCache.Key progressReportKey(Project project, List<ProjectMilestone> milestones) {
+        StringBuilder printed = new StringBuilder(contractor(project.getContractor()));
+        for (ProjectMilestone milestone : milestones) {
+            printed.append('|').append(milestone.getId())
+                    .append(',').append(milestone.getPercentage())
+                    .append(',').append(milestone.getStatus())
+                    .append(',').append(milestone.getCompletedAt())
+                    .append(',').append(milestone.getUpdatedBy())
+                    .append(',').append(milestone.getNotes())
+                    .append(',').append(milestone.getPhotoUrls());
+        }
+        return new PdfRenderCache.Key("progress-report", project.getId(),
+                PdfRenderCache.version(project.getUpdatedAt(), project.getCreatedAt()) + "-" + fingerprint(printed.toString()),
+                layoutHash);
+    }
+
+    private static String contractor(Contractor contractor) {
+        return contractor != null ? contractor.getCompanyName() + "," + contractor.getLicenseNo() : "";
+    }
+
+    /** Whole report for email attachments; empty if it could not be rendered */
+    private byte[] cachedBytes(String report, PdfRenderCache.Key key, PdfRenderCache.Renderer renderer) {
+        try {
+            return pdfRenderCache.getOrRenderBytes(key, renderingContext.measured(renderer));
         } catch (Exception e) {
-            log.error("Error generating tender PDF", e);
+            log.error("Error generating {} PDF", report, e);
             return new byte[0];
         }
     }
 
-    public byte[] generateProjectPdf(Project project) {
-        try (ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
-            PdfWriter writer = new PdfWriter(baos);
-            PdfDocument pdf = new PdfDocument(writer);
-            Document document = new Document(pdf);
-            
-            document.setMargins(40, 40, 40, 40);
-
-            // Header
-            Paragraph header = new Paragraph("NAGAR SEWAK")
-                    .setFontSize(24)
-                    .setBold()
-                    .setFontColor(SECONDARY_COLOR)
-                    .setTextAlignment(TextAlignment.CENTER);
-            document.add(header);
-            
-            Paragraph subHeader = new Paragraph("Project Information Document")
-                    .setFontSize(16)
-                    .setFontColor(TEXT_COLOR)
-                    .setTextAlignment(TextAlignment.CENTER)
-                    .setMarginBottom(20);
-            document.add(subHeader);
-            
-            document.add(new Paragraph("\n").setBorderBottom(new SolidBorder(SECONDARY_COLOR, 2)));
+    private static String fingerprint(String printed) {
+        return PdfRenderCache.sha256(printed).substring(0, 16);
+    }
 
-            // Project ID Badge
-            Paragraph projectIdBadge = new Paragraph("Project ID: #" + project.getId())
-                    .setFontSize(14)
-                    .setBold()
-                    .setFontColor(ColorConstants.WHITE)
-                    .setBackgroundColor(SECONDARY_COLOR)
-                    .setPadding(10)
-                    .setTextAlignment(TextAlignment.CENTER)
-                    .setMarginTop(15)
-                    .setMarginBottom(15);
-            document.add(projectIdBadge);
-
-            // Main Details
-            Paragraph sectionTitle = new Paragraph("Project Details")
-                    .setFontSize(16)
-                    .setBold()
-                    .setFontColor(SECONDARY_COLOR)
-                    .setMarginTop(10)
-                    .setMarginBottom(10);
-            document.add(sectionTitle);
+    public void writeTenderPdf(Tender tender, OutputStream out) {
+        Document document = renderingContext.openDocument(out);
+        
+        // Add margins
+        document.setMargins(40, 40, 40, 40);
+
+        // Header with logo/title
+        Paragraph header = new Paragraph("NAGAR SEWAK")
+                .setFontSize(24)
+                .setBold()
+                .setFontColor(PRIMARY_COLOR)
+                .setTextAlignment(TextAlignment.CENTER);
+        document.add(header);
+        
+        Paragraph subHeader = new Paragraph("Tender Notification Document")
+                .setFontSize(16)
+                .setFontColor(TEXT_COLOR)
+                .setTextAlignment(TextAlignment.CENTER)
+                .setMarginBottom(20);
+        document.add(subHeader);
+        
+        // Horizontal line
+        document.add(new Paragraph("\n").setBorderBottom(new SolidBorder(PRIMARY_COLOR, 2)));
+
+        // Tender ID Badge
+        Paragraph tenderIdBadge = new Paragraph("Tender ID: #" + tender.getId())
+                .setFontSize(14)
+                .setBold()
+                .setFontColor(ColorConstants.WHITE)
+                .setBackgroundColor(PRIMARY_COLOR)
+                .setPadding(10)
+                .setTextAlignment(TextAlignment.CENTER)
+                .setMarginTop(15)
+                .setMarginBottom(15);
+        document.add(tenderIdBadge);
+
+        // Main Details Section
+        Paragraph sectionTitle = new Paragraph("Tender Details")
+                .setFontSize(16)
+                .setBold()
+                .setFontColor(PRIMARY_COLOR)
+                .setMarginTop(10)
+                .setMarginBottom(10);
+        document.add(sectionTitle);
+
+        // Tender Details Table with improved styling
+        Table table = new Table(UnitValue.createPercentArray(new float[]{35, 65}));
+        table.setWidth(UnitValue.createPercentValue(100));
+
+        addStyledTableRow(table, "Title", tender.getTitle() != null ? tender.getTitle() : "N/A", true);
+        addStyledTableRow(table, "Description", tender.getDescription() != null ? tender.getDescription() : "N/A", false);
+        
+        if (tender.getBudget() != null) {
+            addStyledTableRow(table, "Budget", "₹ " + String.format("%,.2f", tender.getBudget()), true);
+        }
+        
+        if (tender.getQuoteAmount() != null) {
+            addStyledTableRow(table, "Quote Amount", "₹ " + String.format("%,.2f", tender.getQuoteAmount()), true);
+        }
+        
+        if (tender.getStartDate() != null) {
+            addStyledTableRow(table, "Bid Start Date", tender.getStartDate().format(DATE_ONLY_FORMATTER), false);
+        }
+        
+        if (tender.getEndDate() != null) {
+            addStyledTableRow(table, "Bid End Date", tender.getEndDate().format(DATE_ONLY_FORMATTER), true);
+        }
+        
+        if (tender.getEstimatedDays() != null) {
+            addStyledTableRow(table, "Estimated Days", tender.getEstimatedDays() + " days", false);
+        }
+        
+        addStyledTableRow(table, "Status", tender.getStatus() != null ? tender.getStatus() : "N/A", true);
+        
+        if (tender.getComplaint() != null) {
+            addStyledTableRow(table, "Related Complaint", "#" + tender.getComplaint().getId() + " - " + tender.getComplaint().getTitle(), false);
+        }
+        
+        if (tender.getContractor() != null) {
+            addStyledTableRow(table, "Contractor", tender.getContractor().getCompanyName(), true);
+            addStyledTableRow(table, "License No", tender.getContractor().getLicenseNo(), false);
+        }
 
-            Table table = new Table(UnitValue.createPercentArray(new float[]{35, 65}));
-            table.setWidth(UnitValue.createPercentValue(100));
+        document.add(table);
 
-            addStyledTableRow(table, "Title", project.getTitle() != null ? project.getTitle() : "N/A", true);
-            addStyledTableRow(table, "Description", project.getDescription() != null ? project.getDescription() : "N/A", false);
-            addStyledTableRow(table, "Status", project.getStatus() != null ? project.getStatus() : "N/A", true);
-            
-            if (project.getBudget() != null) {
-                addStyledTableRow(table, "Budget", "₹ " + String.format("%,.2f", project.getBudget()), false);
-            }
-            
-            if (project.getProgressPercentage() != null) {
-                addStyledTableRow(table, "Progress", project.getProgressPercentage() + "%", true);
-            }
-            
-            if (project.getCreatedAt() != null) {
-                addStyledTableRow(table, "Created Date", project.getCreatedAt().format(DATE_FORMATTER), false);
-            }
-            
-            if (project.getUpdatedAt() != null) {
-                addStyledTableRow(table, "Last Updated", project.getUpdatedAt().format(DATE_FORMATTER), true);
-            }
-            
-            if (project.getContractor() != null) {
-                addStyledTableRow(table, "Contractor", project.getContractor().getCompanyName(), false);
-                addStyledTableRow(table, "License No", project.getContractor().getLicenseNo(), true);
-            }
-            
-            if (project.getLat() != null && project.getLng() != null) {
-                addStyledTableRow(table, "Location", project.getLat() + ", " + project.getLng(), false);
-            }
+        // Footer
+        document.add(new Paragraph("\n\n"));
+        document.add(new Paragraph("\n").setBorderTop(new SolidBorder(HEADER_BG, 1)));
+        
+        Paragraph footer = new Paragraph("This is an official document generated by Nagar Sewak System")
+                .setFontSize(9)
+                .setItalic()
+                .setFontColor(ColorConstants.GRAY)
+                .setTextAlignment(TextAlignment.CENTER)
+                .setMarginTop(10);
+        document.add(footer);
+        
+        Paragraph timestamp = new Paragraph("Generated on: " + java.time.LocalDateTime.now().format(DATE_FORMATTER))
+                .setFontSize(8)
+                .setFontColor(ColorConstants.GRAY)
+                .setTextAlignment(TextAlignment.CENTER);
+        document.add(timestamp);
 
-            document.add(table);
+        document.close();
+    }
 
-            // Footer
-            document.add(new Paragraph("\n\n"));
-            document.add(new Paragraph("\n").setBorderTop(new SolidBorder(HEADER_BG, 1)));
-            
-            Paragraph footer = new Paragraph("This is an official document generated by Nagar Sewak System")
-                    .setFontSize(9)
-                    .setItalic()
-                    .setFontColor(ColorConstants.GRAY)
-                    .setTextAlignment(TextAlignment.CENTER)
-                    .setMarginTop(10);
-            document.add(footer);
-            
-            Paragraph timestamp = new Paragraph("Generated on: " + java.time.LocalDateTime.now().format(DATE_FORMATTER))
-                    .setFontSize(8)
-                    .setFontColor(ColorConstants.GRAY)
-                    .setTextAlignment(TextAlignment.CENTER);
-            document.add(timestamp);
-
-            document.close();
-            return baos.toByteArray();
-        } catch (Exception e) {
-            log.error("Error generating project PDF", e);
-            return new byte[0];
+    public void writeProjectPdf(Project project, OutputStream out) {
+        Document document = renderingContext.openDocument(out);
+        
+        document.setMargins(40, 40, 40, 40);
+
+        // Header
+        Paragraph header = new Paragraph("NAGAR SEWAK")
+                .setFontSize(24)
+                .setBold()
+                .setFontColor(SECONDARY_COLOR)
+                .setTextAlignment(TextAlignment.CENTER);
+        document.add(header);
+        
+        Paragraph subHeader = new Paragraph("Project Information Document")
+                .setFontSize(16)
+                .setFontColor(TEXT_COLOR)
+                .setTextAlignment(TextAlignment.CENTER)
+                .setMarginBottom(20);
+        document.add(subHeader);
+        
+        document.add(new Paragraph("\n").setBorderBottom(new SolidBorder(SECONDARY_COLOR, 2)));
+
+        // Project ID Badge
+        Paragraph projectIdBadge = new Paragraph("Project ID: #" + project.getId())
+                .setFontSize(14)
+                .setBold()
+                .setFontColor(ColorConstants.WHITE)
+                .setBackgroundColor(SECONDARY_COLOR)
+                .setPadding(10)
+                .setTextAlignment(TextAlignment.CENTER)
+                .setMarginTop(15)
+                .setMarginBottom(15);
+        document.add(projectIdBadge);
+
+        // Main Details
+        Paragraph sectionTitle = new Paragraph("Project Details")
+                .setFontSize(16)
+                .setBold()
+                .setFontColor(SECONDARY_COLOR)
+                .setMarginTop(10)
+                .setMarginBottom(10);
+        document.add(sectionTitle);
+
+        Table table = new Table(UnitValue.createPercentArray(new float[]{35, 65}));
+        table.setWidth(UnitValue.createPercentValue(100));
+
+        addStyledTableRow(table, "Title", project.getTitle() != null ? project.getTitle() : "N/A", true);
+        addStyledTableRow(table, "Description", project.getDescription() != null ? project.getDescription() : "N/A", false);
+        addStyledTableRow(table, "Status", project.getStatus() != null ? project.getStatus() : "N/A", true);
+        
+        if (project.getBudget() != null) {
+            addStyledTableRow(table, "Budget", "₹ " + String.format("%,.2f", project.getBudget()), false);
         }
+        
+        if (project.getProgressPercentage() != null) {
+            addStyledTableRow(table, "Progress", project.getProgressPercentage() + "%", true);
+        }
+        
+        if (project.getCreatedAt() != null) {
+            addStyledTableRow(table, "Created Date", project.getCreatedAt().format(DATE_FORMATTER), false);
+        }
+        
+        if (project.getUpdatedAt() != null) {
+            addStyledTableRow(table, "Last Updated", project.getUpdatedAt().format(DATE_FORMATTER), true);
+        }
+        
+        if (project.getContractor() != null) {
+            addStyledTableRow(table, "Contractor", project.getContractor().getCompanyName(), false);
+            addStyledTableRow(table, "License No", project.getContractor().getLicenseNo(), true);
+        }
+        
+        if (project.getLat() != null && project.getLng() != null) {
+            addStyledTableRow(table, "Location", project.getLat() + ", " + project.getLng(), false);
+        }
+
+        document.add(table);
+
+        // Footer
+        document.add(new Paragraph("\n\n"));
+        document.add(new Paragraph("\n").setBorderTop(new SolidBorder(HEADER_BG, 1)));
+        
+        Paragraph footer = new Paragraph("This is an official document generated by Nagar Sewak System")
+                .setFontSize(9)
+                .setItalic()
+                .setFontColor(ColorConstants.GRAY)
+                .setTextAlignment(TextAlignment.CENTER)
+                .setMarginTop(10);
+        document.add(footer);
+        
+        Paragraph timestamp = new Paragraph("Generated on: " + java.time.LocalDateTime.now().format(DATE_FORMATTER))
+                .setFontSize(8)
+                .setFontColor(ColorConstants.GRAY)
+                .setTextAlignment(TextAlignment.CENTER);
+        document.add(timestamp);
+
+        document.close();
     }
 
-    public byte[] generateComplaintPdf(Complaint complaint) {
-        try (ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
-            PdfWriter writer = new PdfWriter(baos);
-            PdfDocument pdf = new PdfDocument(writer);
-            Document document = new Document(pdf);
-            
-            document.setMargins(40, 40, 40, 40);
+    public void writeComplaintPdf(Complaint complaint, OutputStream out) {
+        Document document = renderingContext.openDocument(out);
+        
+        document.setMargins(40, 40, 40, 40);
+
+        // Header
+        Paragraph header = new Paragraph("NAGAR SEWAK")
+                .setFontSize(24)
+                .setBold()
+                .setFontColor(new DeviceRgb(244, 67, 54)) // Red
+                .setTextAlignment(TextAlignment.CENTER);
+        document.add(header);
+        
+        Paragraph subHeader = new Paragraph("Complaint Report Document")
+                .setFontSize(16)
+                .setFontColor(TEXT_COLOR)
+                .setTextAlignment(TextAlignment.CENTER)
+                .setMarginBottom(20);
+        document.add(subHeader);
+        
+        document.add(new Paragraph("\n").setBorderBottom(new SolidBorder(new DeviceRgb(244, 67, 54), 2)));
+
+        // Complaint ID Badge
+        Paragraph complaintIdBadge = new Paragraph("Complaint ID: #" + complaint.getId())
+                .setFontSize(14)
+                .setBold()
+                .setFontColor(ColorConstants.WHITE)
+                .setBackgroundColor(new DeviceRgb(244, 67, 54))
+                .setPadding(10)
+                .setTextAlignment(TextAlignment.CENTER)
+                .setMarginTop(15)
+                .setMarginBottom(15);
+        document.add(complaintIdBadge);
+
+        // Main Details
+        Paragraph sectionTitle = new Paragraph("Complaint Details")
+                .setFontSize(16)
+                .setBold()
+                .setFontColor(new DeviceRgb(244, 67, 54))
+                .setMarginTop(10)
+                .setMarginBottom(10);
+        document.add(sectionTitle);
+
+        Table table = new Table(UnitValue.createPercentArray(new float[]{35, 65}));
+        table.setWidth(UnitValue.createPercentValue(100));
+
+        addStyledTableRow(table, "Title", complaint.getTitle() != null ? complaint.getTitle() : "N/A", true);
+        addStyledTableRow(table, "Description", complaint.getDescription() != null ? complaint.getDescription() : "N/A", false);
+        addStyledTableRow(table, "Status", complaint.getStatus() != null ? complaint.getStatus() : "N/A", true);
+        addStyledTableRow(table, "Severity Level", String.valueOf(complaint.getSeverity()) + "/10", false);
+        
+        if (complaint.getLat() != null && complaint.getLng() != null) {
+            addStyledTableRow(table, "Location", complaint.getLat() + ", " + complaint.getLng(), true);
+        }
+        
+        if (complaint.getCreatedAt() != null) {
+            addStyledTableRow(table, "Submitted Date", 
+                java.time.LocalDateTime.ofInstant(complaint.getCreatedAt(), 
+                java.time.ZoneId.systemDefault()).format(DATE_FORMATTER), false);
+        }
+        
+        if (complaint.getResolvedAt() != null) {
+            addStyledTableRow(table, "Resolved Date", 
+                java.time.LocalDateTime.ofInstant(complaint.getResolvedAt(), 
+                java.time.ZoneId.systemDefault()).format(DATE_FORMATTER), true);
+        }
+        
+        if (complaint.getUser() != null) {
+            addStyledTableRow(table, "Submitted By", complaint.getUser().getUsername(), false);
+        }
 
-            // Header
-            Paragraph header = new Paragraph("NAGAR SEWAK")
-                    .setFontSize(24)
-                    .setBold()
-                    .setFontColor(new DeviceRgb(244, 67, 54)) // Red
-                    .setTextAlignment(TextAlignment.CENTER);
-            document.add(header);
-            
-            Paragraph subHeader = new Paragraph("Complaint Report Document")
-                    .setFontSize(16)
-                    .setFontColor(TEXT_COLOR)
-                    .setTextAlignment(TextAlignment.CENTER)
-                    .setMarginBottom(20);
-            document.add(subHeader);
-            
-            document.add(new Paragraph("\n").setBorderBottom(new SolidBorder(new DeviceRgb(244, 67, 54), 2)));
+        document.add(table);
 
-            // Complaint ID Badge
-            Paragraph complaintIdBadge = new Paragraph("Complaint ID: #" + complaint.getId())
-                    .setFontSize(14)
-                    .setBold()
-                    .setFontColor(ColorConstants.WHITE)
-                    .setBackgroundColor(new DeviceRgb(244, 67, 54))
-                    .setPadding(10)
-                    .setTextAlignment(TextAlignment.CENTER)
-                    .setMarginTop(15)
-                    .setMarginBottom(15);
-            document.add(complaintIdBadge);
-
-            // Main Details
-            Paragraph sectionTitle = new Paragraph("Complaint Details")
-                    .setFontSize(16)
+        // Footer
+        document.add(new Paragraph("\n\n"));
+        document.add(new Paragraph("\n").setBorderTop(new SolidBorder(HEADER_BG, 1)));
+        
+        Paragraph footer = new Paragraph("This is an official document generated by Nagar Sewak System")
+                .setFontSize(9)
+                .setItalic()
+                .setFontColor(ColorConstants.GRAY)
+                .setTextAlignment(TextAlignment.CENTER)
+                .setMarginTop(10);
+        document.add(footer);
+        
+        Paragraph timestamp = new Paragraph("Generated on: " + java.time.LocalDateTime.now().format(DATE_FORMATTER))
+                .setFontSize(8)
+                .setFontColor(ColorConstants.GRAY)
+                .setTextAlignment(TextAlignment.CENTER);
+        document.add(timestamp);
+
+        document.close();
+    }
+
+    public void writeProgressReportPdf(Project project, List<ProjectMilestone> milestones, OutputStream out) {
+        Document document = renderingContext.openDocument(out);
+        
+        document.setMargins(40, 40, 40, 40);
+
+        // Header
+        Paragraph header = new Paragraph("NAGAR SEWAK")
+                .setFontSize(24)
+                .setBold()
+                .setFontColor(SECONDARY_COLOR)
+                .setTextAlignment(TextAlignment.CENTER);
+        document.add(header);
+        
+        Paragraph subHeader = new Paragraph("Project Progress Report")
+                .setFontSize(16)
+                .setFontColor(TEXT_COLOR)
+                .setTextAlignment(TextAlignment.CENTER)
+                .setMarginBottom(20);
+        document.add(subHeader);
+        
+        document.add(new Paragraph("\n").setBorderBottom(new SolidBorder(SECONDARY_COLOR, 2)));
+
+        // Project Info
+        Paragraph projectTitle = new Paragraph(project.getTitle())
+                .setFontSize(18)
+                .setBold()
+                .setFontColor(SECONDARY_COLOR)
+                .setTextAlignment(TextAlignment.CENTER)
+                .setMarginTop(15)
+                .setMarginBottom(15);
+        document.add(projectTitle);
+
+        // Progress Bar Visual
+        Table progressBar = new Table(UnitValue.createPercentArray(new float[]{100}));
+        progressBar.setWidth(UnitValue.createPercentValue(100));
+        
+        Cell progressCell = new Cell()
+                .add(new Paragraph(project.getProgressPercentage() + "% Complete")
+                        .setBold()
+                        .setFontSize(14)
+                        .setFontColor(ColorConstants.WHITE))
+                .setBackgroundColor(SECONDARY_COLOR)
+                .setPadding(15)
+                .setTextAlignment(TextAlignment.CENTER);
+        progressBar.addCell(progressCell);
+        document.add(progressBar);
+
+        document.add(new Paragraph("\n"));
+
+        // Milestone Timeline
+        Paragraph timelineTitle = new Paragraph("Progress Timeline")
+                .setFontSize(16)
+                .setBold()
+                .setFontColor(SECONDARY_COLOR)
+                .setMarginTop(10)
+                .setMarginBottom(10);
+        document.add(timelineTitle);
+
+        for (com.nagar_sewak.backend.entities.ProjectMilestone milestone : milestones) {
+            DeviceRgb milestoneColor = milestone.getStatus().equals("COMPLETED") ? 
+                    SECONDARY_COLOR : new DeviceRgb(200, 200, 200);
+            
+            // Milestone header
+            Paragraph milestoneHeader = new Paragraph(milestone.getPercentage() + "% - " + getMilestoneLabel(milestone.getPercentage()))
+                    .setFontSize(13)
                     .setBold()
-                    .setFontColor(new DeviceRgb(244, 67, 54))
-                    .setMarginTop(10)
-                    .setMarginBottom(10);
-            document.add(sectionTitle);
-
-            Table table = new Table(UnitValue.createPercentArray(new float[]{35, 65}));
-            table.setWidth(UnitValue.createPercentValue(100));
-
-            addStyledTableRow(table, "Title", complaint.getTitle() != null ? complaint.getTitle() : "N/A", true);
-            addStyledTableRow(table, "Description", complaint.getDescription() != null ? complaint.getDescription() : "N/A", false);
-            addStyledTableRow(table, "Status", complaint.getStatus() != null ? complaint.getStatus() : "N/A", true);
-            addStyledTableRow(table, "Severity Level", String.valueOf(complaint.getSeverity()) + "/10", false);
+                    .setFontColor(milestoneColor)
+                    .setMarginTop(10);
+            document.add(milestoneHeader);
+
+            // Milestone details table
+            Table milestoneTable = new Table(UnitValue.createPercentArray(new float[]{30, 70}));
+            milestoneTable.setWidth(UnitValue.createPercentValue(100));
+            milestoneTable.setMarginBottom(10);
+
+            addStyledTableRow(milestoneTable, "Status", milestone.getStatus(), true);
             
-            if (complaint.getLat() != null && complaint.getLng() != null) {
-                addStyledTableRow(table, "Location", complaint.getLat() + ", " + complaint.getLng(), true);
+            if (milestone.getCompletedAt() != null) {
+                addStyledTableRow(milestoneTable, "Completed", 
+                    milestone.getCompletedAt().format(DATE_FORMATTER), false);
             }
             
-            if (complaint.getCreatedAt() != null) {
-                addStyledTableRow(table, "Submitted Date", 
-                    java.time.LocalDateTime.ofInstant(complaint.getCreatedAt(), 
-                    java.time.ZoneId.systemDefault()).format(DATE_FORMATTER), false);
+            if (milestone.getUpdatedBy() != null) {
+                addStyledTableRow(milestoneTable, "Updated By", milestone.getUpdatedBy(), true);
             }
             
-            if (complaint.getResolvedAt() != null) {
-                addStyledTableRow(table, "Resolved Date", 
-                    java.time.LocalDateTime.ofInstant(complaint.getResolvedAt(), 
-                    java.time.ZoneId.systemDefault()).format(DATE_FORMATTER), true);
+            if (milestone.getNotes() != null && !milestone.getNotes().isEmpty()) {
+                addStyledTableRow(milestoneTable, "Notes", milestone.getNotes(), false);
             }
             
-            if (complaint.getUser() != null) {
-                addStyledTableRow(table, "Submitted By", complaint.getUser().getUsername(), false);
+            if (milestone.getPhotoUrls() != null && !milestone.getPhotoUrls().isEmpty()) {
+                addStyledTableRow(milestoneTable, "Photos", 
+                    milestone.getPhotoUrls().split(",").length + " photo(s) attached", true);
             }
 
-            document.add(table);
-
-            // Footer
-            document.add(new Paragraph("\n\n"));
-            document.add(new Paragraph("\n").setBorderTop(new SolidBorder(HEADER_BG, 1)));
-            
-            Paragraph footer = new Paragraph("This is an official document generated by Nagar Sewak System")
-                    .setFontSize(9)
-                    .setItalic()
-                    .setFontColor(ColorConstants.GRAY)
-                    .setTextAlignment(TextAlignment.CENTER)
-                    .setMarginTop(10);
-            document.add(footer);
-            
-            Paragraph timestamp = new Paragraph("Generated on: " + java.time.LocalDateTime.now().format(DATE_FORMATTER))
-                    .setFontSize(8)
-                    .setFontColor(ColorConstants.GRAY)
-                    .setTextAlignment(TextAlignment.CENTER);
-            document.add(timestamp);
-
-            document.close();
-            return baos.toByteArray();
-        } catch (Exception e) {
-            log.error("Error generating complaint PDF", e);
-            return new byte[0];
+            document.add(milestoneTable);
         }
-    }
-
-    public byte[] generateProgressReportPdf(Project project, List<com.nagar_sewak.backend.entities.ProjectMilestone> milestones) {
-        try (ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
-            PdfWriter writer = new PdfWriter(baos);
-            PdfDocument pdf = new PdfDocument(writer);
-            Document document = new Document(pdf);
-            
-            document.setMargins(40, 40, 40, 40);
-
-            // Header
-            Paragraph header = new Paragraph("NAGAR SEWAK")
-                    .setFontSize(24)
-                    .setBold()
-                    .setFontColor(SECONDARY_COLOR)
-                    .setTextAlignment(TextAlignment.CENTER);
-            document.add(header);
-            
-            Paragraph subHeader = new Paragraph("Project Progress Report")
-                    .setFontSize(16)
-                    .setFontColor(TEXT_COLOR)
-                    .setTextAlignment(TextAlignment.CENTER)
-                    .setMarginBottom(20);
-            document.add(subHeader);
-            
-            document.add(new Paragraph("\n").setBorderBottom(new SolidBorder(SECONDARY_COLOR, 2)));
 
-            // Project Info
-            Paragraph projectTitle = new Paragraph(project.getTitle())
-                    .setFontSize(18)
-                    .setBold()
-                    .setFontColor(SECONDARY_COLOR)
-                    .setTextAlignment(TextAlignment.CENTER)
-                    .setMarginTop(15)
-                    .setMarginBottom(15);
-            document.add(projectTitle);
-
-            // Progress Bar Visual
-            Table progressBar = new Table(UnitValue.createPercentArray(new float[]{100}));
-            progressBar.setWidth(UnitValue.createPercentValue(100));
-            
-            Cell progressCell = new Cell()
-                    .add(new Paragraph(project.getProgressPercentage() + "% Complete")
-                            .setBold()
-                            .setFontSize(14)
-                            .setFontColor(ColorConstants.WHITE))
-                    .setBackgroundColor(SECONDARY_COLOR)
-                    .setPadding(15)
-                    .setTextAlignment(TextAlignment.CENTER);
-            progressBar.addCell(progressCell);
-            document.add(progressBar);
-
-            document.add(new Paragraph("\n"));
-
-            // Milestone Timeline
-            Paragraph timelineTitle = new Paragraph("Progress Timeline")
-                    .setFontSize(16)
-                    .setBold()
-                    .setFontColor(SECONDARY_COLOR)
-                    .setMarginTop(10)
-                    .setMarginBottom(10);
-            document.add(timelineTitle);
-
-            for (com.nagar_sewak.backend.entities.ProjectMilestone milestone : milestones) {
-                DeviceRgb milestoneColor = milestone.getStatus().equals("COMPLETED") ? 
-                        SECONDARY_COLOR : new DeviceRgb(200, 200, 200);
-                
-                // Milestone header
-                Paragraph milestoneHeader = new Paragraph(milestone.getPercentage() + "% - " + getMilestoneLabel(milestone.getPercentage()))
-                        .setFontSize(13)
-                        .setBold()
-                        .setFontColor(milestoneColor)
-                        .setMarginTop(10);
-                document.add(milestoneHeader);
-
-                // Milestone details table
-                Table milestoneTable = new Table(UnitValue.createPercentArray(new float[]{30, 70}));
-                milestoneTable.setWidth(UnitValue.createPercentValue(100));
-                milestoneTable.setMarginBottom(10);
-
-                addStyledTableRow(milestoneTable, "Status", milestone.getStatus(), true);
-                
-                if (milestone.getCompletedAt() != null) {
-                    addStyledTableRow(milestoneTable, "Completed", 
-                        milestone.getCompletedAt().format(DATE_FORMATTER), false);
-                }
-                
-                if (milestone.getUpdatedBy() != null) {
-                    addStyledTableRow(milestoneTable, "Updated By", milestone.getUpdatedBy(), true);
-                }
-                
-                if (milestone.getNotes() != null && !milestone.getNotes().isEmpty()) {
-                    addStyledTableRow(milestoneTable, "Notes", milestone.getNotes(), false);
-                }
-                
-                if (milestone.getPhotoUrls() != null && !milestone.getPhotoUrls().isEmpty()) {
-                    addStyledTableRow(milestoneTable, "Photos", 
-                        milestone.getPhotoUrls().split(",").length + " photo(s) attached", true);
-                }
-
-                document.add(milestoneTable);
-            }
+        // Footer
+        document.add(new Paragraph("\n\n"));
+        document.add(new Paragraph("\n").setBorderTop(new SolidBorder(HEADER_BG, 1)));
+        
+        Paragraph footer = new Paragraph("This is an official progress report generated by Nagar Sewak System")
+                .setFontSize(9)
+                .setItalic()
+                .setFontColor(ColorConstants.GRAY)
+                .setTextAlignment(TextAlignment.CENTER)
+                .setMarginTop(10);
+        document.add(footer);
+        
+        Paragraph timestamp = new Paragraph("Generated on: " + java.time.LocalDateTime.now().format(DATE_FORMATTER))
+                .setFontSize(8)
+                .setFontColor(ColorConstants.GRAY)
+                .setTextAlignment(TextAlignment.CENTER);
+        document.add(timestamp);
 
-            // Footer
-            document.add(new Paragraph("\n\n"));
-            document.add(new Paragraph("\n").setBorderTop(new SolidBorder(HEADER_BG, 1)));
-            
-            Paragraph footer = new Paragraph("This is an official progress report generated by Nagar Sewak System")
-                    .setFontSize(9)
-                    .setItalic()
-                    .setFontColor(ColorConstants.GRAY)
-                    .setTextAlignment(TextAlignment.CENTER)
-                    .setMarginTop(10);
-            document.add(footer);
-            
-            Paragraph timestamp = new Paragraph("Generated on: " + java.time.LocalDateTime.now().format(DATE_FORMATTER))
-                    .setFontSize(8)
-                    .setFontColor(ColorConstants.GRAY)
-                    .setTextAlignment(TextAlignment.CENTER);
-            document.add(timestamp);
-
-            document.close();
-            return baos.toByteArray();
-        } catch (Exception e) {
-            log.error("Error generating progress report PDF", e);
-            return new byte[0];
-        }
+        document.close();
     }
 
     private String getMilestoneLabel(Integer percentage) {
@@ -4,10 +4,14 @@ import com.nagar_sewak.backend.dto.ProjectDetailDTO;
 import com.nagar_sewak.backend.entities.Complaint;
 import com.nagar_sewak.backend.entities.Contractor;
 import com.nagar_sewak.backend.entities.Project;
+import com.nagar_sewak.backend.entities.ProjectMilestone;
+import com.nagar_sewak.backend.events.DomainEventOutbox;
+import com.nagar_sewak.backend.events.ProjectMilestoneCompletedEvent;
 import com.nagar_sewak.backend.repositories.ComplaintRepository;
 import com.nagar_sewak.backend.repositories.ProjectRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.stream.Collectors;
@@ -19,7 +23,22 @@ public class ProjectService {
     private final ProjectRepository projectRepo;
     private final ComplaintRepository complaintRepo;
     public final com.nagar_sewak.backend.repositories.ProjectMilestoneRepository milestoneRepo;
-    public final org.springframework.context.ApplicationEventPublisher eventPublisher;
+    public final DomainEventOutbox domainEventOutbox;
+
+    /**
+     * Save a milestone (and the project, if given) and record its completion event in the same transaction
+     */
+    @Transactional
+    public ProjectMilestone saveMilestone(ProjectMilestone milestone, Project project, boolean publishCompletion) {
+        ProjectMilestone saved = milestoneRepo.save(milestone);
+        if (project != null) {
+            projectRepo.save(project);
+        }
+        if (publishCompletion) {
+            domainEventOutbox.publish(new ProjectMilestoneCompletedEvent(this, saved.getProject(), saved));
+        }
+        return saved;
+    }
 
     public ProjectDetailDTO getProjectDetail(Long projectId) {
         Project project = projectRepo.findById(projectId)
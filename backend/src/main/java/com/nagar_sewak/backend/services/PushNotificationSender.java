@@ -0,0 +1,25 @@
+package com.nagar_sewak.backend.services;
+
+import java.util.List;
+
+/**
+ * Delivers a notification over a push channel. Implementations are picked up by
+ * {@link NotificationFanoutService} and called from its push queue.
+ */
+public interface PushNotificationSender {
+
+    /**
+     * Push a notification to the user identified by {@code notification.getUserId()}
+     */
+    void send(NotificationService.NotificationDTO notification);
+
+    /**
+     * Push a batch of notifications, one fan-out chunk at a time. Senders that can share
+     * lookups and connections across the batch override this.
+     */
+    default void sendAll(List<NotificationService.NotificationDTO> notifications) {
+        for (NotificationService.NotificationDTO notification : notifications) {
+            send(notification);
+        }
+    }
+}
@@ -1,33 +1,79 @@
 package com.nagar_sewak.backend.services;
 
-import com.itextpdf.html2pdf.HtmlConverter;
 import com.nagar_sewak.backend.entities.Complaint;
 import com.nagar_sewak.backend.entities.Project;
 import com.nagar_sewak.backend.repositories.ComplaintRepository;
 import com.nagar_sewak.backend.repositories.ProjectRepository;
-import lombok.RequiredArgsConstructor;
+import com.nagar_sewak.backend.reports.PdfRenderCache;
+import com.nagar_sewak.backend.reports.PdfRenderingContext;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ResourceLoader;
 import org.springframework.stereotype.Service;
 import org.thymeleaf.TemplateEngine;
 import org.thymeleaf.context.Context;
 
-import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
 
+/**
+ * Complaint and project reports rendered from the Thymeleaf views under {@code reports/}. Reports for
+ * entities in the database go through the {@link PdfRenderCache}, keyed by the entity's last update and a
+ * hash of its view, so an unchanged report is rendered once; reports built from request data alone go to a
+ * temporary file. Either way the PDF is written straight to disk for the controller to stream. Conversion
+ * uses the fonts preloaded in the {@link PdfRenderingContext}.
+ */
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class ReportService {
 
+    private static final String COMPLAINT_VIEW = "reports/complaint-report";
+    private static final String PROJECT_VIEW = "reports/project-report";
+
+    /** Rendered report on disk and its ETag; the ETag is null for uncached reports */
+    public record RenderedReport(PdfRenderCache.RenderedFile file, String etag) {
+    }
+
     private final TemplateEngine templateEngine;
     private final ComplaintRepository complaintRepository;
     private final ProjectRepository projectRepository;
+    private final PdfRenderCache pdfRenderCache;
+    private final PdfRenderingContext renderingContext;
+    private final String complaintTemplateHash;
+    private final String projectTemplateHash;
+
+    public ReportService(TemplateEngine templateEngine,
+                         ComplaintRepository complaintRepository,
+                         ProjectRepository projectRepository,
+                         PdfRenderCache pdfRenderCache,
+                         PdfRenderingContext renderingContext,
+                         ResourceLoader resourceLoader,
+                         @Value("${spring.thymeleaf.prefix:classpath:/templates/}") String viewPrefix,
+                         @Value("${spring.thymeleaf.suffix:.html}") String viewSuffix) {
+        this.templateEngine = templateEngine;
+        this.complaintRepository = complaintRepository;
+        this.projectRepository = projectRepository;
+        this.pdfRenderCache = pdfRenderCache;
+        this.renderingContext = renderingContext;
+        this.complaintTemplateHash = PdfRenderCache.hashResource(
+                resourceLoader.getResource(viewPrefix + COMPLAINT_VIEW + viewSuffix));
+        this.projectTemplateHash = PdfRenderCache.hashResource(
+                resourceLoader.getResource(viewPrefix + PROJECT_VIEW + viewSuffix));
+    }
+
+    /**
+     * Cache key of the stored entity's report, or empty if there is no such entity. Cheap enough to answer
+     * a conditional request without rendering.
+     */
+    public Optional<PdfRenderCache.Key> reportKey(String type, Long id) {
+        return findEntity(type, id).map(entity -> reportKey(type, entity));
+    }
 
-    public byte[] generatePDFReport(Map<String, Object> reportData) {
+    public RenderedReport renderReport(Map<String, Object> reportData) {
         try {
             String type = (String) reportData.get("type");
             Object idObj = reportData.get("id");
@@ -38,81 +84,18 @@ public class ReportService {
             
             Long id = idObj instanceof Number ? ((Number) idObj).longValue() : Long.parseLong(idObj.toString());
             
-            log.info("Generating PDF report for type: {} with ID: {}", type, id);
-            
-            Context context = new Context();
-            context.setVariable("reportData", reportData);
-            context.setVariable("generatedAt", LocalDateTime.now().format(DateTimeFormatter.ofPattern("dd MMMM yyyy, HH:mm")));
-            
-            String htmlContent;
-            
-            if ("complaint".equals(type)) {
-                Optional<Complaint> complaintOpt = complaintRepository.findById(id);
-                if (complaintOpt.isPresent()) {
-                    Complaint complaint = complaintOpt.get();
-                    context.setVariable("complaint", complaint);
-                    context.setVariable("item", complaint);
-                    log.debug("Using complaint from database: {}", complaint.getTitle());
-                } else {
-                    log.warn("Complaint not found in database with ID: {}, using provided data", id);
-                    // Ensure we have the required fields from reportData
-                    Map<String, Object> itemData = new HashMap<>(reportData);
-                    if (!itemData.containsKey("lat") || !itemData.containsKey("lng")) {
-                        itemData.put("lat", 0.0);
-                        itemData.put("lng", 0.0);
-                    }
-                    context.setVariable("complaint", null);
-                    context.setVariable("item", itemData);
-                }
-                htmlContent = templateEngine.process("reports/complaint-report", context);
-            } else if ("project".equals(type)) {
-                Optional<Project> projectOpt = projectRepository.findById(id);
-                if (projectOpt.isPresent()) {
-                    Project project = projectOpt.get();
-                    context.setVariable("project", project);
-                    context.setVariable("item", project);
-                    log.debug("Using project from database: {}", project.getTitle());
-                } else {
-                    log.warn("Project not found in database with ID: {}, using provided data", id);
-                    // Ensure we have the required fields from reportData
-                    Map<String, Object> itemData = new HashMap<>(reportData);
-                    if (!itemData.containsKey("lat") || !itemData.containsKey("lng")) {
-                        itemData.put("lat", 0.0);
-                        itemData.put("lng", 0.0);
-                    }
-                    context.setVariable("project", null);
-                    context.setVariable("item", itemData);
-                }
-                htmlContent = templateEngine.process("reports/project-report", context);
-            } else {
-                throw new IllegalArgumentException("Unknown report type: " + type + ". Supported types: complaint, project");
-            }
-            
-            if (htmlContent == null || htmlContent.trim().isEmpty()) {
-                throw new RuntimeException("Generated HTML content is empty");
-            }
-            
-            log.debug("Generated HTML content length: {}", htmlContent.length());
-            
-            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-            
-            try {
-                HtmlConverter.convertToPdf(htmlContent, outputStream);
-            } catch (Exception pdfException) {
-                log.error("PDF conversion failed. HTML content preview: {}", 
-                    htmlContent.length() > 500 ? htmlContent.substring(0, 500) + "..." : htmlContent);
-                throw new RuntimeException("PDF conversion failed: " + pdfException.getMessage(), pdfException);
-            }
-            
-            byte[] pdfBytes = outputStream.toByteArray();
-            
-            if (pdfBytes.length == 0) {
-                throw new RuntimeException("Generated PDF is empty");
+            Optional<Object> entity = findEntity(type, id);
+            if (entity.isPresent()) {
+                PdfRenderCache.Key key = reportKey(type, entity.get());
+                return new RenderedReport(
+                        pdfRenderCache.getOrRender(key,
+                                renderingContext.measured(out -> render(type, id, entity.get(), reportData, out))),
+                        key.etag());
             }
-            
-            log.info("Successfully generated PDF report with {} bytes", pdfBytes.length);
-            
-            return pdfBytes;
+
+            log.warn("{} not found in database with ID: {}, using provided data", type, id);
+            return new RenderedReport(pdfRenderCache.renderTemporary(
+                    renderingContext.measured(out -> render(type, id, null, reportData, out))), null);
             
         } catch (Exception e) {
             log.error("Error generating PDF report for type: {} with ID: {}", 
@@ -121,6 +104,81 @@ public class ReportService {
         }
     }
 
+    /**
+     * Render the report from {@code reportData} alone, without looking up or caching the entity; used to
+     * warm up the views and the converter
+     */
+    public void writeReport(Map<String, Object> reportData, OutputStream out) {
+        String type = (String) reportData.get("type");
+        if (!"complaint".equals(type) && !"project".equals(type)) {
+            throw new IllegalArgumentException("Unknown report type: " + type);
+        }
+        render(type, null, null, reportData, out);
+    }
+
+    private Optional<Object> findEntity(String type, Long id) {
+        if ("complaint".equals(type)) {
+            return complaintRepository.findById(id).map(Object.class::cast);
+        } else if ("project".equals(type)) {
+            return projectRepository.findById(id).map(Object.class::cast);
+        }
+        throw new IllegalArgumentException("Unknown report type: " + type + ". Supported types: complaint, project");
+    }
+
+    private PdfRenderCache.Key reportKey(String type, Object entity) {
+        if (entity instanceof Complaint complaint) {
+            // The report prints the reporter's name and email, so a profile change is a new version too
+            String reporter = complaint.getUser() != null
+                    ? complaint.getUser().getFullName() + "|" + complaint.getUser().getEmail()
+                    : "";
+            String version = PdfRenderCache.version(complaint.getUpdatedAt(), complaint.getCreatedAt())
+                    + "-" + PdfRenderCache.sha256(reporter).substring(0, 12);
+            return new PdfRenderCache.Key(type + "-report", complaint.getId(), version, complaintTemplateHash);
+        }
+        Project project = (Project) entity;
+        return new PdfRenderCache.Key(type + "-report", project.getId(),
+                PdfRenderCache.version(project.getUpdatedAt(), project.getCreatedAt()), projectTemplateHash);
+    }
+
+    private void render(String type, Long id, Object entity, Map<String, Object> reportData, OutputStream out) {
+        log.info("Generating PDF report for type: {} with ID: {}", type, id);
+        
+        Context context = new Context();
+        context.setVariable("reportData", reportData);
+        context.setVariable("generatedAt", LocalDateTime.now().format(DateTimeFormatter.ofPattern("dd MMMM yyyy, HH:mm")));
+        
+        Object item = entity;
+        if (item == null) {
+            // Ensure we have the required fields from reportData
+            Map<String, Object> itemData = new HashMap<>(reportData);
+            if (!itemData.containsKey("lat") || !itemData.containsKey("lng")) {
+                itemData.put("lat", 0.0);
+                itemData.put("lng", 0.0);
+            }
+            item = itemData;
+        }
+        context.setVariable(type, entity);
+        context.setVariable("item", item);
+        
+        String htmlContent = templateEngine.process("complaint".equals(type) ? COMPLAINT_VIEW : PROJECT_VIEW, context);
+        
+        if (htmlContent == null || htmlContent.trim().isEmpty()) {
+            throw new RuntimeException("Generated HTML content is empty");
+        }
+        
+        log.debug("Generated HTML content length: {}", htmlContent.length());
+        
+        try {
+            renderingContext.convertHtml(htmlContent, out);
+        } catch (Exception pdfException) {
+            log.error("PDF conversion failed. HTML content preview: {}", 
+                htmlContent.length() > 500 ? htmlContent.substring(0, 500) + "..." : htmlContent);
+            throw new RuntimeException("PDF conversion failed: " + pdfException.getMessage(), pdfException);
+        }
+        
+        log.info("Successfully generated PDF report for type: {} with ID: {}", type, id);
+    }
+
     public Map<String, Object> exportItemData(String type, Long id) {
         Map<String, Object> exportData = new HashMap<>();
         exportData.put("exportedAt", LocalDateTime.now());
@@ -1,5 +1,12 @@
 package com.nagar_sewak.backend.services;
 
+import com.nagar_sewak.backend.anomaly.LoginAnomalyDetector;
+import com.nagar_sewak.backend.audit.AuditEvent;
+import com.nagar_sewak.backend.audit.AuditEventWriter;
+import com.nagar_sewak.backend.audit.AuditRetentionService;
+import com.nagar_sewak.backend.audit.PartitionedTable;
+import com.nagar_sewak.backend.audit.SecurityEventRollupService;
+import com.nagar_sewak.backend.entities.SecurityActorRollup.ActorType;
 import com.nagar_sewak.backend.entities.SecurityAuditLog;
 import com.nagar_sewak.backend.entities.SecurityEventType;
 import com.nagar_sewak.backend.repositories.SecurityAuditLogRepository;
@@ -7,11 +14,11 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 
 import jakarta.servlet.http.HttpServletRequest;
 import java.time.LocalDateTime;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -21,32 +28,29 @@ import java.util.Map;
 public class SecurityAuditService {
 
     private final SecurityAuditLogRepository securityAuditLogRepository;
+    private final AuditEventWriter auditEventWriter;
+    private final AuditRetentionService auditRetentionService;
+    private final SecurityEventRollupService securityEventRollupService;
+    private final LoginAnomalyDetector loginAnomalyDetector;
+
+    private static final int TOP_ACTOR_LIMIT = 10;
 
     /**
-     * Log a security event asynchronously
+     * Log a security event. The event is captured into an immutable snapshot and
+     * handed to the batched audit writer, so this returns without touching the database.
      */
-    @Async
     public void logSecurityEvent(SecurityEventType eventType, String userId, String ipAddress, 
                                Map<String, Object> details) {
-        try {
-            SecurityAuditLog auditLog = SecurityAuditLog.builder()
-                    .userId(userId)
-                    .eventType(eventType)
-                    .ipAddress(ipAddress)
-                    .details(details != null ? convertMapToJson(details) : null)
-                    .build();
-
-            securityAuditLogRepository.save(auditLog);
-            log.info("Security event logged: {} for user: {} from IP: {}", eventType, userId, ipAddress);
-        } catch (Exception e) {
-            log.error("Failed to log security event: {} for user: {}", eventType, userId, e);
-        }
+        AuditEvent event = new AuditEvent(eventType, userId, ipAddress, null, null, details, null);
+        auditEventWriter.submit(event);
+        loginAnomalyDetector.onAuditEvent(event);
+        log.debug("Security event queued: {} for user: {} from IP: {}", eventType, userId, ipAddress);
     }
 
     /**
-     * Log security event from HTTP request
+     * Log security event from HTTP request. Request headers are read here, on the
+     * calling thread, while the request is still live.
      */
-    @Async
     public void logSecurityEvent(SecurityEventType eventType, String userId, HttpServletRequest request, 
                                Map<String, Object> details) {
         String ipAddress = getClientIpAddress(request);
@@ -54,57 +58,76 @@ public class SecurityAuditService {
         String location = getLocationFromRequest(request);
 
         // Add request details to the details map
-        Map<String, Object> mutableDetails = new java.util.HashMap<>();
+        Map<String, Object> mutableDetails = new java.util.LinkedHashMap<>();
         if (details != null) {
             mutableDetails.putAll(details);
         }
         mutableDetails.put("userAgent", userAgent);
         mutableDetails.put("location", location);
 
-        SecurityAuditLog auditLog = SecurityAuditLog.builder()
-                .userId(userId)
-                .eventType(eventType)
-                .ipAddress(ipAddress)
-                .userAgent(userAgent)
-                .location(location)
-                .details(convertMapToJson(mutableDetails))
-                .build();
-
-        try {
-            securityAuditLogRepository.save(auditLog);
-            log.info("Security event logged: {} for user: {} from IP: {}", eventType, userId, ipAddress);
-        } catch (Exception e) {
-            log.error("Failed to log security event: {} for user: {}", eventType, userId, e);
-        }
+        AuditEvent event = new AuditEvent(eventType, userId, ipAddress, userAgent, location, mutableDetails, null);
+        auditEventWriter.submit(event);
+        loginAnomalyDetector.onAuditEvent(event);
+        log.debug("Security event queued: {} for user: {} from IP: {}", eventType, userId, ipAddress);
+    }
+
+    /**
+     * Get audit pipeline counters (queue depth, drops, batch writes)
+     */
+    public Map<String, Object> getPipelineStats() {
+        return auditEventWriter.getStats();
+    }
+
+    /**
+     * Get streaming anomaly detector counters
+     */
+    public Map<String, Object> getAnomalyDetectorStats() {
+        return loginAnomalyDetector.getStats();
+    }
+
+    /**
+     * Lift a temporary IP block placed by the anomaly detector
+     */
+    public void unblockIp(String ipAddress) {
+        loginAnomalyDetector.unblock(ipAddress);
     }
 
     /**
      * Get security logs for a specific user
      */
     public Page<SecurityAuditLog> getSecurityLogs(String userId, Pageable pageable) {
-        return securityAuditLogRepository.findByUserId(userId, pageable);
+        return securityAuditLogRepository.findByUserIdAndTimestampGreaterThanEqual(userId, hotWindowStart(), pageable);
     }
 
     /**
      * Get security logs by event type
      */
     public Page<SecurityAuditLog> getSecurityLogsByType(SecurityEventType eventType, Pageable pageable) {
-        return securityAuditLogRepository.findByEventType(eventType, pageable);
+        return securityAuditLogRepository.findByEventTypeAndTimestampGreaterThanEqual(eventType, hotWindowStart(), pageable);
     }
 
     /**
-     * Get recent suspicious activities
+     * Summarize suspicious activity over the last 24 hours from the rollup tables
      */
-    public List<SecurityAuditLog> getRecentSuspiciousActivity() {
-        List<SecurityEventType> suspiciousEvents = List.of(
-            SecurityEventType.FAILED_LOGIN_ATTEMPT,
-            SecurityEventType.ACCOUNT_LOCKED,
-            SecurityEventType.SUSPICIOUS_ACTIVITY_DETECTED,
-            SecurityEventType.MFA_VERIFICATION_FAILED
-        );
-        
-        LocalDateTime since = LocalDateTime.now().minusHours(24);
-        return securityAuditLogRepository.findRecentSuspiciousActivity(suspiciousEvents, since);
+    public Map<String, Object> getSuspiciousActivitySummary() {
+        LocalDateTime end = LocalDateTime.now();
+        LocalDateTime start = end.minusHours(24);
+
+        Map<SecurityEventType, Long> counts = securityEventRollupService.getSuspiciousCounts(start, end);
+        Map<String, Object> summary = new HashMap<>();
+        summary.put("period", Map.of("start", start, "end", end));
+        summary.put("eventCounts", counts);
+        summary.put("totalEvents", counts.values().stream().mapToLong(Long::longValue).sum());
+        summary.put("topIps", securityEventRollupService.getTopActors(ActorType.IP, start, end, TOP_ACTOR_LIMIT));
+        summary.put("topUsers", securityEventRollupService.getTopActors(ActorType.USER, start, end, TOP_ACTOR_LIMIT));
+        return summary;
+    }
+
+    /**
+     * Top IPs and users by suspicious event count within a time range
+     */
+    public List<Map<String, Object>> getTopSuspiciousActors(ActorType actorType, LocalDateTime start, LocalDateTime end) {
+        return securityEventRollupService.getTopActors(actorType, start, end, TOP_ACTOR_LIMIT);
     }
 
     /**
@@ -126,14 +149,21 @@ public class SecurityAuditService {
      * Get security logs by IP address
      */
     public Page<SecurityAuditLog> getSecurityLogsByIp(String ipAddress, Pageable pageable) {
-        return securityAuditLogRepository.findByIpAddress(ipAddress, pageable);
+        return securityAuditLogRepository.findByIpAddressAndTimestampGreaterThanEqual(ipAddress, hotWindowStart(), pageable);
     }
 
     /**
-     * Count events by type within a time range
+     * Count events by type within a time range, answered from hourly/daily rollups
      */
     public List<Object[]> getEventCountsByType(LocalDateTime start, LocalDateTime end) {
-        return securityAuditLogRepository.countEventsByTypeInRange(start, end);
+        return securityEventRollupService.getEventCountsByType(start, end);
+    }
+
+    /**
+     * Start of the retention window; older rows live in the cold archive
+     */
+    private LocalDateTime hotWindowStart() {
+        return auditRetentionService.hotWindowStart(PartitionedTable.SECURITY_AUDIT_LOGS);
     }
 
     /**
@@ -164,26 +194,4 @@ public class SecurityAuditService {
         }
         return "IP: " + request.getRemoteAddr();
     }
-
-    /**
-     * Convert map to JSON string (simple implementation)
-     */
-    private String convertMapToJson(Map<String, Object> details) {
-        if (details == null || details.isEmpty()) {
-            return "{}";
-        }
-
-        StringBuilder json = new StringBuilder("{");
-        boolean first = true;
-        for (Map.Entry<String, Object> entry : details.entrySet()) {
-            if (!first) {
-                json.append(",");
-            }
-            json.append("\"").append(entry.getKey()).append("\":\"")
-                .append(String.valueOf(entry.getValue())).append("\"");
-            first = false;
-        }
-        json.append("}");
-        return json.toString();
-    }
 }
\ No newline at end of file
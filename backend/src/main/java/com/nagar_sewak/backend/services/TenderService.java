@@ -2,6 +2,7 @@ package com.nagar_sewak.backend.services;
 
 import com.nagar_sewak.backend.dto.TenderDTO;
 import com.nagar_sewak.backend.entities.*;
+import com.nagar_sewak.backend.events.DomainEventOutbox;
 import com.nagar_sewak.backend.repositories.*;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
@@ -22,10 +23,11 @@ public class TenderService {
     private final ContractorRepository contractorRepo;
     private final ProjectRepository projectRepo;
     private final UserRepository userRepo;
-    private final org.springframework.context.ApplicationEventPublisher eventPublisher;
+    private final DomainEventOutbox domainEventOutbox;
 
     private final Path uploadBase = Paths.get("uploads/tenders");
 
+    @Transactional
     public TenderDTO submitTender(Long complaintId, String username, TenderDTO dto, List<MultipartFile> documents) throws IOException {
         Complaint complaint = complaintRepo.findById(complaintId)
                 .orElseThrow(() -> new RuntimeException("Complaint not found"));
@@ -72,8 +74,8 @@ public class TenderService {
 
         Tender saved = tenderRepo.save(tender);
         
-        // Publish event for tender submission
-        eventPublisher.publishEvent(new com.nagar_sewak.backend.events.TenderSubmittedEvent(this, saved));
+        // Record event for tender submission (dispatched by the outbox relay after commit)
+        domainEventOutbox.publish(new com.nagar_sewak.backend.events.TenderSubmittedEvent(this, saved));
 
         return mapToDTO(saved);
     }
@@ -114,8 +116,8 @@ public class TenderService {
 
         Tender saved = tenderRepo.save(tender);
         
-        // Publish event to notify all contractors
-        eventPublisher.publishEvent(new com.nagar_sewak.backend.events.TenderPublishedEvent(this, saved));
+        // Record event to notify all contractors (dispatched by the outbox relay after commit)
+        domainEventOutbox.publish(new com.nagar_sewak.backend.events.TenderPublishedEvent(this, saved));
         
         return mapToDTO(saved);
     }
@@ -134,8 +136,8 @@ public class TenderService {
         tender.setStatus("ACCEPTED");
         tenderRepo.save(tender);
 
-        // Publish event for tender acceptance
-        eventPublisher.publishEvent(new com.nagar_sewak.backend.events.TenderStatusChangedEvent(
+        // Record event for tender acceptance
+        domainEventOutbox.publish(new com.nagar_sewak.backend.events.TenderStatusChangedEvent(
             this, tender, oldStatus, "ACCEPTED", null));
 
         // 2. Reject other tenders for this complaint
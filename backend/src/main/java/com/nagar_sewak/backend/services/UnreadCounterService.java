@@ -0,0 +1,375 @@
+package com.nagar_sewak.backend.services;
+
+import com.nagar_sewak.backend.repositories.NotificationRepository;
+import com.nagar_sewak.backend.util.StripedLruCache;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Per-user unread notification counts kept up to date on write, so the badge never runs a COUNT.
+ * Counts live in one Redis hash (field = user id) shared by all replicas, fronted by a short-lived
+ * in-process near-cache. A user's count is loaded from the table on first read and then only moved
+ * by deltas; deltas for users not yet loaded are ignored rather than guessed. Writes inside a
+ * transaction apply after it commits. A periodic pass reconciles the hash with the table to undo
+ * any drift from races between a load and a concurrent delta. Without Redis the near-cache alone
+ * holds the counts and its TTL bounds how long a missed delta can show. After a Redis failure the
+ * service stays off Redis for a short retry interval instead of paying a timeout on every call, and
+ * drops the counts that missed deltas meanwhile once Redis answers again.
+ */
+@Service
+@Slf4j
+public class UnreadCounterService {
+
+    private static final String KEY = "notifications:unread";
+
+    /** HINCRBY only if the user's count is loaded, never below zero */
+    private static final RedisScript<Long> ADJUST_IF_PRESENT = new DefaultRedisScript<>(
+            "if redis.call('HEXISTS', KEYS[1], ARGV[1]) == 0 then return nil end " +
+            "local v = redis.call('HINCRBY', KEYS[1], ARGV[1], ARGV[2]) " +
+            "if v < 0 then redis.call('HSET', KEYS[1], ARGV[1], 0) v = 0 end " +
+            "return v", Long.class);
+
+    /** HSET only if the field still holds the value the reconciliation compared against the table */
+    private static final RedisScript<Long> SET_IF_UNCHANGED = new DefaultRedisScript<>(
+            "if redis.call('HGET', KEYS[1], ARGV[1]) ~= ARGV[2] then return 0 end " +
+            "redis.call('HSET', KEYS[1], ARGV[1], ARGV[3]) " +
+            "return 1", Long.class);
+
+    /** Beyond this many users missing deltas, the whole hash is dropped instead */
+    private static final int MAX_STALE_USERS = 10_000;
+
+    private record CachedCount(long count, long expiresAt) {
+    }
+
+    private final NotificationRepository notificationRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final long nearCacheTtlNanos;
+    private final int reconcileBatchSize;
+    private final long redisRetryNanos;
+    private final StripedLruCache<Long, CachedCount> nearCache;
+
+    private final StringRedisTemplate redisTemplate;
+
+    private final AtomicLong nearCacheHits = new AtomicLong();
+    private final AtomicLong redisHits = new AtomicLong();
+    private final AtomicLong tableLoads = new AtomicLong();
+    private final AtomicLong redisErrors = new AtomicLong();
+    private final AtomicLong corrections = new AtomicLong();
+
+    private volatile boolean circuitOpen;
+    private volatile long circuitRetryAt;
+    private final AtomicBoolean circuitProbe = new AtomicBoolean();
+    private final Set<Long> staleUsers = ConcurrentHashMap.newKeySet();
+    private volatile boolean staleOverflow;
+
+    public UnreadCounterService(NotificationRepository notificationRepository,
+                                JdbcTemplate jdbcTemplate,
+                                ObjectProvider<RedisConnectionFactory> connectionFactory,
+                                @Value("${app.notifications.unread.redis-enabled:true}") boolean redisEnabled,
+                                @Value("${app.notifications.unread.near-cache-size:10000}") int nearCacheSize,
+                                @Value("${app.notifications.unread.near-cache-ttl-ms:10000}") long nearCacheTtlMs,
+                                @Value("${app.notifications.unread.reconcile-batch-size:500}") int reconcileBatchSize,
+                                @Value("${app.notifications.unread.redis-retry-ms:5000}") long redisRetryMs) {
+        this.notificationRepository = notificationRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.nearCacheTtlNanos = TimeUnit.MILLISECONDS.toNanos(nearCacheTtlMs);
+        this.reconcileBatchSize = Math.max(1, reconcileBatchSize);
+        this.redisRetryNanos = TimeUnit.MILLISECONDS.toNanos(redisRetryMs);
+        this.nearCache = new StripedLruCache<>(nearCacheSize, 16);
+
+        RedisConnectionFactory factory = redisEnabled ? connectionFactory.getIfAvailable() : null;
+        this.redisTemplate = factory != null ? new StringRedisTemplate(factory) : null;
+    }
+
+    /**
+     * Unread count for the user: near-cache, then Redis, then the table
+     */
+    public long get(Long userId) {
+        long now = System.nanoTime();
+        CachedCount cached = nearCache.get(userId);
+        if (cached != null && now - cached.expiresAt() < 0) {
+            nearCacheHits.incrementAndGet();
+            return cached.count();
+        }
+
+        StringRedisTemplate redis = redis();
+        if (redis != null) {
+            try {
+                Object value = redis.opsForHash().get(KEY, userId.toString());
+                if (value != null) {
+                    redisHits.incrementAndGet();
+                    return cache(userId, Long.parseLong(value.toString()));
+                }
+            } catch (Exception e) {
+                redisFailed("read", e);
+                redis = null;
+            }
+        }
+
+        tableLoads.incrementAndGet();
+        long count = notificationRepository.countByUser_IdAndIsRead(userId, false);
+        if (redis != null) {
+            try {
+                redis.opsForHash().putIfAbsent(KEY, userId.toString(), Long.toString(count));
+            } catch (Exception e) {
+                redisFailed("load", e);
+            }
+        }
+        return cache(userId, count);
+    }
+
+    /**
+     * Move the user's count by {@code delta} once the current transaction commits
+     */
+    public void adjust(Long userId, long delta) {
+        adjustAll(Map.of(userId, delta));
+    }
+
+    /**
+     * Move several users' counts at once (one Redis round trip) once the current transaction commits
+     */
+    public void adjustAll(Map<Long, Long> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        afterCommit(() -> applyDeltas(deltas));
+    }
+
+    /**
+     * Set the user's count to zero once the current transaction commits (read-all)
+     */
+    public void reset(Long userId) {
+        afterCommit(() -> {
+            cache(userId, 0);
+            StringRedisTemplate redis = redis();
+            if (redis == null) {
+                markStale(List.of(userId));
+                return;
+            }
+            try {
+                redis.opsForHash().put(KEY, userId.toString(), "0");
+            } catch (Exception e) {
+                redisFailed("reset", e);
+                markStale(List.of(userId));
+            }
+        });
+    }
+
+    /**
+     * Compare every loaded count in Redis with the table and overwrite the ones that drifted
+     */
+    @Scheduled(fixedDelayString = "${app.notifications.unread.reconcile-interval-ms:600000}",
+               initialDelayString = "${app.notifications.unread.reconcile-interval-ms:600000}")
+    public void reconcile() {
+        StringRedisTemplate redis = redis();
+        if (redis == null) {
+            return;
+        }
+        int fixed = 0;
+        try (Cursor<Map.Entry<Object, Object>> cursor = redis.opsForHash()
+                .scan(KEY, ScanOptions.scanOptions().count(reconcileBatchSize).build())) {
+            Map<Long, Long> batch = new HashMap<>();
+            while (cursor.hasNext()) {
+                Map.Entry<Object, Object> entry = cursor.next();
+                batch.put(Long.valueOf(entry.getKey().toString()), Long.valueOf(entry.getValue().toString()));
+                if (batch.size() >= reconcileBatchSize) {
+                    fixed += reconcileBatch(redis, batch);
+                    batch.clear();
+                }
+            }
+            fixed += reconcileBatch(redis, batch);
+        } catch (Exception e) {
+            redisFailed("reconcile", e);
+            return;
+        }
+        if (fixed > 0) {
+            log.info("Unread counter reconciliation corrected {} users", fixed);
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("mode", redisTemplate != null ? "redis" : "local");
+        if (redisTemplate != null) {
+            stats.put("redisCircuit", circuitOpen ? "open" : "closed");
+            stats.put("staleUsers", staleOverflow ? -1 : staleUsers.size());
+        }
+        stats.put("nearCacheSize", nearCache.size());
+        stats.put("nearCacheHits", nearCacheHits.get());
+        stats.put("redisHits", redisHits.get());
+        stats.put("tableLoads", tableLoads.get());
+        stats.put("redisErrors", redisErrors.get());
+        stats.put("corrections", corrections.get());
+        return stats;
+    }
+
+    private void applyDeltas(Map<Long, Long> deltas) {
+        deltas.forEach((userId, delta) -> {
+            CachedCount cached = nearCache.get(userId);
+            if (cached != null) {
+                nearCache.put(userId, new CachedCount(Math.max(0, cached.count() + delta), cached.expiresAt()));
+            }
+        });
+
+        StringRedisTemplate redis = redis();
+        if (redis == null) {
+            markStale(deltas.keySet());
+            return;
+        }
+        try {
+            redis.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection strings = (StringRedisConnection) connection;
+                deltas.forEach((userId, delta) -> strings.eval(ADJUST_IF_PRESENT.getScriptAsString(),
+                        ReturnType.INTEGER, 1,
+                        KEY, userId.toString(), delta.toString()));
+                return null;
+            });
+        } catch (Exception e) {
+            // The counts can no longer be trusted; they are dropped once Redis is back
+            redisFailed("adjust", e);
+            markStale(deltas.keySet());
+            deltas.keySet().forEach(nearCache::remove);
+        }
+    }
+
+    private int reconcileBatch(StringRedisTemplate redis, Map<Long, Long> cachedCounts) {
+        if (cachedCounts.isEmpty()) {
+            return 0;
+        }
+        Map<Long, Long> actual = new HashMap<>();
+        String ids = cachedCounts.keySet().stream().map(String::valueOf).collect(Collectors.joining(","));
+        jdbcTemplate.query("SELECT user_id, COUNT(*) FROM notifications WHERE is_read = FALSE AND user_id IN (" + ids + ") " +
+                        "GROUP BY user_id",
+                rs -> {
+                    actual.put(rs.getLong(1), rs.getLong(2));
+                });
+
+        // A delta applied since the scan changed the field; leave it for the next pass rather than overwrite it
+        List<Long> drifted = new ArrayList<>();
+        cachedCounts.forEach((userId, cached) -> {
+            long count = actual.getOrDefault(userId, 0L);
+            if (count != cached) {
+                Long set = redis.execute(SET_IF_UNCHANGED, List.of(KEY),
+                        userId.toString(), cached.toString(), Long.toString(count));
+                if (set != null && set == 1) {
+                    nearCache.remove(userId);
+                    drifted.add(userId);
+                }
+            }
+        });
+        corrections.addAndGet(drifted.size());
+        if (!drifted.isEmpty()) {
+            log.debug("Reconciled unread counts for users {}", drifted);
+        }
+        return drifted.size();
+    }
+
+    private long cache(Long userId, long count) {
+        nearCache.put(userId, new CachedCount(count, System.nanoTime() + nearCacheTtlNanos));
+        return count;
+    }
+
+    /**
+     * The Redis template, or null when Redis is off or the circuit is open. Once the retry interval has
+     * passed one caller probes Redis by dropping the counts that missed deltas; success closes the circuit.
+     */
+    private StringRedisTemplate redis() {
+        StringRedisTemplate redis = redisTemplate;
+        if (redis == null || !circuitOpen) {
+            return redis;
+        }
+        if (System.nanoTime() - circuitRetryAt < 0 || !circuitProbe.compareAndSet(false, true)) {
+            return null;
+        }
+        try {
+            dropStale(redis);
+            circuitOpen = false;
+            // Deltas skipped by callers that saw the circuit open while it closed
+            dropStale(redis);
+            log.info("Unread counter Redis is reachable again");
+            return redis;
+        } catch (Exception e) {
+            redisFailed("recover", e);
+            return null;
+        } finally {
+            circuitProbe.set(false);
+        }
+    }
+
+    private void markStale(Collection<Long> userIds) {
+        if (redisTemplate == null) {
+            return;
+        }
+        if (staleOverflow || staleUsers.size() + userIds.size() > MAX_STALE_USERS) {
+            staleOverflow = true;
+        } else {
+            staleUsers.addAll(userIds);
+        }
+    }
+
+    private void dropStale(StringRedisTemplate redis) {
+        if (staleOverflow) {
+            redis.delete(KEY);
+            staleOverflow = false;
+            staleUsers.clear();
+            return;
+        }
+        if (staleUsers.isEmpty()) {
+            return;
+        }
+        List<Long> users = List.copyOf(staleUsers);
+        redis.opsForHash().delete(KEY, users.stream().map(String::valueOf).toArray());
+        users.forEach(staleUsers::remove);
+    }
+
+    private void redisFailed(String operation, Exception e) {
+        circuitRetryAt = System.nanoTime() + redisRetryNanos;
+        circuitOpen = true;
+        long total = redisErrors.incrementAndGet();
+        if ((total & 255) == 1) {
+            log.warn("Unread counter Redis {} failed ({} errors so far), falling back to the table: {}",
+                    operation, total, e.getMessage());
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
@@ -0,0 +1,275 @@
+package com.nagar_sewak.backend.util;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A named, bounded executor that records queue depth, active workers, rejections and
+ * per-task queue wait and run time. Platform mode is a {@link ThreadPoolExecutor} over an
+ * {@link ArrayBlockingQueue}; virtual mode starts a virtual thread per task but admits at most
+ * {@code maxSize + queueCapacity} tasks and runs at most {@code maxSize} at once, so both
+ * modes push back on producers the same way once full.
+ */
+@Slf4j
+public class InstrumentedExecutor implements Executor {
+
+    public enum RejectionPolicy {
+        /** Run the task on the submitting thread, throttling the producer */
+        CALLER_RUNS,
+        /** Discard the task and count it */
+        DROP
+    }
+
+    private final String name;
+    private final RejectionPolicy rejectionPolicy;
+    private final int maxSize;
+    private final int queueCapacity;
+
+    private final ThreadPoolExecutor pool;
+    private final ExecutorService virtualThreads;
+    private final Semaphore runPermits;
+    private final AtomicInteger admitted = new AtomicInteger();
+
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong callerRuns = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong refused = new AtomicLong();
+    private final LongAdder queueWaitNanos = new LongAdder();
+    private final LongAdder runNanos = new LongAdder();
+    private final AtomicLong maxQueueWaitNanos = new AtomicLong();
+    private final AtomicLong maxRunNanos = new AtomicLong();
+
+    private InstrumentedExecutor(String name, int coreSize, int maxSize, int queueCapacity,
+                                 RejectionPolicy rejectionPolicy, boolean virtual) {
+        this.name = name;
+        this.rejectionPolicy = rejectionPolicy;
+        this.maxSize = Math.max(1, maxSize);
+        this.queueCapacity = Math.max(1, queueCapacity);
+
+        if (virtual) {
+            this.pool = null;
+            this.virtualThreads = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(name + "-", 1).factory());
+            this.runPermits = new Semaphore(this.maxSize);
+        } else {
+            AtomicInteger sequence = new AtomicInteger();
+            this.pool = new ThreadPoolExecutor(Math.min(Math.max(1, coreSize), this.maxSize), this.maxSize,
+                    60, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(this.queueCapacity),
+                    runnable -> {
+                        Thread thread = new Thread(runnable, name + "-" + sequence.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    },
+                    (runnable, executor) -> reject(runnable));
+            this.virtualThreads = null;
+            this.runPermits = null;
+        }
+    }
+
+    /**
+     * Pool of platform threads; grows past {@code coreSize} only once the queue is full
+     */
+    public static InstrumentedExecutor platform(String name, int coreSize, int maxSize, int queueCapacity,
+                                                RejectionPolicy rejectionPolicy) {
+        return new InstrumentedExecutor(name, coreSize, maxSize, queueCapacity, rejectionPolicy, false);
+    }
+
+    /**
+     * Virtual thread per task for I/O-bound work, with the same concurrency and queue bounds as a pool
+     */
+    public static InstrumentedExecutor virtual(String name, int maxSize, int queueCapacity,
+                                               RejectionPolicy rejectionPolicy) {
+        return new InstrumentedExecutor(name, maxSize, maxSize, queueCapacity, rejectionPolicy, true);
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        submit(new TimedTask(task, System.nanoTime(), false));
+    }
+
+    /**
+     * Queue the task unless the executor is full, ignoring the rejection policy; returns whether it was
+     * accepted. For callers that would rather tell their client to retry than run or lose the work.
+     */
+    public boolean tryExecute(Runnable task) {
+        try {
+            submit(new TimedTask(task, System.nanoTime(), true));
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+
+    private void submit(TimedTask timed) {
+        submitted.incrementAndGet();
+
+        if (pool != null) {
+            pool.execute(timed);
+            return;
+        }
+
+        if (admitted.incrementAndGet() > maxSize + queueCapacity) {
+            admitted.decrementAndGet();
+            reject(timed);
+            return;
+        }
+        try {
+            virtualThreads.execute(() -> {
+                try {
+                    runPermits.acquireUninterruptibly();
+                    try {
+                        timed.run();
+                    } finally {
+                        runPermits.release();
+                    }
+                } finally {
+                    admitted.decrementAndGet();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            admitted.decrementAndGet();
+            reject(timed);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Tasks accepted but not yet started
+     */
+    public int getQueueDepth() {
+        return pool != null ? pool.getQueue().size() : Math.max(0, admitted.get() - active.get());
+    }
+
+    public int getActiveCount() {
+        return active.get();
+    }
+
+    /**
+     * Tasks dropped, refused or run on the caller because the executor was full
+     */
+    public long getRejectedCount() {
+        return callerRuns.get() + dropped.get() + refused.get();
+    }
+
+    public Map<String, Object> getStats() {
+        long done = completed.get();
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("mode", pool != null ? "platform" : "virtual");
+        stats.put("rejectionPolicy", rejectionPolicy.name());
+        stats.put("maxSize", maxSize);
+        stats.put("poolSize", pool != null ? pool.getPoolSize() : active.get());
+        stats.put("activeThreads", active.get());
+        stats.put("queueDepth", getQueueDepth());
+        stats.put("queueCapacity", queueCapacity);
+        stats.put("submitted", submitted.get());
+        stats.put("completed", done);
+        stats.put("failed", failed.get());
+        stats.put("rejected", getRejectedCount());
+        stats.put("callerRuns", callerRuns.get());
+        stats.put("dropped", dropped.get());
+        stats.put("refused", refused.get());
+        stats.put("avgQueueWaitMillis", done > 0 ? toMillis(queueWaitNanos.sum() / done) : 0.0);
+        stats.put("maxQueueWaitMillis", toMillis(maxQueueWaitNanos.get()));
+        stats.put("avgRunMillis", done > 0 ? toMillis(runNanos.sum() / done) : 0.0);
+        stats.put("maxRunMillis", toMillis(maxRunNanos.get()));
+        return stats;
+    }
+
+    /**
+     * Stop accepting tasks and wait up to ten seconds for queued ones to finish
+     */
+    public void shutdown() throws InterruptedException {
+        ExecutorService executor = pool != null ? pool : virtualThreads;
+        executor.shutdown();
+        if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+            log.warn("Executor {} did not drain within 10s, {} tasks still queued", name, getQueueDepth());
+        }
+    }
+
+    private boolean isShutdown() {
+        return pool != null ? pool.isShutdown() : virtualThreads.isShutdown();
+    }
+
+    private void reject(Runnable task) {
+        if (task instanceof TimedTask timed && timed.refusable) {
+            refused.incrementAndGet();
+            throw new RejectedExecutionException("Executor " + name + " is full");
+        }
+        if (rejectionPolicy == RejectionPolicy.CALLER_RUNS && !isShutdown()) {
+            callerRuns.incrementAndGet();
+            task.run();
+            return;
+        }
+
+        long total = dropped.incrementAndGet();
+        if ((total & 1023) == 1) {
+            log.warn("Executor {} is full, dropped {} tasks so far", name, total);
+        }
+    }
+
+    private static void recordMax(AtomicLong max, long value) {
+        long current;
+        while (value > (current = max.get()) && !max.compareAndSet(current, value)) {
+            // retry until the larger value sticks
+        }
+    }
+
+    private static double toMillis(long nanos) {
+        return Math.round(nanos / 10_000.0) / 100.0;
+    }
+
+    private final class TimedTask implements Runnable {
+
+        private final Runnable task;
+        private final long submittedAt;
+        /** Submitted through {@link #tryExecute}: refuse when full rather than apply the policy */
+        private final boolean refusable;
+
+        private TimedTask(Runnable task, long submittedAt, boolean refusable) {
+            this.task = task;
+            this.submittedAt = submittedAt;
+            this.refusable = refusable;
+        }
+
+        @Override
+        public void run() {
+            long startedAt = System.nanoTime();
+            long waited = startedAt - submittedAt;
+            queueWaitNanos.add(waited);
+            recordMax(maxQueueWaitNanos, waited);
+            active.incrementAndGet();
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                failed.incrementAndGet();
+                log.error("Task failed on executor {}", name, e);
+            } finally {
+                active.decrementAndGet();
+                long ran = System.nanoTime() - startedAt;
+                runNanos.add(ran);
+                recordMax(maxRunNanos, ran);
+                completed.incrementAndGet();
+            }
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.nagar_sewak.backend.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Bounded, thread-safe LRU map split into independently locked stripes.
+ * <p>
+ * Each stripe is an access-ordered {@link LinkedHashMap} that evicts its own
+ * eldest entry, so total size never exceeds the configured capacity and
+ * concurrent callers only contend when their keys hash to the same stripe.
+ */
+public class StripedLruCache<K, V> {
+
+    private final Stripe<K, V>[] stripes;
+    private final int mask;
+
+    @SuppressWarnings("unchecked")
+    public StripedLruCache(int capacity, int concurrency) {
+        int stripeCount = Integer.highestOneBit(Math.max(1, concurrency - 1)) << 1;
+        int perStripe = Math.max(1, capacity / stripeCount);
+        this.stripes = new Stripe[stripeCount];
+        this.mask = stripeCount - 1;
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe<>(perStripe);
+        }
+    }
+
+    public V get(K key) {
+        Stripe<K, V> stripe = stripeFor(key);
+        synchronized (stripe) {
+            return stripe.get(key);
+        }
+    }
+
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> loader) {
+        Stripe<K, V> stripe = stripeFor(key);
+        synchronized (stripe) {
+            return stripe.computeIfAbsent(key, loader);
+        }
+    }
+
+    public void put(K key, V value) {
+        Stripe<K, V> stripe = stripeFor(key);
+        synchronized (stripe) {
+            stripe.put(key, value);
+        }
+    }
+
+    public V remove(K key) {
+        Stripe<K, V> stripe = stripeFor(key);
+        synchronized (stripe) {
+            return stripe.remove(key);
+        }
+    }
+
+    public void clear() {
+        for (Stripe<K, V> stripe : stripes) {
+            synchronized (stripe) {
+                stripe.clear();
+            }
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Stripe<K, V> stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.size();
+            }
+        }
+        return size;
+    }
+
+    private Stripe<K, V> stripeFor(K key) {
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+        return stripes[h & mask];
+    }
+
+    private static final class Stripe<K, V> extends LinkedHashMap<K, V> {
+
+        private final int capacity;
+
+        private Stripe(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+            return size() > capacity;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.nagar_sewak.backend.anomaly;
+
+import com.nagar_sewak.backend.audit.AuditEvent;
+import com.nagar_sewak.backend.audit.AuditEventWriter;
+import com.nagar_sewak.backend.entities.SecurityEventType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class LoginAnomalyDetectorTest {
+
+    @Mock
+    private AuditEventWriter auditEventWriter;
+
+    private final AtomicLong now = new AtomicLong(1_700_000_000_000L);
+
+    private LoginAnomalyDetector detector;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        detector = new LoginAnomalyDetector(auditEventWriter, true, 300, 30, 10, 20, 8,
+                50, 600, 600, true, 30, 1000, 1000);
+        detector.setClock(now::get);
+    }
+
+    @Test
+    void testCredentialStuffingFromOneIpIsDetectedAndBlocked() {
+        for (int i = 0; i < 12; i++) {
+            detector.onLoginFailure("victim" + i + "@example.com", "203.0.113.9");
+        }
+
+        ArgumentCaptor<AuditEvent> captor = ArgumentCaptor.forClass(AuditEvent.class);
+        verify(auditEventWriter).submit(captor.capture());
+        AuditEvent alert = captor.getValue();
+        assertThat(alert.eventType()).isEqualTo(SecurityEventType.SUSPICIOUS_ACTIVITY_DETECTED);
+        assertThat(alert.ipAddress()).isEqualTo("203.0.113.9");
+        assertThat((String) alert.details().get("reasons")).contains("MANY_DISTINCT_COUNTERPARTS");
+        assertThat(detector.isBlocked("203.0.113.9")).isTrue();
+        assertThat(detector.isBlocked("198.51.100.1")).isFalse();
+    }
+
+    @Test
+    void testAlertsRespectCooldownAndBlocksExpire() {
+        for (int i = 0; i < 40; i++) {
+            detector.onLoginFailure("user" + i + "@example.com", "203.0.113.9");
+        }
+        verify(auditEventWriter, times(1)).submit(any());
+
+        now.addAndGet(31 * 60_000L);
+        assertThat(detector.isBlocked("203.0.113.9")).isFalse();
+    }
+
+    @Test
+    void testSingleUserTypoesDoNotAlert() {
+        for (int i = 0; i < 4; i++) {
+            detector.onLoginFailure("me@example.com", "192.0.2.1");
+        }
+        detector.onLoginSuccess("me@example.com", "192.0.2.1");
+
+        verify(auditEventWriter, never()).submit(any());
+    }
+
+    @Test
+    void testHyperLogLogEstimateIsClose() {
+        HyperLogLog sketch = new HyperLogLog(8);
+        for (int i = 0; i < 5000; i++) {
+            sketch.add("account-" + i);
+        }
+        assertThat(sketch.estimate()).isBetween(4000L, 6000L);
+    }
+}
@@ -0,0 +1,134 @@
+package com.nagar_sewak.backend.audit;
+
+import com.nagar_sewak.backend.entities.SecurityEventType;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AuditEventRingBufferTest {
+
+    private AuditEvent event(String userId) {
+        return new AuditEvent(SecurityEventType.FAILED_LOGIN_ATTEMPT, userId, "10.0.0.1", null, null, null, null);
+    }
+
+    @Test
+    void testCapacityRoundedToPowerOfTwo() {
+        assertThat(new AuditEventRingBuffer(100).capacity()).isEqualTo(128);
+        assertThat(new AuditEventRingBuffer(64).capacity()).isEqualTo(64);
+    }
+
+    @Test
+    void testOfferAndPollInOrder() {
+        AuditEventRingBuffer buffer = new AuditEventRingBuffer(4);
+
+        assertThat(buffer.offer(event("a"))).isTrue();
+        assertThat(buffer.offer(event("b"))).isTrue();
+        assertThat(buffer.size()).isEqualTo(2);
+
+        assertThat(buffer.poll().userId()).isEqualTo("a");
+        assertThat(buffer.poll().userId()).isEqualTo("b");
+        assertThat(buffer.poll()).isNull();
+        assertThat(buffer.isEmpty()).isTrue();
+    }
+
+    @Test
+    void testOfferFailsWhenFull() {
+        AuditEventRingBuffer buffer = new AuditEventRingBuffer(2);
+
+        assertThat(buffer.offer(event("a"))).isTrue();
+        assertThat(buffer.offer(event("b"))).isTrue();
+        assertThat(buffer.offer(event("c"))).isFalse();
+
+        buffer.poll();
+        assertThat(buffer.offer(event("c"))).isTrue();
+    }
+
+    @Test
+    void testConcurrentProducersLoseNothing() throws Exception {
+        int producers = 4;
+        int perProducer = 10_000;
+        AuditEventRingBuffer buffer = new AuditEventRingBuffer(1024);
+        ExecutorService executor = Executors.newFixedThreadPool(producers);
+        CountDownLatch done = new CountDownLatch(producers);
+
+        for (int p = 0; p < producers; p++) {
+            int producer = p;
+            executor.submit(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    AuditEvent e = event(producer + ":" + i);
+                    while (!buffer.offer(e)) {
+                        Thread.onSpinWait();
+                    }
+                }
+                done.countDown();
+            });
+        }
+
+        Set<String> seen = new HashSet<>();
+        while (seen.size() < producers * perProducer) {
+            AuditEvent e = buffer.poll();
+            if (e != null) {
+                seen.add(e.userId());
+            }
+        }
+
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(buffer.poll()).isNull();
+        executor.shutdown();
+    }
+
+    @Test
+    void testTimedPollWaitsForOffer() throws Exception {
+        AuditEventRingBuffer buffer = new AuditEventRingBuffer(4);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        executor.submit(() -> {
+            Thread.sleep(50);
+            return buffer.offer(event("late"));
+        });
+
+        AuditEvent e = buffer.poll(5, TimeUnit.SECONDS);
+
+        assertThat(e).isNotNull();
+        assertThat(e.userId()).isEqualTo("late");
+        executor.shutdown();
+    }
+
+    @Test
+    void testTimedPollReturnsNullOnTimeoutAndWakeUp() throws Exception {
+        AuditEventRingBuffer buffer = new AuditEventRingBuffer(4);
+
+        long started = System.nanoTime();
+        assertThat(buffer.poll(20, TimeUnit.MILLISECONDS)).isNull();
+        assertThat(System.nanoTime() - started).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(20));
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        executor.submit(() -> {
+            Thread.sleep(50);
+            buffer.wakeUp();
+            return null;
+        });
+
+        started = System.nanoTime();
+        assertThat(buffer.poll(30, TimeUnit.SECONDS)).isNull();
+        assertThat(System.nanoTime() - started).isLessThan(TimeUnit.SECONDS.toNanos(10));
+        executor.shutdown();
+    }
+
+    @Test
+    void testDetailsJsonEscapesValues() {
+        AuditEvent e = new AuditEvent(SecurityEventType.SUCCESSFUL_LOGIN, "u", "ip", null, null,
+                Map.of("agent", "Mozilla \"quoted\""), null);
+
+        assertThat(e.detailsJson()).isEqualTo("{\"agent\":\"Mozilla \\\"quoted\\\"\"}");
+        assertThat(e.timestamp()).isNotNull();
+    }
+}
@@ -0,0 +1,105 @@
+package com.nagar_sewak.backend.audit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nagar_sewak.backend.entities.LoginAttempt;
+import com.nagar_sewak.backend.repositories.LoginAttemptRepository;
+import com.nagar_sewak.backend.services.JobLockService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Import({AuditRetentionService.class, AuditPartitionManager.class, AuditArchiveStore.class, JobLockService.class,
+        ObjectMapper.class})
+public class AuditRetentionServiceTest {
+
+    @TempDir
+    static Path archiveDir;
+
+    @DynamicPropertySource
+    static void archiveProperties(DynamicPropertyRegistry registry) {
+        registry.add("app.audit.archive.dir", () -> archiveDir.toString());
+        registry.add("app.audit.archive.delete-chunk-size", () -> 2);
+    }
+
+    @Autowired
+    private AuditRetentionService auditRetentionService;
+
+    @Autowired
+    private AuditArchiveStore auditArchiveStore;
+
+    @Autowired
+    private LoginAttemptRepository loginAttemptRepository;
+
+    private LoginAttempt attempt(String email, LocalDateTime time) {
+        return LoginAttempt.builder()
+                .email(email)
+                .ipAddress("10.0.0.7")
+                .successful(false)
+                .attemptTime(time)
+                .build();
+    }
+
+    @Test
+    void testExpiredMonthsAreArchivedAndRemoved() throws Exception {
+        LocalDateTime expired = YearMonth.now().minusMonths(3).atDay(10).atTime(12, 0);
+        loginAttemptRepository.saveAllAndFlush(List.of(
+                attempt("old@example.com", expired),
+                attempt("old@example.com", expired.plusHours(1)),
+                attempt("other@example.com", expired.plusHours(2)),
+                attempt("recent@example.com", LocalDateTime.now())));
+
+        Map<YearMonth, Long> archived = auditRetentionService.archiveExpired(PartitionedTable.LOGIN_ATTEMPTS);
+
+        assertThat(archived).containsEntry(YearMonth.from(expired), 3L);
+        assertThat(loginAttemptRepository.findAll())
+                .extracting(LoginAttempt::getEmail)
+                .containsExactly("recent@example.com");
+
+        List<Map<String, Object>> found = auditArchiveStore.find(
+                PartitionedTable.LOGIN_ATTEMPTS, "email", "old@example.com", null, null);
+        assertThat(found).hasSize(2);
+        assertThat(found.get(0)).containsEntry("ip_address", "10.0.0.7");
+    }
+
+    @Test
+    void testArchiveLookupMatchesValuesThatAreEscapedInJson() throws Exception {
+        LocalDateTime expired = YearMonth.now().minusMonths(4).atDay(5).atTime(9, 0);
+        String quoted = "\"odd\\name\"@example.com";
+        String unicode = "m\u00fcller\u2028@example.com";
+        loginAttemptRepository.saveAllAndFlush(List.of(
+                attempt(quoted, expired),
+                attempt(unicode, expired.plusHours(1))));
+
+        auditRetentionService.archiveExpired(PartitionedTable.LOGIN_ATTEMPTS);
+
+        assertThat(auditArchiveStore.find(PartitionedTable.LOGIN_ATTEMPTS, "email", quoted, null, null))
+                .extracting(row -> row.get("email"))
+                .containsExactly(quoted);
+        assertThat(auditArchiveStore.find(PartitionedTable.LOGIN_ATTEMPTS, "email", unicode, null, null))
+                .extracting(row -> row.get("email"))
+                .containsExactly(unicode);
+    }
+
+    @Test
+    void testHotWindowStartsAtRetentionMonth() {
+        LocalDateTime start = auditRetentionService.hotWindowStart(PartitionedTable.LOGIN_ATTEMPTS);
+
+        assertThat(start.getDayOfMonth()).isEqualTo(1);
+        assertThat(start).isBefore(LocalDateTime.now().minusDays(29));
+    }
+}
@@ -0,0 +1,141 @@
+package com.nagar_sewak.backend.audit;
+
+import com.nagar_sewak.backend.entities.RollupGranularity;
+import com.nagar_sewak.backend.entities.SecurityActorRollup.ActorType;
+import com.nagar_sewak.backend.entities.SecurityEventRollup;
+import com.nagar_sewak.backend.entities.SecurityEventType;
+import com.nagar_sewak.backend.repositories.SecurityEventRollupRepository;
+import com.nagar_sewak.backend.services.JobLockService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Import({SecurityEventRollupService.class, JobLockService.class})
+public class SecurityEventRollupServiceTest {
+
+    @Autowired
+    private SecurityEventRollupService rollupService;
+
+    @Autowired
+    private SecurityEventRollupRepository eventRollupRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private AuditEvent event(SecurityEventType type, String userId, String ip, LocalDateTime time) {
+        return new AuditEvent(type, userId, ip, null, null, null, time);
+    }
+
+    private long total(List<Object[]> rows) {
+        return rows.stream().mapToLong(row -> ((Number) row[1]).longValue()).sum();
+    }
+
+    @Test
+    void testBatchesAccumulateIntoHourlyBuckets() {
+        LocalDateTime now = LocalDateTime.now();
+        rollupService.onBatchWritten(List.of(
+                event(SecurityEventType.FAILED_LOGIN_ATTEMPT, "a@example.com", "10.0.0.1", now),
+                event(SecurityEventType.FAILED_LOGIN_ATTEMPT, "b@example.com", "10.0.0.1", now),
+                event(SecurityEventType.SUCCESSFUL_LOGIN, "a@example.com", "10.0.0.2", now)));
+        rollupService.onBatchWritten(List.of(
+                event(SecurityEventType.FAILED_LOGIN_ATTEMPT, "c@example.com", "10.0.0.1", now)));
+
+        List<Object[]> counts = rollupService.getEventCountsByType(now.minusHours(1), now.plusHours(1));
+        assertThat(total(counts)).isEqualTo(4);
+
+        Map<SecurityEventType, Long> suspicious = rollupService.getSuspiciousCounts(now.minusHours(1), now.plusHours(1));
+        assertThat(suspicious).containsExactly(Map.entry(SecurityEventType.FAILED_LOGIN_ATTEMPT, 3L));
+
+        List<Map<String, Object>> topIps = rollupService.getTopActors(ActorType.IP, now.minusHours(1), now.plusHours(1), 5);
+        assertThat(topIps).hasSize(1);
+        assertThat(topIps.get(0)).containsEntry("ipAddress", "10.0.0.1").containsEntry("count", 3L);
+    }
+
+    @Test
+    void testCompactionFoldsOldHoursIntoDays() {
+        LocalDateTime oldDay = LocalDate.now().minusDays(5).atTime(9, 30);
+        rollupService.onBatchWritten(List.of(
+                event(SecurityEventType.ACCOUNT_LOCKED, "a@example.com", "10.0.0.1", oldDay),
+                event(SecurityEventType.ACCOUNT_LOCKED, "a@example.com", "10.0.0.1", oldDay.plusHours(3)),
+                event(SecurityEventType.SUCCESSFUL_LOGIN, "b@example.com", "10.0.0.2", oldDay.plusHours(5))));
+
+        rollupService.compact();
+
+        List<SecurityEventRollup> rows = eventRollupRepository.findAll();
+        assertThat(rows).allMatch(row -> row.getGranularity() == RollupGranularity.DAY);
+        assertThat(rows).hasSize(2);
+
+        List<Object[]> counts = rollupService.getEventCountsByType(oldDay.minusDays(1), LocalDateTime.now());
+        assertThat(total(counts)).isEqualTo(3);
+    }
+
+    @Test
+    void testRangeStartingMidDaySkipsThatDaysDailyRow() {
+        // Given: two days already folded into daily rows
+        LocalDateTime firstDay = LocalDate.now().minusDays(6).atTime(9, 0);
+        rollupService.onBatchWritten(List.of(
+                event(SecurityEventType.ACCOUNT_LOCKED, "a@example.com", "10.0.0.1", firstDay),
+                event(SecurityEventType.ACCOUNT_LOCKED, "a@example.com", "10.0.0.1", firstDay.plusHours(1)),
+                event(SecurityEventType.ACCOUNT_LOCKED, "b@example.com", "10.0.0.2", firstDay.plusDays(1))));
+        rollupService.compact();
+
+        // When: the range starts after the first day's events
+        LocalDateTime start = firstDay.plusHours(3);
+        List<Object[]> counts = rollupService.getEventCountsByType(start, LocalDateTime.now());
+        List<Map<String, Object>> topIps = rollupService.getTopActors(ActorType.IP, start, LocalDateTime.now(), 5);
+
+        // Then: only the following whole day is counted
+        assertThat(total(counts)).isEqualTo(1);
+        assertThat(rollupService.getSuspiciousCounts(start, LocalDateTime.now()))
+                .containsExactly(Map.entry(SecurityEventType.ACCOUNT_LOCKED, 1L));
+        assertThat(topIps).extracting(ip -> ip.get("ipAddress")).containsExactly("10.0.0.2");
+        // A range from midnight still uses the day's row
+        assertThat(total(rollupService.getEventCountsByType(firstDay.toLocalDate().atStartOfDay(), LocalDateTime.now())))
+                .isEqualTo(3);
+    }
+
+    @Test
+    void testBackfillRollsUpRawRowsOlderThanTheFirstBucket() {
+        LocalDateTime oldDay = LocalDate.now().minusDays(10).atTime(14, 20);
+        LocalDateTime yesterday = LocalDateTime.now().minusDays(1);
+        insertRaw(SecurityEventType.FAILED_LOGIN_ATTEMPT, "a@example.com", "10.0.0.9", oldDay);
+        insertRaw(SecurityEventType.FAILED_LOGIN_ATTEMPT, "b@example.com", "10.0.0.9", oldDay.plusHours(2));
+        insertRaw(SecurityEventType.SUCCESSFUL_LOGIN, "a@example.com", "10.0.0.3", yesterday);
+        // Already counted live: the first live bucket bounds the backfill
+        LocalDateTime live = LocalDateTime.now();
+        insertRaw(SecurityEventType.SUCCESSFUL_LOGIN, "c@example.com", "10.0.0.4", live);
+        rollupService.onBatchWritten(List.of(event(SecurityEventType.SUCCESSFUL_LOGIN, "c@example.com", "10.0.0.4", live)));
+
+        rollupService.backfill();
+        rollupService.backfill();
+
+        List<Object[]> counts = rollupService.getEventCountsByType(oldDay.minusDays(1), live.plusHours(1));
+        assertThat(total(counts)).isEqualTo(4);
+
+        List<Map<String, Object>> topIps = rollupService.getTopActors(ActorType.IP, oldDay.minusDays(1), live.plusHours(1), 5);
+        assertThat(topIps).hasSize(1);
+        assertThat(topIps.get(0)).containsEntry("ipAddress", "10.0.0.9").containsEntry("count", 2L);
+
+        assertThat(eventRollupRepository.findAll())
+                .filteredOn(row -> row.getBucketStart().isBefore(LocalDate.now().minusDays(2).atStartOfDay()))
+                .allMatch(row -> row.getGranularity() == RollupGranularity.DAY);
+    }
+
+    private void insertRaw(SecurityEventType type, String userId, String ip, LocalDateTime time) {
+        jdbcTemplate.update("INSERT INTO security_audit_logs (user_id, event_type, ip_address, timestamp) VALUES (?, ?, ?, ?)",
+                userId, type.name(), ip, Timestamp.valueOf(time));
+    }
+}
@@ -0,0 +1,71 @@
+package com.nagar_sewak.backend.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class DatabaseFixConfigTest {
+
+    private JdbcTemplate jdbcTemplate;
+
+    private DatabaseFixConfig databaseFixConfig;
+
+    @BeforeEach
+    void setUp() {
+        // MySQL mode keeps the native ENUM column Hibernate creates on MySQL
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(
+                "jdbc:h2:mem:database-fix;MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", ""));
+        jdbcTemplate.execute("CREATE TABLE email_history (id BIGINT AUTO_INCREMENT PRIMARY KEY, " +
+                "recipient_email VARCHAR(255) NOT NULL, " +
+                "template_type ENUM('SECURITY_ALERT','ACCOUNT_LOCKED','NEW_DEVICE_LOGIN','PASSWORD_RESET'," +
+                "'COMPLAINT_UPDATE','PROJECT_UPDATE','TENDER_NOTIFICATION','WELCOME_EMAIL','ACCOUNT_VERIFICATION'), " +
+                "status ENUM('PENDING','SENT','DELIVERED','FAILED','RETRY') NOT NULL DEFAULT 'PENDING')");
+        databaseFixConfig = new DatabaseFixConfig(jdbcTemplate);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DROP TABLE email_history");
+    }
+
+    private void insert(String templateType) {
+        jdbcTemplate.update("INSERT INTO email_history (recipient_email, template_type) VALUES (?, ?)",
+                "user@example.com", templateType);
+    }
+
+    @Test
+    void testEnumColumnIsWidenedToNewTemplateTypes() {
+        // Given
+        assertThatThrownBy(() -> insert("NOTIFICATION_DIGEST")).isNotNull();
+
+        // When
+        databaseFixConfig.widenEmailTemplateTypeColumn();
+        databaseFixConfig.widenEmailTemplateTypeColumn();
+        insert("NOTIFICATION_DIGEST");
+        insert("WELCOME_EMAIL");
+        insert(null);
+
+        // Then
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM email_history", Integer.class)).isEqualTo(3);
+    }
+
+    @Test
+    void testStatusColumnIsWidenedToParked() {
+        // Given
+        insert("WELCOME_EMAIL");
+        assertThatThrownBy(() -> jdbcTemplate.update("UPDATE email_history SET status = 'PARKED'")).isNotNull();
+
+        // When
+        databaseFixConfig.widenEmailStatusColumn();
+        jdbcTemplate.update("UPDATE email_history SET status = 'PARKED'");
+
+        // Then
+        assertThat(jdbcTemplate.queryForObject("SELECT status FROM email_history", String.class)).isEqualTo("PARKED");
+        assertThatThrownBy(() -> jdbcTemplate.update("UPDATE email_history SET status = NULL")).isNotNull();
+    }
+}
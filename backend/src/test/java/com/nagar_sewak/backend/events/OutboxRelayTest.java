@@ -0,0 +1,187 @@
+package com.nagar_sewak.backend.events;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nagar_sewak.backend.entities.Complaint;
+import com.nagar_sewak.backend.entities.OutboxEvent;
+import com.nagar_sewak.backend.entities.OutboxStatus;
+import com.nagar_sewak.backend.entities.Tender;
+import com.nagar_sewak.backend.repositories.ComplaintRepository;
+import com.nagar_sewak.backend.repositories.OutboxEventRepository;
+import com.nagar_sewak.backend.repositories.TenderRepository;
+import com.nagar_sewak.backend.services.NotificationFanoutService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.event.EventListener;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({DomainEventOutbox.class, OutboxRelay.class, ObjectMapper.class, OutboxRelayTest.RecordingListener.class})
+public class OutboxRelayTest {
+
+    @TestConfiguration
+    static class RecordingListener {
+        final List<TenderPublishedEvent> received = new CopyOnWriteArrayList<>();
+        final List<Long> resumedAfter = new CopyOnWriteArrayList<>();
+        final AtomicInteger failuresToThrow = new AtomicInteger();
+
+        @Autowired
+        private DomainEventOutbox domainEventOutbox;
+
+        @EventListener
+        public void onTenderPublished(TenderPublishedEvent event) {
+            NotificationFanoutService.FanoutCheckpoint checkpoint = domainEventOutbox.fanoutCheckpoint(event);
+            resumedAfter.add(checkpoint.lastRecipientId());
+            if (failuresToThrow.getAndDecrement() > 0) {
+                // Part of the fan-out committed before the failure
+                checkpoint.save(42L);
+                throw new IllegalStateException("listener unavailable");
+            }
+            received.add(event);
+        }
+    }
+
+    @Autowired
+    private DomainEventOutbox domainEventOutbox;
+
+    @Autowired
+    private OutboxRelay outboxRelay;
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private TenderRepository tenderRepository;
+
+    @Autowired
+    private ComplaintRepository complaintRepository;
+
+    @Autowired
+    private RecordingListener listener;
+
+    @AfterEach
+    void cleanUp() {
+        outboxEventRepository.deleteAll();
+        tenderRepository.deleteAll();
+        complaintRepository.deleteAll();
+        listener.received.clear();
+        listener.resumedAfter.clear();
+        listener.failuresToThrow.set(0);
+    }
+
+    private Tender tender() {
+        Complaint complaint = new Complaint();
+        complaint.setTitle("Broken streetlight");
+        complaint = complaintRepository.save(complaint);
+
+        Tender tender = new Tender();
+        tender.setComplaint(complaint);
+        tender.setTitle("Streetlight repair");
+        tender.setStatus("OPEN");
+        return tenderRepository.save(tender);
+    }
+
+    @Test
+    void testEventIsDispatchedWithReloadedAggregateAndMarkedDone() {
+        // Given
+        Tender tender = tender();
+        domainEventOutbox.publish(new TenderPublishedEvent(this, tender));
+
+        // When
+        int claimed = outboxRelay.relayBatch();
+
+        // Then
+        assertThat(claimed).isEqualTo(1);
+        assertThat(listener.received).hasSize(1);
+        assertThat(listener.received.get(0).getTender().getTitle()).isEqualTo("Streetlight repair");
+        OutboxEvent row = outboxEventRepository.findAll().get(0);
+        assertThat(row.getStatus()).isEqualTo(OutboxStatus.DONE);
+        assertThat(row.getAttempts()).isEqualTo(1);
+        assertThat(outboxRelay.relayBatch()).isZero();
+    }
+
+    @Test
+    void testFailedDispatchIsRescheduledWithBackoff() {
+        // Given
+        domainEventOutbox.publish(new TenderPublishedEvent(this, tender()));
+        listener.failuresToThrow.set(1);
+
+        // When
+        outboxRelay.relayBatch();
+
+        // Then
+        OutboxEvent row = outboxEventRepository.findAll().get(0);
+        assertThat(row.getStatus()).isEqualTo(OutboxStatus.PENDING);
+        assertThat(row.getLastError()).contains("listener unavailable");
+        assertThat(row.getAvailableAt()).isAfter(LocalDateTime.now());
+        assertThat(outboxRelay.relayBatch()).isZero();
+        assertThat(listener.received).isEmpty();
+    }
+
+    @Test
+    void testEventForDeletedAggregateIsSkipped() {
+        // Given
+        Tender tender = tender();
+        domainEventOutbox.publish(new TenderPublishedEvent(this, tender));
+        tenderRepository.delete(tender);
+
+        // When
+        outboxRelay.relayBatch();
+
+        // Then
+        assertThat(listener.received).isEmpty();
+        assertThat(outboxEventRepository.countByStatus(OutboxStatus.DONE)).isEqualTo(1);
+        assertThat(outboxRelay.getStats()).containsEntry("skipped", 1L);
+    }
+
+    @Test
+    void testRedeliveredEventResumesFromFanoutCheckpoint() {
+        // Given
+        domainEventOutbox.publish(new TenderPublishedEvent(this, tender()));
+        listener.failuresToThrow.set(1);
+        outboxRelay.relayBatch();
+        OutboxEvent row = outboxEventRepository.findAll().get(0);
+        row.setAvailableAt(LocalDateTime.now().minusSeconds(1));
+        outboxEventRepository.save(row);
+
+        // When
+        outboxRelay.relayBatch();
+
+        // Then
+        assertThat(listener.resumedAfter).containsExactly(0L, 42L);
+        assertThat(listener.received).hasSize(1);
+        assertThat(outboxEventRepository.findAll().get(0).getFanoutCursor()).isEqualTo(42L);
+    }
+
+    @Test
+    void testFanoutCheckpointRenewsTheRelayLease() {
+        // Given: a claimed row whose lease is about to run out mid fan-out
+        domainEventOutbox.publish(new TenderPublishedEvent(this, tender()));
+        OutboxEvent row = outboxEventRepository.findAll().get(0);
+        row.setAvailableAt(LocalDateTime.now().plusSeconds(1));
+        outboxEventRepository.save(row);
+
+        // When
+        Tender tender = tenderRepository.findById(row.getAggregateId()).orElseThrow();
+        domainEventOutbox.fanoutCheckpoint(new TenderPublishedEvent(row, tender)).save(7L);
+
+        // Then
+        OutboxEvent saved = outboxEventRepository.findAll().get(0);
+        assertThat(saved.getFanoutCursor()).isEqualTo(7L);
+        assertThat(saved.getAvailableAt()).isAfter(LocalDateTime.now().plusSeconds(60));
+    }
+}
@@ -0,0 +1,267 @@
+package com.nagar_sewak.backend.mail;
+
+import com.nagar_sewak.backend.entities.EmailHistory;
+import com.nagar_sewak.backend.entities.EmailStatus;
+import com.nagar_sewak.backend.repositories.EmailAttachmentRepository;
+import com.nagar_sewak.backend.repositories.EmailHistoryRepository;
+import com.nagar_sewak.backend.util.InstrumentedExecutor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@ActiveProfiles("test")
+public class EmailQueueWorkerTest {
+
+    /**
+     * Just enough SMTP to accept mail: counts connections and messages, rejects recipients named "reject"
+     */
+    static class LocalSmtpServer implements AutoCloseable {
+        private final ServerSocket socket;
+        final AtomicInteger connections = new AtomicInteger();
+        final List<String> messages = new CopyOnWriteArrayList<>();
+
+        LocalSmtpServer() throws IOException {
+            socket = new ServerSocket(0);
+            Thread acceptor = new Thread(() -> {
+                while (!socket.isClosed()) {
+                    try {
+                        Socket client = socket.accept();
+                        connections.incrementAndGet();
+                        Thread handler = new Thread(() -> serve(client));
+                        handler.setDaemon(true);
+                        handler.start();
+                    } catch (IOException e) {
+                        return;
+                    }
+                }
+            });
+            acceptor.setDaemon(true);
+            acceptor.start();
+        }
+
+        int port() {
+            return socket.getLocalPort();
+        }
+
+        private void serve(Socket client) {
+            try (client) {
+                BufferedReader in = new BufferedReader(new InputStreamReader(client.getInputStream(), StandardCharsets.US_ASCII));
+                OutputStream out = client.getOutputStream();
+                reply(out, "220 localhost ESMTP");
+                String line;
+                while ((line = in.readLine()) != null) {
+                    String command = line.toUpperCase();
+                    if (command.startsWith("EHLO")) {
+                        reply(out, "250-localhost\r\n250 OK");
+                    } else if (command.startsWith("RCPT") && command.contains("REJECT")) {
+                        reply(out, "550 No such user");
+                    } else if (command.startsWith("DATA")) {
+                        reply(out, "354 End data with <CR><LF>.<CR><LF>");
+                        StringBuilder data = new StringBuilder();
+                        while ((line = in.readLine()) != null && !line.equals(".")) {
+                            data.append(line).append('\n');
+                        }
+                        messages.add(data.toString());
+                        reply(out, "250 OK");
+                    } else if (command.startsWith("QUIT")) {
+                        reply(out, "221 Bye");
+                        return;
+                    } else {
+                        reply(out, "250 OK");
+                    }
+                }
+            } catch (IOException ignored) {
+                // client went away
+            }
+        }
+
+        private static void reply(OutputStream out, String text) throws IOException {
+            out.write((text + "\r\n").getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private EmailHistoryRepository emailHistoryRepository;
+
+    @Autowired
+    private EmailAttachmentRepository attachmentRepository;
+
+    private LocalSmtpServer smtpServer;
+    private InstrumentedExecutor emailExecutor;
+    private SmtpTransportPool transportPool;
+    private EmailQueue emailQueue;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        smtpServer = new LocalSmtpServer();
+        emailExecutor = InstrumentedExecutor.platform("test-email", 2, 2, 10, InstrumentedExecutor.RejectionPolicy.CALLER_RUNS);
+        emailQueue = new EmailQueue(jdbcTemplate, attachmentRepository, true);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        transportPool.shutdown();
+        emailExecutor.shutdown();
+        smtpServer.close();
+    }
+
+    private EmailQueueWorker worker(int port) {
+        JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
+        mailSender.setHost("localhost");
+        mailSender.setPort(port);
+        Properties properties = new Properties();
+        properties.put("mail.smtp.connectiontimeout", "2000");
+        properties.put("mail.smtp.timeout", "2000");
+        mailSender.setJavaMailProperties(properties);
+        transportPool = new SmtpTransportPool(mailSender, 2, 100, 60000, 60000, 5000);
+        return new EmailQueueWorker(jdbcTemplate, transactionTemplate, emailHistoryRepository, attachmentRepository,
+                transportPool, new DomainThrottle(100, "throttled.org=2"), emailExecutor,
+                "noreply@example.com", true, 100, 10, 300);
+    }
+
+    private void enqueue(String to) {
+        emailQueue.enqueue(new EmailQueue.QueuedEmail(to, "Tender published", "<p>New tender</p>", null));
+    }
+
+    @Test
+    void testSendsQueueOverPooledConnectionsAndThrottlesPerDomain() {
+        // Given
+        EmailQueueWorker worker = worker(smtpServer.port());
+        IntStream.range(0, 6).forEach(i -> enqueue("contractor" + i + "@example.com"));
+        IntStream.range(0, 4).forEach(i -> enqueue("vendor" + i + "@throttled.org"));
+        enqueue("reject@example.com");
+        Long attachmentId = emailQueue.storeAttachment(new byte[]{1, 2, 3}, "tender.pdf");
+        emailQueue.enqueue(new EmailQueue.QueuedEmail("attached@example.com", "With PDF", "<p>See PDF</p>", null, attachmentId));
+
+        // When
+        int claimed = worker.drainBatch();
+
+        // Then: one handshake per pooled connection, not per email
+        assertThat(claimed).isEqualTo(12);
+        assertThat(smtpServer.messages).hasSize(9);
+        assertThat(smtpServer.connections.get()).isLessThanOrEqualTo(2);
+        assertThat(smtpServer.messages).anyMatch(message -> message.contains("tender.pdf"));
+
+        // and one history row per email, in its final state
+        entityManager.clear();
+        Map<String, EmailHistory> rows = emailHistoryRepository.findAll().stream()
+                .collect(Collectors.toMap(EmailHistory::getRecipientEmail, Function.identity()));
+        assertThat(rows).hasSize(12);
+        assertThat(rows.values().stream().filter(row -> row.getStatus() == EmailStatus.SENT)).hasSize(9);
+        assertThat(rows.get("reject@example.com").getStatus()).isEqualTo(EmailStatus.FAILED);
+        assertThat(rows.get("reject@example.com").getRetryCount()).isEqualTo(1);
+        List<EmailHistory> throttled = rows.values().stream().filter(row -> row.getStatus() == EmailStatus.PENDING).toList();
+        assertThat(throttled).hasSize(2)
+                .allSatisfy(row -> {
+                    assertThat(row.getRecipientEmail()).endsWith("@throttled.org");
+                    assertThat(row.getAvailableAt()).isAfter(LocalDateTime.now());
+                });
+
+        // Throttled rows are not due yet
+        assertThat(worker.drainBatch()).isZero();
+    }
+
+    @Test
+    void testSmtpOutageFailsBatchWithoutConnectingPerEmail() throws IOException {
+        // Given
+        int port = smtpServer.port();
+        smtpServer.close();
+        EmailQueueWorker worker = worker(port);
+        IntStream.range(0, 5).forEach(i -> enqueue("citizen" + i + "@example.com"));
+
+        // When
+        worker.drainBatch();
+
+        // Then
+        entityManager.clear();
+        assertThat(emailHistoryRepository.findAll()).hasSize(5)
+                .allSatisfy(row -> {
+                    assertThat(row.getStatus()).isEqualTo(EmailStatus.FAILED);
+                    assertThat(row.getRetryCount()).isEqualTo(1);
+                    assertThat(row.getErrorMessage()).isNotBlank();
+                });
+        assertThat(transportPool.getStats()).containsEntry("connectionsOpened", 0L);
+    }
+
+    @Test
+    void testSlicesTheExecutorRefusesAreSentInline() throws Exception {
+        // Given: an executor that drops work, already shut down
+        EmailQueueWorker worker = worker(smtpServer.port());
+        emailExecutor.shutdown();
+        emailExecutor = InstrumentedExecutor.platform("test-email", 1, 1, 1, InstrumentedExecutor.RejectionPolicy.DROP);
+        emailExecutor.shutdown();
+        worker = new EmailQueueWorker(jdbcTemplate, transactionTemplate, emailHistoryRepository, attachmentRepository,
+                transportPool, new DomainThrottle(100, ""), emailExecutor, "noreply@example.com", true, 100, 10, 300);
+        IntStream.range(0, 4).forEach(i -> enqueue("citizen" + i + "@example.com"));
+
+        // When
+        int claimed = worker.drainBatch();
+
+        // Then: nothing was lost to the dropped tasks
+        assertThat(claimed).isEqualTo(4);
+        assertThat(smtpServer.messages).hasSize(4);
+    }
+
+    @Test
+    void testDisabledEmailIsRecordedSentAtEnqueueAndNeverClaimed() {
+        // Given
+        EmailQueueWorker worker = worker(smtpServer.port());
+        EmailQueue disabledQueue = new EmailQueue(jdbcTemplate, attachmentRepository, false);
+
+        // When
+        Long attachmentId = disabledQueue.storeAttachment(new byte[]{1, 2, 3}, "tender.pdf");
+        disabledQueue.enqueue(new EmailQueue.QueuedEmail("citizen@example.com", "Welcome", "<p>Hi</p>", null, attachmentId));
+        int claimed = worker.drainBatch();
+
+        // Then
+        assertThat(attachmentId).isNull();
+        assertThat(attachmentRepository.count()).isZero();
+        assertThat(claimed).isZero();
+        assertThat(smtpServer.messages).isEmpty();
+        entityManager.clear();
+        assertThat(emailHistoryRepository.findAll()).singleElement()
+                .satisfies(row -> assertThat(row.getStatus()).isEqualTo(EmailStatus.SENT));
+    }
+}
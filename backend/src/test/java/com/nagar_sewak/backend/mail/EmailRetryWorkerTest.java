@@ -0,0 +1,104 @@
+package com.nagar_sewak.backend.mail;
+
+import com.nagar_sewak.backend.entities.EmailHistory;
+import com.nagar_sewak.backend.entities.EmailStatus;
+import com.nagar_sewak.backend.repositories.EmailHistoryRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@ActiveProfiles("test")
+public class EmailRetryWorkerTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EmailHistoryRepository emailHistoryRepository;
+
+    private EmailRetryWorker worker(int batchSize) {
+        return new EmailRetryWorker(jdbcTemplate, true, 3, 60, 600, batchSize);
+    }
+
+    private EmailHistory failed(String to, int attempts, LocalDateTime lastAttemptAt, String body) {
+        return entityManager.persist(EmailHistory.builder()
+                .recipientEmail(to)
+                .subject("Complaint update")
+                .status(EmailStatus.FAILED)
+                .retryCount(attempts)
+                .lastRetryAt(lastAttemptAt)
+                .htmlBody(body)
+                .errorMessage("MailConnectException: Couldn't connect to host")
+                .build());
+    }
+
+    @Test
+    void testReschedulesWithJitteredBackoffAndParksPoisonMessages() {
+        // Given: an outage failed a batch at the same moment, plus one message out of attempts and one with no body
+        LocalDateTime failedAt = LocalDateTime.now().minusSeconds(5).truncatedTo(ChronoUnit.SECONDS);
+        List<EmailHistory> outage = IntStream.range(0, 40)
+                .mapToObj(i -> failed("citizen" + i + "@example.com", 1, failedAt, "<p>Update</p>"))
+                .toList();
+        EmailHistory secondAttempt = failed("second@example.com", 2, failedAt, "<p>Update</p>");
+        EmailHistory exhausted = failed("exhausted@example.com", 3, failedAt, "<p>Update</p>");
+        EmailHistory legacy = failed("legacy@example.com", 1, failedAt, null);
+        entityManager.flush();
+
+        // When: batches smaller than the backlog, so the scan has to page
+        EmailRetryWorker.RescanResult result = worker(7).rescan();
+
+        // Then
+        assertThat(result.rescheduled()).isEqualTo(41);
+        assertThat(result.parked()).isEqualTo(2);
+        entityManager.clear();
+
+        List<LocalDateTime> retryTimes = outage.stream()
+                .map(row -> emailHistoryRepository.findById(row.getId()).orElseThrow())
+                .peek(row -> assertThat(row.getStatus()).isEqualTo(EmailStatus.PENDING))
+                .map(EmailHistory::getAvailableAt)
+                .toList();
+        // First retry lands 30-60s after the failure, spread out rather than all at one instant
+        assertThat(retryTimes).allSatisfy(at -> assertThat(at)
+                .isAfterOrEqualTo(failedAt.plusSeconds(30))
+                .isBeforeOrEqualTo(failedAt.plusSeconds(60)));
+        assertThat(retryTimes.stream().distinct().count()).isGreaterThan(1);
+
+        // Second retry waits twice as long
+        assertThat(emailHistoryRepository.findById(secondAttempt.getId()).orElseThrow().getAvailableAt())
+                .isAfterOrEqualTo(failedAt.plusSeconds(60))
+                .isBeforeOrEqualTo(failedAt.plusSeconds(120));
+
+        assertThat(emailHistoryRepository.findById(exhausted.getId()).orElseThrow().getStatus()).isEqualTo(EmailStatus.PARKED);
+        assertThat(emailHistoryRepository.findById(legacy.getId()).orElseThrow().getStatus()).isEqualTo(EmailStatus.PARKED);
+
+        // Nothing FAILED is left, so a second scan does nothing
+        EmailRetryWorker.RescanResult again = worker(7).rescan();
+        assertThat(again.rescheduled()).isZero();
+        assertThat(again.parked()).isZero();
+    }
+
+    @Test
+    void testBackoffDoublesUpToTheCap() {
+        EmailRetryWorker worker = worker(100);
+
+        for (int i = 0; i < 50; i++) {
+            assertThat(worker.backoffSeconds(1)).isBetween(30L, 60L);
+            assertThat(worker.backoffSeconds(3)).isBetween(120L, 240L);
+            assertThat(worker.backoffSeconds(20)).isBetween(300L, 600L);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.nagar_sewak.backend.mail;
+
+import com.nagar_sewak.backend.entities.EmailTemplateType;
+import com.nagar_sewak.backend.services.EmailTemplateService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class SecurityAlertSuppressorTest {
+
+    @Mock
+    private EmailQueue emailQueue;
+
+    @Mock
+    private EmailTemplateService emailTemplateService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(emailTemplateService.renderNotificationEmail(anyString(), anyString(), any()))
+                .thenAnswer(invocation -> "<p>" + invocation.getArgument(1) + "</p>");
+    }
+
+    @Test
+    void testBruteForceStormSendsBoundedAlertsAndOneSummary() {
+        // Given
+        SecurityAlertSuppressor suppressor = new SecurityAlertSuppressor(emailQueue, emailTemplateService, 3, 1000, 3600, 1000);
+
+        // When: a bot locks the account a thousand times from 50 addresses
+        long sent = IntStream.range(0, 1000)
+                .filter(i -> suppressor.tryAcquire("Victim@Example.com", EmailTemplateType.ACCOUNT_LOCKED, "10.0.0." + (i % 50)))
+                .count();
+
+        // Then
+        assertThat(sent).isEqualTo(3);
+        assertThat(suppressor.getStats()).containsEntry("allowed", 3L).containsEntry("pendingSummaries", 1);
+
+        // Another user is unaffected
+        assertThat(suppressor.tryAcquire("other@example.com", EmailTemplateType.NEW_DEVICE_LOGIN, "10.0.0.1")).isTrue();
+
+        // and the victim gets one summary of what was held back
+        assertThat(suppressor.sendSummaries()).isEqualTo(1);
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<EmailQueue.QueuedEmail>> captor = ArgumentCaptor.forClass(List.class);
+        verify(emailQueue).enqueueAll(captor.capture());
+        EmailQueue.QueuedEmail summary = captor.getValue().get(0);
+        assertThat(summary.to()).isEqualTo("victim@example.com");
+        assertThat(summary.htmlBody()).contains("held back 997 security alerts", "997 account lock notices",
+                "10.0.0.3", "and 40 other addresses");
+
+        // Nothing is left for the next run
+        assertThat(suppressor.sendSummaries()).isZero();
+    }
+
+    @Test
+    void testDuplicateAlertFromSameAddressIsSentOnce() {
+        SecurityAlertSuppressor suppressor = new SecurityAlertSuppressor(emailQueue, emailTemplateService, 10, 1000, 3600, 1000);
+
+        assertThat(suppressor.tryAcquire("user@example.com", EmailTemplateType.NEW_DEVICE_LOGIN, "1.2.3.4")).isTrue();
+        assertThat(suppressor.tryAcquire("user@example.com", EmailTemplateType.NEW_DEVICE_LOGIN, "1.2.3.4")).isFalse();
+        // A different address or alert type is news
+        assertThat(suppressor.tryAcquire("user@example.com", EmailTemplateType.NEW_DEVICE_LOGIN, "5.6.7.8")).isTrue();
+        assertThat(suppressor.tryAcquire("user@example.com", EmailTemplateType.SECURITY_ALERT, "1.2.3.4")).isTrue();
+        assertThat(suppressor.getStats()).containsEntry("deduplicated", 1L);
+    }
+
+    @Test
+    void testGlobalLimitBoundsAlertsAcrossManyRecipients() {
+        // Given: a limit of 20 a minute across all recipients
+        SecurityAlertSuppressor suppressor = new SecurityAlertSuppressor(emailQueue, emailTemplateService, 5, 20, 3600, 100);
+
+        // When: an attacker sprays 500 different addresses
+        long sent = IntStream.range(0, 500)
+                .filter(i -> suppressor.tryAcquire("user" + i + "@example.com", EmailTemplateType.ACCOUNT_LOCKED, "10.0.0.1"))
+                .count();
+
+        // Then: sends stay at the limit, summaries stop at the tracking cap and wait for the limit to refill
+        assertThat(sent).isEqualTo(20);
+        assertThat(suppressor.getStats()).containsEntry("untracked", 380L).containsEntry("pendingSummaries", 100);
+        assertThat(suppressor.sendSummaries()).isZero();
+        verifyNoInteractions(emailQueue);
+        assertThat(suppressor.getStats()).containsEntry("pendingSummaries", 100).containsEntry("summariesDeferred", 100L);
+    }
+
+    @Test
+    void testSummariesTakeGlobalTokensAndTheRestCarryOver() {
+        // Given: one alert per recipient an hour, 30 a minute overall
+        SecurityAlertSuppressor suppressor = new SecurityAlertSuppressor(emailQueue, emailTemplateService, 1, 30, 3600, 1000);
+
+        // When: 20 recipients get two alerts each; the first of each uses a global token
+        IntStream.range(0, 20).forEach(i -> {
+            suppressor.tryAcquire("user" + i + "@example.com", EmailTemplateType.NEW_DEVICE_LOGIN, "10.0.0.1");
+            suppressor.tryAcquire("user" + i + "@example.com", EmailTemplateType.NEW_DEVICE_LOGIN, "10.0.0.2");
+        });
+
+        // Then: the 10 tokens left cover 10 summaries, and the other 10 recipients keep theirs for later
+        assertThat(suppressor.sendSummaries()).isEqualTo(10);
+        assertThat(suppressor.getStats()).containsEntry("pendingSummaries", 10).containsEntry("summariesSent", 10L);
+        assertThat(suppressor.sendSummaries()).isZero();
+        assertThat(suppressor.getStats()).containsEntry("pendingSummaries", 10);
+    }
+}
@@ -0,0 +1,79 @@
+package com.nagar_sewak.backend.push;
+
+import com.nagar_sewak.backend.dto.PushSubscriptionRequest;
+import com.nagar_sewak.backend.entities.PushSubscription;
+import com.nagar_sewak.backend.entities.User;
+import com.nagar_sewak.backend.repositories.PushSubscriptionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.security.interfaces.ECPublicKey;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class PushSubscriptionServiceTest {
+
+    @Mock
+    private PushSubscriptionRepository subscriptionRepository;
+
+    private PushSubscriptionService service;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(subscriptionRepository.findByEndpoint(anyString())).thenReturn(Optional.empty());
+        when(subscriptionRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        service = new PushSubscriptionService(subscriptionRepository, List.of("fcm.googleapis.com", ".push.services.mozilla.com"));
+    }
+
+    private PushSubscriptionRequest request(String endpoint) {
+        PushSubscriptionRequest.Keys keys = new PushSubscriptionRequest.Keys();
+        keys.setP256dh(WebPushCrypto.base64Url(WebPushCrypto.encodePublicKey(
+                (ECPublicKey) WebPushCrypto.generateKeyPair().getPublic())));
+        keys.setAuth(WebPushCrypto.base64Url(new byte[16]));
+        PushSubscriptionRequest request = new PushSubscriptionRequest();
+        request.setEndpoint(endpoint);
+        request.setKeys(keys);
+        return request;
+    }
+
+    @Test
+    void testEndpointsOnKnownPushServicesAreStored() {
+        PushSubscription fcm = service.subscribe(new User(), request("https://fcm.googleapis.com/fcm/send/abc"));
+        PushSubscription mozilla = service.subscribe(new User(),
+                request("https://updates.push.services.mozilla.com/wpush/v2/abc"));
+
+        assertThat(fcm.getEndpoint()).isEqualTo("https://fcm.googleapis.com/fcm/send/abc");
+        assertThat(mozilla.getIsActive()).isTrue();
+    }
+
+    @Test
+    void testEndpointsOutsideTheAllowListAreRejected() {
+        for (String endpoint : List.of(
+                "https://127.0.0.1/push",
+                "https://localhost/push",
+                "https://169.254.169.254/latest/meta-data",
+                "https://10.0.0.5/push",
+                "https://[::1]/push",
+                "https://fcm.googleapis.com.evil.example/push",
+                "https://evilpush.services.mozilla.com.example/push",
+                "https://fcm.googleapis.com:8443/fcm/send/abc",
+                "https://user@fcm.googleapis.com/fcm/send/abc",
+                "http://fcm.googleapis.com/fcm/send/abc")) {
+            assertThatThrownBy(() -> service.subscribe(new User(), request(endpoint)))
+                    .as(endpoint)
+                    .isInstanceOf(IllegalArgumentException.class);
+        }
+        verify(subscriptionRepository, never()).save(any());
+    }
+}
@@ -0,0 +1,208 @@
+package com.nagar_sewak.backend.push;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nagar_sewak.backend.entities.NotificationPriority;
+import com.nagar_sewak.backend.entities.NotificationType;
+import com.nagar_sewak.backend.entities.PushSubscription;
+import com.nagar_sewak.backend.entities.User;
+import com.nagar_sewak.backend.repositories.PushSubscriptionRepository;
+import com.nagar_sewak.backend.services.NotificationService;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import javax.crypto.Cipher;
+import javax.crypto.KeyAgreement;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.Signature;
+import java.security.interfaces.ECPublicKey;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs the sender against a local stand-in push service that records each request
+ * and answers 201, or 410 for endpoints under /gone/
+ */
+public class WebPushSenderTest {
+
+    private record Received(Map<String, List<String>> headers, byte[] body) {
+    }
+
+    @Mock
+    private PushSubscriptionRepository subscriptionRepository;
+
+    private HttpServer pushService;
+    private String baseUrl;
+    private final Map<String, Received> received = new ConcurrentHashMap<>();
+
+    private final KeyPair browserKeys = WebPushCrypto.generateKeyPair();
+    private final byte[] authSecret = new byte[16];
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AtomicLong nextId = new AtomicLong();
+
+    private VapidKeys vapidKeys;
+    private WebPushSender sender;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        MockitoAnnotations.openMocks(this);
+        Arrays.fill(authSecret, (byte) 7);
+
+        pushService = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        pushService.createContext("/", exchange -> {
+            byte[] body = exchange.getRequestBody().readAllBytes();
+            String path = exchange.getRequestURI().getPath();
+            received.put(path, new Received(exchange.getRequestHeaders(), body));
+            exchange.sendResponseHeaders(path.startsWith("/gone/") ? 410 : 201, -1);
+            exchange.close();
+        });
+        pushService.setExecutor(Executors.newFixedThreadPool(8));
+        pushService.start();
+        baseUrl = "http://localhost:" + pushService.getAddress().getPort();
+
+        vapidKeys = new VapidKeys("", "", "mailto:ops@example.com");
+        sender = new WebPushSender(subscriptionRepository, vapidKeys, objectMapper,
+                true, 3600, 2, 64, 2000, 5000, 30000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        sender.shutdown();
+        pushService.stop(0);
+    }
+
+    private PushSubscription subscription(long userId, String path) {
+        User user = new User();
+        user.setId(userId);
+        return PushSubscription.builder()
+                .id(nextId.incrementAndGet())
+                .user(user)
+                .endpoint(baseUrl + path)
+                .p256dhKey(WebPushCrypto.base64Url(WebPushCrypto.encodePublicKey((ECPublicKey) browserKeys.getPublic())))
+                .authKey(WebPushCrypto.base64Url(authSecret))
+                .isActive(true)
+                .build();
+    }
+
+    private NotificationService.NotificationDTO notification(long userId) {
+        return NotificationService.NotificationDTO.builder()
+                .userId(userId)
+                .type(NotificationType.SYSTEM_ALERT)
+                .priority(NotificationPriority.HIGH)
+                .title("Water outage")
+                .message("Supply resumes at 6 pm")
+                .actionUrl("/notifications")
+                .build();
+    }
+
+    @Test
+    void testDeliversEncryptedSignedPushAndDeactivatesGoneSubscriptions() throws Exception {
+        // Given
+        PushSubscription live = subscription(1L, "/push/live");
+        PushSubscription gone = subscription(1L, "/gone/old");
+        when(subscriptionRepository.findDeliverable(anyCollection(), any())).thenReturn(List.of(live, gone));
+        when(subscriptionRepository.deactivateByIds(anyCollection())).thenReturn(1);
+
+        // When
+        sender.send(notification(1L));
+
+        // Then: the stand-in service can decrypt the payload with the browser's keys
+        Received request = received.get("/push/live");
+        assertThat(request).isNotNull();
+        assertThat(request.headers().get("Content-encoding")).containsExactly("aes128gcm");
+        assertThat(request.headers().get("Ttl")).containsExactly("3600");
+        assertThat(request.headers().get("Urgency")).containsExactly("high");
+        JsonNode payload = objectMapper.readTree(decrypt(request.body()));
+        assertThat(payload.get("title").asText()).isEqualTo("Water outage");
+        assertThat(payload.get("url").asText()).isEqualTo("/notifications");
+
+        // and verify the VAPID token against the advertised public key
+        String authorization = request.headers().get("Authorization").get(0);
+        assertThat(authorization).startsWith("vapid t=").endsWith(", k=" + vapidKeys.getPublicKey());
+        String[] jwt = authorization.substring("vapid t=".length(), authorization.indexOf(',')).split("\\.");
+        JsonNode claims = objectMapper.readTree(Base64.getUrlDecoder().decode(jwt[1]));
+        assertThat(claims.get("aud").asText()).isEqualTo(baseUrl);
+        assertThat(claims.get("sub").asText()).isEqualTo("mailto:ops@example.com");
+        Signature verifier = Signature.getInstance("SHA256withECDSAinP1363Format");
+        verifier.initVerify(WebPushCrypto.decodePublicKey(WebPushCrypto.decodeBase64(vapidKeys.getPublicKey())));
+        verifier.update((jwt[0] + "." + jwt[1]).getBytes(StandardCharsets.US_ASCII));
+        assertThat(verifier.verify(Base64.getUrlDecoder().decode(jwt[2]))).isTrue();
+
+        verify(subscriptionRepository).deactivateByIds(argThat(ids -> ids.size() == 1 && ids.contains(gone.getId())));
+        assertThat(sender.getStats()).containsEntry("sent", 1L).containsEntry("deactivated", 1L);
+    }
+
+    @Test
+    void testBatchLooksUpSubscriptionsOnceAndSendsEveryPush() {
+        // Given: 300 users with two browsers each, more than max-in-flight
+        List<PushSubscription> subscriptions = new ArrayList<>();
+        List<NotificationService.NotificationDTO> batch = new ArrayList<>();
+        IntStream.rangeClosed(1, 300).forEach(userId -> {
+            subscriptions.add(subscription(userId, "/push/" + userId + "/a"));
+            subscriptions.add(subscription(userId, "/push/" + userId + "/b"));
+            batch.add(notification(userId));
+        });
+        when(subscriptionRepository.findDeliverable(anyCollection(), any())).thenReturn(subscriptions);
+
+        // When
+        sender.sendAll(batch);
+
+        // Then
+        assertThat(received).hasSize(600);
+        assertThat(sender.getStats()).containsEntry("sent", 600L).containsEntry("failed", 0L).containsEntry("inFlight", 0);
+        verify(subscriptionRepository).findDeliverable(anyCollection(), any());
+        verify(subscriptionRepository, never()).deactivateByIds(anyCollection());
+    }
+
+    /** What the browser does on receipt (RFC 8291, single record) */
+    private byte[] decrypt(byte[] body) throws Exception {
+        ByteBuffer buffer = ByteBuffer.wrap(body);
+        byte[] salt = new byte[16];
+        buffer.get(salt);
+        buffer.getInt();
+        byte[] senderPublic = new byte[buffer.get()];
+        buffer.get(senderPublic);
+        byte[] ciphertext = new byte[buffer.remaining()];
+        buffer.get(ciphertext);
+
+        KeyAgreement agreement = KeyAgreement.getInstance("ECDH");
+        agreement.init(browserKeys.getPrivate());
+        agreement.doPhase(WebPushCrypto.decodePublicKey(senderPublic), true);
+        byte[] browserPublic = WebPushCrypto.encodePublicKey((ECPublicKey) browserKeys.getPublic());
+        ByteBuffer keyInfo = ByteBuffer.allocate(14 + 65 + 65)
+                .put("WebPush: info\0".getBytes(StandardCharsets.US_ASCII)).put(browserPublic).put(senderPublic);
+        byte[] ikm = WebPushCrypto.hkdf(authSecret, agreement.generateSecret(), keyInfo.array(), 32);
+        byte[] cek = WebPushCrypto.hkdf(salt, ikm, "Content-Encoding: aes128gcm\0".getBytes(StandardCharsets.US_ASCII), 16);
+        byte[] nonce = WebPushCrypto.hkdf(salt, ikm, "Content-Encoding: nonce\0".getBytes(StandardCharsets.US_ASCII), 12);
+
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.DECRYPT_MODE, new SecretKeySpec(cek, "AES"), new GCMParameterSpec(128, nonce));
+        byte[] padded = cipher.doFinal(ciphertext);
+        assertThat(padded[padded.length - 1]).isEqualTo((byte) 2);
+        return Arrays.copyOf(padded, padded.length - 1);
+    }
+}
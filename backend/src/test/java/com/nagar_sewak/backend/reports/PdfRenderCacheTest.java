@@ -0,0 +1,189 @@
+package com.nagar_sewak.backend.reports;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class PdfRenderCacheTest {
+
+    @TempDir
+    Path directory;
+
+    private PdfRenderCache cache(long maxBytes) {
+        return new PdfRenderCache(directory.toString(), maxBytes, true);
+    }
+
+    private static PdfRenderCache.Key key(long id, String version) {
+        return new PdfRenderCache.Key("complaint-report", id, version, "template-v1");
+    }
+
+    private long filesOnDisk() throws Exception {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+
+    @Test
+    void testRendersOnceUntilTheEntityChanges() throws Exception {
+        // Given
+        PdfRenderCache cache = cache(1_000_000);
+        AtomicInteger renders = new AtomicInteger();
+
+        // When: the same unchanged complaint is downloaded repeatedly
+        for (int i = 0; i < 5; i++) {
+            byte[] pdf = cache.getOrRenderBytes(key(7, "1000"), out -> {
+                renders.incrementAndGet();
+                out.write("version 1000".getBytes());
+            });
+            assertThat(pdf).isEqualTo("version 1000".getBytes());
+        }
+
+        // Then
+        assertThat(renders).hasValue(1);
+        assertThat(cache.getStats()).containsEntry("hits", 4L).containsEntry("entries", 1);
+
+        // When the complaint is updated, the new version is rendered and replaces the old file
+        byte[] updated = cache.getOrRenderBytes(key(7, "2000"), out -> {
+            renders.incrementAndGet();
+            out.write("version 2000".getBytes());
+        });
+        assertThat(updated).isEqualTo("version 2000".getBytes());
+        assertThat(renders).hasValue(2);
+        assertThat(cache.getStats()).containsEntry("entries", 1);
+        assertThat(filesOnDisk()).isEqualTo(1);
+
+        // A changed template is a new key too
+        PdfRenderCache.Key newTemplate = new PdfRenderCache.Key("complaint-report", 7, "2000", "template-v2");
+        assertThat(newTemplate.etag()).isNotEqualTo(key(7, "2000").etag());
+    }
+
+    @Test
+    void testEvictsLeastRecentlyUsedOverTheSizeCapAndSurvivesRestart() throws Exception {
+        // Given: room for three 100-byte reports
+        PdfRenderCache cache = cache(300);
+        for (long id = 1; id <= 3; id++) {
+            cache.getOrRender(key(id, "1"), out -> out.write(new byte[100]));
+        }
+        // Report 1 is read again, so report 2 is now the least recently used
+        cache.getOrRender(key(1, "1"), out -> out.write(new byte[100]));
+
+        // When
+        cache.getOrRender(key(4, "1"), out -> out.write(new byte[100]));
+
+        // Then
+        assertThat(cache.getStats()).containsEntry("entries", 3).containsEntry("bytes", 300L).containsEntry("evictions", 1L);
+        assertThat(filesOnDisk()).isEqualTo(3);
+
+        // An empty render is an error, and anything larger than the cap comes back as a temporary file
+        assertThatThrownBy(() -> cache.getOrRender(key(5, "1"), out -> { }))
+                .isInstanceOf(IllegalStateException.class);
+        PdfRenderCache.RenderedFile large = cache.getOrRender(key(6, "1"), out -> out.write(new byte[400]));
+        assertThat(large.temporary()).isTrue();
+        assertThat(large.size()).isEqualTo(400);
+        large.release();
+        assertThat(filesOnDisk()).isEqualTo(3);
+
+        // After a restart the files on disk are served without rendering
+        PdfRenderCache restarted = cache(300);
+        AtomicInteger renders = new AtomicInteger();
+        for (long id : List.of(1L, 3L, 4L)) {
+            PdfRenderCache.RenderedFile file = restarted.getOrRender(key(id, "1"), out -> {
+                renders.incrementAndGet();
+                out.write(new byte[100]);
+            });
+            assertThat(file.temporary()).isFalse();
+        }
+        assertThat(renders).hasValue(0);
+    }
+
+    @Test
+    void testConcurrentRequestsForAMissingReportShareOneRender() throws Exception {
+        PdfRenderCache cache = cache(1_000_000);
+        AtomicInteger renders = new AtomicInteger();
+        CountDownLatch rendering = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            CompletableFuture<byte[]> first = CompletableFuture.supplyAsync(() -> cache.getOrRenderBytes(key(9, "1"), out -> {
+                renders.incrementAndGet();
+                rendering.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                out.write("report".getBytes());
+            }), pool);
+            assertThat(rendering.await(5, TimeUnit.SECONDS)).isTrue();
+
+            List<CompletableFuture<byte[]>> others = IntStream.range(0, 7)
+                    .mapToObj(i -> CompletableFuture.supplyAsync(() -> cache.getOrRenderBytes(key(9, "1"), out -> {
+                        renders.incrementAndGet();
+                        out.write("report".getBytes());
+                    }), pool))
+                    .toList();
+            release.countDown();
+
+            assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("report".getBytes());
+            for (CompletableFuture<byte[]> other : others) {
+                assertThat(other.get(5, TimeUnit.SECONDS)).isEqualTo("report".getBytes());
+            }
+            assertThat(renders).hasValue(1);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void testUncachedRendersStreamToATemporaryFileReleasedAfterUse() throws Exception {
+        // Given: caching turned off
+        PdfRenderCache cache = new PdfRenderCache(directory.toString(), 1_000_000, false);
+
+        // When
+        PdfRenderCache.RenderedFile file = cache.getOrRender(key(1, "1"), out -> {
+            for (int i = 0; i < 100; i++) {
+                out.write(new byte[10_000]);
+            }
+        });
+
+        // Then: the output went to disk, and is gone once released
+        assertThat(file.temporary()).isTrue();
+        assertThat(Files.size(file.path())).isEqualTo(1_000_000).isEqualTo(file.size());
+        file.release();
+        assertThat(filesOnDisk()).isZero();
+
+        // A renderer that fails leaves nothing behind either
+        assertThatThrownBy(() -> cache.renderTemporary(out -> {
+            out.write(new byte[10]);
+            throw new IllegalStateException("layout failed");
+        })).hasMessage("layout failed");
+        assertThat(filesOnDisk()).isZero();
+    }
+
+    @Test
+    void testEtagMatchesIfNoneMatchLists() {
+        PdfRenderCache.Key key = key(3, "1");
+
+        assertThat(key.etag()).startsWith("\"").endsWith("\"").hasSize(34);
+        assertThat(key.matches(key.etag())).isTrue();
+        assertThat(key.matches("\"other\", W/" + key.etag())).isTrue();
+        assertThat(key.matches("*")).isTrue();
+        assertThat(key.matches("\"other\"")).isFalse();
+        assertThat(key.matches(null)).isFalse();
+        assertThat(key(3, "2").matches(key.etag())).isFalse();
+    }
+}
@@ -0,0 +1,101 @@
+package com.nagar_sewak.backend.reports;
+
+import com.nagar_sewak.backend.repositories.ComplaintRepository;
+import com.nagar_sewak.backend.repositories.ProjectRepository;
+import com.nagar_sewak.backend.services.PdfGeneratorService;
+import com.nagar_sewak.backend.services.ReportService;
+import com.nagar_sewak.backend.util.InstrumentedExecutor;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+import org.thymeleaf.templatemode.TemplateMode;
+import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+public class PdfRenderingContextTest {
+
+    private static final String HTML = "<html><head><style>body { font-family: 'Arial', sans-serif; }"
+            + " .code { font-family: 'Courier New', monospace; }</style></head>"
+            + "<body><h1>Ward 7 drainage</h1><p class=\"code\">CMP-42</p></body></html>";
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testConcurrentConversionsShareTheFontsSafely() throws Exception {
+        // Given
+        PdfRenderingContext context = new PdfRenderingContext();
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            // When: many documents are converted at once from the one font set
+            List<CompletableFuture<byte[]>> pdfs = IntStream.range(0, 16)
+                    .mapToObj(i -> CompletableFuture.supplyAsync(() -> {
+                        ByteArrayOutputStream out = new ByteArrayOutputStream();
+                        try {
+                            context.measured(pdf -> context.convertHtml(HTML, pdf)).render(out);
+                        } catch (Exception e) {
+                            throw new IllegalStateException(e);
+                        }
+                        return out.toByteArray();
+                    }, pool))
+                    .toList();
+
+            // Then: each is a complete PDF, and every render was counted
+            for (CompletableFuture<byte[]> pdf : pdfs) {
+                String content = new String(pdf.get(30, TimeUnit.SECONDS), StandardCharsets.ISO_8859_1);
+                assertThat(content).startsWith("%PDF-").contains("%%EOF");
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        assertThat(context.getStats()).containsEntry("renders", 16L);
+        assertThat((Integer) context.getStats().get("fonts")).isPositive();
+        assertThat((Double) context.getStats().get("reportsPerCpuSecond")).isPositive();
+    }
+
+    @Test
+    void testWarmupRendersEveryReportKindAndRecordsWarmThroughput() throws Exception {
+        // Given: the real report views and layouts, with nothing in the database
+        ClassLoaderTemplateResolver resolver = new ClassLoaderTemplateResolver();
+        resolver.setPrefix("templates/");
+        resolver.setSuffix(".html");
+        resolver.setTemplateMode(TemplateMode.HTML);
+        SpringTemplateEngine templateEngine = new SpringTemplateEngine();
+        templateEngine.setTemplateResolver(resolver);
+
+        PdfRenderingContext context = new PdfRenderingContext();
+        PdfRenderCache cache = new PdfRenderCache(directory.toString(), 10_000_000, true);
+        ReportService reportService = new ReportService(templateEngine, mock(ComplaintRepository.class),
+                mock(ProjectRepository.class), cache, context, new DefaultResourceLoader(),
+                "classpath:/templates/", ".html");
+        InstrumentedExecutor pdfExecutor = InstrumentedExecutor.platform("pdf", 1, 1, 1,
+                InstrumentedExecutor.RejectionPolicy.CALLER_RUNS);
+        try {
+            ReportWarmup warmup = new ReportWarmup(reportService, new PdfGeneratorService(cache, context), context,
+                    pdfExecutor, true, 2);
+
+            // When
+            warmup.warmUp();
+
+            // Then: the samples rendered (a failure leaves the warm-up time unset) and nothing was cached
+            assertThat(context.getStats().get("warmupMillis")).isNotNull();
+            assertThat((Double) context.getStats().get("warmReportsPerCpuSecond")).isPositive();
+            assertThat(cache.getStats()).containsEntry("entries", 0).containsEntry("renders", 0L);
+        } finally {
+            pdfExecutor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package com.nagar_sewak.backend.reports;
+
+import com.nagar_sewak.backend.services.ReportService;
+import com.nagar_sewak.backend.util.InstrumentedExecutor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+public class ReportJobServiceTest {
+
+    @Mock
+    private ReportService reportService;
+
+    @TempDir
+    Path directory;
+
+    private InstrumentedExecutor pdfExecutor;
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        // One render at a time with room for one more queued, and callers would normally run the overflow
+        pdfExecutor = InstrumentedExecutor.platform("pdf", 1, 1, 1, InstrumentedExecutor.RejectionPolicy.CALLER_RUNS);
+        when(reportService.renderReport(any())).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            Map<?, ?> data = invocation.getArgument(0);
+            if ("broken".equals(data.get("type"))) {
+                throw new RuntimeException("Unknown report type: broken");
+            }
+            Path file = Files.write(directory.resolve("report-" + data.get("id") + ".pdf"), ("pdf " + data.get("id")).getBytes());
+            return new ReportService.RenderedReport(new PdfRenderCache.RenderedFile(file, Files.size(file), true), "\"etag\"");
+        });
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        release.countDown();
+        pdfExecutor.shutdown();
+    }
+
+    private ReportJobService service(int maxTracked) {
+        return service(maxTracked, 600);
+    }
+
+    private ReportJobService service(int maxTracked, long retentionSeconds) {
+        return new ReportJobService(reportService, pdfExecutor, retentionSeconds, maxTracked, 1000, 8);
+    }
+
+    @Test
+    void testJobsQueueOnTheBoundedPoolAndOverflowIsRefused() throws Exception {
+        // Given
+        ReportJobService service = service(100);
+        ReportJobService.Job first = service.submit(Map.of("type", "complaint", "id", 1));
+        ReportJobService.Job second = service.submit(Map.of("type", "complaint", "id", 2));
+
+        // When: the worker and the queue are both taken
+        assertThatThrownBy(() -> service.submit(Map.of("type", "complaint", "id", 3)))
+                .isInstanceOf(RejectedExecutionException.class);
+        assertThatThrownBy(() -> service.render(Map.of("type", "complaint", "id", 4)))
+                .isInstanceOf(RejectedExecutionException.class);
+
+        // Then: nothing ran on the calling thread and the refused job is not kept
+        assertThat(second.getStatus()).isEqualTo(ReportJobService.Status.QUEUED);
+        assertThat(service.getStats()).containsEntry("submitted", 2L).containsEntry("rejected", 2L).containsEntry("tracked", 2);
+
+        release.countDown();
+        assertThat(Files.readAllBytes(first.getResult().get(5, TimeUnit.SECONDS).file().path())).isEqualTo("pdf 1".getBytes());
+        assertThat(Files.readAllBytes(second.getResult().get(5, TimeUnit.SECONDS).file().path())).isEqualTo("pdf 2".getBytes());
+        assertThat(service.find(second.getId())).contains(second);
+
+        Map<String, Object> status = second.toStatus();
+        assertThat(status).containsEntry("status", "DONE").containsEntry("bytes", 5L)
+                .containsKeys("queueWaitMillis", "renderMillis", "finishedAt");
+        assertThat(service.getStats()).containsEntry("completed", 2L);
+    }
+
+    @Test
+    void testSynchronousDownloadsAreHeldToTheirOwnQuota() throws Exception {
+        // Given: a larger pool, of which synchronous downloads may hold only one place
+        InstrumentedExecutor executor = InstrumentedExecutor.platform("pdf-quota", 1, 1, 10, InstrumentedExecutor.RejectionPolicy.DROP);
+        ReportJobService service = new ReportJobService(reportService, executor, 600, 100, 1000, 1);
+        try {
+            CompletableFuture<ReportService.RenderedReport> download = service.render(Map.of("type", "complaint", "id", 1));
+
+            // When
+            assertThatThrownBy(() -> service.render(Map.of("type", "complaint", "id", 2)))
+                    .isInstanceOf(RejectedExecutionException.class)
+                    .hasMessageContaining("downloads");
+            ReportJobService.Job job = service.submit(Map.of("type", "complaint", "id", 3));
+
+            // Then: jobs still get in, and the quota frees up once the download finishes
+            assertThat(service.getStats()).containsEntry("syncInFlight", 1).containsEntry("syncRejected", 1L);
+            release.countDown();
+            download.get(5, TimeUnit.SECONDS);
+            job.getResult().get(5, TimeUnit.SECONDS);
+            for (int i = 0; i < 50 && !service.getStats().get("syncInFlight").equals(0); i++) {
+                Thread.sleep(10);
+            }
+            assertThat(service.render(Map.of("type", "complaint", "id", 4)).get(5, TimeUnit.SECONDS)).isNotNull();
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void testFailedRenderIsReportedOnTheJob() {
+        ReportJobService service = service(100);
+        release.countDown();
+
+        ReportJobService.Job job = service.submit(Map.of("type", "broken", "id", 9));
+
+        assertThatThrownBy(() -> job.getResult().get(5, TimeUnit.SECONDS)).isInstanceOf(ExecutionException.class);
+        assertThat(job.getStatus()).isEqualTo(ReportJobService.Status.FAILED);
+        assertThat(job.toStatus()).containsEntry("error", "Unknown report type: broken");
+        assertThat(service.getStats()).containsEntry("failed", 1L);
+    }
+
+    @Test
+    void testUntrackedRenderIsNotKeptAndTrackedJobsAreCapped() throws Exception {
+        ReportJobService service = service(1);
+        release.countDown();
+
+        // A synchronous download leaves no job behind
+        CompletableFuture<ReportService.RenderedReport> direct = service.render(Map.of("type", "project", "id", 5));
+        assertThat(direct.get(5, TimeUnit.SECONDS).etag()).isEqualTo("\"etag\"");
+        assertThat(service.getStats()).containsEntry("tracked", 0);
+
+        // Finished jobs are kept until their retention passes, and count toward the cap until then
+        ReportJobService.Job job = service.submit(Map.of("type", "project", "id", 6));
+        job.getResult().get(5, TimeUnit.SECONDS);
+        assertThatThrownBy(() -> service.submit(Map.of("type", "project", "id", 7)))
+                .isInstanceOf(RejectedExecutionException.class)
+                .hasMessageContaining("Too many report jobs");
+    }
+
+    @Test
+    void testExpiredJobsAreDroppedWithTheirTemporaryFiles() throws Exception {
+        ReportJobService service = service(10, 1);
+        release.countDown();
+        ReportJobService.Job job = service.submit(Map.of("type", "project", "id", 8));
+        Path file = job.getResult().get(5, TimeUnit.SECONDS).file().path();
+
+        service.purgeExpired();
+        assertThat(service.find(job.getId())).isPresent();
+
+        Thread.sleep(1100);
+        service.purgeExpired();
+        assertThat(service.find(job.getId())).isEmpty();
+        assertThat(file).doesNotExist();
+    }
+
+    @Test
+    void testSynchronousDownloadThatTimesOutReleasesTheLateReport() throws Exception {
+        // Given: a render still waiting when the request gives up
+        ReportJobService service = service(10);
+        CompletableFuture<ReportService.RenderedReport> rendered = service.render(Map.of("type", "complaint", "id", 9));
+        CompletableFuture<ResponseEntity<?>> response = PdfResponses.whenRendered(rendered, Duration.ofMillis(50),
+                report -> PdfResponses.attachment(report.file(), "report.pdf", report.etag(), true), null);
+
+        // When
+        ResponseEntity<?> answer = response.get(5, TimeUnit.SECONDS);
+        release.countDown();
+        Path file = rendered.get(5, TimeUnit.SECONDS).file().path();
+        // The late report is released by the render's completion callback
+        for (int i = 0; i < 50 && Files.exists(file); i++) {
+            Thread.sleep(100);
+        }
+
+        // Then
+        assertThat(answer.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(answer.getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("5");
+        assertThat(file).doesNotExist();
+    }
+}
@@ -0,0 +1,195 @@
+package com.nagar_sewak.backend.services;
+
+import com.nagar_sewak.backend.dto.NotificationRecipient;
+import com.nagar_sewak.backend.entities.*;
+import com.nagar_sewak.backend.repositories.ComplaintCommentRepository;
+import com.nagar_sewak.backend.repositories.ComplaintFollowerRepository;
+import com.nagar_sewak.backend.repositories.ComplaintRepository;
+import com.nagar_sewak.backend.repositories.ComplaintVoteRepository;
+import com.nagar_sewak.backend.repositories.ProjectRepository;
+import com.nagar_sewak.backend.repositories.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Import({ComplaintFollowerService.class, JobLockService.class})
+public class ComplaintFollowerServiceTest {
+
+    @Autowired
+    private ComplaintFollowerService complaintFollowerService;
+
+    @Autowired
+    private ComplaintFollowerRepository followerRepository;
+
+    @Autowired
+    private ComplaintRepository complaintRepository;
+
+    @Autowired
+    private ComplaintVoteRepository voteRepository;
+
+    @Autowired
+    private ComplaintCommentRepository commentRepository;
+
+    @Autowired
+    private ProjectRepository projectRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private User user(String username) {
+        User user = new User();
+        user.setUsername(username);
+        user.setEmail(username + "@example.com");
+        user.setRoles(Set.of(Role.CITIZEN));
+        return userRepository.save(user);
+    }
+
+    private Complaint complaint(User reporter, Project project) {
+        Complaint complaint = new Complaint();
+        complaint.setTitle("Pothole");
+        complaint.setUser(reporter);
+        complaint.setProject(project);
+        return complaintRepository.save(complaint);
+    }
+
+    private Project project() {
+        Project project = new Project();
+        project.setTitle("Road repair");
+        return projectRepository.save(project);
+    }
+
+    @Test
+    void testProjectFollowersAreDistinctAcrossComplaints() {
+        // Given
+        Project project = project();
+        User reporter = user("reporter");
+        User voter = user("voter");
+        User outsider = user("outsider");
+        Complaint first = complaint(reporter, project);
+        Complaint second = complaint(reporter, project);
+        Complaint unrelated = complaint(outsider, null);
+
+        complaintFollowerService.follow(first, reporter, FollowReason.REPORTER);
+        complaintFollowerService.follow(second, reporter, FollowReason.REPORTER);
+        complaintFollowerService.follow(first, voter, FollowReason.VOTER);
+        complaintFollowerService.follow(second, voter, FollowReason.COMMENTER);
+        complaintFollowerService.follow(first, voter, FollowReason.COMMENTER);
+        complaintFollowerService.follow(unrelated, outsider, FollowReason.REPORTER);
+
+        // When
+        List<NotificationRecipient> firstChunk = complaintFollowerService.findProjectFollowers(project.getId(), 0L, 1);
+        List<NotificationRecipient> secondChunk = complaintFollowerService.findProjectFollowers(
+                project.getId(), firstChunk.get(0).getId(), 10);
+
+        // Then
+        assertThat(followerRepository.countFollowers(first.getId())).isEqualTo(2);
+        assertThat(firstChunk).extracting(NotificationRecipient::getUsername).containsExactly("reporter");
+        assertThat(secondChunk).extracting(NotificationRecipient::getUsername).containsExactly("voter");
+    }
+
+    @Test
+    void testWithdrawnVoteOnlyRemovesVoterFollow() {
+        // Given
+        Project project = project();
+        User reporter = user("reporter");
+        User voter = user("voter");
+        Complaint complaint = complaint(reporter, project);
+        complaintFollowerService.follow(complaint, reporter, FollowReason.REPORTER);
+        complaintFollowerService.follow(complaint, voter, FollowReason.VOTER);
+
+        // When
+        complaintFollowerService.unfollowVoter(complaint.getId(), voter.getId());
+        complaintFollowerService.unfollowVoter(complaint.getId(), reporter.getId());
+
+        // Then
+        assertThat(complaintFollowerService.findProjectFollowers(project.getId(), 0L, 10))
+                .extracting(NotificationRecipient::getUsername)
+                .containsExactly("reporter");
+    }
+
+    @Test
+    void testCommenterFollowsAndKeepsFollowingAfterWithdrawingVote() {
+        // Given
+        Project project = project();
+        User reporter = user("reporter");
+        User neighbour = user("neighbour");
+        User commenter = user("commenter");
+        Complaint complaint = complaint(reporter, project);
+        complaintFollowerService.follow(complaint, reporter, FollowReason.REPORTER);
+        complaintFollowerService.follow(complaint, neighbour, FollowReason.VOTER);
+        complaintFollowerService.follow(complaint, neighbour, FollowReason.COMMENTER);
+        complaintFollowerService.follow(complaint, commenter, FollowReason.COMMENTER);
+        complaintFollowerService.follow(complaint, commenter, FollowReason.COMMENTER);
+
+        // When
+        complaintFollowerService.unfollowVoter(complaint.getId(), neighbour.getId());
+
+        // Then
+        assertThat(complaintFollowerService.findProjectFollowers(project.getId(), 0L, 10))
+                .extracting(NotificationRecipient::getUsername)
+                .containsExactly("reporter", "neighbour", "commenter");
+        assertThat(followerRepository.findAll())
+                .filteredOn(follower -> follower.getUser().getId().equals(commenter.getId()))
+                .hasSize(1);
+    }
+
+    @Test
+    void testBackfillIndexesExistingReportersAndVoters() {
+        // Given
+        Project project = project();
+        User reporter = user("reporter");
+        User voter = user("voter");
+        Complaint complaint = complaint(reporter, project);
+        ComplaintVote vote = new ComplaintVote();
+        vote.setComplaint(complaint);
+        vote.setUser(voter);
+        voteRepository.saveAndFlush(vote);
+
+        // When
+        complaintFollowerService.backfill();
+
+        // Then
+        assertThat(followerRepository.findAll())
+                .extracting(ComplaintFollower::getReason)
+                .containsExactlyInAnyOrder(FollowReason.REPORTER, FollowReason.VOTER);
+    }
+
+    @Test
+    void testBackfillAddsMissingReasonsWhenIndexIsNotEmpty() {
+        // Given
+        Project project = project();
+        User reporter = user("reporter");
+        User neighbour = user("neighbour");
+        Complaint complaint = complaint(reporter, project);
+        complaintFollowerService.follow(complaint, neighbour, FollowReason.VOTER);
+        ComplaintVote vote = new ComplaintVote();
+        vote.setComplaint(complaint);
+        vote.setUser(neighbour);
+        voteRepository.save(vote);
+        ComplaintComment comment = new ComplaintComment();
+        comment.setComplaint(complaint);
+        comment.setUser(neighbour);
+        comment.setContent("Same on my street");
+        commentRepository.saveAndFlush(comment);
+
+        // When
+        complaintFollowerService.backfill();
+        complaintFollowerService.backfill();
+        complaintFollowerService.unfollowVoter(complaint.getId(), neighbour.getId());
+
+        // Then
+        assertThat(followerRepository.findAll())
+                .extracting(ComplaintFollower::getReason)
+                .containsExactlyInAnyOrder(FollowReason.REPORTER, FollowReason.COMMENTER);
+        assertThat(followerRepository.countFollowers(complaint.getId())).isEqualTo(2);
+    }
+}
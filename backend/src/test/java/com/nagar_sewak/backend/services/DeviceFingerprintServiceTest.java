@@ -36,7 +36,7 @@ public class DeviceFingerprintServiceTest {
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
-        deviceFingerprintService = new DeviceFingerprintService(deviceFingerprintRepository, securityAuditService, emailService);
+        deviceFingerprintService = new DeviceFingerprintService(deviceFingerprintRepository, securityAuditService, emailService, 64, 64, 300);
     }
 
     @Test
@@ -158,48 +158,79 @@ public class DeviceFingerprintServiceTest {
                 .trusted(false)
                 .build();
 
-        when(deviceFingerprintRepository.findByFingerprintHash("abc123")).thenReturn(Optional.empty());
-        when(deviceFingerprintRepository.save(any(DeviceFingerprint.class))).thenReturn(fingerprint);
+        when(deviceFingerprintRepository.upsertDevice(eq(userId), eq("Chrome"), eq("Windows"), eq("Desktop"),
+                eq("192.168.1.1"), eq("abc123"), any(LocalDateTime.class))).thenReturn(1);
 
         // When
-        DeviceFingerprint result = deviceFingerprintService.registerDevice(userId, fingerprint);
+        boolean inserted = deviceFingerprintService.registerDevice(userId, fingerprint);
 
         // Then
-        assertThat(result).isEqualTo(fingerprint);
-        verify(deviceFingerprintRepository).save(fingerprint);
+        assertThat(inserted).isTrue();
+        verify(deviceFingerprintRepository, never()).save(any(DeviceFingerprint.class));
     }
 
     @Test
     void testRegisterDevice_ExistingDevice() {
         // Given
         String userId = "user123";
-        DeviceFingerprint existingDevice = DeviceFingerprint.builder()
-                .id(1L)
-                .userId(userId)
-                .fingerprintHash("abc123")
-                .browserType("Chrome")
-                .operatingSystem("Windows")
-                .deviceType("Desktop")
-                .ipAddress("192.168.1.1")
-                .trusted(false)
-                .lastSeen(LocalDateTime.now().minusDays(1))
-                .build();
-
         DeviceFingerprint newFingerprint = DeviceFingerprint.builder()
                 .userId(userId)
                 .fingerprintHash("abc123")
                 .ipAddress("192.168.1.2") // Different IP
                 .build();
 
-        when(deviceFingerprintRepository.findByFingerprintHash("abc123")).thenReturn(Optional.of(existingDevice));
-        when(deviceFingerprintRepository.save(any(DeviceFingerprint.class))).thenReturn(existingDevice);
+        when(deviceFingerprintRepository.upsertDevice(eq(userId), any(), any(), any(),
+                eq("192.168.1.2"), eq("abc123"), any(LocalDateTime.class))).thenReturn(2);
+
+        // When
+        boolean inserted = deviceFingerprintService.registerDevice(userId, newFingerprint);
+
+        // Then
+        assertThat(inserted).isFalse();
+        assertThat(deviceFingerprintService.isKnownDevice(userId, newFingerprint)).isTrue();
+        verify(deviceFingerprintRepository, never()).existsByUserIdAndFingerprintHash(anyString(), anyString());
+    }
+
+    @Test
+    void testProcessDeviceForLogin_NewDeviceAlertsOnce() {
+        // Given
+        String userId = "user123";
+        when(request.getHeader("User-Agent")).thenReturn("Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/91.0.4472.124 Safari/537.36");
+        when(request.getRemoteAddr()).thenReturn("192.168.1.1");
+        when(deviceFingerprintRepository.upsertDevice(eq(userId), anyString(), anyString(), anyString(),
+                anyString(), anyString(), any(LocalDateTime.class))).thenReturn(1);
+
+        // When
+        boolean first = deviceFingerprintService.processDeviceForLogin(userId, "citizen@example.com", request);
+        boolean second = deviceFingerprintService.processDeviceForLogin(userId, "citizen@example.com", request);
+
+        // Then
+        assertThat(first).isTrue();
+        assertThat(second).isFalse();
+        verify(deviceFingerprintRepository, times(1)).upsertDevice(anyString(), anyString(), anyString(), anyString(),
+                anyString(), anyString(), any(LocalDateTime.class));
+        verify(securityAuditService, times(1)).logSecurityEvent(any(), eq(userId), eq(request), anyMap());
+        // The alert goes to the user's email address, not their id
+        verify(emailService, times(1)).sendNewDeviceAlert(eq("citizen@example.com"), anyString(), anyString(), anyString(),
+                anyString(), anyString(), any(LocalDateTime.class), anyString());
+    }
+
+    @Test
+    void testCreateFingerprint_SameHeadersProduceSameHash() {
+        // Given
+        when(request.getHeader("User-Agent")).thenReturn("Mozilla/5.0 (X11; Linux x86_64; rv:89.0) Gecko/20100101 Firefox/89.0");
+        when(request.getHeader("Accept-Language")).thenReturn("en-US");
+        when(request.getRemoteAddr()).thenReturn("192.168.1.1");
 
         // When
-        DeviceFingerprint result = deviceFingerprintService.registerDevice(userId, newFingerprint);
+        DeviceFingerprint first = deviceFingerprintService.createFingerprint(request, "user123");
+        DeviceFingerprint second = deviceFingerprintService.createFingerprint(request, "user456");
 
         // Then
-        assertThat(result.getIpAddress()).isEqualTo("192.168.1.2"); // IP should be updated
-        verify(deviceFingerprintRepository).save(existingDevice);
+        assertThat(first.getFingerprintHash()).isEqualTo(second.getFingerprintHash()).hasSize(64);
+        assertThat(second.getBrowserType()).isEqualTo("Firefox");
+        assertThat(second.getOperatingSystem()).isEqualTo("Linux");
+        assertThat(second.getUserId()).isEqualTo("user456");
     }
 
     @Test
@@ -248,7 +279,7 @@ public class DeviceFingerprintServiceTest {
                 .trusted(false)
                 .build();
 
-        when(deviceFingerprintRepository.findByFingerprintHash(fingerprintHash)).thenReturn(Optional.of(device));
+        when(deviceFingerprintRepository.findByUserIdAndFingerprintHash(userId, fingerprintHash)).thenReturn(Optional.of(device));
         when(deviceFingerprintRepository.save(any(DeviceFingerprint.class))).thenReturn(device);
 
         // When
@@ -270,7 +301,7 @@ public class DeviceFingerprintServiceTest {
                 .trusted(true)
                 .build();
 
-        when(deviceFingerprintRepository.findByFingerprintHash(fingerprintHash)).thenReturn(Optional.of(device));
+        when(deviceFingerprintRepository.findByUserIdAndFingerprintHash(userId, fingerprintHash)).thenReturn(Optional.of(device));
         when(deviceFingerprintRepository.save(any(DeviceFingerprint.class))).thenReturn(device);
 
         // When
@@ -0,0 +1,173 @@
+package com.nagar_sewak.backend.services;
+
+import com.nagar_sewak.backend.entities.EmailTemplate;
+import com.nagar_sewak.backend.entities.EmailTemplateType;
+import com.nagar_sewak.backend.repositories.EmailTemplateRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.test.context.ActiveProfiles;
+import org.thymeleaf.context.Context;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+import org.thymeleaf.templatemode.TemplateMode;
+import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@ActiveProfiles("test")
+public class EmailTemplateServiceTest {
+
+    private static final Logger log = LoggerFactory.getLogger(EmailTemplateServiceTest.class);
+
+    @Autowired
+    private EmailTemplateRepository emailTemplateRepository;
+
+    private EmailTemplateService emailTemplateService;
+
+    private SpringTemplateEngine templateEngine;
+
+    @BeforeEach
+    void setUp() {
+        ClassLoaderTemplateResolver resolver = new ClassLoaderTemplateResolver();
+        resolver.setPrefix("templates/");
+        resolver.setSuffix(".html");
+        resolver.setTemplateMode(TemplateMode.HTML);
+        resolver.setCharacterEncoding("UTF-8");
+        templateEngine = new SpringTemplateEngine();
+        templateEngine.setTemplateResolver(resolver);
+
+        emailTemplateService = new EmailTemplateService(emailTemplateRepository, templateEngine, new DefaultResourceLoader(),
+                "Nagar Sewak", "https://nagarsewak.example", "support@example.com", "https://api.example/uploads",
+                "classpath:/templates/", ".html", 300000);
+    }
+
+    private void template(EmailTemplateType type, String language, String subject, String view) {
+        emailTemplateRepository.save(EmailTemplate.builder()
+                .type(type).language(language).subject(subject).htmlContent(view).active(true).build());
+    }
+
+    @Test
+    void testRendersFromLoadedTemplatesWithoutRequeryingUntilInvalidated() {
+        // Given
+        template(EmailTemplateType.PASSWORD_RESET, "en", "Password Reset Request - ${appName}", "password-reset");
+        template(EmailTemplateType.PASSWORD_RESET, "hi", "${userName}, reset your ${appName} password", "password-reset");
+
+        // When
+        String english = emailTemplateService.renderSubject(EmailTemplateType.PASSWORD_RESET, Map.of());
+        String hindi = emailTemplateService.renderSubject(EmailTemplateType.PASSWORD_RESET, Map.of("userName", "Asha"), "hi");
+        String french = emailTemplateService.renderSubject(EmailTemplateType.PASSWORD_RESET, Map.of(), "fr");
+
+        // Then: placeholders filled from the variables, then the common ones; unknown languages fall back to English
+        assertThat(english).isEqualTo("Password Reset Request - Nagar Sewak");
+        assertThat(hindi).isEqualTo("Asha, reset your Nagar Sewak password");
+        assertThat(french).isEqualTo(english);
+
+        // The loaded set is used until invalidated, even though the rows are gone
+        emailTemplateRepository.deleteAll();
+        assertThat(emailTemplateService.renderSubject(EmailTemplateType.PASSWORD_RESET, Map.of())).isEqualTo(english);
+
+        emailTemplateService.invalidateTemplates();
+        assertThat(emailTemplateService.renderSubject(EmailTemplateType.PASSWORD_RESET, Map.of()))
+                .isEqualTo("Password Reset Request - Nagar Sewak");
+        assertThat(emailTemplateService.renderSubject(EmailTemplateType.SECURITY_ALERT, Map.of()))
+                .isEqualTo("Security Alert - Nagar Sewak");
+    }
+
+    /**
+     * Compares the cached path with the previous one, a repository query plus a scan of the variables per
+     * email, for a whole email (subject and Thymeleaf body). Timings depend on the machine, so this only logs
+     * them; enable it locally to measure.
+     */
+    @Test
+    @Tag("benchmark")
+    @Disabled("Benchmark: logs ns/email for cached vs per-email template lookup")
+    void benchmarkCachedRenderingAgainstLookingUpTheTemplatePerEmail() {
+        // Given
+        template(EmailTemplateType.PASSWORD_RESET, "en", "Password Reset Request - ${appName} for ${userName}", "email/password-reset");
+        Map<String, Object> variables = Map.of("userName", "Asha", "resetUrl", "https://nagarsewak.example/reset?token=abc123",
+                "appName", "Nagar Sewak");
+        int rounds = 500;
+
+        Runnable perEmailLookup = () -> {
+            EmailTemplate row = emailTemplateRepository.findByTypeAndLanguageAndActiveTrue(EmailTemplateType.PASSWORD_RESET, "en")
+                    .orElseThrow();
+            String subject = row.getSubject();
+            for (Map.Entry<String, Object> entry : variables.entrySet()) {
+                String placeholder = "${" + entry.getKey() + "}";
+                if (subject.contains(placeholder)) {
+                    subject = subject.replace(placeholder, String.valueOf(entry.getValue()));
+                }
+            }
+            Context context = new Context();
+            context.setVariables(variables);
+            String body = templateEngine.process(row.getHtmlContent(), context);
+            assertThat(subject).isEqualTo("Password Reset Request - Nagar Sewak for Asha");
+            assertThat(body).contains("abc123");
+        };
+        Runnable cached = () -> {
+            assertThat(emailTemplateService.renderSubject(EmailTemplateType.PASSWORD_RESET, variables))
+                    .isEqualTo("Password Reset Request - Nagar Sewak for Asha");
+            assertThat(emailTemplateService.renderTemplate(EmailTemplateType.PASSWORD_RESET, variables)).contains("abc123");
+        };
+
+        // When: each path is warmed up, then measured
+        timePerRender(perEmailLookup, rounds);
+        timePerRender(cached, rounds);
+        long before = timePerRender(perEmailLookup, rounds);
+        long after = timePerRender(cached, rounds);
+
+        // Then
+        log.info("Email rendering: per-email lookup {} ns/email, cached {} ns/email", before, after);
+    }
+
+    private static long timePerRender(Runnable render, int rounds) {
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            render.run();
+        }
+        return (System.nanoTime() - start) / rounds;
+    }
+
+    @Test
+    void testSubjectPlaceholdersCompileToSegments() {
+        EmailTemplateService.SubjectTemplate subject = EmailTemplateService.SubjectTemplate.compile("${a} and ${b} or ${missing}!");
+
+        assertThat(subject.render(Map.of("a", 1), Map.of("b", "two", "a", "ignored"))).isEqualTo("1 and two or ${missing}!");
+        assertThat(EmailTemplateService.SubjectTemplate.compile("No placeholders").render(null, Map.of()))
+                .isEqualTo("No placeholders");
+        assertThat(EmailTemplateService.SubjectTemplate.compile("Unclosed ${name").render(Map.of("name", "x"), Map.of()))
+                .isEqualTo("Unclosed ${name");
+    }
+
+    @Test
+    void testRendersBodiesFromThymeleafViews() {
+        // Given: a template row naming a view that does not exist
+        template(EmailTemplateType.SECURITY_ALERT, "en", "Security Alert - ${appName}", "no-such-view");
+
+        // When
+        String alert = emailTemplateService.renderTemplate(EmailTemplateType.SECURITY_ALERT,
+                Map.of("alertTimestamp", "2026-01-01 10:00:00", "ipAddress", "10.0.0.1", "location", "Pune"));
+        String notification = emailTemplateService.renderNotificationEmail("Complaint <updated>",
+                "Status is now <b>Resolved</b>", "/complaints/7");
+        String digest = emailTemplateService.renderNotificationEmailHtml("Your notification digest",
+                "<strong>First</strong><br>", "/notifications");
+
+        // Then: the built-in view is used for the missing one
+        assertThat(alert).contains("Security Alert", "10.0.0.1", "Pune", "support@example.com");
+        // plain-text messages are escaped and relative links point at the app
+        assertThat(notification)
+                .contains("Complaint &lt;updated&gt;", "Status is now &lt;b&gt;Resolved&lt;/b&gt;",
+                        "href=\"https://nagarsewak.example/complaints/7\"")
+                .doesNotContain("<b>Resolved</b>");
+        assertThat(digest).contains("<strong>First</strong><br>", "https://nagarsewak.example/notifications");
+    }
+}
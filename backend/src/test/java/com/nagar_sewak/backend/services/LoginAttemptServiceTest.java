@@ -1,5 +1,6 @@
 package com.nagar_sewak.backend.services;
 
+import com.nagar_sewak.backend.anomaly.LoginAnomalyDetector;
 import com.nagar_sewak.backend.entities.LoginAttempt;
 import com.nagar_sewak.backend.repositories.LoginAttemptRepository;
 import org.junit.jupiter.api.BeforeEach;
@@ -30,6 +31,9 @@ public class LoginAttemptServiceTest {
     @Mock
     private EmailService emailService;
 
+    @Mock
+    private LoginAnomalyDetector loginAnomalyDetector;
+
     @Mock
     private ValueOperations<String, Object> valueOperations;
 
@@ -42,7 +46,7 @@ public class LoginAttemptServiceTest {
     void setUp() {
         MockitoAnnotations.openMocks(this);
         when(redisTemplate.opsForValue()).thenReturn(valueOperations);
-        loginAttemptService = new LoginAttemptService(loginAttemptRepository, redisTemplate, securityAuditService, emailService);
+        loginAttemptService = new LoginAttemptService(loginAttemptRepository, redisTemplate, securityAuditService, emailService, loginAnomalyDetector);
     }
 
     @Test
@@ -86,6 +90,7 @@ public class LoginAttemptServiceTest {
         // Then
         verify(loginAttemptRepository).save(any(LoginAttempt.class));
         verify(valueOperations).set(eq("login_attempts:" + email), eq(3), eq(15L), eq(TimeUnit.MINUTES));
+        verify(loginAnomalyDetector).onLoginFailure(email, ipAddress);
     }
 
     @Test
@@ -0,0 +1,153 @@
+package com.nagar_sewak.backend.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nagar_sewak.backend.entities.*;
+import com.nagar_sewak.backend.repositories.NotificationPreferenceRepository;
+import com.nagar_sewak.backend.repositories.NotificationRepository;
+import com.nagar_sewak.backend.repositories.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+public class NotificationCoalescingTest {
+
+    @Autowired
+    private NotificationRepository notificationRepository;
+
+    @Autowired
+    private NotificationPreferenceRepository preferenceRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Mock
+    private EmailService emailService;
+
+    @Mock
+    private UnreadCounterService unreadCounterService;
+
+    @Mock
+    private EmailTemplateService emailTemplateService;
+
+    @Mock
+    private NotificationPreferenceService preferenceService;
+
+    private NotificationService notificationService;
+
+    private NotificationDigestService digestService;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        NotificationCoalescer coalescer = new NotificationCoalescer(notificationRepository, 900,
+                List.of(NotificationType.COMMENT, NotificationType.SYSTEM_ALERT));
+        notificationService = new NotificationService(notificationRepository, preferenceService, userRepository,
+                new ObjectMapper(), emailService, mock(PdfGeneratorService.class), event -> { },
+                unreadCounterService, new NotificationPreferenceCache(preferenceRepository, 100, 60000), coalescer,
+                emailTemplateService);
+        digestService = new NotificationDigestService(notificationRepository, userRepository, emailService,
+                emailTemplateService, 8, 10, 20);
+        when(emailTemplateService.renderNotificationEmail(anyString(), anyString(), anyString())).thenReturn("<p>notification</p>");
+        when(emailTemplateService.renderNotificationEmailHtml(anyString(), anyString(), anyString())).thenReturn("<p>digest</p>");
+
+        user = new User();
+        user.setUsername("citizen");
+        user.setEmail("citizen@example.com");
+        user.setRoles(Set.of(Role.CITIZEN));
+        user = userRepository.save(user);
+    }
+
+    private Notification notify(NotificationType type, NotificationPriority priority, String actionUrl, String message) {
+        return notificationService.createNotification(NotificationService.NotificationDTO.builder()
+                .userId(user.getId())
+                .type(type)
+                .priority(priority)
+                .title("New Comment on Your Complaint")
+                .message(message)
+                .actionUrl(actionUrl)
+                .build());
+    }
+
+    @Test
+    void testRepeatEventsOnOneTargetFoldIntoOneNotification() {
+        // Given
+        Notification first = notify(NotificationType.COMMENT, NotificationPriority.MEDIUM, "/complaints/1", "first");
+
+        // When
+        notify(NotificationType.COMMENT, NotificationPriority.MEDIUM, "/complaints/1", "second");
+        Notification third = notify(NotificationType.COMMENT, NotificationPriority.MEDIUM, "/complaints/1", "third");
+        notify(NotificationType.COMMENT, NotificationPriority.MEDIUM, "/complaints/2", "other complaint");
+
+        // Then
+        assertThat(third.getId()).isEqualTo(first.getId());
+        assertThat(third.getOccurrenceCount()).isEqualTo(3);
+        assertThat(third.getMessage()).isEqualTo("third");
+        assertThat(notificationRepository.count()).isEqualTo(2);
+        verify(unreadCounterService, times(2)).adjust(user.getId(), 1);
+    }
+
+    @Test
+    void testReadNotificationStartsANewGroup() {
+        // Given
+        Notification first = notify(NotificationType.COMMENT, NotificationPriority.MEDIUM, "/complaints/1", "first");
+        notificationService.markAsRead(first.getId(), user.getId());
+
+        // When
+        Notification next = notify(NotificationType.COMMENT, NotificationPriority.MEDIUM, "/complaints/1", "second");
+
+        // Then
+        assertThat(next.getId()).isNotEqualTo(first.getId());
+        assertThat(next.getOccurrenceCount()).isEqualTo(1);
+    }
+
+    @Test
+    void testDigestUsersGetOneEmailForTheirPendingNotifications() {
+        // Given
+        user.setEmailDigest(EmailDigestFrequency.HOURLY);
+        notify(NotificationType.SYSTEM_ALERT, NotificationPriority.HIGH, "/alerts/1", "first alert");
+        notify(NotificationType.SYSTEM_ALERT, NotificationPriority.HIGH, "/alerts/1", "repeat alert");
+        notify(NotificationType.SYSTEM_ALERT, NotificationPriority.HIGH, "/alerts/2", "second alert");
+        when(emailService.queueEmail(anyString(), anyString(), anyString(),
+                eq(EmailTemplateType.NOTIFICATION_DIGEST))).thenReturn(true);
+
+        // When
+        int daily = digestService.sendDigests(Set.of(EmailDigestFrequency.DAILY));
+        int hourly = digestService.sendDigests(Set.of(EmailDigestFrequency.HOURLY));
+        int again = digestService.sendDigests(Set.of(EmailDigestFrequency.HOURLY));
+
+        // Then
+        assertThat(daily).isZero();
+        assertThat(hourly).isEqualTo(1);
+        assertThat(again).isZero();
+        verify(emailService, never()).sendHtmlEmail(anyString(), anyString(), anyString());
+        verify(emailService, times(1)).queueEmail(eq("citizen@example.com"),
+                eq("You have 2 new notifications"), anyString(), eq(EmailTemplateType.NOTIFICATION_DIGEST));
+        assertThat(notificationRepository.findByUser_IdAndEmailPendingTrueOrderByIdAsc(user.getId())).isEmpty();
+    }
+
+    @Test
+    void testImmediateUsersAreEmailedOncePerGroup() {
+        // When
+        notify(NotificationType.SYSTEM_ALERT, NotificationPriority.HIGH, "/alerts/1", "first alert");
+        notify(NotificationType.SYSTEM_ALERT, NotificationPriority.HIGH, "/alerts/1", "repeat alert");
+
+        // Then
+        verify(emailService, times(1)).sendHtmlEmail(eq("citizen@example.com"), anyString(), anyString());
+    }
+}
@@ -0,0 +1,195 @@
+package com.nagar_sewak.backend.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nagar_sewak.backend.entities.*;
+import com.nagar_sewak.backend.events.NotificationsCreatedEvent;
+import com.nagar_sewak.backend.mail.EmailQueue;
+import com.nagar_sewak.backend.realtime.NotificationStreamMessage;
+import com.nagar_sewak.backend.repositories.EmailAttachmentRepository;
+import com.nagar_sewak.backend.repositories.EmailHistoryRepository;
+import com.nagar_sewak.backend.repositories.NotificationPreferenceRepository;
+import com.nagar_sewak.backend.repositories.NotificationRepository;
+import com.nagar_sewak.backend.repositories.UserRepository;
+import com.nagar_sewak.backend.util.InstrumentedExecutor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+public class NotificationFanoutServiceTest {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private NotificationRepository notificationRepository;
+
+    @Autowired
+    private NotificationPreferenceRepository preferenceRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private EmailHistoryRepository emailHistoryRepository;
+
+    @Autowired
+    private EmailAttachmentRepository emailAttachmentRepository;
+
+    @Mock
+    private PushNotificationSender pushSender;
+
+    @Mock
+    private UnreadCounterService unreadCounterService;
+
+    private InstrumentedExecutor pushExecutor;
+
+    private final List<Object> publishedEvents = new ArrayList<>();
+
+    private NotificationFanoutService fanoutService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        pushExecutor = InstrumentedExecutor.platform("test-push", 1, 1, 10, InstrumentedExecutor.RejectionPolicy.CALLER_RUNS);
+        fanoutService = new NotificationFanoutService(userRepository,
+                new NotificationPreferenceCache(preferenceRepository, 100, 60000), jdbcTemplate,
+                transactionTemplate, new ObjectMapper(), new EmailQueue(jdbcTemplate, emailAttachmentRepository, true),
+                mock(EmailTemplateService.class),
+                List.of(pushSender), publishedEvents::add, unreadCounterService, pushExecutor, 2);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        pushExecutor.shutdown();
+    }
+
+    private User user(String username, Role role) {
+        User user = new User();
+        user.setUsername(username);
+        user.setEmail(username + "@example.com");
+        user.setRoles(Set.of(role));
+        return userRepository.save(user);
+    }
+
+    @Test
+    void testFanOutReachesEveryUserWithRoleAcrossChunks() {
+        // Given
+        User subscribed = user("contractor1", Role.CONTRACTOR);
+        user("contractor2", Role.CONTRACTOR);
+        user("contractor3", Role.CONTRACTOR);
+        user("admin1", Role.ADMIN);
+        user("citizen1", Role.CITIZEN);
+        preferenceRepository.save(NotificationPreference.builder()
+                .user(subscribed)
+                .notificationType(NotificationType.TENDER_NEW_OPPORTUNITY)
+                .emailEnabled(true)
+                .pushEnabled(true)
+                .build());
+
+        NotificationService.NotificationDTO template = NotificationService.NotificationDTO.builder()
+                .type(NotificationType.TENDER_NEW_OPPORTUNITY)
+                .priority(NotificationPriority.HIGH)
+                .title("New Tender Available")
+                .message("A new tender is available")
+                .actionUrl("/tenders/1")
+                .metadata(Map.of("tenderId", 1))
+                .build();
+        // When
+        NotificationFanoutService.FanoutResult result = fanoutService.fanOut(Role.CONTRACTOR, template,
+                recipient -> new NotificationFanoutService.FanoutEmail("Subject", "Hi " + recipient.getUsername(),
+                        new byte[]{1}, "tender.pdf"));
+
+        // Then
+        assertThat(result.recipients()).isEqualTo(3);
+        assertThat(result.emailsQueued()).isEqualTo(1);
+        assertThat(result.pushesQueued()).isEqualTo(1);
+        assertThat(notificationRepository.findAll())
+                .extracting(n -> n.getUser().getUsername())
+                .containsExactlyInAnyOrder("contractor1", "contractor2", "contractor3");
+        assertThat(emailHistoryRepository.findAll()).singleElement().satisfies(email -> {
+            assertThat(email.getRecipientEmail()).isEqualTo("contractor1@example.com");
+            assertThat(email.getStatus()).isEqualTo(EmailStatus.PENDING);
+            assertThat(email.getHtmlBody()).isEqualTo("Hi contractor1");
+            assertThat(emailAttachmentRepository.findById(email.getAttachmentId()))
+                    .hasValueSatisfying(attachment -> assertThat(attachment.getFilename()).isEqualTo("tender.pdf"));
+        });
+        verify(pushSender, timeout(2000)).sendAll(argThat(pushes -> pushes.size() == 1
+                && pushes.get(0).getUserId().equals(subscribed.getId())));
+        assertThat(fanoutService.getStats()).containsEntry("recipients", 3L);
+        assertThat(publishedEvents).hasSize(2);
+        verify(unreadCounterService, times(2)).adjustAll(anyMap());
+        assertThat(publishedEvents.stream()
+                .flatMap(event -> ((NotificationsCreatedEvent) event).getMessages().stream())
+                .map(NotificationStreamMessage::id))
+                .containsExactlyInAnyOrderElementsOf(notificationRepository.findAll().stream().map(Notification::getId).toList());
+    }
+
+    @Test
+    void testRetriedFanOutResumesAfterLastCommittedChunk() {
+        // Given
+        for (int i = 1; i <= 5; i++) {
+            user("contractor" + i, Role.CONTRACTOR);
+        }
+        NotificationService.NotificationDTO template = NotificationService.NotificationDTO.builder()
+                .type(NotificationType.TENDER_NEW_OPPORTUNITY)
+                .title("New Tender Available")
+                .message("A new tender is available")
+                .build();
+        AtomicLong cursor = new AtomicLong();
+        NotificationFanoutService.FanoutCheckpoint checkpoint = new NotificationFanoutService.FanoutCheckpoint() {
+            @Override
+            public long lastRecipientId() {
+                return cursor.get();
+            }
+
+            @Override
+            public void save(long lastRecipientId) {
+                cursor.set(lastRecipientId);
+            }
+        };
+        AtomicInteger chunks = new AtomicInteger();
+        NotificationFanoutService.RecipientSource failsOnSecondChunk = (afterId, limit) -> {
+            if (chunks.incrementAndGet() > 1) {
+                throw new IllegalStateException("connection reset");
+            }
+            return userRepository.findRecipientsByRole(Role.CONTRACTOR, afterId, PageRequest.of(0, limit));
+        };
+        assertThatThrownBy(() -> fanoutService.fanOut("contractors", failsOnSecondChunk, template, null, checkpoint))
+                .isInstanceOf(IllegalStateException.class);
+
+        // When
+        NotificationFanoutService.FanoutResult retry = fanoutService.fanOut(Role.CONTRACTOR, template,
+                (NotificationFanoutService.EmailComposer) null, checkpoint);
+
+        // Then
+        assertThat(retry.recipients()).isEqualTo(3);
+        assertThat(notificationRepository.findAll())
+                .extracting(n -> n.getUser().getUsername())
+                .containsExactlyInAnyOrder("contractor1", "contractor2", "contractor3", "contractor4", "contractor5");
+    }
+}
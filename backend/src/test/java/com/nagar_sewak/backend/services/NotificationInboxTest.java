@@ -0,0 +1,113 @@
+package com.nagar_sewak.backend.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nagar_sewak.backend.dto.NotificationInboxItem;
+import com.nagar_sewak.backend.dto.NotificationInboxPage;
+import com.nagar_sewak.backend.entities.*;
+import com.nagar_sewak.backend.repositories.NotificationRepository;
+import com.nagar_sewak.backend.repositories.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+@DataJpaTest
+@ActiveProfiles("test")
+public class NotificationInboxTest {
+
+    @Autowired
+    private NotificationRepository notificationRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private NotificationService notificationService;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        notificationService = new NotificationService(notificationRepository, mock(NotificationPreferenceService.class), userRepository,
+                new ObjectMapper(), mock(EmailService.class), mock(PdfGeneratorService.class), event -> { },
+                mock(UnreadCounterService.class), mock(NotificationPreferenceCache.class), mock(NotificationCoalescer.class),
+                mock(EmailTemplateService.class));
+
+        user = new User();
+        user.setUsername("citizen");
+        user.setEmail("citizen@example.com");
+        user.setRoles(Set.of(Role.CITIZEN));
+        user = userRepository.save(user);
+    }
+
+    private Notification notification(String title, NotificationType type, boolean read, LocalDateTime createdAt) {
+        return notificationRepository.save(Notification.builder()
+                .user(user)
+                .type(type)
+                .priority(NotificationPriority.MEDIUM)
+                .title(title)
+                .message("message")
+                .isRead(read)
+                .createdAt(createdAt)
+                .build());
+    }
+
+    @Test
+    void testKeysetPagesVisitEveryNotificationOnceNewestFirst() {
+        // Given
+        LocalDateTime base = LocalDateTime.of(2025, 1, 1, 12, 0);
+        notification("oldest", NotificationType.COMPLAINT_CREATED, false, base.minusHours(1));
+        notification("tie-1", NotificationType.COMPLAINT_CREATED, true, base);
+        notification("tie-2", NotificationType.COMPLAINT_CREATED, false, base);
+        notification("tie-3", NotificationType.COMPLAINT_CREATED, false, base);
+        notification("newest", NotificationType.COMPLAINT_CREATED, false, base.plusHours(1));
+
+        // When
+        List<String> titles = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            NotificationInboxPage page = notificationService.getInbox(user.getId(), cursor, 2, null, null, false);
+            page.getItems().forEach(item -> titles.add(item.getTitle()));
+            cursor = page.getNextCursor();
+            pages++;
+        } while (cursor != null);
+
+        // Then
+        assertThat(pages).isEqualTo(3);
+        assertThat(titles).containsExactly("newest", "tie-3", "tie-2", "tie-1", "oldest");
+    }
+
+    @Test
+    void testUnreadAndTypeFiltersNarrowThePage() {
+        // Given
+        LocalDateTime now = LocalDateTime.now();
+        notification("read comment", NotificationType.COMPLAINT_COMMENTED, true, now.minusMinutes(3));
+        notification("unread comment", NotificationType.COMPLAINT_COMMENTED, false, now.minusMinutes(2));
+        notification("unread created", NotificationType.COMPLAINT_CREATED, false, now.minusMinutes(1));
+
+        // When
+        NotificationInboxPage page = notificationService.getInbox(user.getId(), null, 20,
+                NotificationType.COMPLAINT_COMMENTED, null, true);
+
+        // Then
+        assertThat(page.getItems()).extracting(NotificationInboxItem::getTitle).containsExactly("unread comment");
+        assertThat(page.isHasMore()).isFalse();
+        assertThat(page.getNextCursor()).isNull();
+    }
+
+    @Test
+    void testMalformedCursorIsRejected() {
+        assertThatThrownBy(() -> notificationService.getInbox(user.getId(), "not-a-cursor", 20, null, null, false))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,114 @@
+package com.nagar_sewak.backend.services;
+
+import com.nagar_sewak.backend.entities.NotificationPreference;
+import com.nagar_sewak.backend.entities.NotificationType;
+import com.nagar_sewak.backend.entities.Role;
+import com.nagar_sewak.backend.entities.User;
+import com.nagar_sewak.backend.repositories.NotificationPreferenceRepository;
+import com.nagar_sewak.backend.repositories.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@ActiveProfiles("test")
+public class NotificationPreferenceCacheTest {
+
+    @Autowired
+    private NotificationPreferenceRepository preferenceRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private NotificationPreferenceCache preferenceCache;
+
+    @BeforeEach
+    void setUp() {
+        preferenceCache = new NotificationPreferenceCache(preferenceRepository, 100, 60000);
+    }
+
+    private User user(String username) {
+        User user = new User();
+        user.setUsername(username);
+        user.setEmail(username + "@example.com");
+        user.setRoles(Set.of(Role.CITIZEN));
+        return userRepository.save(user);
+    }
+
+    @Test
+    void testMatrixReflectsStoredRowsAndIsServedFromCache() {
+        // Given
+        User user = user("citizen");
+        preferenceRepository.save(NotificationPreference.builder()
+                .user(user)
+                .notificationType(NotificationType.SYSTEM_ALERT)
+                .inAppEnabled(false)
+                .emailEnabled(true)
+                .pushEnabled(true)
+                .build());
+
+        // When
+        NotificationPreferenceCache.PreferenceMatrix matrix = preferenceCache.get(user.getId());
+        preferenceCache.get(user.getId());
+
+        // Then
+        assertThat(matrix.isConfigured(NotificationType.SYSTEM_ALERT)).isTrue();
+        assertThat(matrix.isEnabled(NotificationType.SYSTEM_ALERT, NotificationPreferenceCache.Channel.IN_APP)).isFalse();
+        assertThat(matrix.isEnabled(NotificationType.SYSTEM_ALERT, NotificationPreferenceCache.Channel.EMAIL)).isTrue();
+        assertThat(matrix.isEnabled(NotificationType.SYSTEM_ALERT, NotificationPreferenceCache.Channel.PUSH)).isTrue();
+        assertThat(matrix.isConfigured(NotificationType.COMMENT)).isFalse();
+        assertThat(matrix.isEnabled(NotificationType.COMMENT, NotificationPreferenceCache.Channel.IN_APP)).isTrue();
+        assertThat(preferenceCache.getStats()).containsEntry("loads", 1L).containsEntry("hits", 1L);
+    }
+
+    @Test
+    void testInvalidateReloadsTheUsersOverrides() {
+        // Given
+        User user = user("citizen");
+        assertThat(preferenceCache.get(user.getId())
+                .isEnabled(NotificationType.COMMENT, NotificationPreferenceCache.Channel.PUSH)).isFalse();
+        preferenceRepository.save(NotificationPreference.builder()
+                .user(user)
+                .notificationType(NotificationType.COMMENT)
+                .pushEnabled(true)
+                .build());
+
+        // When
+        preferenceCache.invalidate(user.getId());
+
+        // Then
+        assertThat(preferenceCache.get(user.getId())
+                .isEnabled(NotificationType.COMMENT, NotificationPreferenceCache.Channel.PUSH)).isTrue();
+        assertThat(preferenceCache.getStats()).containsEntry("loads", 2L);
+    }
+
+    @Test
+    void testGetAllLoadsEveryMissingUserInOneQuery() {
+        // Given
+        User first = user("first");
+        User second = user("second");
+        preferenceRepository.save(NotificationPreference.builder()
+                .user(first)
+                .notificationType(NotificationType.TENDER_NEW_OPPORTUNITY)
+                .emailEnabled(true)
+                .build());
+
+        // When
+        Map<Long, NotificationPreferenceCache.PreferenceMatrix> matrices =
+                preferenceCache.getAll(List.of(first.getId(), second.getId()));
+
+        // Then
+        assertThat(matrices.get(first.getId()).isEnabled(NotificationType.TENDER_NEW_OPPORTUNITY,
+                NotificationPreferenceCache.Channel.EMAIL)).isTrue();
+        assertThat(matrices.get(second.getId()).isConfigured(NotificationType.TENDER_NEW_OPPORTUNITY)).isFalse();
+        assertThat(preferenceCache.getStats()).containsEntry("size", 2);
+    }
+}
@@ -0,0 +1,113 @@
+package com.nagar_sewak.backend.services;
+
+import com.nagar_sewak.backend.entities.NotificationPreference;
+import com.nagar_sewak.backend.entities.NotificationType;
+import com.nagar_sewak.backend.entities.Role;
+import com.nagar_sewak.backend.entities.User;
+import com.nagar_sewak.backend.repositories.NotificationPreferenceRepository;
+import com.nagar_sewak.backend.repositories.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs H2 in MySQL mode because preference writes use MySQL's INSERT ... ON DUPLICATE KEY UPDATE.
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = "spring.datasource.url=jdbc:h2:mem:preferences;MODE=MySQL;DB_CLOSE_DELAY=-1")
+public class NotificationPreferenceServiceTest {
+
+    @Autowired
+    private NotificationPreferenceRepository preferenceRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private NotificationPreferenceService preferenceService;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        preferenceService = new NotificationPreferenceService(preferenceRepository,
+                new NotificationPreferenceCache(preferenceRepository, 100, 60000), jdbcTemplate);
+
+        user = new User();
+        user.setUsername("citizen");
+        user.setEmail("citizen@example.com");
+        user.setRoles(Set.of(Role.CITIZEN));
+        user = userRepository.save(user);
+    }
+
+    @Test
+    void testNewUserReadsDefaultsWithoutStoredRows() {
+        // When
+        List<NotificationPreference> preferences = preferenceService.getUserPreferences(user);
+
+        // Then
+        assertThat(preferences).hasSize(NotificationType.values().length);
+        assertThat(preferenceRepository.findByUser(user)).isEmpty();
+        assertThat(preferenceService.isEmailEnabled(user, NotificationType.TENDER_BID_ACCEPTED)).isTrue();
+        assertThat(preferenceService.isEmailEnabled(user, NotificationType.COMMENT)).isFalse();
+        assertThat(preferenceService.isPushEnabled(user, NotificationType.SYSTEM_ALERT)).isTrue();
+    }
+
+    @Test
+    void testOnlyNonDefaultSettingsAreStoredAndUpsertedInPlace() {
+        // When
+        preferenceService.updatePreferences(user, List.of(
+                new NotificationPreferenceService.NotificationPreferenceUpdate(NotificationType.COMMENT, true, false, true),
+                new NotificationPreferenceService.NotificationPreferenceUpdate(NotificationType.MENTION, true, false, false)));
+        preferenceService.updatePreference(user, NotificationType.COMMENT, false, false, true);
+
+        // Then
+        assertThat(preferenceRepository.findByUser(user))
+                .extracting(NotificationPreference::getNotificationType)
+                .containsExactly(NotificationType.COMMENT);
+        assertThat(preferenceService.isInAppEnabled(user, NotificationType.COMMENT)).isFalse();
+        assertThat(preferenceService.isPushEnabled(user, NotificationType.COMMENT)).isTrue();
+    }
+
+    @Test
+    void testSettingBackToDefaultsRemovesTheOverride() {
+        // Given
+        preferenceService.updatePreference(user, NotificationType.COMMENT, true, true, false);
+        assertThat(preferenceService.isEmailEnabled(user, NotificationType.COMMENT)).isTrue();
+
+        // When
+        preferenceService.updatePreference(user, NotificationType.COMMENT, true, false, false);
+        preferenceService.updatePreference(user, NotificationType.MENTION, true, true, false);
+        preferenceService.resetToDefaults(user);
+
+        // Then
+        assertThat(preferenceRepository.findByUser(user)).isEmpty();
+        assertThat(preferenceService.isEmailEnabled(user, NotificationType.COMMENT)).isFalse();
+        assertThat(preferenceService.isEmailEnabled(user, NotificationType.MENTION)).isFalse();
+    }
+
+    @Test
+    void testSecurityNotificationsKeepEmailWhenEverythingIsDisabled() {
+        // When
+        NotificationPreference preference = preferenceService.updatePreference(user,
+                NotificationType.SYSTEM_ALERT, false, false, false);
+
+        // Then
+        assertThat(preference.getEmailEnabled()).isTrue();
+        assertThat(preferenceService.isPushEnabled(user, NotificationType.SYSTEM_ALERT)).isFalse();
+    }
+}
@@ -0,0 +1,120 @@
+package com.nagar_sewak.backend.services;
+
+import com.nagar_sewak.backend.entities.*;
+import com.nagar_sewak.backend.repositories.NotificationRepository;
+import com.nagar_sewak.backend.repositories.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.verify;
+
+@DataJpaTest
+@ActiveProfiles("test")
+public class NotificationRetentionServiceTest {
+
+    @Autowired
+    private NotificationRepository notificationRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private UnreadCounterService unreadCounterService;
+
+    private JobLockService jobLockService;
+
+    private NotificationRetentionService retentionService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        jobLockService = new JobLockService(jdbcTemplate);
+        retentionService = new NotificationRetentionService(jdbcTemplate, transactionTemplate, unreadCounterService,
+                jobLockService, true, 90, 2, 0, 60);
+    }
+
+    private User user(String username) {
+        User user = new User();
+        user.setUsername(username);
+        user.setEmail(username + "@example.com");
+        user.setRoles(Set.of(Role.CITIZEN));
+        return userRepository.save(user);
+    }
+
+    private void notification(User user, boolean read, LocalDateTime createdAt, LocalDateTime expiresAt) {
+        notificationRepository.save(Notification.builder()
+                .user(user)
+                .type(NotificationType.COMMENT)
+                .priority(NotificationPriority.MEDIUM)
+                .title("title")
+                .message("message")
+                .isRead(read)
+                .createdAt(createdAt)
+                .expiresAt(expiresAt)
+                .build());
+    }
+
+    @Test
+    void testPurgesExpiredAndAgedRowsInChunksAndMovesUnreadCounters() {
+        // Given
+        User alice = user("alice");
+        User bob = user("bob");
+        LocalDateTime now = LocalDateTime.now();
+        notification(alice, false, now.minusDays(1), now.minusHours(1));   // expired, unread
+        notification(alice, true, now.minusDays(1), now.minusHours(1));    // expired, read
+        notification(alice, false, now.minusDays(120), null);              // aged, unread
+        notification(bob, false, now.minusDays(100), null);                // aged, unread
+        notification(bob, false, now.minusDays(1), now.plusDays(1));       // kept
+        notification(bob, true, now.minusDays(10), null);                  // kept
+
+        // When
+        NotificationRetentionService.PurgeResult result = retentionService.purge();
+
+        // Then
+        assertThat(result.rowsPurged()).isEqualTo(4);
+        assertThat(result.unreadPurged()).isEqualTo(3);
+        assertThat(result.chunks()).isEqualTo(2);
+        assertThat(result.complete()).isTrue();
+        assertThat(notificationRepository.count()).isEqualTo(2);
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Map<Long, Long>> deltas = ArgumentCaptor.forClass(Map.class);
+        verify(unreadCounterService, atLeastOnce()).adjustAll(deltas.capture());
+        Map<Long, Long> total = new HashMap<>();
+        deltas.getAllValues().forEach(chunk -> chunk.forEach((userId, delta) -> total.merge(userId, delta, Long::sum)));
+        assertThat(total).containsEntry(alice.getId(), -2L).containsEntry(bob.getId(), -1L);
+    }
+
+    @Test
+    void testJobLockIsHeldUntilReleased() {
+        // Given
+        assertThat(jobLockService.tryLock("test-job", Duration.ofMinutes(5))).isTrue();
+
+        // When / Then
+        assertThat(jobLockService.tryLock("test-job", Duration.ofMinutes(5))).isFalse();
+        jobLockService.unlock("test-job");
+        assertThat(jobLockService.tryLock("test-job", Duration.ofMinutes(5))).isTrue();
+    }
+}
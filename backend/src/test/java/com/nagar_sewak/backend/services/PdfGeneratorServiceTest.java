@@ -0,0 +1,87 @@
+package com.nagar_sewak.backend.services;
+
+import com.nagar_sewak.backend.entities.Project;
+import com.nagar_sewak.backend.entities.ProjectMilestone;
+import com.nagar_sewak.backend.entities.Tender;
+import com.nagar_sewak.backend.reports.PdfRenderCache;
+import com.nagar_sewak.backend.reports.PdfRenderingContext;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PdfGeneratorServiceTest {
+
+    private static final PdfRenderingContext RENDERING = new PdfRenderingContext();
+
+    @TempDir
+    Path directory;
+
+    private Project project() {
+        Project project = new Project();
+        project.setId(42L);
+        project.setTitle("Ward 7 drainage");
+        project.setDescription("Replace storm drains along Station Road");
+        project.setBudget(new BigDecimal("1250000"));
+        project.setStatus("In Progress");
+        project.setProgressPercentage(50);
+        project.setCreatedAt(LocalDateTime.of(2026, 1, 5, 10, 0));
+        project.setUpdatedAt(LocalDateTime.of(2026, 3, 1, 9, 30));
+        return project;
+    }
+
+    private ProjectMilestone milestone(long id, int percentage, String notes) {
+        return ProjectMilestone.builder()
+                .id(id).percentage(percentage).status("COMPLETED").notes(notes)
+                .completedAt(LocalDateTime.of(2026, 2, 1, 12, 0)).updatedBy("contractor1")
+                .build();
+    }
+
+    @Test
+    void testProgressReportIsStreamedToDiskOnceAndRerenderedWhenAMilestoneChanges() throws Exception {
+        // Given
+        PdfGeneratorService service = new PdfGeneratorService(new PdfRenderCache(directory.toString(), 10_000_000, true), RENDERING);
+        Project project = project();
+        List<ProjectMilestone> milestones = new ArrayList<>(List.of(milestone(1, 25, "Survey done"), milestone(2, 50, "Half the drains laid")));
+
+        // When
+        PdfRenderCache.RenderedFile first = service.progressReportFile(project, milestones);
+        PdfRenderCache.RenderedFile again = service.progressReportFile(project, milestones);
+
+        // Then: a real PDF, kept in the cache and served from the same file
+        assertThat(first.temporary()).isFalse();
+        assertThat(new String(Files.readAllBytes(first.path()), 0, 5)).isEqualTo("%PDF-");
+        assertThat(again.path()).isEqualTo(first.path());
+
+        // A new milestone is a new version, even though the project row did not change
+        milestones.add(milestone(3, 75, "Road resurfaced"));
+        assertThat(service.progressReportKey(project, milestones).etag())
+                .isNotEqualTo(service.progressReportKey(project, milestones.subList(0, 2)).etag());
+        PdfRenderCache.RenderedFile updated = service.progressReportFile(project, milestones);
+        assertThat(updated.path()).isNotEqualTo(first.path());
+        assertThat(first.path()).doesNotExist();
+    }
+
+    @Test
+    void testTenderPdfBytesForEmailAttachments() {
+        PdfGeneratorService service = new PdfGeneratorService(new PdfRenderCache(directory.toString(), 10_000_000, true), RENDERING);
+        Tender tender = new Tender();
+        tender.setId(7L);
+        tender.setTitle("Streetlight maintenance");
+        tender.setDescription("Annual maintenance of ward streetlights");
+        tender.setBudget(new BigDecimal("300000"));
+        tender.setStatus("OPEN");
+
+        byte[] pdf = service.generateTenderPdf(tender);
+
+        assertThat(new String(pdf, 0, 5)).isEqualTo("%PDF-");
+        assertThat(service.generateTenderPdf(tender)).isEqualTo(pdf);
+    }
+}
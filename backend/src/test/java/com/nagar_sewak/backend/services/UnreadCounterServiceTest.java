@@ -0,0 +1,116 @@
+package com.nagar_sewak.backend.services;
+
+import com.nagar_sewak.backend.repositories.NotificationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class UnreadCounterServiceTest {
+
+    @Mock
+    private NotificationRepository notificationRepository;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private ObjectProvider<RedisConnectionFactory> connectionFactory;
+
+    private UnreadCounterService unreadCounterService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        unreadCounterService = new UnreadCounterService(notificationRepository, jdbcTemplate, connectionFactory,
+                true, 100, 60_000, 100, 5_000);
+    }
+
+    @Test
+    void testCountIsLoadedOnceThenMaintainedByDeltas() {
+        // Given
+        when(notificationRepository.countByUser_IdAndIsRead(1L, false)).thenReturn(3L);
+
+        // When
+        long loaded = unreadCounterService.get(1L);
+        unreadCounterService.adjust(1L, 1);
+        unreadCounterService.adjustAll(Map.of(1L, -2L, 2L, 5L));
+
+        // Then
+        assertThat(loaded).isEqualTo(3);
+        assertThat(unreadCounterService.get(1L)).isEqualTo(2);
+        verify(notificationRepository, times(1)).countByUser_IdAndIsRead(1L, false);
+        assertThat(unreadCounterService.getStats()).containsEntry("mode", "local").containsEntry("tableLoads", 1L);
+    }
+
+    @Test
+    void testUnreachableRedisIsSkippedUntilTheRetryInterval() {
+        // Given
+        RedisConnectionFactory factory = mock(RedisConnectionFactory.class);
+        when(factory.getConnection()).thenThrow(new RedisConnectionFailureException("Connection refused"));
+        when(connectionFactory.getIfAvailable()).thenReturn(factory);
+        UnreadCounterService service = new UnreadCounterService(notificationRepository, jdbcTemplate,
+                connectionFactory, true, 100, 60_000, 100, 60_000);
+        when(notificationRepository.countByUser_IdAndIsRead(anyLong(), eq(false))).thenReturn(2L);
+
+        // When
+        long first = service.get(1L);
+        long second = service.get(2L);
+        service.adjust(3L, 1);
+
+        // Then
+        assertThat(first).isEqualTo(2);
+        assertThat(second).isEqualTo(2);
+        verify(factory, times(1)).getConnection();
+        assertThat(service.getStats())
+                .containsEntry("redisErrors", 1L)
+                .containsEntry("redisCircuit", "open")
+                .containsEntry("staleUsers", 1);
+    }
+
+    @Test
+    void testResetAndNegativeDeltasNeverGoBelowZero() {
+        // Given
+        when(notificationRepository.countByUser_IdAndIsRead(anyLong(), eq(false))).thenReturn(4L);
+        unreadCounterService.get(1L);
+
+        // When
+        unreadCounterService.reset(1L);
+        unreadCounterService.adjust(1L, -1);
+
+        // Then
+        assertThat(unreadCounterService.get(1L)).isZero();
+    }
+
+    @Test
+    void testDeltasWaitForCommit() {
+        // Given
+        when(notificationRepository.countByUser_IdAndIsRead(1L, false)).thenReturn(1L);
+        unreadCounterService.get(1L);
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            // When
+            unreadCounterService.adjust(1L, 1);
+            long beforeCommit = unreadCounterService.get(1L);
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+
+            // Then
+            assertThat(beforeCommit).isEqualTo(1);
+            assertThat(unreadCounterService.get(1L)).isEqualTo(2);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+}
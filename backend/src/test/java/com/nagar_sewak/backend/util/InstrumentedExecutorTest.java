@@ -0,0 +1,148 @@
+package com.nagar_sewak.backend.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class InstrumentedExecutorTest {
+
+    @Test
+    void testFullPoolRunsOverflowOnCaller() throws Exception {
+        // Given
+        InstrumentedExecutor executor = InstrumentedExecutor.platform("test", 1, 1, 1,
+                InstrumentedExecutor.RejectionPolicy.CALLER_RUNS);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        executor.execute(() -> {
+            started.countDown();
+            await(release);
+        });
+        started.await(1, TimeUnit.SECONDS);
+        executor.execute(() -> { });
+        AtomicReference<Thread> ranOn = new AtomicReference<>();
+
+        // When
+        executor.execute(() -> ranOn.set(Thread.currentThread()));
+
+        // Then
+        assertThat(ranOn.get()).isSameAs(Thread.currentThread());
+        assertThat(executor.getQueueDepth()).isEqualTo(1);
+        assertThat(executor.getActiveCount()).isEqualTo(1);
+        assertThat(executor.getStats()).containsEntry("callerRuns", 1L).containsEntry("dropped", 0L);
+
+        release.countDown();
+        executor.shutdown();
+        assertThat(executor.getStats()).containsEntry("completed", 3L);
+    }
+
+    @Test
+    void testFullPoolDropsOverflowWithDropPolicy() throws Exception {
+        // Given
+        InstrumentedExecutor executor = InstrumentedExecutor.platform("test", 1, 1, 1,
+                InstrumentedExecutor.RejectionPolicy.DROP);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger ran = new AtomicInteger();
+        executor.execute(() -> await(release));
+        executor.execute(ran::incrementAndGet);
+
+        // When
+        executor.execute(ran::incrementAndGet);
+        executor.execute(ran::incrementAndGet);
+        release.countDown();
+        executor.shutdown();
+
+        // Then
+        assertThat(ran.get()).isEqualTo(1);
+        assertThat(executor.getRejectedCount()).isEqualTo(2);
+        assertThat(executor.getStats()).containsEntry("dropped", 2L).containsEntry("submitted", 4L);
+    }
+
+    @Test
+    void testTryExecuteRefusesWhenFullInsteadOfRunningOnCaller() throws Exception {
+        // Given
+        InstrumentedExecutor executor = InstrumentedExecutor.platform("test", 1, 1, 1,
+                InstrumentedExecutor.RejectionPolicy.CALLER_RUNS);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicReference<Thread> ranOn = new AtomicReference<>();
+        assertThat(executor.tryExecute(() -> await(release))).isTrue();
+        assertThat(executor.tryExecute(() -> { })).isTrue();
+
+        // When
+        boolean accepted = executor.tryExecute(() -> ranOn.set(Thread.currentThread()));
+
+        // Then
+        assertThat(accepted).isFalse();
+        assertThat(ranOn.get()).isNull();
+        assertThat(executor.getStats()).containsEntry("refused", 1L).containsEntry("callerRuns", 0L);
+
+        release.countDown();
+        executor.shutdown();
+        assertThat(executor.getStats()).containsEntry("completed", 2L);
+    }
+
+    @Test
+    void testVirtualModeCapsConcurrency() throws Exception {
+        // Given
+        InstrumentedExecutor executor = InstrumentedExecutor.virtual("test", 2, 100,
+                InstrumentedExecutor.RejectionPolicy.CALLER_RUNS);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+
+        // When
+        for (int i = 0; i < 20; i++) {
+            executor.execute(() -> {
+                peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+                sleep(5);
+                running.decrementAndGet();
+            });
+        }
+        executor.shutdown();
+
+        // Then
+        assertThat(peak.get()).isLessThanOrEqualTo(2);
+        assertThat(executor.getStats())
+                .containsEntry("mode", "virtual")
+                .containsEntry("completed", 20L)
+                .containsEntry("rejected", 0L);
+    }
+
+    @Test
+    void testFailingTaskIsCountedAndWorkerSurvives() throws Exception {
+        // Given
+        InstrumentedExecutor executor = InstrumentedExecutor.platform("test", 1, 1, 10,
+                InstrumentedExecutor.RejectionPolicy.CALLER_RUNS);
+        CountDownLatch after = new CountDownLatch(1);
+
+        // When
+        executor.execute(() -> {
+            throw new IllegalStateException("boom");
+        });
+        executor.execute(after::countDown);
+
+        // Then
+        assertThat(after.await(1, TimeUnit.SECONDS)).isTrue();
+        executor.shutdown();
+        assertThat(executor.getStats()).containsEntry("failed", 1L).containsEntry("completed", 2L);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
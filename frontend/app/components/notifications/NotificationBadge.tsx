@@ -3,6 +3,7 @@
 import { useState, useEffect } from "react";
 import { Bell } from "lucide-react";
 import { API_BASE_URL } from "@/lib/api/api";
+import { subscribeToNotifications } from "@/lib/api/notificationStream";
 import { motion, AnimatePresence } from "framer-motion";
 
 interface NotificationBadgeProps {
@@ -19,11 +20,24 @@ export default function NotificationBadge({ onClick, refreshTrigger = 0 }: Notif
   }, [refreshTrigger]);
 
   useEffect(() => {
-    fetchUnreadCount();
+    const token = localStorage.getItem("jwtToken");
+    if (!token) {
+      return;
+    }
 
-    // Poll for updates every 5 seconds for demo
-    const interval = setInterval(fetchUnreadCount, 5000);
-    return () => clearInterval(interval);
+    // The stream sends the unread count on connect, then each new notification as it arrives
+    return subscribeToNotifications(token, {
+      onUnreadCount: setCount,
+      onNotification: (notification) => {
+        setIsAnimating(true);
+        setTimeout(() => setIsAnimating(false), 500);
+        // A coalesced update is still the same single unread notification
+        if ((notification.occurrenceCount ?? 1) <= 1) {
+          setCount((current) => current + 1);
+        }
+      },
+      onResync: fetchUnreadCount,
+    });
   }, []);
 
   const fetchUnreadCount = async () => {
@@ -44,13 +58,6 @@ export default function NotificationBadge({ onClick, refreshTrigger = 0 }: Notif
         const data = await response.json();
         const newCount = data.count || 0;
 
-        console.log("Unread count:", newCount);
-
-        if (newCount > count) {
-          setIsAnimating(true);
-          setTimeout(() => setIsAnimating(false), 500);
-        }
-
         setCount(newCount);
       } else {
         // Silently fail - notification service may not be fully configured
@@ -15,6 +15,7 @@ interface Notification {
   actionUrl: string | null;
   isRead: boolean;
   createdAt: string;
+  occurrenceCount?: number;
 }
 
 interface NotificationCenterProps {
@@ -26,16 +27,16 @@ interface NotificationCenterProps {
 export default function NotificationCenter({ isOpen, onClose, onNotificationRead }: NotificationCenterProps) {
   const [notifications, setNotifications] = useState<Notification[]>([]);
   const [loading, setLoading] = useState(false);
-  const [page, setPage] = useState(0);
+  const [nextCursor, setNextCursor] = useState<string | null>(null);
   const [hasMore, setHasMore] = useState(true);
 
   useEffect(() => {
     if (isOpen) {
-      fetchNotifications(0);
+      fetchNotifications(null);
     }
   }, [isOpen]);
 
-  const fetchNotifications = async (pageNum: number) => {
+  const fetchNotifications = async (cursor: string | null) => {
     setLoading(true);
     try {
       const token = localStorage.getItem("jwtToken");
@@ -45,7 +46,8 @@ export default function NotificationCenter({ isOpen, onClose, onNotificationRead
         return;
       }
 
-      const response = await fetch(`${API_BASE_URL}/api/notifications?page=${pageNum}&size=20`, {
+      const query = cursor ? `?size=20&cursor=${encodeURIComponent(cursor)}` : "?size=20";
+      const response = await fetch(`${API_BASE_URL}/api/notifications/inbox${query}`, {
         headers: {
           Authorization: `Bearer ${token}`,
         },
@@ -53,13 +55,13 @@ export default function NotificationCenter({ isOpen, onClose, onNotificationRead
 
       if (response.ok) {
         const data = await response.json();
-        if (pageNum === 0) {
-          setNotifications(data.content);
+        if (!cursor) {
+          setNotifications(data.items);
         } else {
-          setNotifications((prev) => [...prev, ...data.content]);
+          setNotifications((prev) => [...prev, ...data.items]);
         }
-        setHasMore(!data.last);
-        setPage(pageNum);
+        setHasMore(data.hasMore);
+        setNextCursor(data.nextCursor);
       } else {
         // Silently fail - notification service may not be fully configured
         setNotifications([]);
@@ -223,7 +225,7 @@ export default function NotificationCenter({ isOpen, onClose, onNotificationRead
 
             {/* Notifications List */}
             <div className="flex-1 overflow-y-auto">
-              {loading && page === 0 ? (
+              {loading && notifications.length === 0 ? (
                 <div className="flex items-center justify-center h-32">
                   <div className="animate-spin rounded-full h-8 w-8 border-b-2 border-blue-600"></div>
                 </div>
@@ -269,7 +271,7 @@ export default function NotificationCenter({ isOpen, onClose, onNotificationRead
               {hasMore && !loading && notifications.length > 0 && (
                 <div className="p-4 text-center">
                   <button
-                    onClick={() => fetchNotifications(page + 1)}
+                    onClick={() => fetchNotifications(nextCursor)}
                     className="text-sm text-blue-600 hover:text-blue-700 font-medium"
                   >
                     Load more
@@ -301,6 +303,9 @@ function NotificationItem({
         <div className="flex items-start justify-between gap-2 mb-1">
           <h3 className="font-semibold text-sm text-gray-900 line-clamp-1">
             {notification.title}
+            {(notification.occurrenceCount ?? 1) > 1 && (
+              <span className="ml-1 text-xs font-normal text-gray-500">×{notification.occurrenceCount}</span>
+            )}
           </h3>
           {!notification.isRead && (
             <div className="w-2 h-2 bg-blue-600 rounded-full flex-shrink-0 mt-1"></div>
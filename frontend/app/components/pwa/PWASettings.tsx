@@ -8,6 +8,9 @@ import {
   requestNotificationPermission,
   subscribeToPushNotifications,
   unsubscribeFromPushNotifications,
+  fetchVapidPublicKey,
+  sendSubscriptionToBackend,
+  removeSubscriptionFromBackend,
   isAppInstalled,
   getCacheSize,
   clearCache,
@@ -77,9 +80,11 @@ export default function PWASettings() {
     if (permission === 'granted') {
       const registration = await navigator.serviceWorker.getRegistration();
       if (registration) {
-        // You'll need to replace this with your actual VAPID public key
-        const vapidKey = process.env.NEXT_PUBLIC_VAPID_PUBLIC_KEY || '';
-        await subscribeToPushNotifications(registration, vapidKey);
+        const vapidKey = (await fetchVapidPublicKey()) || process.env.NEXT_PUBLIC_VAPID_PUBLIC_KEY || '';
+        const subscription = await subscribeToPushNotifications(registration, vapidKey);
+        if (subscription) {
+          await sendSubscriptionToBackend(subscription);
+        }
       }
     }
     setLoading(false);
@@ -89,6 +94,10 @@ export default function PWASettings() {
     setLoading(true);
     const registration = await navigator.serviceWorker.getRegistration();
     if (registration) {
+      const subscription = await registration.pushManager.getSubscription();
+      if (subscription) {
+        await removeSubscriptionFromBackend(subscription.endpoint);
+      }
       await unsubscribeFromPushNotifications(registration);
     }
     setLoading(false);
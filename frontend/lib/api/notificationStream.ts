@@ -0,0 +1,135 @@
+// lib/api/notificationStream.ts
+import { API_BASE_URL } from "./api";
+
+export interface StreamedNotification {
+  id: number;
+  userId: number;
+  type: string;
+  priority: string;
+  title: string;
+  message: string;
+  actionUrl?: string;
+  createdAt: string;
+  /** Greater than 1 when repeat events were coalesced into this notification */
+  occurrenceCount: number;
+}
+
+interface NotificationStreamHandlers {
+  onUnreadCount?: (count: number) => void;
+  onNotification?: (notification: StreamedNotification) => void;
+  /** The server could not replay everything missed; reload the list */
+  onResync?: () => void;
+}
+
+const MAX_RETRY_DELAY = 30000;
+
+/**
+ * Subscribe to /api/notifications/stream (server-sent events).
+ * Uses fetch rather than EventSource so the JWT can go in the Authorization header.
+ * Reconnects with backoff and sends Last-Event-ID so missed notifications are replayed.
+ * Returns a function that closes the stream.
+ */
+export function subscribeToNotifications(
+  token: string,
+  handlers: NotificationStreamHandlers
+): () => void {
+  const controller = new AbortController();
+  const seen = new Set<string>();
+  let lastEventId: string | null = null;
+  let retryDelay = 1000;
+
+  const dispatch = (event: string, data: string, id: string | null) => {
+    if (id) {
+      lastEventId = id;
+    }
+    const payload = data ? JSON.parse(data) : {};
+    if (event === "unread") {
+      handlers.onUnreadCount?.(payload.count ?? 0);
+    } else if (event === "notification") {
+      // Replays may overlap with live delivery; show each notification (and each coalesced update) once
+      const key = `${payload.id}:${payload.occurrenceCount ?? 1}`;
+      if (seen.has(key)) {
+        return;
+      }
+      seen.add(key);
+      handlers.onNotification?.(payload);
+    } else if (event === "resync") {
+      handlers.onResync?.();
+    }
+  };
+
+  const connect = async () => {
+    const headers: Record<string, string> = {
+      Authorization: `Bearer ${token}`,
+      Accept: "text/event-stream",
+    };
+    if (lastEventId) {
+      headers["Last-Event-ID"] = lastEventId;
+    }
+
+    const response = await fetch(`${API_BASE_URL}/api/notifications/stream`, {
+      headers,
+      signal: controller.signal,
+    });
+    if (response.status === 401 || response.status === 403) {
+      controller.abort();
+      return;
+    }
+    if (!response.ok || !response.body) {
+      throw new Error(`Notification stream failed: ${response.status}`);
+    }
+    retryDelay = 1000;
+
+    const reader = response.body.getReader();
+    const decoder = new TextDecoder();
+    let buffer = "";
+
+    while (true) {
+      const { done, value } = await reader.read();
+      if (done) {
+        return;
+      }
+      buffer += decoder.decode(value, { stream: true });
+
+      let boundary;
+      while ((boundary = buffer.search(/\r?\n\r?\n/)) !== -1) {
+        const frame = buffer.slice(0, boundary);
+        buffer = buffer.slice(boundary).replace(/^\r?\n\r?\n/, "");
+
+        let event = "message";
+        let id: string | null = null;
+        const data: string[] = [];
+        for (const line of frame.split(/\r?\n/)) {
+          if (line.startsWith(":")) continue; // heartbeat
+          const separator = line.indexOf(":");
+          const field = separator === -1 ? line : line.slice(0, separator);
+          const fieldValue = separator === -1 ? "" : line.slice(separator + 1).replace(/^ /, "");
+          if (field === "event") event = fieldValue;
+          else if (field === "id") id = fieldValue;
+          else if (field === "data") data.push(fieldValue);
+        }
+        if (data.length > 0 || id) {
+          dispatch(event, data.join("\n"), id);
+        }
+      }
+    }
+  };
+
+  const run = async () => {
+    while (!controller.signal.aborted) {
+      try {
+        await connect();
+      } catch {
+        // Network error or server restart; retry below
+      }
+      if (controller.signal.aborted) {
+        return;
+      }
+      await new Promise((resolve) => setTimeout(resolve, retryDelay));
+      retryDelay = Math.min(retryDelay * 2, MAX_RETRY_DELAY);
+    }
+  };
+
+  run();
+  return () => controller.abort();
+}
@@ -1,5 +1,7 @@
 // PWA Utilities for Service Worker and Push Notifications
 
+import { API_BASE_URL, Token } from '@/lib/api/api';
+
 export interface PushSubscriptionData {
   endpoint: string;
   keys: {
@@ -128,21 +130,31 @@ export async function unsubscribeFromPushNotifications(
   }
 }
 
+// Fetch the server's VAPID public key for pushManager.subscribe
+export async function fetchVapidPublicKey(): Promise<string | null> {
+  try {
+    const response = await fetch(`${API_BASE_URL}/api/notifications/push/vapid-public-key`, {
+      headers: { Authorization: `Bearer ${Token.get() ?? ''}` },
+    });
+    if (!response.ok) return null;
+    const data = await response.json();
+    return data.publicKey ?? null;
+  } catch (error) {
+    console.error('Failed to fetch VAPID public key:', error);
+    return null;
+  }
+}
+
 // Send Push Subscription to Backend
-export async function sendSubscriptionToBackend(
-  subscription: PushSubscription,
-  userId?: string
-): Promise<boolean> {
+export async function sendSubscriptionToBackend(subscription: PushSubscription): Promise<boolean> {
   try {
-    const response = await fetch('/api/push/subscribe', {
+    const response = await fetch(`${API_BASE_URL}/api/notifications/push/subscriptions`, {
       method: 'POST',
       headers: {
         'Content-Type': 'application/json',
+        Authorization: `Bearer ${Token.get() ?? ''}`,
       },
-      body: JSON.stringify({
-        subscription,
-        userId,
-      }),
+      body: JSON.stringify(subscription.toJSON()),
     });
 
     return response.ok;
@@ -152,6 +164,23 @@ export async function sendSubscriptionToBackend(
   }
 }
 
+// Remove Push Subscription from Backend
+export async function removeSubscriptionFromBackend(endpoint: string): Promise<boolean> {
+  try {
+    const response = await fetch(
+      `${API_BASE_URL}/api/notifications/push/subscriptions?endpoint=${encodeURIComponent(endpoint)}`,
+      {
+        method: 'DELETE',
+        headers: { Authorization: `Bearer ${Token.get() ?? ''}` },
+      }
+    );
+    return response.ok;
+  } catch (error) {
+    console.error('Failed to remove subscription from backend:', error);
+    return false;
+  }
+}
+
 // Check if app is installed (PWA)
 export function isAppInstalled(): boolean {
   if (typeof window === 'undefined') return false;